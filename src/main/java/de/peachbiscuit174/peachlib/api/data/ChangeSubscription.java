@@ -0,0 +1,38 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A listener registered with {@link Table#watch(Class, java.util.function.Consumer)}.
+ * Cancel it once the changes are no longer needed, e.g. in {@code onDisable}.
+ */
+public final class ChangeSubscription implements AutoCloseable {
+
+    private final Runnable unsubscribe;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    ChangeSubscription(Runnable unsubscribe) {
+        this.unsubscribe = unsubscribe;
+    }
+
+    /**
+     * Stops delivering changes to the listener. A poll that is already running may still deliver its changes.
+     */
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            unsubscribe.run();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Same as {@link #cancel()}.
+     */
+    @Override
+    public void close() {
+        cancel();
+    }
+}
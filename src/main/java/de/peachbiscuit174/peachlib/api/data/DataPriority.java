@@ -0,0 +1,25 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+/**
+ * Scheduling class of a database operation.
+ * <p>
+ * Each storage connection serves queued operations of a higher class first, so a player waiting for
+ * a GUI is not stuck behind a large autosave. Lower classes are protected against starvation: once the
+ * oldest operation of a class has waited too long, it is executed ahead of the higher classes.
+ * Operations on the same id always keep their submission order, regardless of their class.
+ * </p>
+ */
+public enum DataPriority {
+    /**
+     * Latency sensitive operations a player is actively waiting for. Default for reads.
+     */
+    INTERACTIVE,
+    /**
+     * Regular operations. Default for writes, deletes and key lookups.
+     */
+    NORMAL,
+    /**
+     * Background work like autosaves or migrations that may be delayed in favour of everything else.
+     */
+    BULK
+}
@@ -0,0 +1,112 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+import de.peachbiscuit174.peachlib.data.leaderboard.LeaderboardIndex;
+import de.peachbiscuit174.peachlib.data.leaderboard.OrderStatisticTree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ranking of the documents of a table by a numeric field, see {@link Table#leaderboard(String)}.
+ * <p>
+ * The ranking is held in memory in an order-statistic tree, so ranks and windows are answered in O(log n)
+ * without querying the backend, e.g. directly on the main thread when a {@link de.peachbiscuit174.peachlib.gui.PaginatedGUI}
+ * page is built. It is loaded once and then updated with every modification this server executes on the table.
+ * Modifications made by other servers sharing the database are not visible. Documents whose field is missing
+ * or not a number are not ranked; documents with equal scores are ranked by id.
+ * </p>
+ */
+public final class Leaderboard {
+
+    private final LeaderboardIndex index;
+
+    Leaderboard(LeaderboardIndex index) {
+        this.index = index;
+    }
+
+    public String getField() {
+        return index.getField();
+    }
+
+    /**
+     * @return The number of ranked documents.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return The 1-based rank of a document, or -1 if it is not ranked.
+     */
+    public int getRank(String id) {
+        int position = index.indexOf(id);
+        return position < 0 ? -1 : position + 1;
+    }
+
+    /**
+     * @return The score of a document, or null if it is not ranked.
+     */
+    public Double getScore(String id) {
+        return index.getScore(id);
+    }
+
+    /**
+     * @return The best ranked documents, at most {@code count}.
+     */
+    public List<LeaderboardEntry> top(int count) {
+        return range(1, count);
+    }
+
+    /**
+     * Returns the window around a document, e.g. the five players ranked above and below a player.
+     * The window is cut at the top and bottom of the ranking.
+     *
+     * @param radius The number of documents above and below.
+     * @return The window including the document, or an empty list if it is not ranked.
+     */
+    public List<LeaderboardEntry> around(String id, int radius) {
+        int rank = getRank(id);
+        if (rank < 0) return List.of();
+        int from = Math.max(1, rank - radius);
+        return range(from, (int) Math.min(Integer.MAX_VALUE, (long) rank + radius - from + 1));
+    }
+
+    /**
+     * @param page     The 0-based page.
+     * @param pageSize The number of entries per page.
+     * @return The entries of the page, fewer on the last page.
+     */
+    public List<LeaderboardEntry> page(int page, int pageSize) {
+        if (page < 0 || pageSize < 1) {
+            throw new IllegalArgumentException("page must not be negative and pageSize must be at least 1");
+        }
+        return range((int) Math.min(Integer.MAX_VALUE, (long) page * pageSize + 1), pageSize);
+    }
+
+    /**
+     * @return The number of pages of the given size, at least 1.
+     */
+    public int getPageCount(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        return Math.max(1, (size() + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * @param fromRank The 1-based rank of the first entry.
+     * @param count    The maximum number of entries.
+     * @return The entries in rank order.
+     */
+    public List<LeaderboardEntry> range(int fromRank, int count) {
+        if (fromRank < 1 || count < 0) {
+            throw new IllegalArgumentException("fromRank must be at least 1 and count must not be negative");
+        }
+        List<OrderStatisticTree.Entry> entries = index.range(fromRank - 1, count);
+        List<LeaderboardEntry> result = new ArrayList<>(entries.size());
+        for (OrderStatisticTree.Entry entry : entries) {
+            result.add(new LeaderboardEntry(entry.index() + 1, entry.id(), entry.score()));
+        }
+        return result;
+    }
+}
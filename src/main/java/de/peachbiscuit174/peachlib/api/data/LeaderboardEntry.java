@@ -0,0 +1,14 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+/**
+ * A ranked document of a {@link Leaderboard}.
+ *
+ * @param rank  The 1-based rank.
+ * @param id    The primary key of the document.
+ * @param score The value of the ranked field.
+ */
+public record LeaderboardEntry(
+        int rank,
+        String id,
+        double score
+) {}
@@ -0,0 +1,93 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+import de.peachbiscuit174.peachlib.api.data.codec.Codec;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.data.codec.CodecRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A partial update of a document, see {@link Table#patch(String, Patch)}.
+ * <p>
+ * Fields are addressed by paths in dot notation with optional array indexes, e.g. {@code coins},
+ * {@code stats.kills} or {@code inventory[2].amount}. Path segments may contain alphanumeric characters,
+ * '_' and '-'. Operations are applied in the order they were added. Setting a field whose parent object does
+ * not exist is ignored, so nested objects have to be created by setting the parent first.
+ * </p>
+ * <pre>{@code
+ * table.patch(uuid, Patch.create()
+ *         .set("coins", 250)
+ *         .set("stats.kills", 12)
+ *         .remove("legacyRank"));
+ * }</pre>
+ */
+public final class Patch {
+
+    private record Change(String path, Object value, boolean remove) {}
+
+    private final List<Change> changes = new ArrayList<>();
+
+    private Patch() {}
+
+    public static Patch create() {
+        return new Patch();
+    }
+
+    /**
+     * Creates a patch setting every entry of the map, in iteration order.
+     *
+     * @param fieldUpdates Path to new value. A null value sets the field to JSON null.
+     */
+    public static Patch of(Map<String, ?> fieldUpdates) {
+        Patch patch = new Patch();
+        fieldUpdates.forEach(patch::set);
+        return patch;
+    }
+
+    /**
+     * Sets a field to a value, serialized with the default JSON codec of its class.
+     * Existing fields are replaced, missing fields are added to their parent object.
+     *
+     * @param path  The path of the field.
+     * @param value The new value, null sets the field to JSON null.
+     * @return This patch.
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public Patch set(String path, Object value) {
+        DocumentPatch.parsePath(path);
+        changes.add(new Change(path, value, false));
+        return this;
+    }
+
+    /**
+     * Removes a field. Removing a missing field has no effect.
+     *
+     * @param path The path of the field.
+     * @return This patch.
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public Patch remove(String path) {
+        DocumentPatch.parsePath(path);
+        changes.add(new Change(path, null, true));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    DocumentPatch encode(CodecRegistry codecs) throws Exception {
+        List<DocumentPatch.Operation> operations = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            String jsonValue = null;
+            if (!change.remove()) {
+                jsonValue = change.value() == null ? "null" : ((Codec<Object>) codecs.forClass(change.value().getClass())).encode(change.value());
+            }
+            operations.add(new DocumentPatch.Operation(change.path(), jsonValue));
+        }
+        return new DocumentPatch(operations);
+    }
+}
@@ -0,0 +1,143 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+import de.peachbiscuit174.peachlib.api.data.codec.Codec;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentQuery;
+import de.peachbiscuit174.peachlib.data.codec.CodecRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A filtered and sorted query over the documents of a table, see {@link Table#query(Query, Class)}.
+ * <p>
+ * Fields are addressed by paths in the notation of {@link Patch}. Filters compare a field with a string, number
+ * or boolean (or any value whose codec produces one, e.g. an enum) and only match fields of the same type:
+ * numbers are compared numerically, strings by their characters, booleans only for equality. Documents missing
+ * the field never match a filter. Orders sort missing fields first (last if descending), followed by numbers,
+ * strings and booleans; ties are sorted by id.
+ * </p>
+ * <pre>{@code
+ * table.query(Query.create()
+ *         .greaterThan("lastSeen", System.currentTimeMillis() - Duration.ofDays(30).toMillis())
+ *         .where("quest.state", "ACTIVE")
+ *         .orderByDescending("balance")
+ *         .limit(10), PlayerData.class);
+ * }</pre>
+ */
+public final class Query {
+
+    private record Condition(String path, DocumentQuery.Operator operator, Object value) {}
+
+    private final List<Condition> conditions = new ArrayList<>();
+    private final List<DocumentQuery.Order> orders = new ArrayList<>();
+    private long offset;
+    private long limit = DocumentQuery.NO_LIMIT;
+
+    private Query() {}
+
+    public static Query create() {
+        return new Query();
+    }
+
+    /**
+     * Only matches documents whose field equals the value.
+     *
+     * @return This query.
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public Query where(String path, Object value) {
+        return condition(path, DocumentQuery.Operator.EQUAL, value);
+    }
+
+    public Query greaterThan(String path, Object value) {
+        return condition(path, DocumentQuery.Operator.GREATER, value);
+    }
+
+    public Query greaterOrEqual(String path, Object value) {
+        return condition(path, DocumentQuery.Operator.GREATER_OR_EQUAL, value);
+    }
+
+    public Query lessThan(String path, Object value) {
+        return condition(path, DocumentQuery.Operator.LESS, value);
+    }
+
+    public Query lessOrEqual(String path, Object value) {
+        return condition(path, DocumentQuery.Operator.LESS_OR_EQUAL, value);
+    }
+
+    /**
+     * Sorts by a field in ascending order. Further orders are applied to documents with equal values.
+     *
+     * @return This query.
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public Query orderBy(String path) {
+        orders.add(new DocumentQuery.Order(path, false));
+        return this;
+    }
+
+    /**
+     * Sorts by a field in descending order.
+     *
+     * @return This query.
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public Query orderByDescending(String path) {
+        orders.add(new DocumentQuery.Order(path, true));
+        return this;
+    }
+
+    /**
+     * Skips the first matching documents.
+     *
+     * @return This query.
+     */
+    public Query offset(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Limits the number of returned documents.
+     *
+     * @return This query.
+     */
+    public Query limit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    private Query condition(String path, DocumentQuery.Operator operator, Object value) {
+        DocumentPatch.parsePath(path);
+        if (value == null) {
+            throw new IllegalArgumentException("Filter value of " + path + " must not be null.");
+        }
+        conditions.add(new Condition(path, operator, value));
+        return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException If a value is not encoded to a string, number or boolean, or cannot be encoded.
+     */
+    @SuppressWarnings("unchecked")
+    DocumentQuery encode(CodecRegistry codecs) {
+        List<DocumentQuery.Filter> filters = new ArrayList<>(conditions.size());
+        for (Condition condition : conditions) {
+            String jsonValue;
+            try {
+                jsonValue = ((Codec<Object>) codecs.forClass(condition.value().getClass())).encode(condition.value());
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Could not encode the filter value of " + condition.path(), e);
+            }
+            filters.add(new DocumentQuery.Filter(condition.path(), condition.operator(), jsonValue));
+        }
+        return new DocumentQuery(filters, orders, offset, limit);
+    }
+}
@@ -0,0 +1,19 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+/**
+ * Physical representation of the values of a table.
+ * Selected when a table is created with
+ * {@link de.peachbiscuit174.peachlib.api.managers.DataManager#getTable(String, String, StorageFormat)}.
+ * Values are always exchanged as JSON, the conversion is transparent for {@link Table}.
+ */
+public enum StorageFormat {
+    /**
+     * Values are stored as JSON text (JSON/LONGTEXT column for MySQL, TEXT for SQLite).
+     */
+    JSON,
+    /**
+     * Values are stored in a compact binary encoding in a BLOB column. Large values are additionally
+     * compressed with Deflate. Supported by the MySQL and SQLite backends; other backends keep storing JSON.
+     */
+    BINARY
+}
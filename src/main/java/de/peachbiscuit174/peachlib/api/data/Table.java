@@ -1,27 +1,58 @@
 package de.peachbiscuit174.peachlib.api.data;
 
 import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.codec.Codec;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.Change;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentQuery;
 import de.peachbiscuit174.peachlib.api.managers.DataManager;
+import de.peachbiscuit174.peachlib.data.DeferredValue;
+import de.peachbiscuit174.peachlib.data.DocumentKey;
+import de.peachbiscuit174.peachlib.data.DocumentUpdate;
 import de.peachbiscuit174.peachlib.data.Task;
 import de.peachbiscuit174.peachlib.data.cache.TableCache;
+import de.peachbiscuit174.peachlib.data.changes.DecodingChangeCursor;
+import de.peachbiscuit174.peachlib.data.codec.CodecRegistry;
+import de.peachbiscuit174.peachlib.data.index.IndexKey;
+import de.peachbiscuit174.peachlib.data.query.QueryEvaluator;
+import de.peachbiscuit174.peachlib.data.scan.DecodingCursor;
+import de.peachbiscuit174.peachlib.data.scan.PagedPublisher;
 import org.jetbrains.annotations.ApiStatus;
 
-import com.google.gson.Gson;
-
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 
 /**
  * Wrapper class representing a specific table or collection in the database.
  * Provides fully asynchronous methods for JSON document management.
+ * Values are converted with the shared Gson codecs of the DataManager, which resolve the type adapter of
+ * every class only once. Use {@link #typed(Codec)} for a handle bound to a single value type and codec.
  */
 public class Table {
 
+    /**
+     * Expected timestamp for {@link #compareAndSet(String, long, Object)} if the document must not exist yet.
+     */
+    public static final long ABSENT = -1L;
+
     private final DataManager dataManager;
     private final String connectionId;
     private final String tableName;
-    private final Gson gson;
+    private final CodecRegistry codecs;
 
     private TableCache cache;
 
@@ -33,7 +64,7 @@ public class Table {
         this.dataManager = dataManager;
         this.connectionId = connectionId;
         this.tableName = tableName;
-        this.gson = new Gson();
+        this.codecs = dataManager.getCodecs();
     }
 
     /**
@@ -50,24 +81,122 @@ public class Table {
         }
     }
 
+    /**
+     * Creates a handle of this table bound to a value type, using the default JSON codec of the class.
+     *
+     * @param clazz The value type.
+     * @return The typed handle. It shares the cache with this table.
+     */
+    public <T> TypedTable<T> typed(Class<T> clazz) {
+        return new TypedTable<>(this, codecs.forClass(clazz));
+    }
+
+    /**
+     * Creates a handle of this table bound to a value type and a custom codec.
+     *
+     * @param codec The codec used for every value of the handle.
+     * @return The typed handle. It shares the cache with this table.
+     */
+    public <T> TypedTable<T> typed(Codec<T> codec) {
+        return new TypedTable<>(this, codec);
+    }
+
     /**
      * Asynchronously writes an object to the database as a JSON document.
      *
      * @param id    The primary key.
      * @param value The object to be serialized.
-     * @return A CompletableFuture completing upon operation finish.
+     * @return A CompletableFuture completing upon operation finish. Completes with a
+     * {@link java.util.concurrent.RejectedExecutionException} if the connection queue is full
+     * and its {@link de.peachbiscuit174.peachlib.api.managers.QueueLimits} do not allow to wait or spill.
      */
     public CompletableFuture<Void> set(String id, Object value) {
+        return set(id, value, DataPriority.NORMAL);
+    }
+
+    /**
+     * Asynchronously writes an object to the database with the given scheduling class.
+     * Use {@link DataPriority#BULK} for autosaves and other background writes, so reads of
+     * waiting players are served first.
+     *
+     * @param id       The primary key.
+     * @param value    The object to be serialized.
+     * @param priority The scheduling class of the write.
+     * @return A CompletableFuture completing upon operation finish.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Void> set(String id, Object value, DataPriority priority) {
+        if (value == null) {
+            return setEncoded(id, "null", priority);
+        }
+        return set(id, value, (Codec<Object>) codecs.forClass(value.getClass()), priority);
+    }
+
+    <T> CompletableFuture<Void> set(String id, T value, Codec<T> codec, DataPriority priority) {
+        String jsonValue;
+        try {
+            jsonValue = codec.encode(value);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return setEncoded(id, jsonValue, priority);
+    }
+
+    /**
+     * Asynchronously writes a value that is produced and serialized by the data worker instead of the calling thread,
+     * which takes the JSON encoding and the crash log entry off the calling (e.g. main) thread.
+     * The supplier is invoked once on a worker thread right before the write (not at all if the write was
+     * superseded by a newer one of the same id), so it must be thread-safe: copy mutable state on the calling
+     * thread and let the supplier return the copy, or return an immutable object.
+     * Writes that are not encoded yet are not covered by the crash log.
+     *
+     * @param id       The primary key.
+     * @param snapshot Supplies the object to be serialized.
+     * @return A CompletableFuture completing upon operation finish, or exceptionally if the value could not be encoded.
+     */
+    public CompletableFuture<Void> setDeferred(String id, Supplier<?> snapshot) {
+        return setDeferred(id, snapshot, DataPriority.NORMAL);
+    }
+
+    /**
+     * Like {@link #setDeferred(String, Supplier)} with the given scheduling class.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Void> setDeferred(String id, Supplier<?> snapshot, DataPriority priority) {
+        return enqueueDeferred(id, () -> {
+            Object value = snapshot.get();
+            return value == null ? "null" : ((Codec<Object>) codecs.forClass(value.getClass())).encode(value);
+        }, priority);
+    }
+
+    <T> CompletableFuture<Void> setDeferred(String id, Supplier<? extends T> snapshot, Codec<T> codec, DataPriority priority) {
+        return enqueueDeferred(id, () -> codec.encode(snapshot.get()), priority);
+    }
+
+    private CompletableFuture<Void> enqueueDeferred(String id, Callable<String> encoder, DataPriority priority) {
         CompletableFuture<Object> future = new CompletableFuture<>();
-        String jsonValue = gson.toJson(value);
+        long currentTimestamp = dataManager.getTimeProvider().getCurrentTime();
+
+        if (cache != null) {
+            // The new value is not known yet; the next read is queued behind the write
+            cache.removeFromCache(id);
+        }
+
+        Task task = new Task(Task.TaskType.WRITE, connectionId, tableName, id, null, currentTimestamp, future, new DeferredValue(encoder), priority);
+        dataManager.enqueueTask(task);
+
+        return future.thenApply(res -> null);
+    }
 
+    private CompletableFuture<Void> setEncoded(String id, String jsonValue, DataPriority priority) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
         long currentTimestamp = dataManager.getTimeProvider().getCurrentTime();
 
         if (cache != null) {
             cache.saveToCache(id, jsonValue);
         }
 
-        Task task = new Task(Task.TaskType.WRITE, connectionId, tableName, id, jsonValue, currentTimestamp, future);
+        Task task = new Task(Task.TaskType.WRITE, connectionId, tableName, id, jsonValue, currentTimestamp, future, null, priority);
         dataManager.enqueueTask(task);
 
         return future.thenApply(res -> null);
@@ -76,17 +205,26 @@ public class Table {
     /**
      * Asynchronously reads a document from the database and deserializes it.
      * Checks the ultra-fast local SQLite cache first if enabled.
+     * Concurrent reads of the same id share a single database call, and a document with a
+     * pending (not yet persisted) {@link #set} or {@link #delete} is answered from memory.
      *
      * @param id    The primary key.
      * @param clazz The target class type for deserialization.
      * @return A CompletableFuture containing the object, or null if not found.
      */
-    @SuppressWarnings("unchecked")
     public <T> CompletableFuture<T> get(String id, Class<T> clazz) {
+        return get(id, codecs.forClass(clazz));
+    }
+
+    <T> CompletableFuture<T> get(String id, Codec<T> codec) {
         if (cache != null) {
             String cachedJson = cache.getCachedValue(id);
             if (cachedJson != null) {
-                return CompletableFuture.completedFuture(gson.fromJson(cachedJson, clazz));
+                try {
+                    return CompletableFuture.completedFuture(codec.decode(cachedJson));
+                } catch (Exception e) {
+                    return CompletableFuture.failedFuture(e);
+                }
             }
         }
 
@@ -102,7 +240,58 @@ public class Table {
                 cache.saveToCache(id, resultStr);
             }
 
-            return gson.fromJson(resultStr, clazz);
+            return decode(codec, resultStr);
+        });
+    }
+
+    /**
+     * Asynchronously reads multiple documents in a single round trip and deserializes them.
+     * Ids found in the local cache are served from it, the remaining ids are loaded with one
+     * batched query (e.g. {@code WHERE id IN (...)} for SQL backends).
+     *
+     * @param ids   The primary keys to load.
+     * @param clazz The target class type for deserialization.
+     * @return A CompletableFuture containing a map of id to object. Ids without a document are not contained.
+     */
+    public <T> CompletableFuture<Map<String, T>> getAll(Collection<String> ids, Class<T> clazz) {
+        return getAll(ids, codecs.forClass(clazz));
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<Map<String, T>> getAll(Collection<String> ids, Codec<T> codec) {
+        Map<String, T> results = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+
+        try {
+            for (String id : ids) {
+                String cachedJson = cache != null ? cache.getCachedValue(id) : null;
+                if (cachedJson != null) {
+                    results.put(id, codec.decode(cachedJson));
+                } else {
+                    missing.add(id);
+                }
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(results);
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Task task = new Task(Task.TaskType.READ_MANY, connectionId, tableName, null, null, 0L, future, List.copyOf(missing));
+        dataManager.enqueueTask(task);
+
+        return future.thenApply(res -> {
+            Map<String, String> values = (Map<String, String>) res;
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (cache != null) {
+                    cache.saveToCache(entry.getKey(), entry.getValue());
+                }
+                results.put(entry.getKey(), decode(codec, entry.getValue()));
+            }
+            return results;
         });
     }
 
@@ -113,6 +302,17 @@ public class Table {
      * @return A CompletableFuture completing upon deletion.
      */
     public CompletableFuture<Void> delete(String id) {
+        return delete(id, DataPriority.NORMAL);
+    }
+
+    /**
+     * Asynchronously deletes a document with the given scheduling class.
+     *
+     * @param id       The primary key.
+     * @param priority The scheduling class of the delete.
+     * @return A CompletableFuture completing upon deletion.
+     */
+    public CompletableFuture<Void> delete(String id, DataPriority priority) {
         CompletableFuture<Object> future = new CompletableFuture<>();
         long currentTimestamp = dataManager.getTimeProvider().getCurrentTime();
 
@@ -120,12 +320,292 @@ public class Table {
             cache.removeFromCache(id);
         }
 
-        Task task = new Task(Task.TaskType.DELETE, connectionId, tableName, id, null, currentTimestamp, future);
+        Task task = new Task(Task.TaskType.DELETE, connectionId, tableName, id, null, currentTimestamp, future, null, priority);
         dataManager.enqueueTask(task);
 
         return future.thenApply(res -> null);
     }
 
+    /**
+     * Asynchronously updates single fields of a document without rewriting it.
+     * Every key of the map is a field path (see {@link Patch}), every value is serialized with its default codec.
+     *
+     * @param id           The primary key.
+     * @param fieldUpdates Path to new value.
+     * @return A CompletableFuture completing upon operation finish.
+     */
+    public CompletableFuture<Void> patch(String id, Map<String, ?> fieldUpdates) {
+        return patch(id, Patch.of(fieldUpdates), DataPriority.NORMAL);
+    }
+
+    /**
+     * Asynchronously applies a partial update to a document.
+     * <p>
+     * MySQL and SQLite apply the patch inside the database ({@code JSON_SET}/{@code JSON_REMOVE}), other backends
+     * and binary tables read, modify and write the document on the data worker. A missing document is created
+     * from an empty object. Like {@link #set}, the patch is only applied if it is newer than the stored document,
+     * and it is ordered with all other operations on the same id.
+     * </p>
+     *
+     * @param id    The primary key.
+     * @param patch The changes to apply.
+     * @return A CompletableFuture completing upon operation finish.
+     */
+    public CompletableFuture<Void> patch(String id, Patch patch) {
+        return patch(id, patch, DataPriority.NORMAL);
+    }
+
+    /**
+     * Like {@link #patch(String, Patch)} with the given scheduling class.
+     */
+    public CompletableFuture<Void> patch(String id, Patch patch, DataPriority priority) {
+        if (patch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String jsonPatch;
+        try {
+            jsonPatch = patch.encode(codecs).toJson();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        long currentTimestamp = dataManager.getTimeProvider().getCurrentTime();
+
+        if (cache != null) {
+            // The patched value is only known to the backend; the next read is queued behind the patch
+            cache.removeFromCache(id);
+        }
+
+        Task task = new Task(Task.TaskType.PATCH, connectionId, tableName, id, jsonPatch, currentTimestamp, future, null, priority);
+        dataManager.enqueueTask(task);
+
+        return future.thenApply(res -> null);
+    }
+
+    /**
+     * Adds a delta to a numeric field of a document, e.g. a kill or block counter.
+     * <p>
+     * Increments are summed up in memory and written about once per second as a single atomic update per
+     * document, which MySQL executes on the server ({@code JSON_SET} with the stored value plus the delta), so
+     * increments from several servers sharing the database add up. Tables using the binary storage format and the
+     * other backends read the document and write it back only if it was not modified in the meantime, retrying
+     * otherwise; deltas that still fail are kept for the next flush. A missing document is created, a missing or
+     * non-numeric field (e.g. a string) starts at 0 and a decimal field is truncated toward zero before the delta
+     * is added, the same on every backend. Until the next flush, the increments are not visible to reads;
+     * call {@link DataManager#flushCounters()} to write them right away. Increments summed up in memory
+     * are not covered by the crash log before they are flushed.
+     * </p>
+     *
+     * @param id    The primary key.
+     * @param field The path of the numeric field (see {@link Patch}).
+     * @param delta The value to add, may be negative.
+     * @throws IllegalArgumentException If the field path is not valid.
+     */
+    public void increment(String id, String field, long delta) {
+        DocumentPatch.parsePath(field);
+        dataManager.getCounters().add(new DocumentKey(connectionId, tableName, id), field, delta);
+    }
+
+    /**
+     * Asynchronously reads a document together with its timestamp, which serves as its version for
+     * {@link #compareAndSet(String, long, Object)}. Always queried from the backend, bypassing the local cache.
+     *
+     * @param id    The primary key.
+     * @param clazz The target class type for deserialization.
+     * @return A CompletableFuture containing the entry, or null if not found.
+     */
+    public <T> CompletableFuture<TableEntry<T>> getEntry(String id, Class<T> clazz) {
+        return getEntry(id, codecs.forClass(clazz));
+    }
+
+    <T> CompletableFuture<TableEntry<T>> getEntry(String id, Codec<T> codec) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Task task = new Task(Task.TaskType.READ_DOCUMENT, connectionId, tableName, id, null, 0L, future);
+        dataManager.enqueueTask(task);
+
+        return future.thenApply(res -> {
+            if (res == null) return null;
+            Document document = (Document) res;
+            return new TableEntry<>(id, decode(codec, document.value()), document.timestamp());
+        });
+    }
+
+    /**
+     * Asynchronously writes a document only if it was not modified since it was read (optimistic locking).
+     * The check and the write are executed atomically by the backend, so concurrent updates from other
+     * servers sharing the database are never lost.
+     *
+     * @param id                The primary key.
+     * @param expectedTimestamp The timestamp of the {@link TableEntry} the new value is based on, or {@link #ABSENT}
+     *                          if the document must not exist yet.
+     * @param newValue          The object to be serialized.
+     * @return A CompletableFuture completing with true if the value was written, or false if the document was
+     * modified (or created) in the meantime. Completes exceptionally for backends without versioned writes.
+     */
+    public CompletableFuture<Boolean> compareAndSet(String id, long expectedTimestamp, Object newValue) {
+        return compareAndSet(id, expectedTimestamp, newValue, codecForValue(newValue));
+    }
+
+    <T> CompletableFuture<Boolean> compareAndSet(String id, long expectedTimestamp, T newValue, Codec<T> codec) {
+        String jsonValue;
+        try {
+            jsonValue = newValue == null ? "null" : codec.encode(newValue);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        long currentTimestamp = dataManager.getTimeProvider().getCurrentTime();
+
+        if (cache != null) {
+            // Whether the value is written is only known once the backend checked the version
+            cache.removeFromCache(id);
+        }
+
+        Task task = new Task(Task.TaskType.COMPARE_AND_SET, connectionId, tableName, id, jsonValue, currentTimestamp, future, Math.max(ABSENT, expectedTimestamp), null);
+        dataManager.enqueueTask(task);
+
+        return future.thenApply(res -> (Boolean) res);
+    }
+
+    /**
+     * Asynchronously and atomically updates a document based on its current value.
+     * <p>
+     * The function is applied on the data worker to the stored value and the result is written with
+     * {@link #compareAndSet(String, long, Object)}. If another server modified the document in the meantime,
+     * the function is applied again to the newer value, up to a bounded number of attempts. The function may
+     * therefore run more than once and must not have side effects. Returning null leaves the document unchanged.
+     * </p>
+     *
+     * @param id       The primary key.
+     * @param clazz    The value type.
+     * @param function Receives the current value (null if the document does not exist) and returns the new value.
+     * @return A CompletableFuture containing the value after the update. Completes with a
+     * {@link java.util.ConcurrentModificationException} if every attempt lost against a concurrent modification.
+     */
+    public <T> CompletableFuture<T> compute(String id, Class<T> clazz, UnaryOperator<T> function) {
+        return compute(id, codecs.forClass(clazz), function);
+    }
+
+    <T> CompletableFuture<T> compute(String id, Codec<T> codec, UnaryOperator<T> function) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        long currentTimestamp = dataManager.getTimeProvider().getCurrentTime();
+
+        if (cache != null) {
+            cache.removeFromCache(id);
+        }
+
+        DocumentUpdate update = currentValue -> {
+            T updated = function.apply(currentValue != null ? codec.decode(currentValue) : null);
+            return updated != null ? codec.encode(updated) : null;
+        };
+        Task task = new Task(Task.TaskType.COMPUTE, connectionId, tableName, id, null, currentTimestamp, future, update);
+        dataManager.enqueueTask(task);
+
+        return future.thenApply(res -> res == null ? null : decode(codec, (String) res));
+    }
+
+    /**
+     * Asynchronously creates an index on a field of the documents, which speeds up {@link #findBy(String, Object, Class)}.
+     * <p>
+     * MySQL adds a generated column with an index, SQLite an expression index on {@code json_extract}; both are
+     * persistent. FileTree and YAML keep an in-memory hash index that is built from a full scan, so call this
+     * method after every start (e.g. in {@code onEnable}). Creating an existing index has no effect.
+     * Tables using the binary storage format cannot be indexed.
+     * </p>
+     *
+     * @param path The path of the field (see {@link Patch}).
+     * @return A CompletableFuture completing once the index can be used.
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public CompletableFuture<Void> createIndex(String path) {
+        DocumentPatch.parsePath(path);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Task task = new Task(Task.TaskType.CREATE_INDEX, connectionId, tableName, null, null, 0L, future, path);
+        dataManager.enqueueTask(task);
+
+        return future.thenApply(res -> null);
+    }
+
+    /**
+     * Asynchronously finds all documents whose field equals the given string, number or boolean.
+     * Uses the index of {@link #createIndex(String)} if the field is indexed, otherwise the whole table is scanned.
+     * <p>
+     * Values match only values of the same JSON type, numbers are compared as written ({@code 5} does not match
+     * {@code 5.0}). The lookup is queued behind all modifications issued before it, so it sees their result.
+     * </p>
+     *
+     * @param path  The path of the field (see {@link Patch}).
+     * @param value The value to look up.
+     * @param clazz The target class type for deserialization.
+     * @return A CompletableFuture containing a map of id to object.
+     * @throws IllegalArgumentException If the path is not valid or the value is not a string, number or boolean.
+     */
+    public <T> CompletableFuture<Map<String, T>> findBy(String path, Object value, Class<T> clazz) {
+        return findBy(path, value, codecs.forClass(clazz));
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<Map<String, T>> findBy(String path, Object value, Codec<T> codec) {
+        DocumentPatch.parsePath(path);
+        String jsonValue;
+        try {
+            jsonValue = value == null ? null : codecForValue(value).encode(value);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (IndexKey.of(jsonValue) == null) {
+            throw new IllegalArgumentException("Only strings, numbers and booleans can be looked up, got: " + jsonValue);
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Task task = new Task(Task.TaskType.FIND_BY, connectionId, tableName, null, jsonValue, 0L, future, path);
+        dataManager.enqueueTask(task);
+
+        return future.thenApply(res -> {
+            Map<String, String> values = (Map<String, String>) res;
+            Map<String, T> results = new HashMap<>();
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (cache != null) {
+                    cache.saveToCache(entry.getKey(), entry.getValue());
+                }
+                results.put(entry.getKey(), decode(codec, entry.getValue()));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Returns the leaderboard of a numeric field with the highest score ranked first.
+     *
+     * @see #leaderboard(String, boolean)
+     */
+    public CompletableFuture<Leaderboard> leaderboard(String field) {
+        return leaderboard(field, false);
+    }
+
+    /**
+     * Returns an in-memory ranking of the documents by a numeric field, e.g. balance, kills or playtime.
+     * <p>
+     * The first call loads the field of every document (MySQL and SQLite only transfer the id and the field)
+     * and keeps the ranking up to date with every write, patch, increment and delete this server executes on
+     * the table, including those of other {@code Table} handles. Later calls return the same leaderboard.
+     * Counter increments are ranked once they are flushed, see {@link #increment(String, String, long)}.
+     * </p>
+     *
+     * @param field     The path of the numeric field (see {@link Patch}).
+     * @param ascending Whether the lowest score is ranked first (e.g. for the fastest time).
+     * @return A CompletableFuture completing with the leaderboard once it is loaded.
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public CompletableFuture<Leaderboard> leaderboard(String field, boolean ascending) {
+        DocumentPatch.parsePath(field);
+        return dataManager.getLeaderboards().open(connectionId, tableName, field, !ascending)
+                .thenApply(Leaderboard::new);
+    }
+
     /**
      * Asynchronously retrieves all primary keys within this table.
      *
@@ -139,4 +619,206 @@ public class Table {
 
         return future.thenApply(res -> (Set<String>) res);
     }
-}
\ No newline at end of file
+
+    /**
+     * Streams all primary keys of this table without loading them into memory at once.
+     * SQL backends page through the table with keyset pagination, FileTree streams the table directory.
+     * Keys are fetched from the backend only while the subscriber has outstanding demand.
+     * <p>
+     * The scan reads the persisted state directly and bypasses the task queue, so writes that are still
+     * queued may not be visible yet. Signals are delivered on storage threads.
+     * </p>
+     *
+     * @param pageSize The maximum number of keys fetched per backend call.
+     * @return A publisher emitting every key once per subscription.
+     */
+    public Flow.Publisher<String> scanKeys(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        return new PagedPublisher<>(() -> {
+            AsyncStorageAdapter adapter = dataManager.getAdapter(connectionId);
+            if (adapter == null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Adapter not found for connection: " + connectionId));
+            }
+            return adapter.openKeyCursor(tableName, pageSize);
+        });
+    }
+
+    /**
+     * Streams every document of this table, e.g. for migrations or recomputing statistics.
+     * Documents are read from the backend in batches (keyset pagination for SQL backends) and each batch is
+     * deserialized in parallel. The next batch is only loaded once the subscriber requested more entries,
+     * so a slow consumer never causes the whole table to be held in memory.
+     * <p>
+     * Like {@link #scanKeys(int)}, the scan reads the persisted state directly and bypasses the task queue
+     * and the local cache. Signals are delivered on storage threads.
+     * </p>
+     *
+     * @param clazz     The target class type for deserialization.
+     * @param batchSize The maximum number of documents loaded per backend call.
+     * @return A publisher emitting every document once per subscription.
+     */
+    public <T> Flow.Publisher<TableEntry<T>> scan(Class<T> clazz, int batchSize) {
+        return scan(codecs.forClass(clazz), batchSize);
+    }
+
+    <T> Flow.Publisher<TableEntry<T>> scan(Codec<T> codec, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        return new PagedPublisher<>(() -> {
+            AsyncStorageAdapter adapter = dataManager.getAdapter(connectionId);
+            if (adapter == null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Adapter not found for connection: " + connectionId));
+            }
+            return adapter.openDocumentCursor(tableName, batchSize)
+                    .thenApply(cursor -> new DecodingCursor<>(cursor, codec));
+        });
+    }
+
+    /**
+     * Streams the documents matching a query in batches of 100, see {@link #query(Query, Class, int)}.
+     */
+    public <T> Flow.Publisher<TableEntry<T>> query(Query query, Class<T> clazz) {
+        return query(query, clazz, 100);
+    }
+
+    /**
+     * Streams the documents matching a query, e.g. the top balances or all players inactive for a month.
+     * <p>
+     * MySQL and SQLite translate the query into SQL on {@code JSON_EXTRACT}/{@code json_extract}, so only the
+     * result is transferred; filters comparing a field with {@link #createIndex(String)} use its index. FileTree
+     * and YAML evaluate the query in parallel over a scan of the table. MySQL and SQLite load the result in
+     * batches ordered by the sort fields and the id, and every batch continues after the last emitted document.
+     * Documents inserted or deleted while the result is consumed therefore do not shift the following batches:
+     * every other document is emitted exactly once, and inserted documents appear if they sort after the current
+     * position. A document whose sort fields change between two batches may be skipped or emitted twice.
+     * </p>
+     * <p>
+     * Like {@link #scan(Class, int)}, queries read the persisted state directly and bypass the task queue
+     * and the local cache. Signals are delivered on storage threads.
+     * </p>
+     *
+     * @param query     The filters, orders and limits.
+     * @param clazz     The target class type for deserialization.
+     * @param batchSize The maximum number of documents loaded per backend call.
+     * @return A publisher emitting the matching documents once per subscription.
+     * @throws IllegalArgumentException If a filter value is not a string, number or boolean.
+     */
+    public <T> Flow.Publisher<TableEntry<T>> query(Query query, Class<T> clazz, int batchSize) {
+        return query(query, codecs.forClass(clazz), batchSize);
+    }
+
+    <T> Flow.Publisher<TableEntry<T>> query(Query query, Codec<T> codec, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        DocumentQuery documentQuery = query.encode(codecs);
+        return new PagedPublisher<>(() -> {
+            AsyncStorageAdapter adapter = dataManager.getAdapter(connectionId);
+            if (adapter == null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Adapter not found for connection: " + connectionId));
+            }
+            return QueryEvaluator.open(adapter, tableName, documentQuery, batchSize)
+                    .thenApply(cursor -> new DecodingCursor<>(cursor, codec));
+        });
+    }
+
+    /**
+     * Streams the changes since the given time in batches of 500, see {@link #changesSince(long, Class, int)}.
+     */
+    public <T> Flow.Publisher<TableChange<T>> changesSince(long timestamp, Class<T> clazz) {
+        return changesSince(timestamp, clazz, 500);
+    }
+
+    /**
+     * Streams every document modified or deleted after the given time, e.g. to refresh the state of a server that
+     * shares the database with others without reloading the whole table. Pass the {@link TableChange#timestamp()}
+     * of the newest change processed so far to continue where the previous call stopped.
+     * <p>
+     * Every document is reported once with its current value, or as deleted. MySQL and SQLite read the changes
+     * from an index on the timestamp, created on first use, and record every delete of the data worker in a
+     * tombstone table for 7 days; asking for an older time may miss deletions. FileTree and YAML scan the whole
+     * table and do not report deletions. Timestamps are taken when a modification is issued, so a modification
+     * committed late may carry a slightly older timestamp than changes reported before it.
+     * </p>
+     * <p>
+     * Like {@link #scan(Class, int)}, the changes are read from the persisted state directly and bypass the task
+     * queue and the local cache. Signals are delivered on storage threads.
+     * </p>
+     *
+     * @param timestamp The exclusive lower bound of the modification time.
+     * @param clazz     The target class type for deserialization.
+     * @param batchSize The maximum number of changes loaded per backend call.
+     * @return A publisher emitting the changes once per subscription.
+     */
+    public <T> Flow.Publisher<TableChange<T>> changesSince(long timestamp, Class<T> clazz, int batchSize) {
+        return changesSince(timestamp, codecs.forClass(clazz), batchSize);
+    }
+
+    <T> Flow.Publisher<TableChange<T>> changesSince(long timestamp, Codec<T> codec, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        return new PagedPublisher<>(() -> {
+            AsyncStorageAdapter adapter = dataManager.getAdapter(connectionId);
+            if (adapter == null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Adapter not found for connection: " + connectionId));
+            }
+            return adapter.openChangeCursor(tableName, timestamp, batchSize)
+                    .thenApply(cursor -> new DecodingChangeCursor<>(cursor, codec));
+        });
+    }
+
+    /**
+     * Calls the listener with every document of this table that is modified or deleted from now on, by this or
+     * any other server sharing the database, e.g. to update caches or in-memory state incrementally.
+     * <p>
+     * The changes are polled about once per second with {@link #changesSince(long, Class, int)}; all listeners of
+     * a table share one poll. Several modifications of a document between two polls are reported as one change
+     * with the latest value. If a modification of this server takes longer than the late commit window (see
+     * {@link DataManager#setLateCommitWindow(long)}) from being issued to being committed, e.g. while the queue is
+     * spilled to disk, the feed reads back to it and may also report the other changes since then again. Late modifications of
+     * other servers are not detected and may not be reported. FileTree and YAML scan the whole table on every poll
+     * and do not report deletions, so watching is meant for MySQL and SQLite.
+     * </p>
+     * <p>
+     * The listener is called on the poller thread, one change at a time: switch to the main thread before using
+     * the Bukkit API, and keep it short, since it delays the changes of all watched tables.
+     * </p>
+     *
+     * @param clazz    The target class type for deserialization.
+     * @param listener Receives every change.
+     * @return The subscription, cancel it to stop receiving changes.
+     */
+    public <T> ChangeSubscription watch(Class<T> clazz, Consumer<TableChange<T>> listener) {
+        return watch(codecs.forClass(clazz), listener);
+    }
+
+    <T> ChangeSubscription watch(Codec<T> codec, Consumer<TableChange<T>> listener) {
+        Consumer<Change> decoding = change -> listener.accept(DecodingChangeCursor.decode(codec, change));
+        return new ChangeSubscription(dataManager.getChangeFeeds().subscribe(connectionId, tableName, decoding));
+    }
+
+    public String getConnectionId() {
+        return connectionId;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Codec<Object> codecForValue(Object value) {
+        return value == null ? null : (Codec<Object>) codecs.forClass(value.getClass());
+    }
+
+    private static <T> T decode(Codec<T> codec, String data) {
+        try {
+            return codec.decode(data);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
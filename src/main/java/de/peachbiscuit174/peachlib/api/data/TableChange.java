@@ -0,0 +1,18 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+/**
+ * A modified or deleted document, emitted by {@link Table#changesSince(long, Class)} and
+ * {@link Table#watch(Class, java.util.function.Consumer)}.
+ *
+ * @param id        The primary key.
+ * @param value     The deserialized value after the modification, null if the document was deleted.
+ * @param timestamp The modification time of the document, or the time of its deletion.
+ * @param deleted   Whether the document was deleted.
+ * @param <T>       The value type.
+ */
+public record TableChange<T>(
+        String id,
+        T value,
+        long timestamp,
+        boolean deleted
+) {}
@@ -0,0 +1,16 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+/**
+ * A deserialized document emitted by {@link Table#scan(Class, int)} and {@link Table#query(Query, Class)}, or returned by {@link Table#getEntry(String, Class)}.
+ *
+ * @param id        The primary key.
+ * @param value     The deserialized value.
+ * @param timestamp The modification time of the stored document (0 if the backend does not expose it).
+ *                  Serves as the version for {@link Table#compareAndSet(String, long, Object)}.
+ * @param <T>       The value type.
+ */
+public record TableEntry<T>(
+        String id,
+        T value,
+        long timestamp
+) {}
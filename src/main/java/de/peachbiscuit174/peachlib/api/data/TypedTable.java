@@ -0,0 +1,231 @@
+package de.peachbiscuit174.peachlib.api.data;
+
+import de.peachbiscuit174.peachlib.api.data.codec.Codec;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Handle of a {@link Table} bound to a single value type and {@link Codec}.
+ * The codec is resolved once when the handle is created, so no per-call type lookup is needed.
+ * Obtain instances with {@link Table#typed(Class)}, {@link Table#typed(Codec)} or
+ * {@link de.peachbiscuit174.peachlib.api.managers.DataManager#getTable(String, String, Class)}.
+ *
+ * @param <T> The value type.
+ */
+public class TypedTable<T> {
+
+    private final Table table;
+    private final Codec<T> codec;
+
+    TypedTable(Table table, Codec<T> codec) {
+        this.table = table;
+        this.codec = codec;
+    }
+
+    /**
+     * @see Table#set(String, Object)
+     */
+    public CompletableFuture<Void> set(String id, T value) {
+        return table.set(id, value, codec, DataPriority.NORMAL);
+    }
+
+    /**
+     * @see Table#set(String, Object, DataPriority)
+     */
+    public CompletableFuture<Void> set(String id, T value, DataPriority priority) {
+        return table.set(id, value, codec, priority);
+    }
+
+    /**
+     * @see Table#setDeferred(String, Supplier)
+     */
+    public CompletableFuture<Void> setDeferred(String id, Supplier<? extends T> snapshot) {
+        return table.setDeferred(id, snapshot, codec, DataPriority.NORMAL);
+    }
+
+    /**
+     * @see Table#setDeferred(String, Supplier, DataPriority)
+     */
+    public CompletableFuture<Void> setDeferred(String id, Supplier<? extends T> snapshot, DataPriority priority) {
+        return table.setDeferred(id, snapshot, codec, priority);
+    }
+
+    /**
+     * @see Table#get(String, Class)
+     */
+    public CompletableFuture<T> get(String id) {
+        return table.get(id, codec);
+    }
+
+    /**
+     * @see Table#getAll(Collection, Class)
+     */
+    public CompletableFuture<Map<String, T>> getAll(Collection<String> ids) {
+        return table.getAll(ids, codec);
+    }
+
+    /**
+     * @see Table#delete(String)
+     */
+    public CompletableFuture<Void> delete(String id) {
+        return table.delete(id);
+    }
+
+    /**
+     * @see Table#delete(String, DataPriority)
+     */
+    public CompletableFuture<Void> delete(String id, DataPriority priority) {
+        return table.delete(id, priority);
+    }
+
+    /**
+     * @see Table#patch(String, Map)
+     */
+    public CompletableFuture<Void> patch(String id, Map<String, ?> fieldUpdates) {
+        return table.patch(id, fieldUpdates);
+    }
+
+    /**
+     * @see Table#patch(String, Patch)
+     */
+    public CompletableFuture<Void> patch(String id, Patch patch) {
+        return table.patch(id, patch);
+    }
+
+    /**
+     * @see Table#patch(String, Patch, DataPriority)
+     */
+    public CompletableFuture<Void> patch(String id, Patch patch, DataPriority priority) {
+        return table.patch(id, patch, priority);
+    }
+
+    /**
+     * @see Table#increment(String, String, long)
+     */
+    public void increment(String id, String field, long delta) {
+        table.increment(id, field, delta);
+    }
+
+    /**
+     * @see Table#getEntry(String, Class)
+     */
+    public CompletableFuture<TableEntry<T>> getEntry(String id) {
+        return table.getEntry(id, codec);
+    }
+
+    /**
+     * @see Table#compareAndSet(String, long, Object)
+     */
+    public CompletableFuture<Boolean> compareAndSet(String id, long expectedTimestamp, T newValue) {
+        return table.compareAndSet(id, expectedTimestamp, newValue, codec);
+    }
+
+    /**
+     * @see Table#compute(String, Class, UnaryOperator)
+     */
+    public CompletableFuture<T> compute(String id, UnaryOperator<T> function) {
+        return table.compute(id, codec, function);
+    }
+
+    /**
+     * @see Table#createIndex(String)
+     */
+    public CompletableFuture<Void> createIndex(String path) {
+        return table.createIndex(path);
+    }
+
+    /**
+     * @see Table#findBy(String, Object, Class)
+     */
+    public CompletableFuture<Map<String, T>> findBy(String path, Object value) {
+        return table.findBy(path, value, codec);
+    }
+
+    /**
+     * @see Table#leaderboard(String)
+     */
+    public CompletableFuture<Leaderboard> leaderboard(String field) {
+        return table.leaderboard(field);
+    }
+
+    /**
+     * @see Table#leaderboard(String, boolean)
+     */
+    public CompletableFuture<Leaderboard> leaderboard(String field, boolean ascending) {
+        return table.leaderboard(field, ascending);
+    }
+
+    /**
+     * @see Table#getKeys()
+     */
+    public CompletableFuture<Set<String>> getKeys() {
+        return table.getKeys();
+    }
+
+    /**
+     * @see Table#scanKeys(int)
+     */
+    public Flow.Publisher<String> scanKeys(int pageSize) {
+        return table.scanKeys(pageSize);
+    }
+
+    /**
+     * @see Table#scan(Class, int)
+     */
+    public Flow.Publisher<TableEntry<T>> scan(int batchSize) {
+        return table.scan(codec, batchSize);
+    }
+
+    /**
+     * @see Table#query(Query, Class)
+     */
+    public Flow.Publisher<TableEntry<T>> query(Query query) {
+        return table.query(query, codec, 100);
+    }
+
+    /**
+     * @see Table#query(Query, Class, int)
+     */
+    public Flow.Publisher<TableEntry<T>> query(Query query, int batchSize) {
+        return table.query(query, codec, batchSize);
+    }
+
+    /**
+     * @see Table#changesSince(long, Class)
+     */
+    public Flow.Publisher<TableChange<T>> changesSince(long timestamp) {
+        return table.changesSince(timestamp, codec, 500);
+    }
+
+    /**
+     * @see Table#changesSince(long, Class, int)
+     */
+    public Flow.Publisher<TableChange<T>> changesSince(long timestamp, int batchSize) {
+        return table.changesSince(timestamp, codec, batchSize);
+    }
+
+    /**
+     * @see Table#watch(Class, Consumer)
+     */
+    public ChangeSubscription watch(Consumer<TableChange<T>> listener) {
+        return table.watch(codec, listener);
+    }
+
+    public Codec<T> getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return The untyped table this handle is based on.
+     */
+    public Table getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,26 @@
+package de.peachbiscuit174.peachlib.api.data.codec;
+
+/**
+ * Converts values of a table into their stored document representation and back.
+ * <p>
+ * Codecs are used by {@link de.peachbiscuit174.peachlib.api.data.TypedTable} handles and are resolved once per
+ * table, so implementations should prepare everything that does not depend on the value (e.g. type adapters)
+ * in their constructor. Implementations must be thread-safe.
+ * </p>
+ *
+ * @param <T> The value type.
+ */
+public interface Codec<T> {
+
+    /**
+     * @param value The value, may be null.
+     * @return The document representation stored by the backend.
+     */
+    String encode(T value) throws Exception;
+
+    /**
+     * @param data The stored document representation.
+     * @return The decoded value, or null if the document represents null.
+     */
+    T decode(String data) throws Exception;
+}
@@ -0,0 +1,103 @@
+package de.peachbiscuit174.peachlib.api.data.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+
+/**
+ * JSON codec based on Gson.
+ * <p>
+ * The {@link TypeAdapter} of the value class is resolved once when the codec is created instead of on every call,
+ * and values are written with Gson's streaming {@link JsonWriter} into a per-thread buffer that is reused across
+ * calls. The produced JSON is identical to {@link Gson#toJson(Object)} of the same Gson instance.
+ * </p>
+ *
+ * @param <T> The value type.
+ */
+public class GsonCodec<T> implements Codec<T> {
+
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+
+    private static final ThreadLocal<BufferWriter> BUFFERS = ThreadLocal.withInitial(BufferWriter::new);
+    // Buffers that grew beyond this size are dropped after use instead of being retained by the thread
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    public GsonCodec(Gson gson, Class<T> type) {
+        this.gson = gson;
+        this.adapter = gson.getAdapter(type);
+    }
+
+    @Override
+    public String encode(T value) throws IOException {
+        BufferWriter buffer = BUFFERS.get();
+        try {
+            JsonWriter writer = gson.newJsonWriter(buffer);
+            adapter.write(writer, value);
+            writer.flush();
+            return buffer.builder.toString();
+        } finally {
+            if (buffer.builder.capacity() > MAX_RETAINED_BUFFER) {
+                BUFFERS.remove();
+            } else {
+                buffer.builder.setLength(0);
+            }
+        }
+    }
+
+    @Override
+    public T decode(String data) throws IOException {
+        // Like Gson#fromJson, an empty document is read as null
+        if (data == null || data.isBlank()) return null;
+
+        JsonReader reader = gson.newJsonReader(new StringReader(data));
+        T value = adapter.read(reader);
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonIOException("JSON document was not fully consumed.");
+        }
+        return value;
+    }
+
+    /**
+     * Unsynchronized writer over a reusable StringBuilder ({@link java.io.StringWriter} synchronizes every call).
+     */
+    private static final class BufferWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(1024);
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            builder.append(str, offset, offset + length);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            builder.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
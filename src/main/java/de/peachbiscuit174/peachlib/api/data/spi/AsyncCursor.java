@@ -0,0 +1,71 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Non-blocking, forward-only cursor over the entries of a table.
+ * Only one page is requested at a time.
+ *
+ * @param <T> The entry type.
+ */
+public interface AsyncCursor<T> {
+
+    /**
+     * @return A stage completing with the next page, or with an empty list once the cursor is exhausted.
+     */
+    CompletionStage<List<T>> nextPage();
+
+    /**
+     * Releases resources held by the cursor. Called once the scan completed, failed or was cancelled.
+     */
+    default void close() {
+    }
+
+    /**
+     * Creates a cursor over an already materialized list. Used by backends without native paging.
+     */
+    static <T> AsyncCursor<T> ofList(List<T> entries, int pageSize) {
+        return new AsyncCursor<>() {
+            private int position;
+
+            @Override
+            public synchronized CompletionStage<List<T>> nextPage() {
+                int end = Math.min(entries.size(), position + pageSize);
+                List<T> page = List.copyOf(entries.subList(position, end));
+                position = end;
+                return CompletableFuture.completedFuture(page);
+            }
+        };
+    }
+
+    /**
+     * Creates a cursor mapping the pages of another cursor, e.g. to filter them. Since an empty page ends the scan,
+     * source pages mapped to an empty list are skipped. The source cursor is closed together with the returned one.
+     */
+    static <S, T> AsyncCursor<T> mapPages(AsyncCursor<S> source, Function<List<S>, List<T>> mapper) {
+        return composePages(source, page -> CompletableFuture.completedFuture(mapper.apply(page)));
+    }
+
+    /**
+     * Like {@link #mapPages}, for mappings that complete asynchronously, e.g. by reading the documents of a page of ids.
+     */
+    static <S, T> AsyncCursor<T> composePages(AsyncCursor<S> source, Function<List<S>, CompletionStage<List<T>>> mapper) {
+        return new AsyncCursor<>() {
+            @Override
+            public CompletionStage<List<T>> nextPage() {
+                return source.nextPage().thenCompose(page -> {
+                    if (page.isEmpty()) return CompletableFuture.completedFuture(List.of());
+                    return mapper.apply(page).thenCompose(mapped -> mapped.isEmpty() ? nextPage() : CompletableFuture.completedFuture(mapped));
+                });
+            }
+
+            @Override
+            public void close() {
+                source.close();
+            }
+        };
+    }
+}
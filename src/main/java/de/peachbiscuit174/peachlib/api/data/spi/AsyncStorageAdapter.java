@@ -0,0 +1,304 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import de.peachbiscuit174.peachlib.api.data.StorageFormat;
+import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import de.peachbiscuit174.peachlib.api.managers.PoolMetrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking backend interface for storage connections.
+ * Implementations process the unified document model: id (String), value (String/JSON), timestamp (Long).
+ * <p>
+ * Every operation returns immediately and completes its stage once the backend answered, so native
+ * asynchronous drivers can pipeline many requests over a few connections. The data worker guarantees
+ * that operations on the same id are never in flight at the same time; operations on different ids
+ * may be issued concurrently.
+ * </p>
+ * <p>
+ * Third-party backends are made available through a {@link StorageProvider}.
+ * </p>
+ */
+public interface AsyncStorageAdapter {
+
+    CompletionStage<Void> connect(Credentials credentials);
+
+    CompletionStage<Void> createTableIfNotExists(String tableName);
+
+    /**
+     * Creates a table with the given storage format. Existing tables keep their format.
+     * The default implementation ignores the format.
+     */
+    default CompletionStage<Void> createTableIfNotExists(String tableName, StorageFormat format) {
+        return createTableIfNotExists(tableName);
+    }
+
+    /**
+     * Inserts or replaces a document. The stored timestamp is only replaced by newer ones.
+     */
+    CompletionStage<Void> write(String tableName, String id, String jsonValue, long timestamp);
+
+    /**
+     * Writes multiple documents of one table, ideally in a single round trip.
+     */
+    CompletionStage<Void> writeBatch(String tableName, List<Document> documents);
+
+    CompletionStage<Void> delete(String tableName, String id);
+
+    /**
+     * Deletes multiple documents of one table, ideally in a single round trip.
+     */
+    CompletionStage<Void> deleteBatch(String tableName, List<String> ids);
+
+    /**
+     * Deletes a document and records the time of the deletion, so {@link #openChangeCursor} can report it.
+     * The default implementation ignores the timestamp.
+     */
+    default CompletionStage<Void> delete(String tableName, String id, long timestamp) {
+        return delete(tableName, id);
+    }
+
+    /**
+     * Deletes multiple documents of one table and records the time of the deletion.
+     * The default implementation ignores the timestamp.
+     */
+    default CompletionStage<Void> deleteBatch(String tableName, List<String> ids, long timestamp) {
+        return deleteBatch(tableName, ids);
+    }
+
+    /**
+     * Applies a partial update to a document. A missing document is created from an empty object,
+     * and like {@link #write} the document is only modified if the timestamp is newer than the stored one.
+     * The default implementation reads the document, applies the patch and writes it back.
+     */
+    default CompletionStage<Void> patch(String tableName, String id, DocumentPatch patch, long timestamp) {
+        return read(tableName, id).thenCompose(current -> write(tableName, id, patch.applyTo(current), timestamp));
+    }
+
+    /**
+     * Adds counter deltas to numeric fields of a document atomically. A missing document is created from an empty object.
+     * Increments are applied regardless of the stored timestamp, which is raised to at least the previous one plus one.
+     * The default implementation applies the deltas to the document of {@link #readDocument} and stores it with
+     * {@link #compareAndSet}, starting over if it was modified in the meantime, and fails with a
+     * {@link ConcurrentModificationException} after 10 lost attempts.
+     */
+    default CompletionStage<Void> increment(String tableName, String id, CounterUpdate update, long timestamp) {
+        return incrementAttempt(tableName, id, update, timestamp, 10);
+    }
+
+    private CompletionStage<Void> incrementAttempt(String tableName, String id, CounterUpdate update, long timestamp, int attemptsLeft) {
+        if (attemptsLeft == 0) {
+            return CompletableFuture.failedFuture(new ConcurrentModificationException(
+                    "Counters of " + tableName + "/" + id + " were modified concurrently during 10 attempts."));
+        }
+        return readDocument(tableName, id).thenCompose(current -> {
+            long expected = current != null ? current.timestamp() : -1L;
+            String updated = update.applyTo(current != null ? current.value() : null);
+            return compareAndSet(tableName, id, expected, updated, Math.max(timestamp, expected + 1))
+                    .thenCompose(written -> written
+                            ? CompletableFuture.<Void>completedFuture(null)
+                            : incrementAttempt(tableName, id, update, timestamp, attemptsLeft - 1));
+        });
+    }
+
+    /**
+     * @return A stage completing with the JSON value, or null if the document does not exist.
+     */
+    CompletionStage<String> read(String tableName, String id);
+
+    /**
+     * Reads a document together with its timestamp, which serves as its version for {@link #compareAndSet}.
+     * The default implementation fails with an {@link UnsupportedOperationException}.
+     *
+     * @return A stage completing with the document, or null if it does not exist.
+     */
+    default CompletionStage<Document> readDocument(String tableName, String id) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException(getClass().getName() + " does not support versioned reads."));
+    }
+
+    /**
+     * Writes a document only if its stored timestamp still equals the expected one. The check and the write
+     * have to be atomic, also towards other servers sharing the backend.
+     * The default implementation fails with an {@link UnsupportedOperationException}.
+     *
+     * @param expectedTimestamp The timestamp read before, or a negative value if the document must not exist yet.
+     * @param timestamp         The new timestamp, greater than the expected one.
+     * @return A stage completing with true if the document was written, false if it was modified in the meantime.
+     */
+    default CompletionStage<Boolean> compareAndSet(String tableName, String id, long expectedTimestamp, String jsonValue, long timestamp) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException(getClass().getName() + " does not support compare-and-set."));
+    }
+
+    /**
+     * @return A stage completing with a map of id to JSON value. Ids without a document are not contained.
+     */
+    CompletionStage<Map<String, String>> readMany(String tableName, Collection<String> ids);
+
+    CompletionStage<Set<String>> getAllPrimaryKeys(String tableName);
+
+    /**
+     * Opens a cursor returning the primary keys of a table page by page.
+     * The default implementation loads all keys at once; backends should override it to keep the memory usage constant.
+     *
+     * @param pageSize The maximum number of keys per page.
+     */
+    default CompletionStage<AsyncCursor<String>> openKeyCursor(String tableName, int pageSize) {
+        return getAllPrimaryKeys(tableName).thenApply(keys -> {
+            List<String> sorted = new ArrayList<>(keys);
+            sorted.sort(null);
+            return AsyncCursor.ofList(sorted, pageSize);
+        });
+    }
+
+    /**
+     * Opens a cursor returning all documents of a table page by page, including their timestamps.
+     * The default implementation combines {@link #openKeyCursor} with {@link #readMany} and reports a timestamp of 0;
+     * backends should override it to read documents directly.
+     *
+     * @param pageSize The maximum number of documents per page.
+     */
+    default CompletionStage<AsyncCursor<Document>> openDocumentCursor(String tableName, int pageSize) {
+        // Pages whose documents were all deleted in the meantime are skipped
+        return openKeyCursor(tableName, pageSize).thenApply(keys -> AsyncCursor.composePages(keys, ids ->
+                readMany(tableName, ids).thenApply(values -> {
+                    List<Document> page = new ArrayList<>(values.size());
+                    for (String id : ids) {
+                        String value = values.get(id);
+                        if (value != null) {
+                            page.add(new Document(id, value, 0L));
+                        }
+                    }
+                    return page;
+                })));
+    }
+
+    /**
+     * Creates an index on a field of the documents, used by {@link #findBy}. Creating an existing index has no effect.
+     * The default implementation does nothing, so {@link #findBy} scans the table.
+     *
+     * @param path The field path in dot notation, see {@link DocumentPatch}.
+     */
+    default CompletionStage<Void> createIndex(String tableName, String path) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Finds all documents whose field equals the given value. Only strings, numbers and booleans match, and only
+     * values with the same JSON text, so {@code 5} matches neither {@code "5"} nor {@code 5.0}. Backends may
+     * pre-filter with an index but have to return exactly the documents matching by this rule.
+     * The default implementation scans the whole table with {@link #openDocumentCursor}.
+     *
+     * @param path      The field path in dot notation.
+     * @param jsonValue The serialized string, number or boolean to look up.
+     * @return A stage completing with a map of id to JSON value.
+     */
+    default CompletionStage<Map<String, String>> findBy(String tableName, String path, String jsonValue) {
+        String key = JsonParser.parseString(jsonValue).toString();
+        List<Object> segments = DocumentPatch.parsePath(path);
+        return openDocumentCursor(tableName, 500).thenCompose(cursor ->
+                collectMatches(cursor, segments, key, new HashMap<>()).whenComplete((result, error) -> cursor.close()));
+    }
+
+    private CompletionStage<Map<String, String>> collectMatches(AsyncCursor<Document> cursor, List<Object> segments, String key,
+                                                                Map<String, String> matches) {
+        return cursor.nextPage().thenCompose(page -> {
+            if (page.isEmpty()) return CompletableFuture.completedFuture(matches);
+            for (Document document : page) {
+                JsonElement field;
+                try {
+                    field = DocumentPatch.find(JsonParser.parseString(document.value()), segments);
+                } catch (JsonParseException e) {
+                    continue;
+                }
+                if (field != null && field.isJsonPrimitive() && key.equals(field.toString())) {
+                    matches.put(document.id(), document.value());
+                }
+            }
+            return collectMatches(cursor, segments, key, matches);
+        });
+    }
+
+    /**
+     * Opens a cursor returning the result of a query page by page. Backends with a query language should
+     * translate the query, following the comparison rules of {@link DocumentQuery}.
+     * The default implementation completes with null.
+     *
+     * @param pageSize The maximum number of documents per page.
+     * @return A stage completing with the cursor, or with null if the backend cannot evaluate queries. The query
+     * is then evaluated in memory over {@link #openDocumentCursor}.
+     */
+    default CompletionStage<AsyncCursor<Document>> openQueryCursor(String tableName, DocumentQuery query, int pageSize) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Opens a cursor returning the numeric value of a field of every document that has one, in no particular order.
+     * Used to build leaderboards; backends with a query language should only transfer the id and the field.
+     * The default implementation extracts the field from {@link #openDocumentCursor}.
+     *
+     * @param path     The field path in dot notation.
+     * @param pageSize The maximum number of scores per page.
+     */
+    default CompletionStage<AsyncCursor<Score>> openScoreCursor(String tableName, String path, int pageSize) {
+        List<Object> segments = DocumentPatch.parsePath(path);
+        return openDocumentCursor(tableName, pageSize).thenApply(documents -> AsyncCursor.mapPages(documents, page -> {
+            List<Score> scores = new ArrayList<>(page.size());
+            for (Document document : page) {
+                Score score = Score.of(document.id(), document.value(), segments);
+                if (score != null) {
+                    scores.add(score);
+                }
+            }
+            return scores;
+        }));
+    }
+
+    /**
+     * Opens a cursor returning every document modified after the given time, in no particular order. Used by
+     * change feeds to synchronize servers sharing the backend; backends with a query language should use an
+     * index on the timestamp and report documents deleted after the given time, recorded by
+     * {@link #delete(String, String, long)}, as changes without a value. A document that was deleted and written
+     * again is reported with its current value.
+     * The default implementation filters {@link #openDocumentCursor} by timestamp and does not report deletions.
+     *
+     * @param since    The exclusive lower bound of the modification time.
+     * @param pageSize The maximum number of changes per page.
+     */
+    default CompletionStage<AsyncCursor<Change>> openChangeCursor(String tableName, long since, int pageSize) {
+        return openDocumentCursor(tableName, pageSize).thenApply(documents -> AsyncCursor.mapPages(documents, page -> {
+            List<Change> changes = new ArrayList<>();
+            for (Document document : page) {
+                if (document.timestamp() > since) {
+                    changes.add(new Change(document.id(), document.value(), document.timestamp()));
+                }
+            }
+            return changes;
+        }));
+    }
+
+    /**
+     * Reports the usage of the backend's connection pool, see {@link de.peachbiscuit174.peachlib.api.managers.DataManager#getPoolMetrics(String)}.
+     * Called from any thread and must not block.
+     *
+     * @return A snapshot of the connection pool, or null if the backend does not pool connections.
+     */
+    default PoolMetrics getPoolMetrics() {
+        return null;
+    }
+
+    /**
+     * Gracefully closes the connection and releases all threads of the adapter.
+     */
+    CompletionStage<Void> disconnect();
+}
@@ -0,0 +1,19 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+/**
+ * A modification of a document reported by a change feed.
+ * Part of the storage SPI, see {@link AsyncStorageAdapter#openChangeCursor}.
+ *
+ * @param id        The primary key.
+ * @param value     The serialized JSON value after the modification, or null if the document was deleted.
+ * @param timestamp The modification time of the document, or the time of its deletion.
+ */
+public record Change(
+        String id,
+        String value,
+        long timestamp
+) {
+    public boolean isDeleted() {
+        return value == null;
+    }
+}
@@ -0,0 +1,71 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summed counter deltas of a single document, added to numeric fields in one update.
+ * Part of the storage SPI, see {@link AsyncStorageAdapter}.
+ * <p>
+ * Fields are addressed with the paths of {@link DocumentPatch}. A decimal field is truncated toward zero before
+ * the delta is added (1.9 becomes 1, -1.9 becomes -1). A missing or non-numeric field (including strings of digits
+ * and booleans) counts as 0, a field whose parent object does not exist is ignored. Backends that add the deltas
+ * on the server have to follow the same rules.
+ * </p>
+ *
+ * @param deltas Path of the field to the value that is added.
+ */
+public record CounterUpdate(Map<String, Long> deltas) {
+
+    public CounterUpdate {
+        deltas = Map.copyOf(deltas);
+        for (String path : deltas.keySet()) {
+            DocumentPatch.parsePath(path);
+        }
+    }
+
+    /**
+     * Applies the deltas to a stored value.
+     *
+     * @param jsonValue The current JSON value, or null if the document does not exist (an empty object is updated).
+     * @return The updated JSON value.
+     */
+    public String applyTo(String jsonValue) {
+        JsonElement root = jsonValue == null ? new JsonObject() : JsonParser.parseString(jsonValue);
+
+        List<DocumentPatch.Operation> operations = new ArrayList<>(deltas.size());
+        for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+            JsonElement current = DocumentPatch.find(root, entry.getKey());
+            long value = current != null && current.isJsonPrimitive() && current.getAsJsonPrimitive().isNumber()
+                    ? current.getAsBigDecimal().longValue() : 0L;
+            operations.add(new DocumentPatch.Operation(entry.getKey(), Long.toString(value + entry.getValue())));
+        }
+        return new DocumentPatch(operations).applyTo(root.toString());
+    }
+
+    /**
+     * Serializes the deltas for the task queue and the crash log.
+     */
+    public String toJson() {
+        JsonObject object = new JsonObject();
+        deltas.forEach(object::addProperty);
+        return object.toString();
+    }
+
+    /**
+     * Restores the deltas created by {@link #toJson()}.
+     */
+    public static CounterUpdate fromJson(String json) {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : JsonParser.parseString(json).getAsJsonObject().entrySet()) {
+            deltas.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        return new CounterUpdate(deltas);
+    }
+}
@@ -0,0 +1,15 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+/**
+ * A single stored document in the unified storage model.
+ * Part of the storage SPI, see {@link AsyncStorageAdapter}.
+ *
+ * @param id        The primary key.
+ * @param value     The serialized JSON value.
+ * @param timestamp The modification time used for conflict resolution.
+ */
+public record Document(
+        String id,
+        String value,
+        long timestamp
+) {}
@@ -0,0 +1,206 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A partial update of a stored document, applied to its value in order.
+ * Part of the storage SPI, see {@link AsyncStorageAdapter}.
+ * <p>
+ * Paths use dot notation with optional array indexes, e.g. {@code stats.kills} or {@code inventory[2].amount}.
+ * Operations follow the semantics of MySQL's {@code JSON_SET}/{@code JSON_REMOVE}, so backends without native
+ * support produce the same result with {@link #applyTo(String)}: setting a field whose parent does not exist
+ * is ignored, an array index past the end appends, and removing a missing field is a no-op.
+ * </p>
+ *
+ * @param operations The operations in the order they are applied.
+ */
+public record DocumentPatch(List<Operation> operations) {
+
+    private static final Pattern SEGMENT = Pattern.compile("([A-Za-z0-9_\\-]+)((?:\\[\\d+])*)");
+    private static final Pattern INDEX = Pattern.compile("\\[(\\d+)]");
+
+    /**
+     * @param path      The path of the field in dot notation.
+     * @param jsonValue The JSON value to set, or null to remove the field.
+     */
+    public record Operation(String path, String jsonValue) {
+
+        public boolean isRemove() {
+            return jsonValue == null;
+        }
+
+        /**
+         * @return The path in the JSON path syntax of MySQL and SQLite, with quoted member names (e.g. {@code $."stats"."kills"}).
+         */
+        public String jsonPath() {
+            return DocumentPatch.jsonPath(path);
+        }
+    }
+
+    public DocumentPatch {
+        operations = List.copyOf(operations);
+        for (Operation operation : operations) {
+            parsePath(operation.path());
+        }
+    }
+
+    /**
+     * Splits a path into member names (String) and array indexes (Integer).
+     *
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public static List<Object> parsePath(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Patch path must not be empty.");
+        }
+
+        List<Object> segments = new ArrayList<>();
+        for (String part : path.split("\\.", -1)) {
+            Matcher matcher = SEGMENT.matcher(part);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid patch path: " + path + ". Only alphanumeric names, '_', '-' and [index] are allowed.");
+            }
+            segments.add(matcher.group(1));
+            Matcher index = INDEX.matcher(matcher.group(2));
+            while (index.find()) {
+                segments.add(Integer.parseInt(index.group(1)));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Converts a path into the JSON path syntax of MySQL and SQLite, with quoted member names (e.g. {@code $."stats"."kills"}).
+     */
+    public static String jsonPath(String path) {
+        StringBuilder builder = new StringBuilder("$");
+        for (Object segment : parsePath(path)) {
+            if (segment instanceof Integer index) {
+                builder.append('[').append(index).append(']');
+            } else {
+                builder.append(".\"").append(segment).append('"');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Resolves a path inside a parsed value.
+     *
+     * @return The element, or null if the path does not exist.
+     */
+    public static JsonElement find(JsonElement root, String path) {
+        return find(root, parsePath(path));
+    }
+
+    /**
+     * Resolves a path split by {@link #parsePath(String)}, for callers resolving the same path in many documents.
+     *
+     * @return The element, or null if the path does not exist.
+     */
+    public static JsonElement find(JsonElement root, List<Object> segments) {
+        JsonElement current = root;
+        for (Object segment : segments) {
+            if (current == null) return null;
+            current = child(current, segment);
+        }
+        return current;
+    }
+
+    /**
+     * Applies the patch to a stored value.
+     *
+     * @param jsonValue The current JSON value, or null if the document does not exist (an empty object is patched).
+     * @return The patched JSON value.
+     */
+    public String applyTo(String jsonValue) {
+        JsonElement root = jsonValue == null ? new JsonObject() : JsonParser.parseString(jsonValue);
+
+        for (Operation operation : operations) {
+            List<Object> segments = parsePath(operation.path());
+            JsonElement parent = root;
+            for (int i = 0; i < segments.size() - 1 && parent != null; i++) {
+                parent = child(parent, segments.get(i));
+            }
+            if (parent == null) continue;
+
+            Object last = segments.get(segments.size() - 1);
+            if (operation.isRemove()) {
+                remove(parent, last);
+            } else {
+                set(parent, last, JsonParser.parseString(operation.jsonValue()));
+            }
+        }
+        return root.toString();
+    }
+
+    private static JsonElement child(JsonElement parent, Object segment) {
+        if (segment instanceof Integer index) {
+            if (!parent.isJsonArray()) return null;
+            JsonArray array = parent.getAsJsonArray();
+            return index < array.size() ? array.get(index) : null;
+        }
+        return parent.isJsonObject() ? parent.getAsJsonObject().get((String) segment) : null;
+    }
+
+    private static void set(JsonElement parent, Object segment, JsonElement value) {
+        if (segment instanceof Integer index) {
+            if (!parent.isJsonArray()) return;
+            JsonArray array = parent.getAsJsonArray();
+            if (index < array.size()) {
+                array.set(index, value);
+            } else {
+                array.add(value);
+            }
+        } else if (parent.isJsonObject()) {
+            parent.getAsJsonObject().add((String) segment, value);
+        }
+    }
+
+    private static void remove(JsonElement parent, Object segment) {
+        if (segment instanceof Integer index) {
+            if (parent.isJsonArray() && index < parent.getAsJsonArray().size()) {
+                parent.getAsJsonArray().remove((int) index);
+            }
+        } else if (parent.isJsonObject()) {
+            parent.getAsJsonObject().remove((String) segment);
+        }
+    }
+
+    /**
+     * Serializes the patch for the task queue and the crash log.
+     */
+    public String toJson() {
+        JsonArray array = new JsonArray();
+        for (Operation operation : operations) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("path", operation.path());
+            if (!operation.isRemove()) {
+                entry.add("value", JsonParser.parseString(operation.jsonValue()));
+            }
+            array.add(entry);
+        }
+        return array.toString();
+    }
+
+    /**
+     * Restores a patch created by {@link #toJson()}.
+     */
+    public static DocumentPatch fromJson(String json) {
+        List<Operation> operations = new ArrayList<>();
+        for (JsonElement element : JsonParser.parseString(json).getAsJsonArray()) {
+            JsonObject entry = element.getAsJsonObject();
+            JsonElement value = entry.get("value");
+            operations.add(new Operation(entry.get("path").getAsString(), value != null ? value.toString() : null));
+        }
+        return new DocumentPatch(operations);
+    }
+}
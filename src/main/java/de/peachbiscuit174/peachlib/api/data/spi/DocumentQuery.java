@@ -0,0 +1,172 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.util.List;
+
+/**
+ * A filtered and sorted query over the documents of a table.
+ * Part of the storage SPI, see {@link AsyncStorageAdapter}.
+ * <p>
+ * Filters compare a field with a string, number or boolean and only match fields of the same JSON type:
+ * numbers are compared numerically ({@code 5} equals {@code 5.0}), strings by their code points, and booleans
+ * can only be compared for equality. Missing fields never match. Orders sort missing and null fields first
+ * (last if descending), followed by numbers, strings and booleans. Documents with equal order values are
+ * sorted by id, so offsets are stable. Queries of backends without native queries are evaluated in memory by
+ * exactly these rules, see {@link AsyncStorageAdapter#openQueryCursor}.
+ * </p>
+ *
+ * @param filters The filters, all of which have to match.
+ * @param orders  The sort orders, in order of precedence.
+ * @param offset  The number of matching documents to skip.
+ * @param limit   The maximum number of documents to return, or {@link #NO_LIMIT}.
+ */
+public record DocumentQuery(List<Filter> filters, List<Order> orders, long offset, long limit) {
+
+    public static final long NO_LIMIT = -1L;
+
+    public enum Operator {
+        EQUAL("="),
+        GREATER(">"),
+        GREATER_OR_EQUAL(">="),
+        LESS("<"),
+        LESS_OR_EQUAL("<=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * @return The SQL comparison operator.
+         */
+        public String symbol() {
+            return symbol;
+        }
+
+        /**
+         * @param comparison The result of comparing the field with the filter value.
+         */
+        public boolean test(int comparison) {
+            return switch (this) {
+                case EQUAL -> comparison == 0;
+                case GREATER -> comparison > 0;
+                case GREATER_OR_EQUAL -> comparison >= 0;
+                case LESS -> comparison < 0;
+                case LESS_OR_EQUAL -> comparison <= 0;
+            };
+        }
+    }
+
+    /**
+     * @param path      The path of the field in dot notation, see {@link DocumentPatch}.
+     * @param operator  The comparison.
+     * @param jsonValue The serialized string, number or boolean to compare with.
+     */
+    public record Filter(String path, Operator operator, String jsonValue) {
+
+        public Filter {
+            DocumentPatch.parsePath(path);
+            JsonElement value = JsonParser.parseString(jsonValue);
+            if (!value.isJsonPrimitive()) {
+                throw new IllegalArgumentException("Only strings, numbers and booleans can be compared, got: " + jsonValue + " for " + path);
+            }
+            if (value.getAsJsonPrimitive().isBoolean() && operator != Operator.EQUAL) {
+                throw new IllegalArgumentException("Booleans can only be compared for equality: " + path);
+            }
+        }
+
+        /**
+         * @return The parsed filter value.
+         */
+        public JsonPrimitive value() {
+            return JsonParser.parseString(jsonValue).getAsJsonPrimitive();
+        }
+    }
+
+    /**
+     * @param path       The path of the field in dot notation.
+     * @param descending Whether larger values come first.
+     */
+    public record Order(String path, boolean descending) {
+
+        public Order {
+            DocumentPatch.parsePath(path);
+        }
+    }
+
+    public DocumentQuery {
+        filters = List.copyOf(filters);
+        orders = List.copyOf(orders);
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+        if (limit < 0 && limit != NO_LIMIT) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+    }
+
+    public boolean hasLimit() {
+        return limit != NO_LIMIT;
+    }
+
+    /**
+     * Compares two field values of any type by the order described above.
+     *
+     * @param a The first value, null if the field is missing.
+     * @param b The second value, null if the field is missing.
+     */
+    public static int compareValues(JsonElement a, JsonElement b) {
+        int rankA = rank(a);
+        int rankB = rank(b);
+        if (rankA != rankB) {
+            return Integer.compare(rankA, rankB);
+        }
+
+        return switch (rankA) {
+            case 1 -> a.getAsBigDecimal().compareTo(b.getAsBigDecimal());
+            case 2 -> compareCodePoints(a.getAsString(), b.getAsString());
+            case 3 -> Boolean.compare(a.getAsBoolean(), b.getAsBoolean());
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return Whether a field value is of the same type as the filter value and satisfies the comparison.
+     */
+    public static boolean test(JsonElement field, Operator operator, JsonPrimitive value) {
+        if (field == null || !field.isJsonPrimitive()) return false;
+        if (rank(field) != rank(value)) return false;
+        return operator.test(compareValues(field, value));
+    }
+
+    private static int rank(JsonElement value) {
+        if (value == null || value.isJsonNull()) return 0;
+        if (!value.isJsonPrimitive()) return 4;
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if (primitive.isNumber()) return 1;
+        if (primitive.isString()) return 2;
+        return 3;
+    }
+
+    /**
+     * Compares by code points, which is the order of the binary UTF-8 collations of MySQL and SQLite.
+     */
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int cpA = a.codePointAt(i);
+            int cpB = b.codePointAt(j);
+            if (cpA != cpB) {
+                return Integer.compare(cpA, cpB);
+            }
+            i += Character.charCount(cpA);
+            j += Character.charCount(cpB);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    }
+}
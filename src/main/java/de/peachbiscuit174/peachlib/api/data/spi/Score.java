@@ -0,0 +1,37 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.List;
+
+/**
+ * The numeric value of a field of a stored document, loaded to build a leaderboard.
+ * Part of the storage SPI, see {@link AsyncStorageAdapter}.
+ *
+ * @param id    The primary key.
+ * @param value The value of the field.
+ */
+public record Score(
+        String id,
+        double value
+) {
+
+    /**
+     * Reads the field from a stored value.
+     *
+     * @param segments The field path split by {@link DocumentPatch#parsePath(String)}.
+     * @return The score, or null if the field is missing, not a number or the value is not valid JSON.
+     */
+    public static Score of(String id, String documentJson, List<Object> segments) {
+        if (documentJson == null) return null;
+        try {
+            JsonElement value = DocumentPatch.find(JsonParser.parseString(documentJson), segments);
+            if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) return null;
+            return new Score(id, value.getAsDouble());
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+}
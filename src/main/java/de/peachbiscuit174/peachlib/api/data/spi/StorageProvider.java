@@ -0,0 +1,50 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import de.peachbiscuit174.peachlib.api.managers.Credentials;
+
+import java.io.File;
+
+/**
+ * Factory for the adapters of a storage backend type.
+ * <p>
+ * Providers are discovered with {@link java.util.ServiceLoader} (list the implementation in
+ * {@code META-INF/services/de.peachbiscuit174.peachlib.api.data.spi.StorageProvider}) or registered
+ * explicitly with {@link de.peachbiscuit174.peachlib.api.managers.DataManager#registerStorageProvider(StorageProvider)},
+ * which is required for providers shipped in another plugin since their classes are not visible to PeachLib.
+ * Afterwards connections can be opened with
+ * {@link de.peachbiscuit174.peachlib.api.managers.DataManager#registerStorage(String, String, de.peachbiscuit174.peachlib.api.managers.Credentials)}.
+ * </p>
+ */
+public interface StorageProvider {
+
+    /**
+     * @return The unique, case-insensitive name of the backend type (e.g. "MONGODB").
+     */
+    String getType();
+
+    /**
+     * Creates a new, not yet connected adapter.
+     *
+     * @param dataFolder The data folder of PeachLib, for backends storing local files.
+     * @return The adapter for a single connection.
+     */
+    AsyncStorageAdapter createAdapter(File dataFolder);
+
+    /**
+     * @return The number of execution lanes used for connections of this type unless specified otherwise.
+     * Native asynchronous backends can use many lanes to pipeline independent operations.
+     */
+    default int getDefaultLaneCount() {
+        return 1;
+    }
+
+    /**
+     * Like {@link #getDefaultLaneCount()}, for backends whose parallelism depends on the settings of a connection.
+     *
+     * @param credentials The credentials the connection is opened with.
+     * @return The number of execution lanes, by default {@link #getDefaultLaneCount()}.
+     */
+    default int getDefaultLaneCount(Credentials credentials) {
+        return getDefaultLaneCount();
+    }
+}
@@ -0,0 +1,23 @@
+package de.peachbiscuit174.peachlib.api.managers;
+
+/**
+ * Defines how a storage connection reacts to new modifications once its queue limits are reached.
+ */
+public enum BackpressurePolicy {
+    /**
+     * The calling thread waits until capacity is available or the configured timeout expires.
+     * Avoid this policy if modifications are issued from the server main thread or from callbacks
+     * of data futures (which run on the worker threads themselves).
+     */
+    BLOCK,
+    /**
+     * The future of the modification is completed exceptionally with a
+     * {@link java.util.concurrent.RejectedExecutionException} right away.
+     */
+    FAIL_FAST,
+    /**
+     * New tasks are written to spill files on disk and are fed back into the queue
+     * in their original order once the backlog has shrunk.
+     */
+    SPILL_TO_DISK
+}
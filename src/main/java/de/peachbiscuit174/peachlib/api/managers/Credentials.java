@@ -10,6 +10,8 @@ package de.peachbiscuit174.peachlib.api.managers;
  * @param username The database user
  * @param password The database password
  * @param useSsl   Whether to attempt an SSL connection (optional, falls back if unsupported)
+ * @param sqlite   Connection and pragma settings, only used by SQLite (null for the defaults)
+ * @param pool     Connection pool and driver settings, only used by MySQL (null for the defaults)
  */
 public record Credentials(
         String host,
@@ -17,5 +19,34 @@ public record Credentials(
         String database,
         String username,
         String password,
-        boolean useSsl
-) {}
\ No newline at end of file
+        boolean useSsl,
+        SQLiteSettings sqlite,
+        PoolSettings pool
+) {
+    public Credentials {
+        if (sqlite == null) {
+            sqlite = SQLiteSettings.defaults();
+        }
+        if (pool == null) {
+            pool = PoolSettings.defaults();
+        }
+    }
+
+    public Credentials(String host, int port, String database, String username, String password, boolean useSsl) {
+        this(host, port, database, username, password, useSsl, SQLiteSettings.defaults(), PoolSettings.defaults());
+    }
+
+    /**
+     * @return A copy of these credentials with the given SQLite settings.
+     */
+    public Credentials withSQLiteSettings(SQLiteSettings sqlite) {
+        return new Credentials(host, port, database, username, password, useSsl, sqlite, pool);
+    }
+
+    /**
+     * @return A copy of these credentials with the given connection pool settings.
+     */
+    public Credentials withPoolSettings(PoolSettings pool) {
+        return new Credentials(host, port, database, username, password, useSsl, sqlite, pool);
+    }
+}
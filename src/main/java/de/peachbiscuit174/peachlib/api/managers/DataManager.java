@@ -1,24 +1,45 @@
 package de.peachbiscuit174.peachlib.api.managers;
 
 import de.peachbiscuit174.peachlib.PeachLib;
-import de.peachbiscuit174.peachlib.api.PeachLibAPI;
+import com.google.gson.Gson;
+import de.peachbiscuit174.peachlib.api.data.StorageFormat;
 import de.peachbiscuit174.peachlib.api.data.Table;
-import de.peachbiscuit174.peachlib.data.StorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.TypedTable;
+import de.peachbiscuit174.peachlib.api.data.codec.Codec;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.StorageProvider;
+import de.peachbiscuit174.peachlib.data.DeferredValue;
+import de.peachbiscuit174.peachlib.data.DocumentKey;
 import de.peachbiscuit174.peachlib.data.Task;
+import de.peachbiscuit174.peachlib.data.backends.BuiltinStorageProvider;
 import de.peachbiscuit174.peachlib.data.cache.TableCache;
+import de.peachbiscuit174.peachlib.data.changes.ChangeFeeds;
+import de.peachbiscuit174.peachlib.data.codec.CodecRegistry;
+import de.peachbiscuit174.peachlib.data.counter.CounterAggregator;
+import de.peachbiscuit174.peachlib.data.leaderboard.Leaderboards;
 import de.peachbiscuit174.peachlib.data.logs.AuditLogger;
 import de.peachbiscuit174.peachlib.data.logs.QueueLogger;
 import de.peachbiscuit174.peachlib.data.queue.DataWorker;
+import de.peachbiscuit174.peachlib.data.queue.PendingWriteOverlay;
+import de.peachbiscuit174.peachlib.data.queue.WriteCoalescer;
 import de.peachbiscuit174.peachlib.data.time.TimeProvider;
 import org.jetbrains.annotations.ApiStatus;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 
 /**
@@ -27,17 +48,37 @@ import java.util.logging.Level;
  */
 public class DataManager {
 
-    private final Map<String, StorageAdapter> adapters = new ConcurrentHashMap<>();
-    private final ConcurrentLinkedQueue<Task> taskQueue = new ConcurrentLinkedQueue<>();
+    private final Map<String, AsyncStorageAdapter> adapters = new ConcurrentHashMap<>();
+    // Backend types by upper case name: the bundled StorageTypes and discovered or registered providers
+    private final Map<String, StorageProvider> storageProviders = new ConcurrentHashMap<>();
+    private final Map<String, DataWorker> workers = new ConcurrentHashMap<>();
+    // Tasks (e.g. recovered from the crash log) for connections that have not been registered yet
+    private final Map<String, Queue<Task>> waitingTasks = new ConcurrentHashMap<>();
+    // Single-flight registry: concurrent READs of the same document share one adapter call
+    private final Map<DocumentKey, CompletableFuture<Object>> inFlightReads = new ConcurrentHashMap<>();
+    // Read-your-writes: values of queued modifications that are not persisted yet
+    private final PendingWriteOverlay pendingWrites = new PendingWriteOverlay();
+    private final WriteCoalescer writeCoalescer = new WriteCoalescer();
     private final List<TableCache> activeCaches = new CopyOnWriteArrayList<>();
+    // Default JSON codecs shared by all tables, resolved once per value class
+    private final CodecRegistry codecs = new CodecRegistry(new Gson());
+    private final CounterAggregator counters = new CounterAggregator(this, COUNTER_FLUSH_MILLIS);
+    private final Leaderboards leaderboards = new Leaderboards(this);
+    private final ChangeFeeds changeFeeds = new ChangeFeeds(this, CHANGE_POLL_MILLIS);
 
     private final TimeProvider timeProvider;
     private final QueueLogger queueLogger;
     private final AuditLogger auditLogger;
-    private final DataWorker dataWorker;
     private final File dataFolder;
 
+    private final Map<String, QueueLimits> queueLimits = new ConcurrentHashMap<>();
+
     private int auditLogLimit = 500;
+    private volatile QueueLimits defaultQueueLimits = QueueLimits.defaults();
+
+    private static final long SHUTDOWN_FLUSH_MILLIS = 30_000L;
+    private static final long COUNTER_FLUSH_MILLIS = 1_000L;
+    private static final long CHANGE_POLL_MILLIS = 1_000L;
 
     /**
      * Do not USE!
@@ -51,42 +92,339 @@ public class DataManager {
 
         this.queueLogger = new QueueLogger(pluginDataFolder);
         this.auditLogger = new AuditLogger(pluginDataFolder, auditLogLimit);
-        this.dataWorker = new DataWorker(this, taskQueue, queueLogger, auditLogger);
 
-        PeachLibAPI.getSchedulerManager().getScheduler()
-                .runAsyncRepeating(dataWorker, 0, 50, TimeUnit.MILLISECONDS);
+        for (StorageType type : StorageType.values()) {
+            registerStorageProvider(new BuiltinStorageProvider(type));
+        }
+        loadStorageProviders();
     }
 
     public synchronized void registerStorage(String connectionId, StorageType type, Credentials credentials) throws Exception {
+        registerStorage(connectionId, type.name(), credentials);
+    }
+
+    public synchronized void registerStorage(String connectionId, StorageType type, Credentials credentials, int laneCount) throws Exception {
+        registerStorage(connectionId, type.name(), credentials, laneCount);
+    }
+
+    /**
+     * Registers a storage connection of a backend type provided by a {@link StorageProvider}.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @param type         The case-insensitive type name, e.g. "MYSQL" or the name of a third-party provider.
+     * @param credentials  The connection credentials.
+     * @throws Exception If the type is unknown or the connection could not be established.
+     */
+    public synchronized void registerStorage(String connectionId, String type, Credentials credentials) throws Exception {
+        registerStorage(connectionId, type, credentials, getProvider(type).getDefaultLaneCount(credentials));
+    }
+
+    /**
+     * Registers a storage connection with a custom number of execution lanes.
+     * Tasks are hashed by table and id onto the lanes: operations on the same id stay strictly ordered,
+     * while independent ids are processed in parallel. For MySQL the lane count should not exceed the
+     * connection pool size.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @param type         The case-insensitive backend type name.
+     * @param credentials  The connection credentials.
+     * @param laneCount    The number of parallel execution lanes (at least 1).
+     * @throws Exception If the type is unknown or the connection could not be established.
+     */
+    public synchronized void registerStorage(String connectionId, String type, Credentials credentials, int laneCount) throws Exception {
         if (adapters.containsKey(connectionId)) {
             return;
         }
-        StorageAdapter adapter = createAdapterForType(type);
-        adapter.connect(credentials);
+        AsyncStorageAdapter adapter = getProvider(type).createAdapter(dataFolder);
+        DataWorker.await(adapter.connect(credentials));
         adapters.put(connectionId, adapter);
+
+        PoolMetrics pool = adapter.getPoolMetrics();
+        if (pool != null && laneCount > pool.maximumPoolSize()) {
+            PeachLib.getPlugin().getLogger().warning("Connection '" + connectionId + "' has " + laneCount + " lanes but only "
+                    + pool.maximumPoolSize() + " pooled connections, lanes will wait for connections.");
+        }
+
+        File spillDirectory = new File(dataFolder, "QueueLogs/spill/" + connectionId.replaceAll("[^a-zA-Z0-9_\\-]", "_"));
+        QueueLimits limits = queueLimits.getOrDefault(connectionId, defaultQueueLimits);
+        DataWorker worker = new DataWorker(this, connectionId, laneCount, limits, spillDirectory, writeCoalescer, auditLogger);
+        worker.start();
+
+        // Dispatch waiting tasks before publishing the worker to keep their order. They are removed from the
+        // waiting tasks only afterwards, so an idle worker of another connection cannot clear their crash log entries.
+        Queue<Task> waiting = waitingTasks.get(connectionId);
+        if (waiting != null) {
+            for (Task task : waiting) {
+                worker.dispatchBypassingCoalescer(task);
+            }
+        }
+        workers.put(connectionId, worker);
+        if (waitingTasks.remove(connectionId) != null && worker.getQueueDepth() == 0) {
+            // The worker may have finished them before it was published
+            onWorkerIdle();
+        }
+    }
+
+    /**
+     * Makes a third-party backend type available for {@link #registerStorage(String, String, Credentials)}.
+     * Providers listed in {@code META-INF/services} of PeachLib's classpath are registered automatically.
+     *
+     * @param provider The provider. Replaces an existing provider with the same type name.
+     */
+    public void registerStorageProvider(StorageProvider provider) {
+        storageProviders.put(provider.getType().toUpperCase(Locale.ROOT), provider);
+    }
+
+    /**
+     * @return The names of all backend types that can be registered.
+     */
+    public Collection<String> getStorageTypes() {
+        return List.copyOf(storageProviders.keySet());
     }
 
     public Table getTable(String connectionId, String tableName) {
+        return getTable(connectionId, tableName, StorageFormat.JSON);
+    }
+
+    /**
+     * Returns a table and creates it with the given storage format if it does not exist yet.
+     * Existing tables keep their format; reads and writes are converted transparently.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @param tableName    The table name.
+     * @param format       The storage format for a new table.
+     */
+    public Table getTable(String connectionId, String tableName, StorageFormat format) {
         if (!adapters.containsKey(connectionId)) {
             throw new IllegalArgumentException("Connection ID '" + connectionId + "' is not registered.");
         }
         try {
-            adapters.get(connectionId).createTableIfNotExists(tableName);
+            DataWorker.await(adapters.get(connectionId).createTableIfNotExists(tableName, format));
         } catch (Exception e) {
             PeachLib.getPlugin().getLogger().log(Level.SEVERE, "Failed to create table: " + tableName, e);
         }
         return new Table(this, connectionId, tableName);
     }
 
+    /**
+     * Returns a handle of a table bound to a value type, using the default JSON codec of the class.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @param tableName    The table name.
+     * @param clazz        The value type.
+     */
+    public <T> TypedTable<T> getTable(String connectionId, String tableName, Class<T> clazz) {
+        return getTable(connectionId, tableName).typed(clazz);
+    }
+
+    /**
+     * Returns a handle of a table bound to a value type and a custom codec.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @param tableName    The table name.
+     * @param codec        The codec used for every value of the table.
+     */
+    public <T> TypedTable<T> getTable(String connectionId, String tableName, Codec<T> codec) {
+        return getTable(connectionId, tableName).typed(codec);
+    }
+
+    @ApiStatus.Internal
+    public QueueLogger getQueueLogger() {
+        return queueLogger;
+    }
+
+    @ApiStatus.Internal
+    public CodecRegistry getCodecs() {
+        return codecs;
+    }
+
     @ApiStatus.Internal
     public void registerCache(TableCache cache) {
         this.activeCaches.add(cache);
     }
 
+    /**
+     * Removes a document from the local caches of its table, e.g. after it was modified without a known value.
+     */
+    @ApiStatus.Internal
+    public void evictFromCaches(DocumentKey key) {
+        for (TableCache cache : activeCaches) {
+            if (cache.covers(key.connectionId(), key.tableName())) {
+                cache.removeFromCache(key.id());
+            }
+        }
+    }
+
+    @ApiStatus.Internal
+    public CounterAggregator getCounters() {
+        return counters;
+    }
+
+    @ApiStatus.Internal
+    public Leaderboards getLeaderboards() {
+        return leaderboards;
+    }
+
+    @ApiStatus.Internal
+    public ChangeFeeds getChangeFeeds() {
+        return changeFeeds;
+    }
+
+    /**
+     * Writes all counter increments (see {@link Table#increment(String, String, long)}) that are still summed up
+     * in memory, instead of waiting for the next periodic flush.
+     *
+     * @return A future completing once the increments were written.
+     */
+    public CompletableFuture<Void> flushCounters() {
+        return counters.flush();
+    }
+
+    /**
+     * Sets how long a modification may take from being issued to being committed and still be reported by
+     * {@link Table#watch(Class, java.util.function.Consumer)} without a resync. Every poll of a change feed reads
+     * back this far; the window has to cover the queue delays of other servers and the clock difference to them.
+     * Late modifications of this server are detected and make the feed read back to them. Defaults to 5 seconds.
+     *
+     * @param millis The window in milliseconds.
+     * @throws IllegalArgumentException If the window is negative.
+     */
+    public void setLateCommitWindow(long millis) {
+        changeFeeds.setLateCommitMillis(millis);
+    }
+
     public void setAuditLogLimit(int limit) {
         this.auditLogLimit = limit;
     }
 
+    /**
+     * Returns how many WRITE/DELETE requests were submitted per write actually executed.
+     * Pending updates for the same id are merged in the queue, so a value of 3.0 means
+     * that on average three updates were folded into a single database operation.
+     *
+     * @return The coalescing ratio, 1.0 if nothing has been coalesced (yet).
+     */
+    public double getCoalescingRatio() {
+        long submitted = writeCoalescer.getSubmittedWrites();
+        long executed = submitted - writeCoalescer.getCoalescedWrites();
+        if (executed <= 0) return 1.0;
+        return (double) submitted / executed;
+    }
+
+    /**
+     * @return The amount of WRITE/DELETE requests that were merged into another pending request.
+     */
+    public long getCoalescedWriteCount() {
+        return writeCoalescer.getCoalescedWrites();
+    }
+
+    /**
+     * Returns the number of queued (not yet executed) tasks of a connection.
+     * Every connection is processed by its own worker, so a growing depth points at
+     * a slow or unreachable backend without affecting other connections.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @return The queue depth, 0 if the connection is unknown.
+     */
+    public int getQueueDepth(String connectionId) {
+        DataWorker worker = workers.get(connectionId);
+        int depth = worker != null ? worker.getQueueDepth() : 0;
+        Queue<Task> waiting = waitingTasks.get(connectionId);
+        return waiting != null ? depth + waiting.size() : depth;
+    }
+
+    /**
+     * Sets the queue limits used for connections registered afterwards.
+     *
+     * @param limits The default limits.
+     */
+    public void setDefaultQueueLimits(QueueLimits limits) {
+        this.defaultQueueLimits = limits;
+    }
+
+    /**
+     * Sets the queue limits and backpressure policy of a single connection.
+     * Can be called before or after the connection is registered.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @param limits       The limits for this connection.
+     */
+    public void setQueueLimits(String connectionId, QueueLimits limits) {
+        queueLimits.put(connectionId, limits);
+        DataWorker worker = workers.get(connectionId);
+        if (worker != null) {
+            worker.setLimits(limits);
+        }
+    }
+
+    /**
+     * Returns how close the queue of a connection is to its limits.
+     * Plugins can use this signal to shed or postpone non-critical writes.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @return A value between 0.0 (empty) and 1.0 (full or spilling to disk).
+     */
+    public double getSaturation(String connectionId) {
+        DataWorker worker = workers.get(connectionId);
+        return worker != null ? worker.getSaturation() : 0.0;
+    }
+
+    /**
+     * @param connectionId The unique ID of the storage connection.
+     * @return true if the queue of the connection is close to its limits and non-critical writes should be skipped.
+     */
+    public boolean isSaturated(String connectionId) {
+        DataWorker worker = workers.get(connectionId);
+        return worker != null && worker.isSaturated();
+    }
+
+    /**
+     * @return A snapshot of the queue depth of every registered connection.
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        for (String connectionId : workers.keySet()) {
+            depths.put(connectionId, getQueueDepth(connectionId));
+        }
+        return depths;
+    }
+
+    /**
+     * @param connectionId The unique ID of the storage connection.
+     * @return The number of execution lanes of the connection, 0 if the connection is unknown.
+     */
+    public int getLaneCount(String connectionId) {
+        DataWorker worker = workers.get(connectionId);
+        return worker != null ? worker.getLaneCount() : 0;
+    }
+
+    /**
+     * Returns the current usage of the connection pool of a connection (MySQL, or a third-party backend that
+     * reports it). Every lane holds one connection while it executes a task and scans borrow their own, so
+     * threads waiting for connections or growing acquire times mean the pool is too small for the lane count.
+     *
+     * @param connectionId The unique ID of the storage connection.
+     * @return The pool metrics, or null if the connection is unknown or its backend does not pool connections.
+     */
+    public PoolMetrics getPoolMetrics(String connectionId) {
+        AsyncStorageAdapter adapter = adapters.get(connectionId);
+        return adapter != null ? adapter.getPoolMetrics() : null;
+    }
+
+    /**
+     * @return A snapshot of the pool metrics of every connection with a connection pool.
+     */
+    public Map<String, PoolMetrics> getPoolMetrics() {
+        Map<String, PoolMetrics> metrics = new HashMap<>();
+        for (Map.Entry<String, AsyncStorageAdapter> entry : adapters.entrySet()) {
+            PoolMetrics pool = entry.getValue().getPoolMetrics();
+            if (pool != null) {
+                metrics.put(entry.getKey(), pool);
+            }
+        }
+        return metrics;
+    }
+
     public void recoverCrashLogs() {
         queueLogger.recover(this);
     }
@@ -96,8 +434,14 @@ public class DataManager {
      * Prevents data loss during server restarts.
      */
     public void shutdown() {
-        // 1. Force worker to finish all queued tasks immediately (prevent dataloss)
-        dataWorker.flushAll();
+        // 0. Hand the counter increments that are still summed up in memory to the workers and stop polling changes
+        counters.shutdown();
+        changeFeeds.shutdown();
+
+        // 1. Force workers to finish all queued tasks immediately (prevent dataloss).
+        // Connections are flushed in parallel so an unreachable backend cannot delay the others.
+        flushWorkers();
+        leaderboards.clear();
 
         // 2. Safely close logging threads to prevent thread leaks
         auditLogger.shutdown();
@@ -109,9 +453,9 @@ public class DataManager {
         activeCaches.clear();
 
         // 4. Finally disconnect adapters safely
-        for (Map.Entry<String, StorageAdapter> entry : adapters.entrySet()) {
+        for (Map.Entry<String, AsyncStorageAdapter> entry : adapters.entrySet()) {
             try {
-                entry.getValue().disconnect();
+                DataWorker.await(entry.getValue().disconnect());
             } catch (Exception e) {
                 PeachLib.getPlugin().getLogger().log(Level.SEVERE, "Failed to close StorageAdapter: " + entry.getKey(), e);
             }
@@ -119,6 +463,64 @@ public class DataManager {
         adapters.clear();
     }
 
+    private void flushWorkers() {
+        List<Thread> flushThreads = new ArrayList<>();
+        for (DataWorker worker : workers.values()) {
+            Thread thread = new Thread(worker::flushAll, "PL-DataFlush-" + worker.getConnectionId());
+            thread.setDaemon(true);
+            thread.start();
+            flushThreads.add(thread);
+        }
+
+        long deadline = System.currentTimeMillis() + SHUTDOWN_FLUSH_MILLIS;
+        for (Thread thread : flushThreads) {
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        boolean drained = true;
+        for (DataWorker worker : workers.values()) {
+            if (worker.getQueueDepth() > 0) {
+                drained = false;
+                PeachLib.getPlugin().getLogger().warning("Connection '" + worker.getConnectionId() + "' could not be flushed completely ("
+                        + worker.getQueueDepth() + " tasks left). They stay in the crash log and are recovered on the next start.");
+            }
+        }
+        workers.clear();
+
+        // Tasks of connections that were never registered (e.g. recovered from the crash log) cannot be executed
+        for (Map.Entry<String, Queue<Task>> entry : waitingTasks.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            drained = false;
+            PeachLib.getPlugin().getLogger().warning("Connection '" + entry.getKey() + "' was not registered ("
+                    + entry.getValue().size() + " tasks waiting). They stay in the crash log and are recovered on the next start.");
+        }
+
+        // Keep the crash log if anything is left, otherwise the remaining tasks would be lost
+        if (drained) {
+            queueLogger.clearLogAtomically();
+        }
+    }
+
+    /**
+     * Called by a worker once its queue ran empty. The shared crash log is only cleared when
+     * every connection has finished its tasks and no task waits for its connection to be registered.
+     */
+    @ApiStatus.Internal
+    public void onWorkerIdle() {
+        for (Queue<Task> waiting : waitingTasks.values()) {
+            if (!waiting.isEmpty()) return;
+        }
+        for (DataWorker worker : workers.values()) {
+            if (worker.getQueueDepth() > 0) return;
+        }
+        queueLogger.clearLogAtomically();
+    }
+
     @ApiStatus.Internal
     public File getDataFolder() {
         return dataFolder;
@@ -130,22 +532,183 @@ public class DataManager {
     }
 
     @ApiStatus.Internal
-    public StorageAdapter getAdapter(String connectionId) {
+    public AsyncStorageAdapter getAdapter(String connectionId) {
         return adapters.get(connectionId);
     }
 
     @ApiStatus.Internal
     public void enqueueTask(Task task) {
-        queueLogger.logTask(task);
-        taskQueue.add(task);
+        if (task.type() == Task.TaskType.READ_MANY && task.future() != null) {
+            task = resolveFromPendingWrites(task);
+            if (task == null) return;
+        }
+
+        if (task.id() != null) {
+            DocumentKey key = DocumentKey.of(task);
+            if (task.type() == Task.TaskType.READ) {
+                PendingWriteOverlay.Hit hit = pendingWrites.lookup(key);
+                if (hit != null && task.future() != null) {
+                    task.future().complete(hit.jsonValue());
+                    return;
+                }
+                if (joinInFlightRead(key, task)) {
+                    return;
+                }
+            } else if (task.type() != Task.TaskType.READ_DOCUMENT) {
+                // A read issued after this modification must not share the result of an older read
+                inFlightReads.remove(key);
+            }
+        }
+
+        DataWorker worker = workers.get(task.connectionId());
+        if (worker == null) {
+            synchronized (this) {
+                worker = workers.get(task.connectionId());
+                if (worker == null) {
+                    task = materialize(task);
+                    if (task == null) return;
+                    queueLogger.logTask(task);
+                    waitingTasks.computeIfAbsent(task.connectionId(), k -> new ConcurrentLinkedQueue<>()).add(task);
+                    return;
+                }
+            }
+        }
+
+        DataWorker.Admission admission = worker.admit(task);
+        if (admission == DataWorker.Admission.REJECTED) {
+            RejectedExecutionException error = new RejectedExecutionException(
+                    "Data queue of connection '" + task.connectionId() + "' is full (" + worker.getQueueDepth() + " tasks pending).");
+            if (task.future() != null) {
+                task.future().completeExceptionally(error);
+            } else {
+                PeachLib.getPlugin().getLogger().warning(error.getMessage() + " Dropped " + task.type() + " of " + task.tableName() + "/" + task.id());
+            }
+            return;
+        }
+
+        if (admission == DataWorker.Admission.SPILL) {
+            // Spilled tasks are written to disk, so a deferred value has to be encoded right away
+            task = materialize(task);
+            if (task == null) return;
+            queueLogger.logTask(task);
+            // Spilled tasks bypass coalescing: they are restored as new instances from disk
+            pendingWrites.trackSpilled(task);
+            worker.spill(task);
+            return;
+        }
+
+        if (DeferredValue.isDeferred(task)) {
+            // Logged by the worker once the value has been encoded
+            pendingWrites.trackDeferred(task);
+        } else {
+            queueLogger.logTask(task);
+            pendingWrites.track(task);
+        }
+        if (writeCoalescer.offer(task)) {
+            worker.dispatch(task);
+        }
+    }
+
+    /**
+     * Encodes the value of a deferred WRITE on the calling thread.
+     *
+     * @return The encoded task, or null if encoding failed and the task was completed exceptionally.
+     */
+    private Task materialize(Task task) {
+        try {
+            return DeferredValue.materialize(task);
+        } catch (Exception e) {
+            if (task.future() != null) {
+                task.future().completeExceptionally(e);
+            } else {
+                PeachLib.getPlugin().getLogger().log(Level.SEVERE, "Failed to encode value of " + task.tableName() + "/" + task.id(), e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Answers the ids of a READ_MANY task that have a pending modification from the overlay.
+     *
+     * @return The task that still has to be queued for the remaining ids, or null if every id was answered.
+     */
+    @SuppressWarnings("unchecked")
+    private Task resolveFromPendingWrites(Task task) {
+        Collection<String> ids = (Collection<String>) task.payload();
+        Map<String, String> resolved = new HashMap<>();
+        List<String> remaining = new ArrayList<>();
+
+        for (String id : ids) {
+            PendingWriteOverlay.Hit hit = pendingWrites.lookup(new DocumentKey(task.connectionId(), task.tableName(), id));
+            if (hit == null) {
+                remaining.add(id);
+            } else if (hit.jsonValue() != null) {
+                resolved.put(id, hit.jsonValue());
+            }
+        }
+
+        if (remaining.size() == ids.size()) {
+            return task;
+        }
+        if (remaining.isEmpty()) {
+            task.future().complete(resolved);
+            return null;
+        }
+
+        CompletableFuture<Object> original = task.future();
+        CompletableFuture<Object> remainingFuture = new CompletableFuture<>();
+        remainingFuture.whenComplete((result, error) -> {
+            if (error != null) {
+                original.completeExceptionally(error);
+                return;
+            }
+            Map<String, String> values = new HashMap<>((Map<String, String>) result);
+            values.putAll(resolved);
+            original.complete(values);
+        });
+
+        return new Task(task.type(), task.connectionId(), task.tableName(), null, null, task.timestamp(), remainingFuture, remaining, task.priority());
+    }
+
+    /**
+     * Attaches the task to an identical READ that is already queued or running.
+     *
+     * @return true if the task was attached, false if it has to be queued itself.
+     */
+    private boolean joinInFlightRead(DocumentKey key, Task task) {
+        if (task.future() == null) return false;
+
+        CompletableFuture<Object> inFlight = inFlightReads.putIfAbsent(key, task.future());
+        if (inFlight == null) {
+            task.future().whenComplete((result, error) -> inFlightReads.remove(key, task.future()));
+            return false;
+        }
+
+        inFlight.whenComplete((result, error) -> {
+            if (error != null) {
+                task.future().completeExceptionally(error);
+            } else {
+                task.future().complete(result);
+            }
+        });
+        return true;
     }
 
-    private StorageAdapter createAdapterForType(StorageType type) {
-        return switch (type) {
-            case MYSQL -> new de.peachbiscuit174.peachlib.data.backends.MySQLAdapter();
-            case SQLITE -> new de.peachbiscuit174.peachlib.data.backends.SQLiteAdapter(this.dataFolder);
-            case FILETREE -> new de.peachbiscuit174.peachlib.data.backends.FileTreeAdapter(this.dataFolder);
-            case YAML -> new de.peachbiscuit174.peachlib.data.backends.YAMLAdapter(this.dataFolder);
-        };
+    private StorageProvider getProvider(String type) {
+        StorageProvider provider = storageProviders.get(type.toUpperCase(Locale.ROOT));
+        if (provider == null) {
+            throw new IllegalArgumentException("Unknown storage type '" + type + "'. Available: " + storageProviders.keySet());
+        }
+        return provider;
+    }
+
+    private void loadStorageProviders() {
+        try {
+            for (StorageProvider provider : ServiceLoader.load(StorageProvider.class, DataManager.class.getClassLoader())) {
+                registerStorageProvider(provider);
+            }
+        } catch (ServiceConfigurationError e) {
+            PeachLib.getPlugin().getLogger().log(Level.WARNING, "Failed to load a storage provider", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package de.peachbiscuit174.peachlib.api.managers;
+
+import java.util.List;
+
+/**
+ * A snapshot of the connection pool of a storage connection, see {@link DataManager#getPoolMetrics(String)}.
+ * Compare {@link #threadsAwaitingConnection()} and the acquire times with the lane count of the connection:
+ * lanes waiting for connections mean the pool is too small.
+ *
+ * @param maximumPoolSize           The configured maximum number of connections.
+ * @param totalConnections          The number of open connections.
+ * @param activeConnections         The number of connections currently borrowed.
+ * @param idleConnections           The number of open connections not borrowed.
+ * @param threadsAwaitingConnection The number of threads waiting for a free connection.
+ * @param acquireCount              The number of connections borrowed since the pool was started.
+ * @param acquireTimeouts           The number of times no connection became free within the connection timeout.
+ * @param totalAcquireNanos         The summed time spent waiting for connections.
+ * @param acquireHistogram          The number of acquisitions per bucket of {@link #ACQUIRE_BUCKET_BOUNDS_MICROS}, plus
+ *                                  a last bucket for longer waits.
+ */
+public record PoolMetrics(
+        int maximumPoolSize,
+        int totalConnections,
+        int activeConnections,
+        int idleConnections,
+        int threadsAwaitingConnection,
+        long acquireCount,
+        long acquireTimeouts,
+        long totalAcquireNanos,
+        List<Long> acquireHistogram
+) {
+    /**
+     * The inclusive upper bounds of the acquire time buckets in microseconds.
+     */
+    public static final List<Long> ACQUIRE_BUCKET_BOUNDS_MICROS = List.of(
+            50L, 100L, 250L, 500L, 1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L, 1_000_000L);
+
+    public PoolMetrics {
+        acquireHistogram = List.copyOf(acquireHistogram);
+    }
+
+    /**
+     * @return The average time to borrow a connection in milliseconds, 0 if none was borrowed yet.
+     */
+    public double getMeanAcquireMillis() {
+        return acquireCount == 0 ? 0.0 : totalAcquireNanos / 1_000_000.0 / acquireCount;
+    }
+
+    /**
+     * Estimates a percentile of the acquire time from the histogram.
+     *
+     * @param percentile The percentile between 0 and 100, e.g. 99.
+     * @return The upper bound of the bucket containing the percentile in milliseconds, {@link Double#POSITIVE_INFINITY}
+     * if it lies in the last bucket, or 0 if no connection was borrowed yet.
+     */
+    public double getAcquirePercentileMillis(double percentile) {
+        long total = 0;
+        for (long count : acquireHistogram) {
+            total += count;
+        }
+        if (total == 0) return 0.0;
+
+        long rank = (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < ACQUIRE_BUCKET_BOUNDS_MICROS.size(); i++) {
+            seen += acquireHistogram.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return ACQUIRE_BUCKET_BOUNDS_MICROS.get(i) / 1_000.0;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return The share of the maximum pool size currently borrowed, between 0.0 and 1.0.
+     */
+    public double getUtilization() {
+        return Math.min(1.0, (double) activeConnections / maximumPoolSize);
+    }
+}
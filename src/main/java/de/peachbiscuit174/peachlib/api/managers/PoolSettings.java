@@ -0,0 +1,172 @@
+package de.peachbiscuit174.peachlib.api.managers;
+
+/**
+ * Connection pool and driver settings of MySQL/MariaDB connections, passed with
+ * {@link Credentials#withPoolSettings(PoolSettings)}. Start from {@link #builder()} to change single values.
+ * The current usage of a pool is reported by {@link DataManager#getPoolMetrics(String)}.
+ *
+ * @param maximumPoolSize              The maximum number of connections. Should be at least the lane count of the connection.
+ * @param minimumIdle                  The number of idle connections the pool keeps open, at most the maximum pool size.
+ * @param connectionTimeoutMillis      How long a task waits for a free connection before it fails.
+ * @param idleTimeoutMillis            How long a connection above the minimum may stay idle, 0 keeps it forever.
+ * @param maxLifetimeMillis            The maximum lifetime of a connection, 0 for no limit.
+ * @param leakDetectionThresholdMillis How long a connection may be borrowed before a possible leak is logged, 0 disables it.
+ * @param rewriteBatchedStatements     Whether the driver collapses batches into multi-row statements.
+ * @param cachePrepStmts               Whether the driver caches prepared statements per connection.
+ * @param prepStmtCacheSize            The number of prepared statements cached per connection.
+ * @param prepStmtCacheSqlLimit        The maximum length of a cached statement's SQL.
+ * @param connectTimeoutMillis         The socket connect timeout of the driver, 0 for none.
+ * @param socketTimeoutMillis          The socket read timeout of the driver, 0 for none.
+ */
+public record PoolSettings(
+        int maximumPoolSize,
+        int minimumIdle,
+        long connectionTimeoutMillis,
+        long idleTimeoutMillis,
+        long maxLifetimeMillis,
+        long leakDetectionThresholdMillis,
+        boolean rewriteBatchedStatements,
+        boolean cachePrepStmts,
+        int prepStmtCacheSize,
+        int prepStmtCacheSqlLimit,
+        int connectTimeoutMillis,
+        int socketTimeoutMillis
+) {
+    public PoolSettings {
+        if (maximumPoolSize <= 0) {
+            throw new IllegalArgumentException("Maximum pool size must be positive.");
+        }
+        if (minimumIdle < 0) {
+            throw new IllegalArgumentException("Minimum idle connections must not be negative.");
+        }
+        if (connectionTimeoutMillis <= 0 || idleTimeoutMillis < 0 || maxLifetimeMillis < 0 || leakDetectionThresholdMillis < 0
+                || connectTimeoutMillis < 0 || socketTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Pool timeouts must not be negative, the connection timeout must be positive.");
+        }
+        if (prepStmtCacheSize < 0 || prepStmtCacheSqlLimit < 0) {
+            throw new IllegalArgumentException("Statement cache sizes must not be negative.");
+        }
+    }
+
+    /**
+     * @return The default settings: 10 connections with 2 idle, a connection timeout of 10 seconds, HikariCP's
+     * idle timeout and lifetime, no leak detection, batch rewriting and 250 cached statements per connection.
+     */
+    public static PoolSettings defaults() {
+        return new PoolSettings(10, 2, 10_000L, 600_000L, 1_800_000L, 0L,
+                true, true, 250, 2048, 10_000, 0);
+    }
+
+    /**
+     * @return A builder starting from the {@link #defaults()}.
+     */
+    public static Builder builder() {
+        return new Builder(defaults());
+    }
+
+    /**
+     * @return A builder starting from these settings.
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public static final class Builder {
+        private int maximumPoolSize;
+        private int minimumIdle;
+        private long connectionTimeoutMillis;
+        private long idleTimeoutMillis;
+        private long maxLifetimeMillis;
+        private long leakDetectionThresholdMillis;
+        private boolean rewriteBatchedStatements;
+        private boolean cachePrepStmts;
+        private int prepStmtCacheSize;
+        private int prepStmtCacheSqlLimit;
+        private int connectTimeoutMillis;
+        private int socketTimeoutMillis;
+
+        private Builder(PoolSettings settings) {
+            this.maximumPoolSize = settings.maximumPoolSize;
+            this.minimumIdle = settings.minimumIdle;
+            this.connectionTimeoutMillis = settings.connectionTimeoutMillis;
+            this.idleTimeoutMillis = settings.idleTimeoutMillis;
+            this.maxLifetimeMillis = settings.maxLifetimeMillis;
+            this.leakDetectionThresholdMillis = settings.leakDetectionThresholdMillis;
+            this.rewriteBatchedStatements = settings.rewriteBatchedStatements;
+            this.cachePrepStmts = settings.cachePrepStmts;
+            this.prepStmtCacheSize = settings.prepStmtCacheSize;
+            this.prepStmtCacheSqlLimit = settings.prepStmtCacheSqlLimit;
+            this.connectTimeoutMillis = settings.connectTimeoutMillis;
+            this.socketTimeoutMillis = settings.socketTimeoutMillis;
+        }
+
+        public Builder maximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+            return this;
+        }
+
+        public Builder minimumIdle(int minimumIdle) {
+            this.minimumIdle = minimumIdle;
+            return this;
+        }
+
+        public Builder connectionTimeoutMillis(long connectionTimeoutMillis) {
+            this.connectionTimeoutMillis = connectionTimeoutMillis;
+            return this;
+        }
+
+        public Builder idleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public Builder maxLifetimeMillis(long maxLifetimeMillis) {
+            this.maxLifetimeMillis = maxLifetimeMillis;
+            return this;
+        }
+
+        public Builder leakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+            this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+            return this;
+        }
+
+        public Builder rewriteBatchedStatements(boolean rewriteBatchedStatements) {
+            this.rewriteBatchedStatements = rewriteBatchedStatements;
+            return this;
+        }
+
+        public Builder cachePrepStmts(boolean cachePrepStmts) {
+            this.cachePrepStmts = cachePrepStmts;
+            return this;
+        }
+
+        public Builder prepStmtCacheSize(int prepStmtCacheSize) {
+            this.prepStmtCacheSize = prepStmtCacheSize;
+            return this;
+        }
+
+        public Builder prepStmtCacheSqlLimit(int prepStmtCacheSqlLimit) {
+            this.prepStmtCacheSqlLimit = prepStmtCacheSqlLimit;
+            return this;
+        }
+
+        public Builder connectTimeoutMillis(int connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            return this;
+        }
+
+        public Builder socketTimeoutMillis(int socketTimeoutMillis) {
+            this.socketTimeoutMillis = socketTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException If a value is out of range.
+         */
+        public PoolSettings build() {
+            return new PoolSettings(maximumPoolSize, minimumIdle, connectionTimeoutMillis, idleTimeoutMillis, maxLifetimeMillis,
+                    leakDetectionThresholdMillis, rewriteBatchedStatements, cachePrepStmts, prepStmtCacheSize, prepStmtCacheSqlLimit,
+                    connectTimeoutMillis, socketTimeoutMillis);
+        }
+    }
+}
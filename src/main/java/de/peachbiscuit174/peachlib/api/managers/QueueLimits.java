@@ -0,0 +1,34 @@
+package de.peachbiscuit174.peachlib.api.managers;
+
+/**
+ * Capacity limits of the task queue of a single storage connection.
+ * Only modifications are subject to the policy. Reads are accepted right away, unless a modification of the same
+ * document is spilled to disk: then they are spilled behind it to keep the per-document order.
+ *
+ * @param maxTasks           The maximum number of queued tasks.
+ * @param maxPayloadBytes    The maximum estimated heap size of all queued JSON values in bytes.
+ * @param policy             The behaviour once one of the limits is reached.
+ * @param blockTimeoutMillis The maximum waiting time for {@link BackpressurePolicy#BLOCK}.
+ */
+public record QueueLimits(
+        int maxTasks,
+        long maxPayloadBytes,
+        BackpressurePolicy policy,
+        long blockTimeoutMillis
+) {
+    public QueueLimits {
+        if (maxTasks <= 0 || maxPayloadBytes <= 0) {
+            throw new IllegalArgumentException("Queue limits must be positive.");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Backpressure policy must not be null.");
+        }
+    }
+
+    /**
+     * @return The default limits: 50,000 tasks or 64 MB of payload, spilling to disk afterwards.
+     */
+    public static QueueLimits defaults() {
+        return new QueueLimits(50_000, 64L * 1024 * 1024, BackpressurePolicy.SPILL_TO_DISK, 5_000L);
+    }
+}
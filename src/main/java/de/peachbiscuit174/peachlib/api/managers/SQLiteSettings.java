@@ -0,0 +1,51 @@
+package de.peachbiscuit174.peachlib.api.managers;
+
+/**
+ * Connection settings of SQLite databases, passed with {@link Credentials#withSQLiteSettings(SQLiteSettings)}.
+ * Every database is opened with one writer connection and a number of read-only connections; in WAL mode
+ * the readers run in parallel with each other and with the writer.
+ *
+ * @param readerConnections The number of read-only connections. Connections registered without a lane count get one lane
+ *                          per reader plus one for writes.
+ * @param cacheSizeKiB      The page cache of every connection in KiB ({@code PRAGMA cache_size}).
+ * @param mmapSizeBytes     The part of the database file read through memory-mapped I/O, 0 disables it ({@code PRAGMA mmap_size}).
+ * @param tempStore         Where temporary tables and indexes of sorts are kept ({@code PRAGMA temp_store}).
+ * @param busyTimeoutMillis How long a connection waits for a lock held by another one ({@code PRAGMA busy_timeout}).
+ */
+public record SQLiteSettings(
+        int readerConnections,
+        long cacheSizeKiB,
+        long mmapSizeBytes,
+        TempStore tempStore,
+        int busyTimeoutMillis
+) {
+    public enum TempStore {
+        DEFAULT,
+        FILE,
+        MEMORY
+    }
+
+    public SQLiteSettings {
+        if (readerConnections <= 0) {
+            throw new IllegalArgumentException("At least one reader connection is required.");
+        }
+        if (cacheSizeKiB <= 0) {
+            throw new IllegalArgumentException("Page cache size must be positive.");
+        }
+        if (mmapSizeBytes < 0 || busyTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Memory-mapped I/O size and busy timeout must not be negative.");
+        }
+        if (tempStore == null) {
+            throw new IllegalArgumentException("Temp store must not be null.");
+        }
+    }
+
+    /**
+     * @return The default settings: one reader per core (2 to 4), 8 MB page cache per connection, 64 MB of
+     * memory-mapped I/O, temporary data in memory and a busy timeout of 5 seconds.
+     */
+    public static SQLiteSettings defaults() {
+        int readers = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        return new SQLiteSettings(readers, 8 * 1024L, 64L * 1024 * 1024, TempStore.MEMORY, 5_000);
+    }
+}
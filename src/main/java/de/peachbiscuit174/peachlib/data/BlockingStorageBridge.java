@@ -0,0 +1,258 @@
+package de.peachbiscuit174.peachlib.data;
+
+import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.StorageFormat;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncCursor;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.Change;
+import de.peachbiscuit174.peachlib.api.data.spi.CounterUpdate;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentQuery;
+import de.peachbiscuit174.peachlib.api.data.spi.Score;
+import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import de.peachbiscuit174.peachlib.api.managers.PoolMetrics;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+/**
+ * Exposes a blocking {@link StorageAdapter} through the {@link AsyncStorageAdapter} SPI.
+ * Every operation runs on its own virtual thread, so waiting for JDBC or disk I/O does not occupy a platform thread.
+ */
+@ApiStatus.Internal
+public class BlockingStorageBridge implements AsyncStorageAdapter {
+
+    @FunctionalInterface
+    private interface BlockingCall<T> {
+        T call() throws Exception;
+    }
+
+    private final StorageAdapter delegate;
+    private final ExecutorService executor;
+
+    public BlockingStorageBridge(StorageAdapter delegate, String threadPrefix) {
+        this.delegate = delegate;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadPrefix, 0).factory());
+    }
+
+    /**
+     * @return The wrapped blocking adapter.
+     */
+    public StorageAdapter getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public CompletionStage<Void> connect(Credentials credentials) {
+        return run(() -> {
+            delegate.connect(credentials);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> createTableIfNotExists(String tableName) {
+        return run(() -> {
+            delegate.createTableIfNotExists(tableName);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> createTableIfNotExists(String tableName, StorageFormat format) {
+        return run(() -> {
+            delegate.createTableIfNotExists(tableName, format);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> write(String tableName, String id, String jsonValue, long timestamp) {
+        return run(() -> {
+            delegate.write(tableName, id, jsonValue, timestamp);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> writeBatch(String tableName, List<Document> documents) {
+        return run(() -> {
+            delegate.writeBatch(tableName, documents);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> patch(String tableName, String id, DocumentPatch patch, long timestamp) {
+        return run(() -> {
+            delegate.patch(tableName, id, patch, timestamp);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Document> readDocument(String tableName, String id) {
+        return run(() -> delegate.readDocument(tableName, id));
+    }
+
+    @Override
+    public CompletionStage<Boolean> compareAndSet(String tableName, String id, long expectedTimestamp, String jsonValue, long timestamp) {
+        return run(() -> delegate.compareAndSet(tableName, id, expectedTimestamp, jsonValue, timestamp));
+    }
+
+    @Override
+    public CompletionStage<Void> increment(String tableName, String id, CounterUpdate update, long timestamp) {
+        return run(() -> {
+            delegate.increment(tableName, id, update, timestamp);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> createIndex(String tableName, String path) {
+        return run(() -> {
+            delegate.createIndex(tableName, path);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Map<String, String>> findBy(String tableName, String path, String jsonValue) {
+        return run(() -> delegate.findBy(tableName, path, jsonValue));
+    }
+
+    @Override
+    public CompletionStage<Void> delete(String tableName, String id) {
+        return run(() -> {
+            delegate.delete(tableName, id);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> deleteBatch(String tableName, List<String> ids) {
+        return run(() -> {
+            delegate.deleteBatch(tableName, ids);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> delete(String tableName, String id, long timestamp) {
+        return run(() -> {
+            delegate.delete(tableName, id, timestamp);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> deleteBatch(String tableName, List<String> ids, long timestamp) {
+        return run(() -> {
+            delegate.deleteBatch(tableName, ids, timestamp);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<String> read(String tableName, String id) {
+        return run(() -> delegate.read(tableName, id));
+    }
+
+    @Override
+    public CompletionStage<Map<String, String>> readMany(String tableName, Collection<String> ids) {
+        return run(() -> delegate.readMany(tableName, ids));
+    }
+
+    @Override
+    public CompletionStage<Set<String>> getAllPrimaryKeys(String tableName) {
+        return run(() -> delegate.getAllPrimaryKeys(tableName));
+    }
+
+    @Override
+    public CompletionStage<AsyncCursor<String>> openKeyCursor(String tableName, int pageSize) {
+        return run(() -> bridge(delegate.openKeyCursor(tableName, pageSize)));
+    }
+
+    @Override
+    public CompletionStage<AsyncCursor<Document>> openDocumentCursor(String tableName, int pageSize) {
+        return run(() -> bridge(delegate.openDocumentCursor(tableName, pageSize)));
+    }
+
+    @Override
+    public CompletionStage<AsyncCursor<Document>> openQueryCursor(String tableName, DocumentQuery query, int pageSize) {
+        return run(() -> bridge(delegate.openQueryCursor(tableName, query, pageSize)));
+    }
+
+    @Override
+    public CompletionStage<AsyncCursor<Score>> openScoreCursor(String tableName, String path, int pageSize) {
+        return run(() -> bridge(delegate.openScoreCursor(tableName, path, pageSize)));
+    }
+
+    @Override
+    public CompletionStage<AsyncCursor<Change>> openChangeCursor(String tableName, long since, int pageSize) {
+        return run(() -> bridge(delegate.openChangeCursor(tableName, since, pageSize)));
+    }
+
+    @Override
+    public PoolMetrics getPoolMetrics() {
+        return delegate.getPoolMetrics();
+    }
+
+    @Override
+    public CompletionStage<Void> disconnect() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            delegate.disconnect();
+            future.complete(null);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        } finally {
+            executor.shutdown();
+        }
+        return future;
+    }
+
+    private <T> AsyncCursor<T> bridge(Cursor<T> cursor) {
+        return new AsyncCursor<>() {
+            @Override
+            public CompletionStage<List<T>> nextPage() {
+                return run(cursor::nextPage);
+            }
+
+            @Override
+            public void close() {
+                try {
+                    cursor.close();
+                } catch (Exception e) {
+                    PeachLib.getPlugin().getLogger().log(Level.WARNING, "Failed to close storage cursor", e);
+                }
+            }
+        };
+    }
+
+    private <T> CompletableFuture<T> run(BlockingCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (Exception e) {
+            // Executor already shut down
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,76 @@
+package de.peachbiscuit174.peachlib.data;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.List;
+
+/**
+ * Blocking, forward-only cursor over the entries of a table. Returns the entries page by page,
+ * so the memory usage of a scan is bounded by the page size instead of the table size.
+ *
+ * @param <T> The entry type.
+ */
+@ApiStatus.Internal
+public interface Cursor<T> extends AutoCloseable {
+
+    /**
+     * Maps a page of a source cursor, see {@link #mapPages}.
+     */
+    @FunctionalInterface
+    interface PageMapper<S, T> {
+        List<T> map(List<S> page) throws Exception;
+    }
+
+    /**
+     * @return The next page of entries, or an empty list once the cursor is exhausted.
+     */
+    List<T> nextPage() throws Exception;
+
+    /**
+     * Releases resources held by the cursor (e.g. an open directory stream).
+     */
+    @Override
+    default void close() throws Exception {
+    }
+
+    /**
+     * Creates a cursor over an already materialized list. Used by backends without native paging.
+     */
+    static <T> Cursor<T> ofList(List<T> entries, int pageSize) {
+        return new Cursor<>() {
+            private int position;
+
+            @Override
+            public List<T> nextPage() {
+                int end = Math.min(entries.size(), position + pageSize);
+                List<T> page = List.copyOf(entries.subList(position, end));
+                position = end;
+                return page;
+            }
+        };
+    }
+
+    /**
+     * Creates a cursor mapping the pages of another cursor, e.g. to filter them. Since an empty page ends the scan,
+     * source pages mapped to an empty list are skipped. The source cursor is closed together with the returned one.
+     */
+    static <S, T> Cursor<T> mapPages(Cursor<S> source, PageMapper<S, T> mapper) {
+        return new Cursor<>() {
+            @Override
+            public List<T> nextPage() throws Exception {
+                while (true) {
+                    List<S> page = source.nextPage();
+                    if (page.isEmpty()) return List.of();
+
+                    List<T> mapped = mapper.map(page);
+                    if (!mapped.isEmpty()) return mapped;
+                }
+            }
+
+            @Override
+            public void close() throws Exception {
+                source.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package de.peachbiscuit174.peachlib.data;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Payload of a WRITE task whose value is encoded by the data worker instead of the calling thread.
+ * Such tasks carry no JSON value until they are {@link #materialize(Task) materialized}; the crash log
+ * entry is written at that point as well.
+ *
+ * @param encoder Produces the JSON value from the captured snapshot.
+ */
+@ApiStatus.Internal
+public record DeferredValue(Callable<String> encoder) {
+
+    /**
+     * @return true if the task is a WRITE whose value has not been encoded yet.
+     */
+    public static boolean isDeferred(Task task) {
+        return task.type() == Task.TaskType.WRITE && task.jsonValue() == null && task.payload() instanceof DeferredValue;
+    }
+
+    /**
+     * Encodes the value of a deferred WRITE.
+     *
+     * @return A task carrying the encoded value, or the task itself if it is not deferred.
+     * @throws Exception If the encoder failed.
+     */
+    public static Task materialize(Task task) throws Exception {
+        if (!isDeferred(task)) return task;
+        String jsonValue = ((DeferredValue) task.payload()).encoder().call();
+        return new Task(task.type(), task.connectionId(), task.tableName(), task.id(), jsonValue,
+                task.timestamp(), task.future(), null, task.priority());
+    }
+}
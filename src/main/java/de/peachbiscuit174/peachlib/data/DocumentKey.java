@@ -0,0 +1,21 @@
+package de.peachbiscuit174.peachlib.data;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Identifies a single document across all registered storage connections.
+ *
+ * @param connectionId The unique ID of the storage connection.
+ * @param tableName    The table containing the document.
+ * @param id           The primary key.
+ */
+@ApiStatus.Internal
+public record DocumentKey(
+        String connectionId,
+        String tableName,
+        String id
+) {
+    public static DocumentKey of(Task task) {
+        return new DocumentKey(task.connectionId(), task.tableName(), task.id());
+    }
+}
@@ -0,0 +1,18 @@
+package de.peachbiscuit174.peachlib.data;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Update function of a COMPUTE task, operating on serialized values.
+ * Executed by the data worker and re-applied if the document was modified concurrently.
+ */
+@FunctionalInterface
+@ApiStatus.Internal
+public interface DocumentUpdate {
+
+    /**
+     * @param currentValue The stored JSON value, or null if the document does not exist.
+     * @return The new JSON value, or null to leave the document unchanged.
+     */
+    String apply(String currentValue) throws Exception;
+}
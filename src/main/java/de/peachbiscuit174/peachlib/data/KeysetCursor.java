@@ -0,0 +1,59 @@
+package de.peachbiscuit174.peachlib.data;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Cursor based on keyset pagination ({@code WHERE id > ? ORDER BY id LIMIT ?}).
+ * Every page is a short, independent query, so no database connection or result set is held open
+ * between pages and the cost of a page does not grow with its position in the table.
+ *
+ * @param <T> The entry type.
+ */
+@ApiStatus.Internal
+public class KeysetCursor<T> implements Cursor<T> {
+
+    /**
+     * Loads the entries following the given id in ascending id order.
+     */
+    @FunctionalInterface
+    public interface PageQuery<T> {
+        /**
+         * @param afterId The last id of the previous page, or null for the first page.
+         * @param limit   The maximum number of entries.
+         */
+        List<T> fetch(String afterId, int limit) throws Exception;
+    }
+
+    private final PageQuery<T> query;
+    private final Function<T, String> idOf;
+    private final int pageSize;
+
+    private String lastId;
+    private boolean exhausted;
+
+    public KeysetCursor(PageQuery<T> query, Function<T, String> idOf, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.query = query;
+        this.idOf = idOf;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public List<T> nextPage() throws Exception {
+        if (exhausted) return List.of();
+
+        List<T> page = query.fetch(lastId, pageSize);
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (!page.isEmpty()) {
+            lastId = idOf.apply(page.get(page.size() - 1));
+        }
+        return page;
+    }
+}
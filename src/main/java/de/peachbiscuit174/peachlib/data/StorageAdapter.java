@@ -1,8 +1,24 @@
 package de.peachbiscuit174.peachlib.data;
 
+import de.peachbiscuit174.peachlib.api.data.StorageFormat;
+import de.peachbiscuit174.peachlib.api.data.spi.Change;
+import de.peachbiscuit174.peachlib.api.data.spi.CounterUpdate;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentQuery;
+import de.peachbiscuit174.peachlib.api.data.spi.Score;
 import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import de.peachbiscuit174.peachlib.api.managers.PoolMetrics;
+import de.peachbiscuit174.peachlib.data.index.IndexKey;
+import de.peachbiscuit174.peachlib.data.query.QueryEvaluator;
 import org.jetbrains.annotations.ApiStatus;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -16,14 +32,248 @@ public interface StorageAdapter {
 
     void createTableIfNotExists(String tableName) throws Exception;
 
+    /**
+     * Creates a table with the given storage format. Existing tables keep their format.
+     * Backends without binary support ignore the format and store JSON.
+     */
+    default void createTableIfNotExists(String tableName, StorageFormat format) throws Exception {
+        createTableIfNotExists(tableName);
+    }
+
     void write(String tableName, String id, String jsonValue, long timestamp) throws Exception;
 
     void delete(String tableName, String id) throws Exception;
 
+    /**
+     * Writes multiple documents of one table in a single round trip.
+     * JDBC backends execute all statements inside one transaction.
+     * The default implementation falls back to individual {@link #write} calls.
+     */
+    default void writeBatch(String tableName, List<Document> documents) throws Exception {
+        for (Document document : documents) {
+            write(tableName, document.id(), document.value(), document.timestamp());
+        }
+    }
+
+    /**
+     * Deletes multiple documents of one table in a single round trip.
+     * The default implementation falls back to individual {@link #delete} calls.
+     */
+    default void deleteBatch(String tableName, List<String> ids) throws Exception {
+        for (String id : ids) {
+            delete(tableName, id);
+        }
+    }
+
+    /**
+     * Deletes a document and records the time of the deletion, so {@link #openChangeCursor} can report it.
+     * The default implementation ignores the timestamp.
+     */
+    default void delete(String tableName, String id, long timestamp) throws Exception {
+        delete(tableName, id);
+    }
+
+    /**
+     * Deletes multiple documents of one table in a single round trip and records the time of the deletion.
+     * The default implementation ignores the timestamp.
+     */
+    default void deleteBatch(String tableName, List<String> ids, long timestamp) throws Exception {
+        deleteBatch(tableName, ids);
+    }
+
+    /**
+     * Applies a partial update to a document. A missing document is created from an empty object.
+     * Like {@link #write}, the document is only modified if the timestamp is newer than the stored one.
+     * The default implementation reads the document, applies the patch and writes it back; the data worker
+     * never executes two operations on the same id at the same time.
+     */
+    default void patch(String tableName, String id, DocumentPatch patch, long timestamp) throws Exception {
+        write(tableName, id, patch.applyTo(read(tableName, id)), timestamp);
+    }
+
+    /**
+     * Adds counter deltas to numeric fields of a document. A missing document is created from an empty object.
+     * Increments are applied regardless of the stored timestamp, which is raised to at least the previous one plus one,
+     * so concurrent {@link #compareAndSet} calls notice the change.
+     * The default implementation applies the deltas to the read document and stores it with {@link #compareAndSet},
+     * starting over if the document was modified in the meantime, so concurrent increments of other servers add up.
+     *
+     * @throws ConcurrentModificationException If every attempt lost against a concurrent modification.
+     */
+    default void increment(String tableName, String id, CounterUpdate update, long timestamp) throws Exception {
+        // Every lost attempt means a concurrent modification was stored, so giving up only happens under heavy contention
+        for (int attempt = 0; attempt < 10; attempt++) {
+            Document current = readDocument(tableName, id);
+            long expected = current != null ? current.timestamp() : -1L;
+            String updated = update.applyTo(current != null ? current.value() : null);
+            if (compareAndSet(tableName, id, expected, updated, Math.max(timestamp, expected + 1))) return;
+        }
+        throw new ConcurrentModificationException("Counters of " + tableName + "/" + id + " were modified concurrently during 10 attempts.");
+    }
+
     String read(String tableName, String id) throws Exception;
 
+    /**
+     * Reads a document together with its timestamp, which serves as its version for {@link #compareAndSet}.
+     *
+     * @return The document, or null if it does not exist.
+     */
+    Document readDocument(String tableName, String id) throws Exception;
+
+    /**
+     * Writes a document only if its stored timestamp still equals the expected one (optimistic locking).
+     *
+     * @param expectedTimestamp The timestamp read before, or a negative value if the document must not exist yet.
+     * @param timestamp         The new timestamp, greater than the expected one.
+     * @return true if the document was written, false if it was modified in the meantime.
+     */
+    boolean compareAndSet(String tableName, String id, long expectedTimestamp, String jsonValue, long timestamp) throws Exception;
+
+    /**
+     * Reads multiple documents of one table in a single round trip.
+     * The default implementation falls back to individual {@link #read} calls.
+     *
+     * @return A map of id to JSON value. Ids without a document are not contained.
+     */
+    default Map<String, String> readMany(String tableName, Collection<String> ids) throws Exception {
+        Map<String, String> values = new HashMap<>();
+        for (String id : ids) {
+            String value = read(tableName, id);
+            if (value != null) {
+                values.put(id, value);
+            }
+        }
+        return values;
+    }
+
     Set<String> getAllPrimaryKeys(String tableName) throws Exception;
 
+    /**
+     * Opens a cursor returning the primary keys of a table page by page.
+     * The default implementation loads all keys at once; backends override it to keep the memory usage constant.
+     *
+     * @param pageSize The maximum number of keys per page.
+     */
+    default Cursor<String> openKeyCursor(String tableName, int pageSize) throws Exception {
+        List<String> keys = new ArrayList<>(getAllPrimaryKeys(tableName));
+        keys.sort(null);
+        return Cursor.ofList(keys, pageSize);
+    }
+
+    /**
+     * Opens a cursor returning all documents of a table page by page, including their timestamps.
+     * The default implementation combines {@link #openKeyCursor} with {@link #readMany} and reports a timestamp of 0,
+     * since the plain read operations do not expose it.
+     *
+     * @param pageSize The maximum number of documents per page.
+     */
+    default Cursor<Document> openDocumentCursor(String tableName, int pageSize) throws Exception {
+        // Pages whose documents were all deleted in the meantime are skipped
+        return Cursor.mapPages(openKeyCursor(tableName, pageSize), ids -> {
+            Map<String, String> values = readMany(tableName, ids);
+            List<Document> page = new ArrayList<>(values.size());
+            for (String id : ids) {
+                String value = values.get(id);
+                if (value != null) {
+                    page.add(new Document(id, value, 0L));
+                }
+            }
+            return page;
+        });
+    }
+
+    /**
+     * Creates an index on a field of the documents, used by {@link #findBy}. Creating an existing index has no effect.
+     * The default implementation does nothing, so {@link #findBy} scans the table.
+     *
+     * @param path The field path in the notation of {@link DocumentPatch}.
+     */
+    default void createIndex(String tableName, String path) throws Exception {
+    }
+
+    /**
+     * Finds all documents whose field equals the given value. Values are compared by their {@link IndexKey}.
+     * The default implementation scans the whole table.
+     *
+     * @param path      The field path in the notation of {@link DocumentPatch}.
+     * @param jsonValue The serialized string, number or boolean to look up.
+     * @return A map of id to JSON value.
+     */
+    default Map<String, String> findBy(String tableName, String path, String jsonValue) throws Exception {
+        String key = IndexKey.of(jsonValue);
+        Map<String, String> matches = new HashMap<>();
+        try (Cursor<Document> cursor = openDocumentCursor(tableName, 500)) {
+            List<Document> page;
+            while (!(page = cursor.nextPage()).isEmpty()) {
+                for (Document document : page) {
+                    if (key.equals(IndexKey.extract(document.value(), path))) {
+                        matches.put(document.id(), document.value());
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Opens a cursor returning the result of a query page by page. The default implementation evaluates the
+     * query in memory over a scan of the whole table, see {@link QueryEvaluator}.
+     *
+     * @param pageSize The maximum number of documents per page.
+     */
+    default Cursor<Document> openQueryCursor(String tableName, DocumentQuery query, int pageSize) throws Exception {
+        return QueryEvaluator.cursor(openDocumentCursor(tableName, 500), query, pageSize);
+    }
+
+    /**
+     * Opens a cursor returning the numeric value of a field of every document that has one, in no particular order.
+     * The default implementation extracts the field from a scan of the whole table.
+     *
+     * @param path     The field path in the notation of {@link DocumentPatch}.
+     * @param pageSize The maximum number of scores per page.
+     */
+    default Cursor<Score> openScoreCursor(String tableName, String path, int pageSize) throws Exception {
+        List<Object> segments = DocumentPatch.parsePath(path);
+        return Cursor.mapPages(openDocumentCursor(tableName, pageSize), page -> {
+            List<Score> scores = new ArrayList<>(page.size());
+            for (Document document : page) {
+                Score score = Score.of(document.id(), document.value(), segments);
+                if (score != null) {
+                    scores.add(score);
+                }
+            }
+            return scores;
+        });
+    }
+
+    /**
+     * Opens a cursor returning every document modified after the given time, and every document deleted after it
+     * if the backend records deletions (see {@link #delete(String, String, long)}), in no particular order.
+     * A document that was deleted and written again is reported with its current value.
+     * The default implementation filters a scan of the whole table by timestamp and does not report deletions.
+     *
+     * @param since    The exclusive lower bound of the modification time.
+     * @param pageSize The maximum number of changes per page.
+     */
+    default Cursor<Change> openChangeCursor(String tableName, long since, int pageSize) throws Exception {
+        return Cursor.mapPages(openDocumentCursor(tableName, pageSize), page -> {
+            List<Change> changes = new ArrayList<>();
+            for (Document document : page) {
+                if (document.timestamp() > since) {
+                    changes.add(new Change(document.id(), document.value(), document.timestamp()));
+                }
+            }
+            return changes;
+        });
+    }
+
+    /**
+     * @return A snapshot of the connection pool, or null if the backend does not pool connections.
+     */
+    default PoolMetrics getPoolMetrics() {
+        return null;
+    }
+
     /**
      * Gracefully closes the connection to prevent memory leaks.
      */
@@ -1,5 +1,8 @@
 package de.peachbiscuit174.peachlib.data;
 
+import de.peachbiscuit174.peachlib.api.data.DataPriority;
+import de.peachbiscuit174.peachlib.api.data.spi.CounterUpdate;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
 import org.jetbrains.annotations.ApiStatus;
 import java.util.concurrent.CompletableFuture;
 
@@ -10,10 +13,17 @@ import java.util.concurrent.CompletableFuture;
  * @param type         The operation type.
  * @param connectionId The unique ID of the storage connection.
  * @param tableName    The target table.
- * @param id           The primary key. Can be null for GET_ALL_KEYS.
- * @param jsonValue    The serialized JSON value. Null for READ/DELETE/GET_ALL_KEYS.
+ * @param id           The primary key. Null for operations spanning multiple documents (GET_ALL_KEYS, READ_MANY,
+ *                     CREATE_INDEX, FIND_BY).
+ * @param jsonValue    The serialized JSON value, or the serialized {@link DocumentPatch} of a PATCH
+ *                     and {@link CounterUpdate} of an INCREMENT, or the looked up value of a FIND_BY.
+ *                     Null for READ/DELETE/GET_ALL_KEYS/COMPUTE/CREATE_INDEX.
  * @param timestamp    The current time provided by the TimeProvider.
  * @param future       The future to complete once processed.
+ * @param payload      Additional, operation specific input (e.g. the ids of READ_MANY, the expected timestamp of
+ *                     COMPARE_AND_SET, the {@link DocumentUpdate} of COMPUTE or the field path of CREATE_INDEX and FIND_BY).
+ *                     Never written to the crash log.
+ * @param priority     The scheduling class inside the worker.
  */
 @ApiStatus.Internal
 public record Task(
@@ -23,12 +33,43 @@ public record Task(
         String id,
         String jsonValue,
         long timestamp,
-        CompletableFuture<Object> future
+        CompletableFuture<Object> future,
+        Object payload,
+        DataPriority priority
 ) {
+    public Task {
+        if (priority == null) priority = defaultPriority(type);
+    }
+
+    public Task(TaskType type, String connectionId, String tableName, String id, String jsonValue, long timestamp, CompletableFuture<Object> future) {
+        this(type, connectionId, tableName, id, jsonValue, timestamp, future, null, null);
+    }
+
+    public Task(TaskType type, String connectionId, String tableName, String id, String jsonValue, long timestamp, CompletableFuture<Object> future, Object payload) {
+        this(type, connectionId, tableName, id, jsonValue, timestamp, future, payload, null);
+    }
+
+    /**
+     * Reads are answered with interactive priority, everything else is scheduled as normal work.
+     */
+    public static DataPriority defaultPriority(TaskType type) {
+        return type == TaskType.READ || type == TaskType.READ_MANY || type == TaskType.READ_DOCUMENT
+                ? DataPriority.INTERACTIVE
+                : DataPriority.NORMAL;
+    }
+
     public enum TaskType {
         WRITE,
         DELETE,
+        PATCH,
+        INCREMENT,
         READ,
-        GET_ALL_KEYS
+        READ_MANY,
+        GET_ALL_KEYS,
+        READ_DOCUMENT,
+        COMPARE_AND_SET,
+        COMPUTE,
+        CREATE_INDEX,
+        FIND_BY
     }
 }
\ No newline at end of file
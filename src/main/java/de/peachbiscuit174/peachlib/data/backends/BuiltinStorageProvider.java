@@ -0,0 +1,57 @@
+package de.peachbiscuit174.peachlib.data.backends;
+
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.StorageProvider;
+import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import de.peachbiscuit174.peachlib.api.managers.StorageType;
+import de.peachbiscuit174.peachlib.data.BlockingStorageBridge;
+import de.peachbiscuit174.peachlib.data.StorageAdapter;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.File;
+
+/**
+ * Provides the bundled blocking backends of a {@link StorageType} through the storage SPI.
+ *
+ * @param storageType The bundled backend type.
+ */
+@ApiStatus.Internal
+public record BuiltinStorageProvider(StorageType storageType) implements StorageProvider {
+
+    @Override
+    public String getType() {
+        return storageType.name();
+    }
+
+    @Override
+    public AsyncStorageAdapter createAdapter(File dataFolder) {
+        StorageAdapter adapter = switch (storageType) {
+            case MYSQL -> new MySQLAdapter();
+            case SQLITE -> new SQLiteAdapter(dataFolder);
+            case FILETREE -> new FileTreeAdapter(dataFolder);
+            case YAML -> new YAMLAdapter(dataFolder);
+        };
+        return new BlockingStorageBridge(adapter, "PL-Storage-" + storageType.name() + "-");
+    }
+
+    @Override
+    public int getDefaultLaneCount() {
+        return switch (storageType) {
+            case MYSQL -> 4;
+            case FILETREE -> 2;
+            case SQLITE, YAML -> 1;
+        };
+    }
+
+    /**
+     * SQLite executes reads on its reader connections in parallel and serializes the writes on one connection,
+     * so it gets one lane per reader plus one for the writer.
+     */
+    @Override
+    public int getDefaultLaneCount(Credentials credentials) {
+        if (storageType == StorageType.SQLITE && credentials != null) {
+            return credentials.sqlite().readerConnections() + 1;
+        }
+        return getDefaultLaneCount();
+    }
+}
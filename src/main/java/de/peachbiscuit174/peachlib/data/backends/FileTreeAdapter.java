@@ -4,21 +4,38 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentQuery;
 import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import de.peachbiscuit174.peachlib.data.Cursor;
 import de.peachbiscuit174.peachlib.data.StorageAdapter;
+import de.peachbiscuit174.peachlib.data.filetree.ShardedTable;
+import de.peachbiscuit174.peachlib.data.index.IndexKey;
+import de.peachbiscuit174.peachlib.data.index.MemoryIndexes;
+import de.peachbiscuit174.peachlib.data.query.QueryEvaluator;
 import org.jetbrains.annotations.ApiStatus;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
  * Raw I/O implementation for FileTree storage.
- * Saves each document as a separate .json file inside a table-specific directory.
+ * Saves each document as a separate .json file inside a table-specific directory, spread over shard
+ * subdirectories by {@link ShardedTable}.
  */
 @ApiStatus.Internal
 public class FileTreeAdapter implements StorageAdapter {
@@ -26,6 +43,8 @@ public class FileTreeAdapter implements StorageAdapter {
     private final File dataFolder;
     private String connectionId;
     private File connectionDir;
+    private final MemoryIndexes indexes = new MemoryIndexes();
+    private final Map<String, ShardedTable> tables = new ConcurrentHashMap<>();
 
     // Pattern to prevent Path Traversal exploits (only allows alphanumeric characters, dashes, and underscores)
     private static final Pattern VALID_FILE_NAME = Pattern.compile("^[a-zA-Z0-9_\\-]+$");
@@ -57,30 +76,70 @@ public class FileTreeAdapter implements StorageAdapter {
         if (!tableDir.exists()) {
             tableDir.mkdirs();
         }
+        table(tableName);
+    }
+
+    /**
+     * Opens the directory of a table on first use, which starts moving the files of the flat layout.
+     */
+    private ShardedTable table(String tableName) throws IOException {
+        validateName(tableName);
+        ShardedTable table = tables.get(tableName);
+        if (table != null) return table;
+
+        synchronized (tables) {
+            table = tables.get(tableName);
+            if (table == null) {
+                table = ShardedTable.open(tableName, new File(connectionDir, tableName).toPath());
+                tables.put(tableName, table);
+            }
+            return table;
+        }
     }
 
     @Override
     public void write(String tableName, String id, String jsonValue, long timestamp) throws Exception {
-        File targetFile = getFile(tableName, id);
+        validateName(id);
+        ShardedTable table = table(tableName);
+        long effectiveTimestamp = timestamp > 0 ? timestamp : System.currentTimeMillis();
 
-        if (timestamp <= 0) {
-            timestamp = System.currentTimeMillis();
+        boolean written = table.access(id, (file, flatFile) -> {
+            if (!writeFile(flatFile != null ? flatFile : file, file, jsonValue, effectiveTimestamp)) {
+                return false;
+            }
+            if (flatFile != null) {
+                Files.deleteIfExists(flatFile);
+            }
+            table.onWrite(id);
+            return true;
+        });
+        if (written) {
+            indexes.onWrite(tableName, id, jsonValue);
         }
+    }
 
+    /**
+     * Writes the document unless the existing file is at least as new.
+     *
+     * @param existingFile The current file of the document, which may not exist.
+     * @param targetFile   The file to write.
+     * @return false if the existing file is newer.
+     */
+    private boolean writeFile(Path existingFile, Path targetFile, String jsonValue, long timestamp) throws Exception {
         // Bestehende Datei lesen und vergleichen
-        if (targetFile.exists()) {
-            String existing = Files.readString(targetFile.toPath());
+        if (Files.exists(existingFile)) {
+            String existing = Files.readString(existingFile);
             JsonObject wrapper = tryParseWrapper(existing);
             if (wrapper != null) {
 
                 long storedTimestamp = wrapper.get("timestamp").getAsLong();
                 if (storedTimestamp >= timestamp) {
-                    return;
+                    return false;
                 }
             } else {
-                long legacyTimestamp = targetFile.lastModified();
+                long legacyTimestamp = existingFile.toFile().lastModified();
                 if (legacyTimestamp >= timestamp) {
-                    return;
+                    return false;
                 }
             }
         }
@@ -96,30 +155,42 @@ public class FileTreeAdapter implements StorageAdapter {
         }
         String content = new com.google.gson.GsonBuilder().create().toJson(wrapper);
 
-        Path tempFile = Files.createTempFile(targetFile.getParentFile().toPath(), ".tmp", ".json");
+        Path shardDir = targetFile.getParent();
+        if (!Files.isDirectory(shardDir)) {
+            Files.createDirectories(shardDir);
+        }
+        Path tempFile = Files.createTempFile(shardDir, ".tmp", ".json");
         try {
             Files.writeString(tempFile, content);
-            Files.move(tempFile, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (java.nio.file.AtomicMoveNotSupportedException e) {
-            Files.move(tempFile, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
         }
+        return true;
     }
 
     @Override
     public void delete(String tableName, String id) throws Exception {
-        File targetFile = getFile(tableName, id);
-        if (targetFile.exists()) {
-            Files.delete(targetFile.toPath());
-        }
+        validateName(id);
+        ShardedTable table = table(tableName);
+        table.access(id, (file, flatFile) -> {
+            if (flatFile != null) {
+                Files.deleteIfExists(flatFile);
+            }
+            Files.deleteIfExists(file);
+            table.onDelete(id);
+            return null;
+        });
+        indexes.onDelete(tableName, id);
     }
 
     @Override
     public String read(String tableName, String id) throws Exception {
-        File targetFile = getFile(tableName, id);
-        if (!targetFile.exists()) {
+        validateName(id);
+        String raw = table(tableName).access(id, (file, flatFile) -> readFile(flatFile != null ? flatFile : file));
+        if (raw == null) {
             return null;
         }
-        String raw = Files.readString(targetFile.toPath());
 
         JsonObject wrapper = tryParseWrapper(raw);
         if (wrapper != null && wrapper.has("value")) {
@@ -132,34 +203,191 @@ public class FileTreeAdapter implements StorageAdapter {
         return raw;
     }
 
+    /**
+     * Reads all requested files in parallel; every document lives in its own file.
+     */
+    @Override
+    public Map<String, String> readMany(String tableName, Collection<String> ids) throws Exception {
+        Map<String, String> values = new ConcurrentHashMap<>();
+        try {
+            ids.parallelStream().forEach(id -> {
+                try {
+                    String value = read(tableName, id);
+                    if (value != null) {
+                        values.put(id, value);
+                    }
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            throw (Exception) e.getCause();
+        }
+        return values;
+    }
+
     @Override
     public Set<String> getAllPrimaryKeys(String tableName) throws Exception {
-        validateName(tableName);
-        Set<String> keys = new HashSet<>();
-        File tableDir = new File(connectionDir, tableName);
+        return new HashSet<>(table(tableName).keys());
+    }
+
+    /**
+     * Pages through a snapshot of the key manifest instead of walking the shard directories.
+     * Keys are returned in no particular order.
+     */
+    @Override
+    public Cursor<String> openKeyCursor(String tableName, int pageSize) throws Exception {
+        return Cursor.ofList(new ArrayList<>(table(tableName).keys()), pageSize);
+    }
+
+    /**
+     * Reads the files of every page of the key manifest in parallel.
+     * Documents are returned in no particular order.
+     */
+    @Override
+    public Cursor<Document> openDocumentCursor(String tableName, int pageSize) throws Exception {
+        return documentCursor(tableName, openKeyCursor(tableName, pageSize));
+    }
+
+    /**
+     * Reads the files of every page of ids in parallel.
+     */
+    private Cursor<Document> documentCursor(String tableName, Cursor<String> keys) {
+        return new Cursor<>() {
+            @Override
+            public List<Document> nextPage() throws Exception {
+                while (true) {
+                    List<String> ids = keys.nextPage();
+                    if (ids.isEmpty()) return List.of();
 
-        File[] files = tableDir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isFile() && file.getName().endsWith(".json")) {
-                    String id = file.getName().substring(0, file.getName().length() - 5);
-                    keys.add(id);
+                    List<Document> page;
+                    try {
+                        page = ids.parallelStream()
+                                .map(id -> {
+                                    try {
+                                        return readDocument(tableName, id);
+                                    } catch (Exception e) {
+                                        throw new CompletionException(e);
+                                    }
+                                })
+                                .filter(Objects::nonNull)
+                                .toList();
+                    } catch (CompletionException e) {
+                        throw (Exception) e.getCause();
+                    }
+                    // Files deleted since the directory was listed are skipped
+                    if (!page.isEmpty()) return page;
                 }
             }
+
+            @Override
+            public void close() throws Exception {
+                keys.close();
+            }
+        };
+    }
+
+    @Override
+    public Document readDocument(String tableName, String id) throws Exception {
+        validateName(id);
+        return table(tableName).access(id, (file, flatFile) -> {
+            Path targetFile = flatFile != null ? flatFile : file;
+            String raw = readFile(targetFile);
+            if (raw == null) {
+                return null;
+            }
+
+            JsonObject wrapper = tryParseWrapper(raw);
+            if (wrapper != null) {
+                JsonElement value = wrapper.get("value");
+                String json = value.isJsonNull() ? "null" : value.toString();
+                return new Document(id, json, wrapper.get("timestamp").getAsLong());
+            }
+            return new Document(id, raw, targetFile.toFile().lastModified());
+        });
+    }
+
+    /**
+     * @return The content of the file, or null if it does not exist.
+     */
+    private String readFile(Path file) throws IOException {
+        try {
+            return Files.readString(file);
+        } catch (NoSuchFileException e) {
+            return null;
         }
-        return keys;
     }
 
+    /**
+     * The data worker never runs two operations on the same id at the same time, which makes the check and
+     * the write atomic within this server. Files shared by several servers are not locked.
+     */
     @Override
-    public void disconnect() throws Exception {
-        // No persistent connection to close for File I/O
+    public boolean compareAndSet(String tableName, String id, long expectedTimestamp, String jsonValue, long timestamp) throws Exception {
+        Document current = readDocument(tableName, id);
+        boolean matches = expectedTimestamp < 0 ? current == null : current != null && current.timestamp() == expectedTimestamp;
+        if (!matches) return false;
+
+        write(tableName, id, jsonValue, timestamp);
+        return true;
     }
 
-    private File getFile(String tableName, String id) {
+    /**
+     * Builds an in-memory hash index from a scan of all files, kept up to date by {@link #write} and {@link #delete}.
+     */
+    @Override
+    public void createIndex(String tableName, String path) throws Exception {
         validateName(tableName);
-        validateName(id);
-        File tableDir = new File(connectionDir, tableName);
-        return new File(tableDir, id + ".json");
+        indexes.create(tableName, path, () -> openDocumentCursor(tableName, 500));
+    }
+
+    @Override
+    public Map<String, String> findBy(String tableName, String path, String jsonValue) throws Exception {
+        String key = IndexKey.of(jsonValue);
+        Set<String> ids = indexes.find(tableName, path, key);
+        if (ids == null) {
+            return StorageAdapter.super.findBy(tableName, path, jsonValue);
+        }
+
+        Map<String, String> matches = readMany(tableName, ids);
+        // Files may have been changed by another server since they were indexed
+        matches.values().removeIf(value -> !key.equals(IndexKey.extract(value, path)));
+        return matches;
+    }
+
+    /**
+     * Narrows the scan to the candidates of an in-memory index if the query compares an indexed field with a
+     * string or boolean. Numbers are compared numerically by queries but indexed by their JSON text, so they
+     * cannot be looked up.
+     */
+    @Override
+    public Cursor<Document> openQueryCursor(String tableName, DocumentQuery query, int pageSize) throws Exception {
+        for (DocumentQuery.Filter filter : query.filters()) {
+            if (filter.operator() != DocumentQuery.Operator.EQUAL || filter.value().isNumber()) continue;
+
+            Set<String> ids = indexes.find(tableName, filter.path(), IndexKey.of(filter.jsonValue()));
+            if (ids == null) continue;
+
+            List<String> sorted = new ArrayList<>(ids);
+            sorted.sort(null);
+            return QueryEvaluator.cursor(documentCursor(tableName, Cursor.ofList(sorted, 500)), query, pageSize);
+        }
+        return StorageAdapter.super.openQueryCursor(tableName, query, pageSize);
+    }
+
+    /**
+     * Stops running migrations and persists the key manifests.
+     */
+    @Override
+    public void disconnect() throws Exception {
+        // No persistent connection to close for File I/O
+        indexes.clear();
+        synchronized (tables) {
+            for (ShardedTable table : tables.values()) {
+                table.close();
+            }
+            tables.clear();
+        }
     }
 
 
@@ -1,17 +1,45 @@
 package de.peachbiscuit174.peachlib.data.backends;
 
+import com.google.gson.JsonPrimitive;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.StorageFormat;
+import de.peachbiscuit174.peachlib.api.data.spi.Change;
+import de.peachbiscuit174.peachlib.api.data.spi.CounterUpdate;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentQuery;
+import de.peachbiscuit174.peachlib.api.data.spi.Score;
 import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import de.peachbiscuit174.peachlib.api.managers.PoolMetrics;
+import de.peachbiscuit174.peachlib.api.managers.PoolSettings;
+import de.peachbiscuit174.peachlib.data.Cursor;
+import de.peachbiscuit174.peachlib.data.KeysetCursor;
 import de.peachbiscuit174.peachlib.data.StorageAdapter;
+import de.peachbiscuit174.peachlib.data.changes.ChangeCursor;
+import de.peachbiscuit174.peachlib.data.changes.Tombstones;
+import de.peachbiscuit174.peachlib.data.codec.BinaryJson;
+import de.peachbiscuit174.peachlib.data.index.IndexKey;
+import de.peachbiscuit174.peachlib.data.query.SortKeyCursor;
 import org.jetbrains.annotations.ApiStatus;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -22,7 +50,22 @@ import java.util.regex.Pattern;
 public class MySQLAdapter implements StorageAdapter {
 
     private HikariDataSource dataSource;
+    private final PoolMetricsTracker metricsTracker = new PoolMetricsTracker();
+    // Storage format of every table, detected from the type of its value column
+    private final Map<String, StorageFormat> tableFormats = new ConcurrentHashMap<>();
+    // Whether the generated index column of a field exists, by "table.column"
+    private final Map<String, Boolean> indexColumns = new ConcurrentHashMap<>();
+    // Tables whose timestamp index for change feeds is known to exist
+    private final Set<String> changeIndexes = ConcurrentHashMap.newKeySet();
+    private final Tombstones tombstones = new Tombstones();
+    private volatile boolean tombstoneTableCreated;
     private static final Pattern VALID_TABLE_NAME = Pattern.compile("^[a-zA-Z0-9_]+$");
+    // Keeps IN (...) lists well below the bind parameter limits of the drivers
+    private static final int MAX_IN_PARAMETERS = 500;
+    // Values of JSON_TYPE for numbers
+    private static final String NUMERIC_JSON_TYPES = "('INTEGER', 'UNSIGNED INTEGER', 'DOUBLE', 'DECIMAL')";
+    // Index on the timestamp, created by the first change feed of a table
+    private static final String CHANGE_INDEX = "pl_changes";
 
     @Override
     public void connect(Credentials credentials) throws Exception {
@@ -35,16 +78,26 @@ public class MySQLAdapter implements StorageAdapter {
         config.setUsername(credentials.username());
         config.setPassword(credentials.password());
 
-        config.addDataSourceProperty("cachePrepStmts", "true");
-        config.addDataSourceProperty("prepStmtCacheSize", "250");
-        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        PoolSettings pool = credentials.pool();
+        config.addDataSourceProperty("cachePrepStmts", String.valueOf(pool.cachePrepStmts()));
+        config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(pool.prepStmtCacheSize()));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(pool.prepStmtCacheSqlLimit()));
         config.addDataSourceProperty("useServerPrepStmts", "true");
+        // Lets the driver collapse executeBatch() into multi-row statements
+        config.addDataSourceProperty("rewriteBatchedStatements", String.valueOf(pool.rewriteBatchedStatements()));
+        config.addDataSourceProperty("connectTimeout", String.valueOf(pool.connectTimeoutMillis()));
+        config.addDataSourceProperty("socketTimeout", String.valueOf(pool.socketTimeoutMillis()));
         config.addDataSourceProperty("useSSL", String.valueOf(credentials.useSsl()));
         config.addDataSourceProperty("requireSSL", String.valueOf(credentials.useSsl()));
 
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
-        config.setConnectionTimeout(10000);
+        config.setPoolName("PL-MySQL-" + credentials.database());
+        config.setMaximumPoolSize(pool.maximumPoolSize());
+        config.setMinimumIdle(Math.min(pool.minimumIdle(), pool.maximumPoolSize()));
+        config.setConnectionTimeout(pool.connectionTimeoutMillis());
+        config.setIdleTimeout(pool.idleTimeoutMillis());
+        config.setMaxLifetime(pool.maxLifetimeMillis());
+        config.setLeakDetectionThreshold(pool.leakDetectionThresholdMillis());
+        config.setMetricsTrackerFactory(metricsTracker);
 
         this.dataSource = new HikariDataSource(config);
     }
@@ -60,8 +113,29 @@ public class MySQLAdapter implements StorageAdapter {
 
     @Override
     public void createTableIfNotExists(String tableName) throws Exception {
+        createTableIfNotExists(tableName, StorageFormat.JSON);
+    }
+
+    @Override
+    public void createTableIfNotExists(String tableName, StorageFormat format) throws Exception {
         validateTableName(tableName);
 
+        if (format == StorageFormat.BINARY) {
+            String sqlBinary = "CREATE TABLE IF NOT EXISTS `" + tableName + "` (" +
+                    "`id` VARCHAR(191) NOT NULL, " +
+                    "`value` LONGBLOB NOT NULL, " +
+                    "`timestamp` BIGINT NOT NULL, " +
+                    "PRIMARY KEY (`id`)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;";
+
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sqlBinary)) {
+                stmt.executeUpdate();
+            }
+            verifyFormat(tableName, format);
+            return;
+        }
+
         // Primary approach: Utilize native JSON type for modern database servers
         String sqlJSON = "CREATE TABLE IF NOT EXISTS `" + tableName + "` (" +
                 "`id` VARCHAR(191) NOT NULL, " +
@@ -87,24 +161,202 @@ public class MySQLAdapter implements StorageAdapter {
                 }
             }
         }
+        verifyFormat(tableName, format);
+    }
+
+    /**
+     * Re-detects the format after creating a table. Existing tables keep their format, the requested one only applies to new tables.
+     */
+    private void verifyFormat(String tableName, StorageFormat requested) throws SQLException {
+        tableFormats.remove(tableName);
+        StorageFormat actual = formatOf(tableName);
+        if (actual != requested) {
+            PeachLib.getPlugin().getLogger().warning("Table '" + tableName + "' already exists with storage format " + actual
+                    + ", requested " + requested + ". Keeping " + actual + ".");
+        }
+    }
+
+    private StorageFormat formatOf(String tableName) throws SQLException {
+        StorageFormat format = tableFormats.get(tableName);
+        if (format == null) {
+            try (Connection conn = dataSource.getConnection()) {
+                format = detectFormat(conn, tableName);
+            }
+            tableFormats.put(tableName, format);
+        }
+        return format;
+    }
+
+    private StorageFormat detectFormat(Connection conn, String tableName) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, tableName, "value")) {
+            if (rs.next()) {
+                String type = rs.getString("TYPE_NAME");
+                if (type != null && type.toUpperCase(Locale.ROOT).contains("BLOB")) {
+                    return StorageFormat.BINARY;
+                }
+            }
+        }
+        return StorageFormat.JSON;
+    }
+
+    private void bindValue(PreparedStatement stmt, int index, StorageFormat format, String jsonValue) throws Exception {
+        if (format == StorageFormat.BINARY) {
+            stmt.setBytes(index, BinaryJson.encode(jsonValue));
+        } else {
+            stmt.setString(index, jsonValue);
+        }
+    }
+
+    private String readValue(ResultSet rs, StorageFormat format) throws Exception {
+        return format == StorageFormat.BINARY ? BinaryJson.decode(rs.getBytes("value")) : rs.getString("value");
+    }
+
+    private String upsertSql(String tableName) {
+        return "INSERT INTO `" + tableName + "` (`id`, `value`, `timestamp`) VALUES (?, ?, ?) AS `new` " +
+                "ON DUPLICATE KEY UPDATE `value` = IF(`new`.`timestamp` > `timestamp`, `new`.`value`, `value`), " +
+                "`timestamp` = IF(`new`.`timestamp` > `timestamp`, `new`.`timestamp`, `timestamp`);";
     }
 
     @Override
     public void write(String tableName, String id, String jsonValue, long timestamp) throws Exception {
         validateTableName(tableName);
-        String sql = "INSERT INTO `" + tableName + "` (`id`, `value`, `timestamp`) VALUES (?, ?, ?) AS `new` " +
-                "ON DUPLICATE KEY UPDATE `value` = IF(`new`.`timestamp` > `timestamp`, `new`.`value`, `value`), " +
-                "`timestamp` = IF(`new`.`timestamp` > `timestamp`, `new`.`timestamp`, `timestamp`);";
+        StorageFormat format = formatOf(tableName);
+        String sql = upsertSql(tableName);
 
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, id);
-            stmt.setString(2, jsonValue);
+            bindValue(stmt, 2, format, jsonValue);
             stmt.setLong(3, timestamp);
             stmt.executeUpdate();
         }
     }
 
+    @Override
+    public void writeBatch(String tableName, List<Document> documents) throws Exception {
+        validateTableName(tableName);
+        StorageFormat format = formatOf(tableName);
+        String sql = upsertSql(tableName);
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Document document : documents) {
+                    stmt.setString(1, document.id());
+                    bindValue(stmt, 2, format, document.value());
+                    stmt.setLong(3, document.timestamp());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                // Pooled connections must be handed back in their default state
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Applies the patch on the server with {@code JSON_SET}/{@code JSON_REMOVE}, so the document is not transferred.
+     * Binary tables are patched with a read-modify-write.
+     */
+    @Override
+    public void patch(String tableName, String id, DocumentPatch patch, long timestamp) throws Exception {
+        validateTableName(tableName);
+        if (formatOf(tableName) == StorageFormat.BINARY) {
+            StorageAdapter.super.patch(tableName, id, patch, timestamp);
+            return;
+        }
+
+        String sql = "INSERT INTO `" + tableName + "` (`id`, `value`, `timestamp`) VALUES (?, " + patchExpression("'{}'", patch) + ", ?) AS `new` " +
+                "ON DUPLICATE KEY UPDATE `value` = IF(`new`.`timestamp` > `timestamp`, " + patchExpression("`value`", patch) + ", `value`), " +
+                "`timestamp` = IF(`new`.`timestamp` > `timestamp`, `new`.`timestamp`, `timestamp`);";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, id);
+            int index = bindPatch(stmt, 2, patch);
+            stmt.setLong(index++, timestamp);
+            bindPatch(stmt, index, patch);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Nests one function call per operation around the base expression, keeping the order of the operations.
+     */
+    private String patchExpression(String base, DocumentPatch patch) {
+        String expression = base;
+        for (DocumentPatch.Operation operation : patch.operations()) {
+            expression = operation.isRemove()
+                    ? "JSON_REMOVE(" + expression + ", ?)"
+                    : "JSON_SET(" + expression + ", ?, JSON_EXTRACT(?, '$'))";
+        }
+        return expression;
+    }
+
+    private int bindPatch(PreparedStatement stmt, int index, DocumentPatch patch) throws SQLException {
+        for (DocumentPatch.Operation operation : patch.operations()) {
+            stmt.setString(index++, operation.jsonPath());
+            if (!operation.isRemove()) {
+                stmt.setString(index++, operation.jsonValue());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds the deltas on the server in a single upsert, so concurrent increments of other servers are never lost.
+     * Binary tables cannot be updated by MySQL and use the compare-and-set loop of the default implementation.
+     */
+    @Override
+    public void increment(String tableName, String id, CounterUpdate update, long timestamp) throws Exception {
+        validateTableName(tableName);
+        if (formatOf(tableName) == StorageFormat.BINARY) {
+            StorageAdapter.super.increment(tableName, id, update, timestamp);
+            return;
+        }
+
+        String sql = "INSERT INTO `" + tableName + "` (`id`, `value`, `timestamp`) VALUES (?, " + counterExpression("'{}'", update) + ", ?) AS `new` " +
+                "ON DUPLICATE KEY UPDATE `value` = " + counterExpression("`value`", update) + ", " +
+                "`timestamp` = GREATEST(`timestamp` + 1, `new`.`timestamp`);";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, id);
+            int index = bindCounters(stmt, 2, update);
+            stmt.setLong(index++, timestamp);
+            bindCounters(stmt, index, update);
+            stmt.executeUpdate();
+        }
+    }
+
+    private String counterExpression(String base, CounterUpdate update) {
+        StringBuilder expression = new StringBuilder("JSON_SET(").append(base);
+        for (int i = 0; i < update.deltas().size(); i++) {
+            // Like CounterUpdate.applyTo: decimals are truncated toward zero, other values count as 0
+            expression.append(", ?, CASE JSON_TYPE(JSON_EXTRACT(").append(base).append(", ?))")
+                    .append(" WHEN 'INTEGER' THEN CAST(JSON_EXTRACT(").append(base).append(", ?) AS SIGNED)")
+                    .append(" WHEN 'DOUBLE' THEN CAST(TRUNCATE(JSON_EXTRACT(").append(base).append(", ?) + 0, 0) AS SIGNED)")
+                    .append(" ELSE 0 END + ?");
+        }
+        return expression.append(')').toString();
+    }
+
+    private int bindCounters(PreparedStatement stmt, int index, CounterUpdate update) throws SQLException {
+        for (Map.Entry<String, Long> delta : update.deltas().entrySet()) {
+            String path = DocumentPatch.jsonPath(delta.getKey());
+            for (int i = 0; i < 4; i++) {
+                stmt.setString(index++, path);
+            }
+            stmt.setLong(index++, delta.getValue());
+        }
+        return index;
+    }
+
     @Override
     public void delete(String tableName, String id) throws Exception {
         validateTableName(tableName);
@@ -117,9 +369,98 @@ public class MySQLAdapter implements StorageAdapter {
         }
     }
 
+    @Override
+    public void deleteBatch(String tableName, List<String> ids) throws Exception {
+        validateTableName(tableName);
+        String sql = "DELETE FROM `" + tableName + "` WHERE `id` = ?;";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (String id : ids) {
+                    stmt.setString(1, id);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void delete(String tableName, String id, long timestamp) throws Exception {
+        deleteBatch(tableName, List.of(id), timestamp);
+    }
+
+    /**
+     * Deletes the rows and records the deletions in the tombstone table within one transaction.
+     */
+    @Override
+    public void deleteBatch(String tableName, List<String> ids, long timestamp) throws Exception {
+        validateTableName(tableName);
+        createTombstoneTable();
+        String sql = "DELETE FROM `" + tableName + "` WHERE `id` = ?;";
+        String tombstoneSql = "INSERT INTO `" + Tombstones.TABLE + "` (`table_name`, `id`, `timestamp`) VALUES (?, ?, ?) AS `new` " +
+                "ON DUPLICATE KEY UPDATE `timestamp` = GREATEST(`timestamp`, `new`.`timestamp`);";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql);
+                 PreparedStatement tombstoneStmt = conn.prepareStatement(tombstoneSql)) {
+                for (String id : ids) {
+                    stmt.setString(1, id);
+                    stmt.addBatch();
+                    tombstoneStmt.setString(1, tableName);
+                    tombstoneStmt.setString(2, id);
+                    tombstoneStmt.setLong(3, timestamp);
+                    tombstoneStmt.addBatch();
+                }
+                stmt.executeBatch();
+                tombstoneStmt.executeBatch();
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            if (tombstones.claimPurge(tableName)) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM `" + Tombstones.TABLE + "` WHERE `table_name` = ? AND `timestamp` < ?;")) {
+                    stmt.setString(1, tableName);
+                    stmt.setLong(2, Tombstones.expiry());
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private void createTombstoneTable() throws SQLException {
+        if (tombstoneTableCreated) return;
+        String sql = "CREATE TABLE IF NOT EXISTS `" + Tombstones.TABLE + "` (" +
+                "`table_name` VARCHAR(64) NOT NULL, " +
+                "`id` VARCHAR(191) NOT NULL, " +
+                "`timestamp` BIGINT NOT NULL, " +
+                "PRIMARY KEY (`table_name`, `id`), " +
+                "INDEX `table_timestamp` (`table_name`, `timestamp`)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.executeUpdate();
+        }
+        tombstoneTableCreated = true;
+    }
+
     @Override
     public String read(String tableName, String id) throws Exception {
         validateTableName(tableName);
+        StorageFormat format = formatOf(tableName);
         String sql = "SELECT `value` FROM `" + tableName + "` WHERE `id` = ?;";
 
         try (Connection conn = dataSource.getConnection();
@@ -127,13 +468,90 @@ public class MySQLAdapter implements StorageAdapter {
             stmt.setString(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getString("value");
+                    return readValue(rs, format);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Document readDocument(String tableName, String id) throws Exception {
+        validateTableName(tableName);
+        StorageFormat format = formatOf(tableName);
+        String sql = "SELECT `value`, `timestamp` FROM `" + tableName + "` WHERE `id` = ?;";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new Document(id, readValue(rs, format), rs.getLong("timestamp"));
                 }
             }
         }
         return null;
     }
 
+    @Override
+    public boolean compareAndSet(String tableName, String id, long expectedTimestamp, String jsonValue, long timestamp) throws Exception {
+        validateTableName(tableName);
+        StorageFormat format = formatOf(tableName);
+
+        try (Connection conn = dataSource.getConnection()) {
+            if (expectedTimestamp < 0) {
+                String sql = "INSERT INTO `" + tableName + "` (`id`, `value`, `timestamp`) VALUES (?, ?, ?);";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, id);
+                    bindValue(stmt, 2, format, jsonValue);
+                    stmt.setLong(3, timestamp);
+                    stmt.executeUpdate();
+                    return true;
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Another server created the document in the meantime
+                    return false;
+                }
+            }
+
+            String sql = "UPDATE `" + tableName + "` SET `value` = ?, `timestamp` = ? WHERE `id` = ? AND `timestamp` = ?;";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                bindValue(stmt, 1, format, jsonValue);
+                stmt.setLong(2, timestamp);
+                stmt.setString(3, id);
+                stmt.setLong(4, expectedTimestamp);
+                return stmt.executeUpdate() == 1;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, String> readMany(String tableName, Collection<String> ids) throws Exception {
+        validateTableName(tableName);
+        StorageFormat format = formatOf(tableName);
+        Map<String, String> values = new HashMap<>();
+        List<String> idList = new ArrayList<>(ids);
+
+        try (Connection conn = dataSource.getConnection()) {
+            for (int start = 0; start < idList.size(); start += MAX_IN_PARAMETERS) {
+                List<String> chunk = idList.subList(start, Math.min(idList.size(), start + MAX_IN_PARAMETERS));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                String sql = "SELECT `id`, `value` FROM `" + tableName + "` WHERE `id` IN (" + placeholders + ");";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            values.put(rs.getString("id"), readValue(rs, format));
+                        }
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
     @Override
     public Set<String> getAllPrimaryKeys(String tableName) throws Exception {
         validateTableName(tableName);
@@ -150,6 +568,378 @@ public class MySQLAdapter implements StorageAdapter {
         return keys;
     }
 
+    @Override
+    public Cursor<String> openKeyCursor(String tableName, int pageSize) throws Exception {
+        validateTableName(tableName);
+        return new KeysetCursor<>((afterId, limit) -> readKeyPage(tableName, afterId, limit), id -> id, pageSize);
+    }
+
+    private List<String> readKeyPage(String tableName, String afterId, int limit) throws Exception {
+        String sql = afterId == null
+                ? "SELECT `id` FROM `" + tableName + "` ORDER BY `id` LIMIT ?;"
+                : "SELECT `id` FROM `" + tableName + "` WHERE `id` > ? ORDER BY `id` LIMIT ?;";
+        List<String> keys = new ArrayList<>(limit);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (afterId != null) {
+                stmt.setString(index++, afterId);
+            }
+            stmt.setInt(index, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    keys.add(rs.getString("id"));
+                }
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public Cursor<Document> openDocumentCursor(String tableName, int pageSize) throws Exception {
+        validateTableName(tableName);
+        return new KeysetCursor<>((afterId, limit) -> readDocumentPage(tableName, afterId, limit), Document::id, pageSize);
+    }
+
+    private List<Document> readDocumentPage(String tableName, String afterId, int limit) throws Exception {
+        StorageFormat format = formatOf(tableName);
+        String sql = afterId == null
+                ? "SELECT `id`, `value`, `timestamp` FROM `" + tableName + "` ORDER BY `id` LIMIT ?;"
+                : "SELECT `id`, `value`, `timestamp` FROM `" + tableName + "` WHERE `id` > ? ORDER BY `id` LIMIT ?;";
+        List<Document> documents = new ArrayList<>(limit);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (afterId != null) {
+                stmt.setString(index++, afterId);
+            }
+            stmt.setInt(index, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    documents.add(new Document(rs.getString("id"), readValue(rs, format), rs.getLong("timestamp")));
+                }
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Adds a virtual generated column with the value of the field and indexes it. The column holds the unquoted
+     * value cut to 191 characters with a binary collation; {@link #findBy} re-checks the full value.
+     */
+    @Override
+    public void createIndex(String tableName, String path) throws Exception {
+        validateTableName(tableName);
+        if (formatOf(tableName) == StorageFormat.BINARY) {
+            throw new UnsupportedOperationException("Table '" + tableName + "' uses the binary storage format, which cannot be indexed.");
+        }
+
+        String column = IndexKey.columnName(path);
+        if (hasIndexColumn(tableName, column)) return;
+
+        String sql = "ALTER TABLE `" + tableName + "` ADD COLUMN `" + column + "` VARCHAR(191) " +
+                "CHARACTER SET utf8mb4 COLLATE utf8mb4_bin " +
+                "GENERATED ALWAYS AS (LEFT(JSON_UNQUOTE(JSON_EXTRACT(`value`, '" + DocumentPatch.jsonPath(path) + "')), 191)) VIRTUAL, " +
+                "ADD INDEX `" + column + "` (`" + column + "`);";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            // Another server may have added the column in the meantime
+            indexColumns.remove(tableName + "." + column);
+            if (!hasIndexColumn(tableName, column)) throw e;
+        }
+        indexColumns.put(tableName + "." + column, true);
+    }
+
+    private boolean hasIndexColumn(String tableName, String column) throws SQLException {
+        Boolean exists = indexColumns.get(tableName + "." + column);
+        if (exists == null) {
+            try (Connection conn = dataSource.getConnection();
+                 ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, tableName, column)) {
+                exists = rs.next();
+            }
+            indexColumns.put(tableName + "." + column, exists);
+        }
+        return exists;
+    }
+
+    /**
+     * Uses the generated column of {@link #createIndex} if it exists, otherwise the server evaluates the field of every row.
+     */
+    @Override
+    public Map<String, String> findBy(String tableName, String path, String jsonValue) throws Exception {
+        validateTableName(tableName);
+        StorageFormat format = formatOf(tableName);
+        if (format == StorageFormat.BINARY) {
+            return StorageAdapter.super.findBy(tableName, path, jsonValue);
+        }
+
+        String key = IndexKey.of(jsonValue);
+        String column = IndexKey.columnName(path);
+        String sql = hasIndexColumn(tableName, column)
+                ? "SELECT `id`, `value` FROM `" + tableName + "` WHERE `" + column + "` = LEFT(?, 191);"
+                : "SELECT `id`, `value` FROM `" + tableName + "` WHERE JSON_UNQUOTE(JSON_EXTRACT(`value`, '" + DocumentPatch.jsonPath(path) + "')) = ?;";
+        Map<String, String> matches = new HashMap<>();
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, IndexKey.unquoted(jsonValue));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String value = readValue(rs, format);
+                    // The column is cut and JSON_UNQUOTE drops the type (5 and "5"), so candidates are verified
+                    if (key.equals(IndexKey.extract(value, path))) {
+                        matches.put(rs.getString("id"), value);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Translates the query into SQL and loads the result page by page, every page after the first continuing
+     * after the sort key of the previous one (see {@link SortKeyCursor}). Fields are compared through {@code JSON_TYPE} and unquoted or numeric values instead of comparing JSON values
+     * directly, so MariaDB (which stores JSON as text) sorts and filters like MySQL.
+     */
+    @Override
+    public Cursor<Document> openQueryCursor(String tableName, DocumentQuery query, int pageSize) throws Exception {
+        validateTableName(tableName);
+        StorageFormat format = formatOf(tableName);
+        if (format == StorageFormat.BINARY) {
+            return StorageAdapter.super.openQueryCursor(tableName, query, pageSize);
+        }
+
+        List<Object> parameters = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT `id`, `value`, `timestamp`");
+        // Every order is sorted by the rank of its type, its numeric and its text value, none of them NULL,
+        // so the last row of a page can be compared with = in the keyset condition of the next page
+        for (DocumentQuery.Order order : query.orders()) {
+            String field = "JSON_EXTRACT(`value`, '" + DocumentPatch.jsonPath(order.path()) + "')";
+            int column = columns.size();
+            sql.append(", CASE WHEN ").append(field).append(" IS NULL OR JSON_TYPE(").append(field).append(") = 'NULL' THEN 0")
+                    .append(" WHEN JSON_TYPE(").append(field).append(") IN ").append(NUMERIC_JSON_TYPES).append(" THEN 1")
+                    .append(" WHEN JSON_TYPE(").append(field).append(") = 'STRING' THEN 2")
+                    .append(" WHEN JSON_TYPE(").append(field).append(") = 'BOOLEAN' THEN 3 ELSE 4 END AS `k").append(column).append('`')
+                    .append(", COALESCE(CASE WHEN JSON_TYPE(").append(field).append(") IN ").append(NUMERIC_JSON_TYPES)
+                    .append(" THEN ").append(field).append(" + 0 END, 0) AS `k").append(column + 1).append('`')
+                    .append(", COALESCE(CASE WHEN JSON_TYPE(").append(field).append(") IN ('STRING', 'BOOLEAN') THEN JSON_UNQUOTE(")
+                    .append(field).append(") END, '') COLLATE utf8mb4_bin AS `k").append(column + 2).append('`');
+            for (int i = 0; i < 3; i++) {
+                columns.add("`k" + (column + i) + "`");
+                descending.add(order.descending());
+            }
+        }
+        sql.append(" FROM `").append(tableName).append('`');
+
+        String separator = " WHERE ";
+        for (DocumentQuery.Filter filter : query.filters()) {
+            sql.append(separator).append(filterCondition(tableName, filter, parameters));
+            separator = " AND ";
+        }
+
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (int i = 0; i < columns.size(); i++) {
+            orderBy.append(columns.get(i)).append(descending.get(i) ? " DESC, " : " ASC, ");
+        }
+        orderBy.append("`id` LIMIT ? OFFSET ?;");
+        columns.add("`id`");
+        descending.add(false);
+
+        // The aliases of the sort key can only be compared outside of the query selecting them
+        String firstStatement = "SELECT * FROM (" + sql + ") AS `q`" + orderBy;
+        String nextStatement = "SELECT * FROM (" + sql + ") AS `q` WHERE " + SortKeyCursor.afterCondition(columns, descending) + orderBy;
+        int keyColumns = columns.size() - 1;
+        return new SortKeyCursor<>((after, offset, limit) -> readQueryPage(after == null ? firstStatement : nextStatement,
+                parameters, after, keyColumns, format, offset, limit), query.offset(), query.limit(), pageSize);
+    }
+
+    private String filterCondition(String tableName, DocumentQuery.Filter filter, List<Object> parameters) throws SQLException {
+        String field = "JSON_EXTRACT(`value`, '" + DocumentPatch.jsonPath(filter.path()) + "')";
+        JsonPrimitive value = filter.value();
+
+        if (value.isNumber()) {
+            parameters.add(value.getAsBigDecimal());
+            return "JSON_TYPE(" + field + ") IN " + NUMERIC_JSON_TYPES + " AND " + field + " + 0 " + filter.operator().symbol() + " ?";
+        }
+        if (value.isBoolean()) {
+            parameters.add(value.getAsString());
+            return "JSON_TYPE(" + field + ") = 'BOOLEAN' AND JSON_UNQUOTE(" + field + ") = ?";
+        }
+
+        parameters.add(value.getAsString());
+        String condition = "JSON_TYPE(" + field + ") = 'STRING' AND JSON_UNQUOTE(" + field + ") COLLATE utf8mb4_bin " + filter.operator().symbol() + " ?";
+        String column = IndexKey.columnName(filter.path());
+        if (filter.operator() == DocumentQuery.Operator.EQUAL && hasIndexColumn(tableName, column)) {
+            // Lets the server look the candidates up in the index of createIndex
+            parameters.add(value.getAsString());
+            condition += " AND `" + column + "` = LEFT(?, 191)";
+        }
+        return condition;
+    }
+
+    private List<SortKeyCursor.Keyed<Document>> readQueryPage(String sql, List<Object> parameters, List<Object> after, int keyColumns,
+                                                             StorageFormat format, long offset, int limit) throws Exception {
+        List<SortKeyCursor.Keyed<Document>> documents = new ArrayList<>(limit);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Object parameter : parameters) {
+                stmt.setObject(index++, parameter);
+            }
+            if (after != null) {
+                for (Object parameter : SortKeyCursor.afterParameters(after)) {
+                    stmt.setObject(index++, parameter);
+                }
+            }
+            stmt.setInt(index++, limit);
+            stmt.setLong(index, offset);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String id = rs.getString("id");
+                    List<Object> sortKey = new ArrayList<>(keyColumns + 1);
+                    for (int i = 0; i < keyColumns; i++) {
+                        sortKey.add(rs.getObject("k" + i));
+                    }
+                    sortKey.add(id);
+                    documents.add(new SortKeyCursor.Keyed<>(new Document(id, readValue(rs, format), rs.getLong("timestamp")), sortKey));
+                }
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Loads only the id and the numeric field of every row, with keyset pagination over the primary key.
+     */
+    @Override
+    public Cursor<Score> openScoreCursor(String tableName, String path, int pageSize) throws Exception {
+        validateTableName(tableName);
+        if (formatOf(tableName) == StorageFormat.BINARY) {
+            return StorageAdapter.super.openScoreCursor(tableName, path, pageSize);
+        }
+        String field = "JSON_EXTRACT(`value`, '" + DocumentPatch.jsonPath(path) + "')";
+        return new KeysetCursor<>((afterId, limit) -> readScorePage(tableName, field, afterId, limit), Score::id, pageSize);
+    }
+
+    private List<Score> readScorePage(String tableName, String field, String afterId, int limit) throws Exception {
+        String sql = "SELECT `id`, " + field + " + 0 AS `score` FROM `" + tableName + "` WHERE " +
+                (afterId != null ? "`id` > ? AND " : "") +
+                "JSON_TYPE(" + field + ") IN " + NUMERIC_JSON_TYPES + " ORDER BY `id` LIMIT ?;";
+        List<Score> scores = new ArrayList<>(limit);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (afterId != null) {
+                stmt.setString(index++, afterId);
+            }
+            stmt.setInt(index, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    scores.add(new Score(rs.getString("id"), rs.getDouble("score")));
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Pages through the documents with an index on {@code timestamp} (added on first use, InnoDB appends the
+     * primary key to it, so the (timestamp, id) order is read from the index) and through the tombstones of the
+     * table. Tombstones of ids that exist again are skipped.
+     */
+    @Override
+    public Cursor<Change> openChangeCursor(String tableName, long since, int pageSize) throws Exception {
+        validateTableName(tableName);
+        createChangeIndex(tableName);
+        createTombstoneTable();
+        return new ChangeCursor((afterTimestamp, afterId, limit) -> readChangePage(tableName, afterTimestamp, afterId, limit), since, pageSize);
+    }
+
+    private void createChangeIndex(String tableName) throws SQLException {
+        if (changeIndexes.contains(tableName)) return;
+        if (!hasChangeIndex(tableName)) {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("ALTER TABLE `" + tableName + "` ADD INDEX `" + CHANGE_INDEX + "` (`timestamp`);")) {
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                // Another server may have added the index in the meantime
+                if (!hasChangeIndex(tableName)) throw e;
+            }
+        }
+        changeIndexes.add(tableName);
+    }
+
+    private boolean hasChangeIndex(String tableName) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, tableName, false, false)) {
+            while (rs.next()) {
+                if (CHANGE_INDEX.equals(rs.getString("INDEX_NAME"))) return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Change> readChangePage(String tableName, long afterTimestamp, String afterId, int limit) throws Exception {
+        StorageFormat format = formatOf(tableName);
+        String documentsAfter = afterId == null
+                ? "`timestamp` > ?"
+                : "(`timestamp` > ? OR (`timestamp` = ? AND `id` > ?))";
+        String tombstonesAfter = afterId == null
+                ? "`t`.`timestamp` > ?"
+                : "(`t`.`timestamp` > ? OR (`t`.`timestamp` = ? AND `t`.`id` > ?))";
+        // Both sides are limited on their own, so each reads at most one page from its index
+        String sql = "SELECT `id`, `value`, `timestamp`, `deleted` FROM (" +
+                "SELECT `id`, `value`, `timestamp`, 0 AS `deleted` FROM `" + tableName + "` " +
+                "WHERE " + documentsAfter + " ORDER BY `timestamp`, `id` LIMIT ?) AS `documents` " +
+                "UNION ALL SELECT `id`, `value`, `timestamp`, `deleted` FROM (" +
+                "SELECT `t`.`id`, NULL AS `value`, `t`.`timestamp`, 1 AS `deleted` FROM `" + Tombstones.TABLE + "` AS `t` " +
+                "WHERE `t`.`table_name` = ? AND " + tombstonesAfter + " " +
+                "AND NOT EXISTS (SELECT 1 FROM `" + tableName + "` AS `d` WHERE `d`.`id` = `t`.`id`) " +
+                "ORDER BY `t`.`timestamp`, `t`.`id` LIMIT ?) AS `deletions` " +
+                "ORDER BY `timestamp`, `id` LIMIT ?;";
+        List<Change> changes = new ArrayList<>(limit);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = bindChangePosition(stmt, 1, afterTimestamp, afterId);
+            stmt.setInt(index++, limit);
+            stmt.setString(index++, tableName);
+            index = bindChangePosition(stmt, index, afterTimestamp, afterId);
+            stmt.setInt(index++, limit);
+            stmt.setInt(index, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String value = rs.getBoolean("deleted") ? null : readValue(rs, format);
+                    changes.add(new Change(rs.getString("id"), value, rs.getLong("timestamp")));
+                }
+            }
+        }
+        return changes;
+    }
+
+    private int bindChangePosition(PreparedStatement stmt, int index, long afterTimestamp, String afterId) throws SQLException {
+        stmt.setLong(index++, afterTimestamp);
+        if (afterId != null) {
+            stmt.setLong(index++, afterTimestamp);
+            stmt.setString(index++, afterId);
+        }
+        return index;
+    }
+
+    @Override
+    public PoolMetrics getPoolMetrics() {
+        HikariPoolMXBean pool = dataSource != null ? dataSource.getHikariPoolMXBean() : null;
+        return pool != null ? metricsTracker.snapshot(pool, dataSource.getMaximumPoolSize()) : null;
+    }
+
     @Override
     public void disconnect() throws Exception {
         if (dataSource != null && !dataSource.isClosed()) {
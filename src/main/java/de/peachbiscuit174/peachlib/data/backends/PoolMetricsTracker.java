@@ -0,0 +1,72 @@
+package de.peachbiscuit174.peachlib.data.backends;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import de.peachbiscuit174.peachlib.api.managers.PoolMetrics;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long the tasks wait for a connection of a HikariCP pool, in the buckets of
+ * {@link PoolMetrics#ACQUIRE_BUCKET_BOUNDS_MICROS}. HikariCP reports every acquisition to the tracker.
+ */
+@ApiStatus.Internal
+public class PoolMetricsTracker implements MetricsTrackerFactory, IMetricsTracker {
+
+    private static final long[] BOUNDS_NANOS = PoolMetrics.ACQUIRE_BUCKET_BOUNDS_MICROS.stream()
+            .mapToLong(micros -> micros * 1_000L)
+            .toArray();
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder totalAcquireNanos = new LongAdder();
+
+    public PoolMetricsTracker() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return this;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && elapsedAcquiredNanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        acquireCount.increment();
+        totalAcquireNanos.add(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        acquireTimeouts.increment();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Combines the recorded acquire times with the current state of the pool.
+     */
+    public PoolMetrics snapshot(HikariPoolMXBean pool, int maximumPoolSize) {
+        List<Long> histogram = new ArrayList<>(buckets.length);
+        for (LongAdder bucket : buckets) {
+            histogram.add(bucket.sum());
+        }
+        return new PoolMetrics(maximumPoolSize, pool.getTotalConnections(), pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(), acquireCount.sum(), acquireTimeouts.sum(), totalAcquireNanos.sum(), histogram);
+    }
+}
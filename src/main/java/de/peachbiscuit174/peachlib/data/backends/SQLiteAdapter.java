@@ -1,7 +1,24 @@
 package de.peachbiscuit174.peachlib.data.backends;
 
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.StorageFormat;
+import de.peachbiscuit174.peachlib.api.data.spi.Change;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentQuery;
+import de.peachbiscuit174.peachlib.api.data.spi.Score;
 import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import de.peachbiscuit174.peachlib.api.managers.SQLiteSettings;
+import de.peachbiscuit174.peachlib.data.Cursor;
+import de.peachbiscuit174.peachlib.data.KeysetCursor;
 import de.peachbiscuit174.peachlib.data.StorageAdapter;
+import de.peachbiscuit174.peachlib.data.changes.ChangeCursor;
+import de.peachbiscuit174.peachlib.data.changes.Tombstones;
+import de.peachbiscuit174.peachlib.data.codec.BinaryJson;
+import de.peachbiscuit174.peachlib.data.index.IndexKey;
+import de.peachbiscuit174.peachlib.data.query.SortKeyCursor;
 import org.jetbrains.annotations.ApiStatus;
 
 import java.io.File;
@@ -9,20 +26,118 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
- * Raw JDBC implementation for local SQLite databases.
- * Operates on a single connection optimized with WAL (Write-Ahead Logging) mode.
+ * Raw JDBC implementation for local SQLite databases in WAL (Write-Ahead Logging) mode.
+ * <p>
+ * Modifications and schema changes run on a single writer connection, guarded by the adapter's monitor.
+ * Reads borrow one of several read-only connections instead, so they run in parallel with each other and with
+ * the writer. Every connection keeps its prepared statements for reuse; the SQL of the common operations is
+ * built once per table.
+ * </p>
  */
 @ApiStatus.Internal
 public class SQLiteAdapter implements StorageAdapter {
 
-    private Connection connection;
+    /**
+     * The SQL of the operations whose statement only depends on the table.
+     */
+    private record TableSql(
+            String upsert,
+            String insertIfAbsent,
+            String compareAndSet,
+            String delete,
+            String read,
+            String readDocument,
+            String allKeys,
+            String firstKeys,
+            String nextKeys,
+            String firstDocuments,
+            String nextDocuments,
+            String firstChanges,
+            String nextChanges
+    ) {
+        private static TableSql of(String tableName) {
+            String table = "`" + tableName + "`";
+            return new TableSql(
+                    "INSERT INTO " + table + " (`id`, `value`, `timestamp`) VALUES (?, ?, ?) " +
+                            "ON CONFLICT(`id`) DO UPDATE SET `value` = excluded.`value`, `timestamp` = excluded.`timestamp` " +
+                            "WHERE excluded.`timestamp` > `timestamp`;",
+                    "INSERT INTO " + table + " (`id`, `value`, `timestamp`) VALUES (?, ?, ?) ON CONFLICT(`id`) DO NOTHING;",
+                    "UPDATE " + table + " SET `value` = ?, `timestamp` = ? WHERE `id` = ? AND `timestamp` = ?;",
+                    "DELETE FROM " + table + " WHERE `id` = ?;",
+                    "SELECT `value` FROM " + table + " WHERE `id` = ?;",
+                    "SELECT `value`, `timestamp` FROM " + table + " WHERE `id` = ?;",
+                    "SELECT `id` FROM " + table + ";",
+                    "SELECT `id` FROM " + table + " ORDER BY `id` LIMIT ?;",
+                    "SELECT `id` FROM " + table + " WHERE `id` > ? ORDER BY `id` LIMIT ?;",
+                    "SELECT `id`, `value`, `timestamp` FROM " + table + " ORDER BY `id` LIMIT ?;",
+                    "SELECT `id`, `value`, `timestamp` FROM " + table + " WHERE `id` > ? ORDER BY `id` LIMIT ?;",
+                    changesSql(table, false),
+                    changesSql(table, true));
+        }
+
+        private static String changesSql(String table, boolean hasPosition) {
+            String documentsAfter = hasPosition
+                    ? "(`timestamp` > ? OR (`timestamp` = ? AND `id` > ?))"
+                    : "`timestamp` > ?";
+            String tombstonesAfter = hasPosition
+                    ? "(`t`.`timestamp` > ? OR (`t`.`timestamp` = ? AND `t`.`id` > ?))"
+                    : "`t`.`timestamp` > ?";
+            // Both sides are limited on their own, so each reads at most one page from its index
+            return "SELECT `id`, `value`, `timestamp`, `deleted` FROM (" +
+                    "SELECT `id`, `value`, `timestamp`, 0 AS `deleted` FROM " + table + " " +
+                    "WHERE " + documentsAfter + " ORDER BY `timestamp`, `id` LIMIT ?) " +
+                    "UNION ALL SELECT `id`, `value`, `timestamp`, `deleted` FROM (" +
+                    "SELECT `t`.`id`, NULL AS `value`, `t`.`timestamp`, 1 AS `deleted` FROM `" + Tombstones.TABLE + "` AS `t` " +
+                    "WHERE `t`.`table_name` = ? AND " + tombstonesAfter + " " +
+                    "AND NOT EXISTS (SELECT 1 FROM " + table + " AS `d` WHERE `d`.`id` = `t`.`id`) " +
+                    "ORDER BY `t`.`timestamp`, `t`.`id` LIMIT ?) " +
+                    "ORDER BY `timestamp`, `id` LIMIT ?;";
+        }
+    }
+
+    @FunctionalInterface
+    private interface ReadOperation<T> {
+        T execute(StatementCache reader) throws Exception;
+    }
+
+    private static final String TOMBSTONE_UPSERT_SQL = "INSERT INTO `" + Tombstones.TABLE + "` (`table_name`, `id`, `timestamp`) VALUES (?, ?, ?) " +
+            "ON CONFLICT(`table_name`, `id`) DO UPDATE SET `timestamp` = MAX(`timestamp`, excluded.`timestamp`);";
+    private static final String TOMBSTONE_PURGE_SQL = "DELETE FROM `" + Tombstones.TABLE + "` WHERE `table_name` = ? AND `timestamp` < ?;";
+
+    // Prepared statements kept open per connection
+    private static final int STATEMENT_CACHE_SIZE = 128;
+
+    private StatementCache writer;
+    private final BlockingQueue<StatementCache> readers = new LinkedBlockingQueue<>();
+    private volatile boolean closed;
     private final File dataFolder;
+    private final Map<String, TableSql> tableSql = new ConcurrentHashMap<>();
+    // Storage format of every table, detected from the type of its value column
+    private final Map<String, StorageFormat> tableFormats = new ConcurrentHashMap<>();
+    // Tables whose timestamp index for change feeds was created
+    private final Set<String> changeIndexes = new HashSet<>();
+    private final Tombstones tombstones = new Tombstones();
+    private boolean tombstoneTableCreated;
     private static final Pattern VALID_TABLE_NAME = Pattern.compile("^[a-zA-Z0-9_]+$");
+    // Keeps IN (...) lists well below the bind parameter limits of the drivers
+    private static final int MAX_IN_PARAMETERS = 500;
 
     public SQLiteAdapter(File dataFolder) {
         this.dataFolder = dataFolder;
@@ -37,15 +152,59 @@ public class SQLiteAdapter implements StorageAdapter {
 
         File dbFile = new File(dbDir, credentials.database() + ".db");
         String jdbcUrl = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        SQLiteSettings settings = credentials.sqlite();
 
         Class.forName("org.sqlite.JDBC", true, this.getClass().getClassLoader());
-        this.connection = DriverManager.getConnection(jdbcUrl);
+        Connection connection = DriverManager.getConnection(jdbcUrl);
+        this.writer = new StatementCache(connection, STATEMENT_CACHE_SIZE);
+
+        // The journal mode is stored in the database file, so it applies to the readers as well
+        execute(connection, "PRAGMA journal_mode=WAL;");
+        execute(connection, "PRAGMA synchronous=NORMAL;");
+        applySettings(connection, settings);
 
-        try (PreparedStatement pragmaStmt = connection.prepareStatement("PRAGMA journal_mode=WAL;")) {
-            pragmaStmt.execute();
+        for (int i = 0; i < settings.readerConnections(); i++) {
+            Connection reader = DriverManager.getConnection(jdbcUrl);
+            readers.add(new StatementCache(reader, STATEMENT_CACHE_SIZE));
+            execute(reader, "PRAGMA query_only=1;");
+            applySettings(reader, settings);
         }
-        try (PreparedStatement pragmaStmt = connection.prepareStatement("PRAGMA synchronous=NORMAL;")) {
-            pragmaStmt.execute();
+    }
+
+    private void applySettings(Connection connection, SQLiteSettings settings) throws SQLException {
+        // A negative cache size is interpreted as KiB instead of pages
+        execute(connection, "PRAGMA cache_size=-" + settings.cacheSizeKiB() + ";");
+        execute(connection, "PRAGMA mmap_size=" + settings.mmapSizeBytes() + ";");
+        execute(connection, "PRAGMA temp_store=" + settings.tempStore().name() + ";");
+        execute(connection, "PRAGMA busy_timeout=" + settings.busyTimeoutMillis() + ";");
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Runs a read on one of the reader connections, waiting for one to become free if all are in use.
+     * The operation must not borrow a second reader, which could wait forever once all are in use.
+     */
+    private <T> T withReader(ReadOperation<T> operation) throws Exception {
+        StatementCache reader = null;
+        while (reader == null) {
+            if (closed) {
+                throw new SQLException("The SQLite database is disconnected.");
+            }
+            reader = readers.poll(100, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            return operation.execute(reader);
+        } finally {
+            readers.add(reader);
+            if (closed) {
+                closeReaders();
+            }
         }
     }
 
@@ -58,83 +217,680 @@ public class SQLiteAdapter implements StorageAdapter {
         }
     }
 
+    private TableSql sqlOf(String tableName) {
+        validateTableName(tableName);
+        return tableSql.computeIfAbsent(tableName, TableSql::of);
+    }
+
     @Override
     public synchronized void createTableIfNotExists(String tableName) throws Exception {
+        createTableIfNotExists(tableName, StorageFormat.JSON);
+    }
+
+    @Override
+    public synchronized void createTableIfNotExists(String tableName, StorageFormat format) throws Exception {
         validateTableName(tableName);
 
         // SQLite lacks a native JSON type; TEXT is the standard architectural equivalent.
+        String valueType = format == StorageFormat.BINARY ? "BLOB" : "TEXT";
         String sql = "CREATE TABLE IF NOT EXISTS `" + tableName + "` (" +
                 "`id` VARCHAR(191) PRIMARY KEY NOT NULL, " +
-                "`value` TEXT NOT NULL, " +
+                "`value` " + valueType + " NOT NULL, " +
                 "`timestamp` BIGINT NOT NULL" +
                 ");";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.executeUpdate();
+        execute(writer.connection(), sql);
+        verifyFormat(tableName, format);
+    }
+
+    /**
+     * Re-detects the format after creating a table. Existing tables keep their format, the requested one only applies to new tables.
+     */
+    private synchronized void verifyFormat(String tableName, StorageFormat requested) throws SQLException {
+        tableFormats.remove(tableName);
+        StorageFormat actual = formatOf(writer, tableName);
+        if (actual != requested) {
+            PeachLib.getPlugin().getLogger().warning("Table '" + tableName + "' already exists with storage format " + actual
+                    + ", requested " + requested + ". Keeping " + actual + ".");
         }
     }
 
+    /**
+     * Returns the cached format of a table, detecting it with the given connection on first use.
+     */
+    private StorageFormat formatOf(StatementCache connection, String tableName) throws SQLException {
+        StorageFormat format = tableFormats.get(tableName);
+        if (format == null) {
+            format = detectFormat(connection.connection(), tableName);
+            tableFormats.put(tableName, format);
+        }
+        return format;
+    }
+
+    /**
+     * Returns the cached format of a table, borrowing a reader to detect it on first use.
+     * Must not be called while holding a reader, see {@link #withReader}.
+     */
+    private StorageFormat formatOf(String tableName) throws Exception {
+        StorageFormat format = tableFormats.get(tableName);
+        return format != null ? format : withReader(reader -> formatOf(reader, tableName));
+    }
+
+    private StorageFormat detectFormat(Connection conn, String tableName) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, tableName, "value")) {
+            if (rs.next()) {
+                String type = rs.getString("TYPE_NAME");
+                if (type != null && type.toUpperCase(Locale.ROOT).contains("BLOB")) {
+                    return StorageFormat.BINARY;
+                }
+            }
+        }
+        return StorageFormat.JSON;
+    }
+
+    private void bindValue(PreparedStatement stmt, int index, StorageFormat format, String jsonValue) throws Exception {
+        if (format == StorageFormat.BINARY) {
+            stmt.setBytes(index, BinaryJson.encode(jsonValue));
+        } else {
+            stmt.setString(index, jsonValue);
+        }
+    }
+
+    private String readValue(ResultSet rs, StorageFormat format) throws Exception {
+        return format == StorageFormat.BINARY ? BinaryJson.decode(rs.getBytes("value")) : rs.getString("value");
+    }
+
     @Override
     public synchronized void write(String tableName, String id, String jsonValue, long timestamp) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        StorageFormat format = formatOf(writer, tableName);
+
+        PreparedStatement stmt = writer.prepare(sql.upsert());
+        stmt.setString(1, id);
+        bindValue(stmt, 2, format, jsonValue);
+        stmt.setLong(3, timestamp);
+        stmt.executeUpdate();
+    }
+
+    @Override
+    public synchronized void writeBatch(String tableName, List<Document> documents) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        StorageFormat format = formatOf(writer, tableName);
+        Connection connection = writer.connection();
+
+        // One transaction means one WAL commit (and one fsync) for the whole batch
+        connection.setAutoCommit(false);
+        PreparedStatement stmt = writer.prepare(sql.upsert());
+        try {
+            for (Document document : documents) {
+                stmt.setString(1, document.id());
+                bindValue(stmt, 2, format, document.value());
+                stmt.setLong(3, document.timestamp());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            connection.commit();
+        } catch (Exception e) {
+            // The statement is reused, so a failed batch must not stay queued on it
+            stmt.clearBatch();
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Applies the patch inside SQLite with {@code json_set}/{@code json_remove}, so the document is not transferred.
+     * Binary tables are patched with a read-modify-write.
+     */
+    @Override
+    public synchronized void patch(String tableName, String id, DocumentPatch patch, long timestamp) throws Exception {
         validateTableName(tableName);
-        String sql = "INSERT INTO `" + tableName + "` (`id`, `value`, `timestamp`) VALUES (?, ?, ?) " +
-                "ON CONFLICT(`id`) DO UPDATE SET `value` = excluded.`value`, `timestamp` = excluded.`timestamp` " +
+        if (formatOf(writer, tableName) == StorageFormat.BINARY) {
+            StorageAdapter.super.patch(tableName, id, patch, timestamp);
+            return;
+        }
+
+        // The SQL only depends on the kind of the operations, their paths and values are bound
+        String sql = "INSERT INTO `" + tableName + "` (`id`, `value`, `timestamp`) VALUES (?, " + patchExpression("'{}'", patch) + ", ?) " +
+                "ON CONFLICT(`id`) DO UPDATE SET `value` = " + patchExpression("`value`", patch) + ", `timestamp` = excluded.`timestamp` " +
                 "WHERE excluded.`timestamp` > `timestamp`;";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        PreparedStatement stmt = writer.prepare(sql);
+        stmt.setString(1, id);
+        int index = bindPatch(stmt, 2, patch);
+        stmt.setLong(index++, timestamp);
+        bindPatch(stmt, index, patch);
+        stmt.executeUpdate();
+    }
+
+    /**
+     * Nests one function call per operation around the base expression, keeping the order of the operations.
+     */
+    private String patchExpression(String base, DocumentPatch patch) {
+        String expression = base;
+        for (DocumentPatch.Operation operation : patch.operations()) {
+            expression = operation.isRemove()
+                    ? "json_remove(" + expression + ", ?)"
+                    : "json_set(" + expression + ", ?, json(?))";
+        }
+        return expression;
+    }
+
+    private int bindPatch(PreparedStatement stmt, int index, DocumentPatch patch) throws SQLException {
+        for (DocumentPatch.Operation operation : patch.operations()) {
+            stmt.setString(index++, operation.jsonPath());
+            if (!operation.isRemove()) {
+                stmt.setString(index++, operation.jsonValue());
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public synchronized void delete(String tableName, String id) throws Exception {
+        PreparedStatement stmt = writer.prepare(sqlOf(tableName).delete());
+        stmt.setString(1, id);
+        stmt.executeUpdate();
+    }
+
+    @Override
+    public synchronized void deleteBatch(String tableName, List<String> ids) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        Connection connection = writer.connection();
+
+        connection.setAutoCommit(false);
+        PreparedStatement stmt = writer.prepare(sql.delete());
+        try {
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            connection.commit();
+        } catch (Exception e) {
+            stmt.clearBatch();
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @Override
+    public synchronized void delete(String tableName, String id, long timestamp) throws Exception {
+        deleteBatch(tableName, List.of(id), timestamp);
+    }
+
+    /**
+     * Deletes the rows and records the deletions in the tombstone table within one transaction.
+     */
+    @Override
+    public synchronized void deleteBatch(String tableName, List<String> ids, long timestamp) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        createTombstoneTable();
+        Connection connection = writer.connection();
+
+        connection.setAutoCommit(false);
+        PreparedStatement stmt = writer.prepare(sql.delete());
+        PreparedStatement tombstoneStmt = writer.prepare(TOMBSTONE_UPSERT_SQL);
+        try {
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+                tombstoneStmt.setString(1, tableName);
+                tombstoneStmt.setString(2, id);
+                tombstoneStmt.setLong(3, timestamp);
+                tombstoneStmt.addBatch();
+            }
+            stmt.executeBatch();
+            tombstoneStmt.executeBatch();
+            connection.commit();
+        } catch (Exception e) {
+            stmt.clearBatch();
+            tombstoneStmt.clearBatch();
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        if (tombstones.claimPurge(tableName)) {
+            PreparedStatement purgeStmt = writer.prepare(TOMBSTONE_PURGE_SQL);
+            purgeStmt.setString(1, tableName);
+            purgeStmt.setLong(2, Tombstones.expiry());
+            purgeStmt.executeUpdate();
+        }
+    }
+
+    private synchronized void createTombstoneTable() throws SQLException {
+        if (tombstoneTableCreated) return;
+        String sql = "CREATE TABLE IF NOT EXISTS `" + Tombstones.TABLE + "` (" +
+                "`table_name` VARCHAR(64) NOT NULL, " +
+                "`id` VARCHAR(191) NOT NULL, " +
+                "`timestamp` BIGINT NOT NULL, " +
+                "PRIMARY KEY (`table_name`, `id`)" +
+                ");";
+        String indexSql = "CREATE INDEX IF NOT EXISTS `" + Tombstones.TABLE + "_timestamp` ON `" + Tombstones.TABLE + "` (`table_name`, `timestamp`);";
+
+        execute(writer.connection(), sql);
+        execute(writer.connection(), indexSql);
+        tombstoneTableCreated = true;
+    }
+
+    @Override
+    public String read(String tableName, String id) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        return withReader(reader -> {
+            StorageFormat format = formatOf(reader, tableName);
+            PreparedStatement stmt = reader.prepare(sql.read());
+            stmt.setString(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readValue(rs, format) : null;
+            }
+        });
+    }
+
+    @Override
+    public Document readDocument(String tableName, String id) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        return withReader(reader -> {
+            StorageFormat format = formatOf(reader, tableName);
+            PreparedStatement stmt = reader.prepare(sql.readDocument());
             stmt.setString(1, id);
-            stmt.setString(2, jsonValue);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new Document(id, readValue(rs, format), rs.getLong("timestamp")) : null;
+            }
+        });
+    }
+
+    /**
+     * Runs on the writer, so the comparison and the write cannot interleave with another modification.
+     */
+    @Override
+    public synchronized boolean compareAndSet(String tableName, String id, long expectedTimestamp, String jsonValue, long timestamp) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        StorageFormat format = formatOf(writer, tableName);
+
+        if (expectedTimestamp < 0) {
+            PreparedStatement stmt = writer.prepare(sql.insertIfAbsent());
+            stmt.setString(1, id);
+            bindValue(stmt, 2, format, jsonValue);
             stmt.setLong(3, timestamp);
-            stmt.executeUpdate();
+            return stmt.executeUpdate() == 1;
         }
+
+        PreparedStatement stmt = writer.prepare(sql.compareAndSet());
+        bindValue(stmt, 1, format, jsonValue);
+        stmt.setLong(2, timestamp);
+        stmt.setString(3, id);
+        stmt.setLong(4, expectedTimestamp);
+        return stmt.executeUpdate() == 1;
     }
 
     @Override
-    public synchronized void delete(String tableName, String id) throws Exception {
+    public Map<String, String> readMany(String tableName, Collection<String> ids) throws Exception {
         validateTableName(tableName);
-        String sql = "DELETE FROM `" + tableName + "` WHERE `id` = ?;";
+        List<String> idList = new ArrayList<>(ids);
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, id);
-            stmt.executeUpdate();
+        return withReader(reader -> {
+            StorageFormat format = formatOf(reader, tableName);
+            Map<String, String> values = new HashMap<>();
+            for (int start = 0; start < idList.size(); start += MAX_IN_PARAMETERS) {
+                List<String> chunk = idList.subList(start, Math.min(idList.size(), start + MAX_IN_PARAMETERS));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                String sql = "SELECT `id`, `value` FROM `" + tableName + "` WHERE `id` IN (" + placeholders + ");";
+
+                PreparedStatement stmt = reader.prepare(sql);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        values.put(rs.getString("id"), readValue(rs, format));
+                    }
+                }
+            }
+            return values;
+        });
+    }
+
+    @Override
+    public Set<String> getAllPrimaryKeys(String tableName) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        return withReader(reader -> {
+            Set<String> keys = new HashSet<>();
+            try (ResultSet rs = reader.prepare(sql.allKeys()).executeQuery()) {
+                while (rs.next()) {
+                    keys.add(rs.getString("id"));
+                }
+            }
+            return keys;
+        });
+    }
+
+    @Override
+    public Cursor<String> openKeyCursor(String tableName, int pageSize) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        return new KeysetCursor<>((afterId, limit) -> readKeyPage(sql, afterId, limit), id -> id, pageSize);
+    }
+
+    private List<String> readKeyPage(TableSql sql, String afterId, int limit) throws Exception {
+        return withReader(reader -> {
+            PreparedStatement stmt = reader.prepare(afterId == null ? sql.firstKeys() : sql.nextKeys());
+            int index = 1;
+            if (afterId != null) {
+                stmt.setString(index++, afterId);
+            }
+            stmt.setInt(index, limit);
+
+            List<String> keys = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    keys.add(rs.getString("id"));
+                }
+            }
+            return keys;
+        });
+    }
+
+    @Override
+    public Cursor<Document> openDocumentCursor(String tableName, int pageSize) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        return new KeysetCursor<>((afterId, limit) -> readDocumentPage(tableName, sql, afterId, limit), Document::id, pageSize);
+    }
+
+    private List<Document> readDocumentPage(String tableName, TableSql sql, String afterId, int limit) throws Exception {
+        return withReader(reader -> {
+            StorageFormat format = formatOf(reader, tableName);
+            PreparedStatement stmt = reader.prepare(afterId == null ? sql.firstDocuments() : sql.nextDocuments());
+            int index = 1;
+            if (afterId != null) {
+                stmt.setString(index++, afterId);
+            }
+            stmt.setInt(index, limit);
+
+            List<Document> documents = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    documents.add(new Document(rs.getString("id"), readValue(rs, format), rs.getLong("timestamp")));
+                }
+            }
+            return documents;
+        });
+    }
+
+    /**
+     * Creates an expression index on {@code json_extract}, which {@link #findBy} uses with the identical expression.
+     */
+    @Override
+    public synchronized void createIndex(String tableName, String path) throws Exception {
+        validateTableName(tableName);
+        if (formatOf(writer, tableName) == StorageFormat.BINARY) {
+            throw new UnsupportedOperationException("Table '" + tableName + "' uses the binary storage format, which cannot be indexed.");
         }
+
+        // Index names are unique per database, not per table
+        String sql = "CREATE INDEX IF NOT EXISTS `" + tableName + "_" + IndexKey.columnName(path) + "` ON `" + tableName + "` (" +
+                "json_extract(`value`, '" + DocumentPatch.jsonPath(path) + "'));";
+        execute(writer.connection(), sql);
     }
 
     @Override
-    public synchronized String read(String tableName, String id) throws Exception {
+    public Map<String, String> findBy(String tableName, String path, String jsonValue) throws Exception {
         validateTableName(tableName);
-        String sql = "SELECT `value` FROM `" + tableName + "` WHERE `id` = ?;";
+        StorageFormat format = formatOf(tableName);
+        if (format == StorageFormat.BINARY) {
+            return StorageAdapter.super.findBy(tableName, path, jsonValue);
+        }
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, id);
+        String key = IndexKey.of(jsonValue);
+        String sql = "SELECT `id`, `value` FROM `" + tableName + "` WHERE json_extract(`value`, '" + DocumentPatch.jsonPath(path) + "') = ?;";
+
+        return withReader(reader -> {
+            Map<String, String> matches = new HashMap<>();
+            PreparedStatement stmt = reader.prepare(sql);
+            bindLookupValue(stmt, 1, JsonParser.parseString(jsonValue).getAsJsonPrimitive());
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getString("value");
+                while (rs.next()) {
+                    String value = readValue(rs, format);
+                    // json_extract turns booleans into integers and compares 5 and 5.0 as equal, so candidates are verified
+                    if (key.equals(IndexKey.extract(value, path))) {
+                        matches.put(rs.getString("id"), value);
+                    }
                 }
             }
+            return matches;
+        });
+    }
+
+    /**
+     * Translates the query into SQL and loads the result page by page, every page after the first continuing after
+     * the sort key of the previous one (see {@link SortKeyCursor}). Filters compare
+     * {@code json_extract} like {@link #findBy}, so they can use the expression indexes of {@link #createIndex}.
+     */
+    @Override
+    public Cursor<Document> openQueryCursor(String tableName, DocumentQuery query, int pageSize) throws Exception {
+        validateTableName(tableName);
+        if (formatOf(tableName) == StorageFormat.BINARY) {
+            return StorageAdapter.super.openQueryCursor(tableName, query, pageSize);
+        }
+
+        List<String> columns = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT `id`, `value`, `timestamp`");
+        for (DocumentQuery.Order order : query.orders()) {
+            String path = DocumentPatch.jsonPath(order.path());
+            int column = columns.size();
+            // Sorts booleans after strings like the other backends, SQLite would sort them as the integers 1 and 0.
+            // Missing values and JSON null are compared as 0 within their rank, so the sort key is never NULL.
+            sql.append(", CASE COALESCE(json_type(`value`, '").append(path).append("'), 'null') WHEN 'null' THEN 0")
+                    .append(" WHEN 'integer' THEN 1 WHEN 'real' THEN 1 WHEN 'text' THEN 2 WHEN 'true' THEN 3 WHEN 'false' THEN 3 ELSE 4 END")
+                    .append(" AS `k").append(column).append('`')
+                    .append(", COALESCE(json_extract(`value`, '").append(path).append("'), 0) AS `k").append(column + 1).append('`');
+            for (int i = 0; i < 2; i++) {
+                columns.add("`k" + (column + i) + "`");
+                descending.add(order.descending());
+            }
         }
-        return null;
+        sql.append(" FROM `").append(tableName).append('`');
+
+        String separator = " WHERE ";
+        for (DocumentQuery.Filter filter : query.filters()) {
+            String path = DocumentPatch.jsonPath(filter.path());
+            JsonPrimitive value = filter.value();
+            sql.append(separator);
+            if (value.isBoolean()) {
+                // json_type tells true and false apart from the integers 1 and 0
+                sql.append("json_type(`value`, '").append(path).append("') = '").append(value.getAsBoolean()).append('\'');
+            } else {
+                sql.append("json_type(`value`, '").append(path).append(value.isNumber() ? "') IN ('integer', 'real')" : "') = 'text'")
+                        .append(" AND json_extract(`value`, '").append(path).append("') ").append(filter.operator().symbol()).append(" ?");
+            }
+            separator = " AND ";
+        }
+
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (int i = 0; i < columns.size(); i++) {
+            orderBy.append(columns.get(i)).append(descending.get(i) ? " DESC, " : " ASC, ");
+        }
+        orderBy.append("`id` LIMIT ? OFFSET ?;");
+        columns.add("`id`");
+        descending.add(false);
+
+        // The aliases of the sort key can only be compared outside of the query selecting them
+        String firstStatement = "SELECT * FROM (" + sql + ")" + orderBy;
+        String nextStatement = "SELECT * FROM (" + sql + ") WHERE " + SortKeyCursor.afterCondition(columns, descending) + orderBy;
+        int keyColumns = columns.size() - 1;
+        return new SortKeyCursor<>((after, offset, limit) -> readQueryPage(tableName, after == null ? firstStatement : nextStatement,
+                query, after, keyColumns, offset, limit), query.offset(), query.limit(), pageSize);
     }
 
+    private List<SortKeyCursor.Keyed<Document>> readQueryPage(String tableName, String sql, DocumentQuery query, List<Object> after,
+                                                             int keyColumns, long offset, int limit) throws Exception {
+        return withReader(reader -> {
+            StorageFormat format = formatOf(reader, tableName);
+            PreparedStatement stmt = reader.prepare(sql);
+            int index = 1;
+            for (DocumentQuery.Filter filter : query.filters()) {
+                JsonPrimitive value = filter.value();
+                if (!value.isBoolean()) {
+                    bindLookupValue(stmt, index++, value);
+                }
+            }
+            if (after != null) {
+                for (Object parameter : SortKeyCursor.afterParameters(after)) {
+                    stmt.setObject(index++, parameter);
+                }
+            }
+            stmt.setInt(index++, limit);
+            stmt.setLong(index, offset);
+
+            List<SortKeyCursor.Keyed<Document>> documents = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String id = rs.getString("id");
+                    List<Object> sortKey = new ArrayList<>(keyColumns + 1);
+                    for (int i = 0; i < keyColumns; i++) {
+                        sortKey.add(rs.getObject("k" + i));
+                    }
+                    sortKey.add(id);
+                    documents.add(new SortKeyCursor.Keyed<>(new Document(id, readValue(rs, format), rs.getLong("timestamp")), sortKey));
+                }
+            }
+            return documents;
+        });
+    }
+
+    /**
+     * Loads only the id and the numeric field of every row, with keyset pagination over the primary key.
+     */
     @Override
-    public synchronized Set<String> getAllPrimaryKeys(String tableName) throws Exception {
+    public Cursor<Score> openScoreCursor(String tableName, String path, int pageSize) throws Exception {
         validateTableName(tableName);
-        Set<String> keys = new HashSet<>();
-        String sql = "SELECT `id` FROM `" + tableName + "`;";
+        if (formatOf(tableName) == StorageFormat.BINARY) {
+            return StorageAdapter.super.openScoreCursor(tableName, path, pageSize);
+        }
+        String jsonPath = DocumentPatch.jsonPath(path);
+        String firstSql = scoreSql(tableName, jsonPath, false);
+        String nextSql = scoreSql(tableName, jsonPath, true);
+        return new KeysetCursor<>((afterId, limit) -> readScorePage(afterId == null ? firstSql : nextSql, afterId, limit), Score::id, pageSize);
+    }
+
+    private String scoreSql(String tableName, String jsonPath, boolean hasPosition) {
+        return "SELECT `id`, json_extract(`value`, '" + jsonPath + "') AS `score` FROM `" + tableName + "` WHERE " +
+                (hasPosition ? "`id` > ? AND " : "") +
+                "json_type(`value`, '" + jsonPath + "') IN ('integer', 'real') ORDER BY `id` LIMIT ?;";
+    }
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                keys.add(rs.getString("id"));
+    private List<Score> readScorePage(String sql, String afterId, int limit) throws Exception {
+        return withReader(reader -> {
+            PreparedStatement stmt = reader.prepare(sql);
+            int index = 1;
+            if (afterId != null) {
+                stmt.setString(index++, afterId);
             }
+            stmt.setInt(index, limit);
+
+            List<Score> scores = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    scores.add(new Score(rs.getString("id"), rs.getDouble("score")));
+                }
+            }
+            return scores;
+        });
+    }
+
+    /**
+     * Pages through the documents with an index on {@code timestamp}, created on first use, and through the
+     * tombstones of the table. Tombstones of ids that exist again are skipped.
+     */
+    @Override
+    public Cursor<Change> openChangeCursor(String tableName, long since, int pageSize) throws Exception {
+        TableSql sql = sqlOf(tableName);
+        createChangeIndex(tableName);
+        createTombstoneTable();
+        return new ChangeCursor((afterTimestamp, afterId, limit) -> readChangePage(tableName, sql, afterTimestamp, afterId, limit), since, pageSize);
+    }
+
+    private synchronized void createChangeIndex(String tableName) throws SQLException {
+        if (changeIndexes.contains(tableName)) return;
+        // Index names are unique per database, not per table
+        execute(writer.connection(), "CREATE INDEX IF NOT EXISTS `" + tableName + "_pl_changes` ON `" + tableName + "` (`timestamp`, `id`);");
+        changeIndexes.add(tableName);
+    }
+
+    private List<Change> readChangePage(String tableName, TableSql sql, long afterTimestamp, String afterId, int limit) throws Exception {
+        return withReader(reader -> {
+            StorageFormat format = formatOf(reader, tableName);
+            PreparedStatement stmt = reader.prepare(afterId == null ? sql.firstChanges() : sql.nextChanges());
+            int index = bindChangePosition(stmt, 1, afterTimestamp, afterId);
+            stmt.setInt(index++, limit);
+            stmt.setString(index++, tableName);
+            index = bindChangePosition(stmt, index, afterTimestamp, afterId);
+            stmt.setInt(index++, limit);
+            stmt.setInt(index, limit);
+
+            List<Change> changes = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String value = rs.getBoolean("deleted") ? null : readValue(rs, format);
+                    changes.add(new Change(rs.getString("id"), value, rs.getLong("timestamp")));
+                }
+            }
+            return changes;
+        });
+    }
+
+    private int bindChangePosition(PreparedStatement stmt, int index, long afterTimestamp, String afterId) throws SQLException {
+        stmt.setLong(index++, afterTimestamp);
+        if (afterId != null) {
+            stmt.setLong(index++, afterTimestamp);
+            stmt.setString(index++, afterId);
+        }
+        return index;
+    }
+
+    /**
+     * Binds the SQL type json_extract returns for the value, expressions have no type affinity in SQLite.
+     */
+    private void bindLookupValue(PreparedStatement stmt, int index, JsonPrimitive value) throws SQLException {
+        if (value.isBoolean()) {
+            stmt.setInt(index, value.getAsBoolean() ? 1 : 0);
+        } else if (value.isNumber()) {
+            String number = value.getAsString();
+            if (number.contains(".") || number.contains("e") || number.contains("E")) {
+                stmt.setDouble(index, value.getAsDouble());
+            } else {
+                stmt.setLong(index, value.getAsLong());
+            }
+        } else {
+            stmt.setString(index, value.getAsString());
         }
-        return keys;
     }
 
+    /**
+     * Closes the writer and all idle readers. Readers still in use are closed when they are returned.
+     */
     @Override
     public synchronized void disconnect() throws Exception {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+        closed = true;
+        closeReaders();
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private void closeReaders() {
+        StatementCache reader;
+        while ((reader = readers.poll()) != null) {
+            try {
+                reader.close();
+            } catch (SQLException e) {
+                PeachLib.getPlugin().getLogger().warning("Failed to close an SQLite reader connection: " + e.getMessage());
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package de.peachbiscuit174.peachlib.data.backends;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A JDBC connection together with its prepared statements, which stay open for reuse and are closed once
+ * they are the least recently used beyond the capacity.
+ * Not thread-safe, the owner hands the connection to one thread at a time.
+ */
+final class StatementCache implements AutoCloseable {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= capacity) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Returns the cached statement of the SQL or prepares it. The statement must not be closed by the caller.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null) {
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        statements.values().forEach(StatementCache::closeQuietly);
+        statements.clear();
+        if (!connection.isClosed()) {
+            connection.close();
+        }
+    }
+}
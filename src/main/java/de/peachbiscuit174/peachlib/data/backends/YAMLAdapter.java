@@ -1,11 +1,20 @@
 package de.peachbiscuit174.peachlib.data.backends;
 
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
 import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import de.peachbiscuit174.peachlib.data.Cursor;
 import de.peachbiscuit174.peachlib.data.StorageAdapter;
+import de.peachbiscuit174.peachlib.data.index.IndexKey;
+import de.peachbiscuit174.peachlib.data.index.MemoryIndexes;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.jetbrains.annotations.ApiStatus;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -14,6 +23,7 @@ import java.util.regex.Pattern;
  * Saves the entire table as a single .yml file where IDs are configuration keys.
  * * NOTE: This adapter executes heavy I/O operations (parsing the entire file) on every read/write.
  * It is meant for small configuration datasets, not for high-frequency database operations.
+ * All operations are synchronized because every write rewrites the whole table file.
  */
 @ApiStatus.Internal
 public class YAMLAdapter implements StorageAdapter {
@@ -21,6 +31,7 @@ public class YAMLAdapter implements StorageAdapter {
     private final File dataFolder;
     private String connectionId;
     private File connectionDir;
+    private final MemoryIndexes indexes = new MemoryIndexes();
 
     private static final Pattern VALID_FILE_NAME = Pattern.compile("^[a-zA-Z0-9_\\-]+$");
 
@@ -45,7 +56,7 @@ public class YAMLAdapter implements StorageAdapter {
     }
 
     @Override
-    public void createTableIfNotExists(String tableName) throws Exception {
+    public synchronized void createTableIfNotExists(String tableName) throws Exception {
         File tableFile = getTableFile(tableName);
         if (!tableFile.exists()) {
             tableFile.createNewFile();
@@ -53,7 +64,7 @@ public class YAMLAdapter implements StorageAdapter {
     }
 
     @Override
-    public void write(String tableName, String id, String jsonValue, long timestamp) throws Exception {
+    public synchronized void write(String tableName, String id, String jsonValue, long timestamp) throws Exception {
         validateName(id);
         File tableFile = getTableFile(tableName);
         YamlConfiguration config = YamlConfiguration.loadConfiguration(tableFile);
@@ -63,11 +74,12 @@ public class YAMLAdapter implements StorageAdapter {
             config.set(id + ".value", jsonValue);
             config.set(id + ".timestamp", timestamp);
             config.save(tableFile);
+            indexes.onWrite(tableName, id, jsonValue);
         }
     }
 
     @Override
-    public void delete(String tableName, String id) throws Exception {
+    public synchronized void delete(String tableName, String id) throws Exception {
         validateName(id);
         File tableFile = getTableFile(tableName);
         if (!tableFile.exists()) return;
@@ -75,10 +87,11 @@ public class YAMLAdapter implements StorageAdapter {
         YamlConfiguration config = YamlConfiguration.loadConfiguration(tableFile);
         config.set(id, null);
         config.save(tableFile);
+        indexes.onDelete(tableName, id);
     }
 
     @Override
-    public String read(String tableName, String id) throws Exception {
+    public synchronized String read(String tableName, String id) throws Exception {
         validateName(id);
         File tableFile = getTableFile(tableName);
         if (!tableFile.exists()) return null;
@@ -88,16 +101,103 @@ public class YAMLAdapter implements StorageAdapter {
     }
 
     @Override
-    public Set<String> getAllPrimaryKeys(String tableName) throws Exception {
+    public synchronized Document readDocument(String tableName, String id) throws Exception {
+        validateName(id);
+        File tableFile = getTableFile(tableName);
+        if (!tableFile.exists()) return null;
+
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(tableFile);
+        String value = config.getString(id + ".value");
+        return value != null ? new Document(id, value, config.getLong(id + ".timestamp")) : null;
+    }
+
+    @Override
+    public synchronized boolean compareAndSet(String tableName, String id, long expectedTimestamp, String jsonValue, long timestamp) throws Exception {
+        validateName(id);
+        File tableFile = getTableFile(tableName);
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(tableFile);
+
+        boolean exists = config.contains(id + ".value");
+        boolean matches = expectedTimestamp < 0 ? !exists : exists && config.getLong(id + ".timestamp") == expectedTimestamp;
+        if (!matches) return false;
+
+        config.set(id + ".value", jsonValue);
+        config.set(id + ".timestamp", timestamp);
+        config.save(tableFile);
+        indexes.onWrite(tableName, id, jsonValue);
+        return true;
+    }
+
+    @Override
+    public synchronized Map<String, String> readMany(String tableName, Collection<String> ids) throws Exception {
+        Map<String, String> values = new HashMap<>();
+        File tableFile = getTableFile(tableName);
+        if (!tableFile.exists()) return values;
+
+        // Parse the table file once instead of once per id
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(tableFile);
+        for (String id : ids) {
+            validateName(id);
+            String value = config.getString(id + ".value");
+            if (value != null) {
+                values.put(id, value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public synchronized Set<String> getAllPrimaryKeys(String tableName) throws Exception {
         File tableFile = getTableFile(tableName);
         YamlConfiguration config = YamlConfiguration.loadConfiguration(tableFile);
 
         return config.getKeys(false);
     }
 
+    @Override
+    public synchronized Cursor<Document> openDocumentCursor(String tableName, int pageSize) throws Exception {
+        File tableFile = getTableFile(tableName);
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(tableFile);
+
+        // The whole file is parsed anyway, so the pages are cut from a single snapshot
+        List<String> ids = new ArrayList<>(config.getKeys(false));
+        ids.sort(null);
+        List<Document> documents = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            String value = config.getString(id + ".value");
+            if (value != null) {
+                documents.add(new Document(id, value, config.getLong(id + ".timestamp")));
+            }
+        }
+        return Cursor.ofList(documents, pageSize);
+    }
+
+    /**
+     * Builds an in-memory hash index from the table file, kept up to date by every write and delete.
+     */
+    @Override
+    public synchronized void createIndex(String tableName, String path) throws Exception {
+        indexes.create(tableName, path, () -> openDocumentCursor(tableName, 500));
+    }
+
+    @Override
+    public synchronized Map<String, String> findBy(String tableName, String path, String jsonValue) throws Exception {
+        String key = IndexKey.of(jsonValue);
+        Set<String> ids = indexes.find(tableName, path, key);
+        if (ids == null) {
+            return StorageAdapter.super.findBy(tableName, path, jsonValue);
+        }
+
+        Map<String, String> matches = readMany(tableName, ids);
+        // The file may have been edited by hand since it was indexed
+        matches.values().removeIf(value -> !key.equals(IndexKey.extract(value, path)));
+        return matches;
+    }
+
     @Override
     public void disconnect() throws Exception {
         // No persistent connection to close for YAML
+        indexes.clear();
     }
 
     private File getTableFile(String tableName) {
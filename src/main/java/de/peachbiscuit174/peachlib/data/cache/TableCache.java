@@ -23,6 +23,7 @@ import java.util.logging.Level;
 @ApiStatus.Internal
 public class TableCache {
 
+    private final String connectionId;
     private final String cacheConnectionId;
     private final String tableName;
     private final StorageAdapter sqliteCacheAdapter;
@@ -36,6 +37,7 @@ public class TableCache {
     public TableCache(DataManager dataManager, File dataFolder, String connectionId, String tableName) throws Exception {
         this.dataManager = dataManager;
         this.tableName = tableName;
+        this.connectionId = connectionId;
         this.cacheConnectionId = connectionId + "_cache";
 
         this.sqliteCacheAdapter = new SQLiteAdapter(dataFolder);
@@ -101,6 +103,13 @@ public class TableCache {
         }
     }
 
+    /**
+     * @return true if this cache belongs to the given table of the given connection.
+     */
+    public boolean covers(String connectionId, String tableName) {
+        return this.connectionId.equals(connectionId) && this.tableName.equals(tableName);
+    }
+
     /**
      * Safely terminates the cache scheduler and closes the database connection.
      */
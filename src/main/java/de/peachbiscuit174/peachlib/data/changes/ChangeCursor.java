@@ -0,0 +1,63 @@
+package de.peachbiscuit174.peachlib.data.changes;
+
+import de.peachbiscuit174.peachlib.api.data.spi.Change;
+import de.peachbiscuit174.peachlib.data.Cursor;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.List;
+
+/**
+ * Cursor over the changes of a table in (timestamp, id) order, based on keyset pagination
+ * ({@code WHERE timestamp > ? OR (timestamp = ? AND id > ?) ORDER BY timestamp, id LIMIT ?}).
+ * Like {@link de.peachbiscuit174.peachlib.data.KeysetCursor}, every page is a short, independent query.
+ * A document modified while the cursor is consumed moves behind the current position and is reported again.
+ */
+@ApiStatus.Internal
+public class ChangeCursor implements Cursor<Change> {
+
+    /**
+     * Loads the changes following the given position in (timestamp, id) order.
+     */
+    @FunctionalInterface
+    public interface PageQuery {
+        /**
+         * @param afterTimestamp The timestamp of the last change of the previous page, or the exclusive lower bound
+         *                       for the first page.
+         * @param afterId        The id of the last change of the previous page, or null for the first page.
+         * @param limit          The maximum number of changes.
+         */
+        List<Change> fetch(long afterTimestamp, String afterId, int limit) throws Exception;
+    }
+
+    private final PageQuery query;
+    private final int pageSize;
+
+    private long lastTimestamp;
+    private String lastId;
+    private boolean exhausted;
+
+    public ChangeCursor(PageQuery query, long since, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.query = query;
+        this.pageSize = pageSize;
+        this.lastTimestamp = since;
+    }
+
+    @Override
+    public List<Change> nextPage() throws Exception {
+        if (exhausted) return List.of();
+
+        List<Change> page = query.fetch(lastTimestamp, lastId, pageSize);
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (!page.isEmpty()) {
+            Change last = page.get(page.size() - 1);
+            lastTimestamp = last.timestamp();
+            lastId = last.id();
+        }
+        return page;
+    }
+}
@@ -0,0 +1,228 @@
+package de.peachbiscuit174.peachlib.data.changes;
+
+import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncCursor;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.Change;
+import de.peachbiscuit174.peachlib.api.managers.DataManager;
+import de.peachbiscuit174.peachlib.data.Task;
+import de.peachbiscuit174.peachlib.data.queue.DataWorker;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Polls the changes of watched tables and hands them to their listeners.
+ * <p>
+ * All listeners of a table share one feed, which asks the backend for the changes since its previous poll with
+ * {@link AsyncStorageAdapter#openChangeCursor}. Timestamps are taken when a modification is issued, not when it is
+ * committed, so every poll reaches back the late commit window further; changes reported again are recognized
+ * by their id and timestamp and delivered only once.
+ * </p>
+ * <p>
+ * The worker reports every modification it executes on this server. If one is committed later than the window
+ * after its timestamp (e.g. behind a spilled backlog), the next poll of its table reads back to that timestamp,
+ * so the change is not lost. Other changes in that range whose markers were already dropped are delivered
+ * again. Modifications of other servers cannot be checked this way: the window has to cover their delays and the
+ * clock difference between the servers. All feeds are polled one after another on a single thread.
+ * </p>
+ */
+@ApiStatus.Internal
+public class ChangeFeeds {
+
+    private record FeedKey(String connectionId, String tableName) {}
+
+    private record Delivered(long timestamp, boolean deleted) {}
+
+    private static final class Feed {
+        private final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+        // Changes delivered recently enough to be read again by the next poll. Only accessed by the poller thread.
+        private final Map<String, Delivered> delivered = new HashMap<>();
+        // Exclusive lower bound of the timestamps read by the next poll
+        private long since;
+        // Timestamp of the oldest modification committed too late since the previous poll, Long.MAX_VALUE if none
+        private final AtomicLong resyncFrom = new AtomicLong(Long.MAX_VALUE);
+        private boolean failing;
+        private volatile boolean lateCommitLogged;
+
+        private Feed(long since) {
+            this.since = since;
+        }
+    }
+
+    /**
+     * The default of how long a modification may take from being issued to being committed and still be reported
+     * without a resync.
+     */
+    public static final long DEFAULT_LATE_COMMIT_MILLIS = 5_000L;
+
+    private static final int PAGE_SIZE = 500;
+
+    private final DataManager dataManager;
+    private final long pollIntervalMillis;
+    private final Map<FeedKey, Feed> feeds = new ConcurrentHashMap<>();
+
+    private volatile long lateCommitMillis = DEFAULT_LATE_COMMIT_MILLIS;
+    private volatile ScheduledExecutorService scheduler;
+    private boolean shutdown;
+
+    public ChangeFeeds(DataManager dataManager, long pollIntervalMillis) {
+        this.dataManager = dataManager;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Registers a listener for the changes of a table made after now, or shortly before if the table is already
+     * watched. The poller is started with the first listener.
+     *
+     * @return Removes the listener again.
+     */
+    public Runnable subscribe(String connectionId, String tableName, Consumer<Change> listener) {
+        if (scheduler == null) {
+            start();
+        }
+
+        FeedKey key = new FeedKey(connectionId, tableName);
+        feeds.compute(key, (k, feed) -> {
+            if (feed == null) {
+                feed = new Feed(dataManager.getTimeProvider().getCurrentTime());
+            }
+            feed.listeners.add(listener);
+            return feed;
+        });
+
+        return () -> feeds.computeIfPresent(key, (k, feed) -> {
+            feed.listeners.remove(listener);
+            return feed.listeners.isEmpty() ? null : feed;
+        });
+    }
+
+    /**
+     * Sets how far every poll reaches back before its previous one.
+     */
+    public void setLateCommitMillis(long lateCommitMillis) {
+        if (lateCommitMillis < 0) {
+            throw new IllegalArgumentException("Late commit window must not be negative.");
+        }
+        this.lateCommitMillis = lateCommitMillis;
+    }
+
+    public long getLateCommitMillis() {
+        return lateCommitMillis;
+    }
+
+    /**
+     * Called by the worker once a modification was executed. Makes the feed of the table read back to the
+     * modification if it was committed later than the window after its timestamp.
+     */
+    public void onModified(Task task) {
+        // COMPUTE stamps the document when it is executed
+        if (feeds.isEmpty() || task.type() == Task.TaskType.COMPUTE) return;
+        Feed feed = feeds.get(new FeedKey(task.connectionId(), task.tableName()));
+        if (feed == null) return;
+
+        long delay = dataManager.getTimeProvider().getCurrentTime() - task.timestamp();
+        if (delay <= lateCommitMillis) return;
+
+        feed.resyncFrom.accumulateAndGet(task.timestamp(), Math::min);
+        if (!feed.lateCommitLogged) {
+            feed.lateCommitLogged = true;
+            PeachLib.getPlugin().getLogger().warning("A modification of " + task.tableName() + " was committed " + delay
+                    + " ms after it was issued, more than the late commit window of " + lateCommitMillis
+                    + " ms. The change feed reads back to it; increase the window if this happens regularly.");
+        }
+    }
+
+    private synchronized void start() {
+        if (scheduler != null || shutdown) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "PL-ChangePoller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollAll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void pollAll() {
+        for (Map.Entry<FeedKey, Feed> entry : feeds.entrySet()) {
+            FeedKey key = entry.getKey();
+            Feed feed = entry.getValue();
+            try {
+                poll(key, feed);
+                if (feed.failing) {
+                    feed.failing = false;
+                    PeachLib.getPlugin().getLogger().info("Change feed of " + key.tableName() + " recovered.");
+                }
+            } catch (Exception e) {
+                // Logged once per outage; the next poll reads the same range again, so nothing is lost
+                if (!feed.failing) {
+                    feed.failing = true;
+                    PeachLib.getPlugin().getLogger().log(Level.WARNING, "Failed to poll the changes of " + key.tableName(), e);
+                }
+            }
+        }
+    }
+
+    private void poll(FeedKey key, Feed feed) throws Exception {
+        AsyncStorageAdapter adapter = dataManager.getAdapter(key.connectionId());
+        if (adapter == null) {
+            throw new IllegalStateException("Adapter not found for connection: " + key.connectionId());
+        }
+
+        long pollStart = dataManager.getTimeProvider().getCurrentTime();
+        long resyncFrom = feed.resyncFrom.getAndSet(Long.MAX_VALUE);
+        if (resyncFrom <= feed.since) {
+            feed.since = resyncFrom - 1;
+        }
+
+        AsyncCursor<Change> cursor = DataWorker.await(adapter.openChangeCursor(key.tableName(), feed.since, PAGE_SIZE));
+        try {
+            List<Change> page;
+            while (!(page = DataWorker.await(cursor.nextPage())).isEmpty()) {
+                for (Change change : page) {
+                    Delivered marker = new Delivered(change.timestamp(), change.isDeleted());
+                    if (marker.equals(feed.delivered.put(change.id(), marker))) continue;
+                    deliver(key, feed, change);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        // Only the changes the next poll reads again have to be remembered
+        long nextSince = pollStart - lateCommitMillis;
+        feed.delivered.values().removeIf(marker -> marker.timestamp() <= nextSince);
+        feed.since = Math.max(feed.since, nextSince);
+    }
+
+    private void deliver(FeedKey key, Feed feed, Change change) {
+        for (Consumer<Change> listener : feed.listeners) {
+            try {
+                listener.accept(change);
+            } catch (Exception e) {
+                PeachLib.getPlugin().getLogger().log(Level.WARNING, "Change listener of " + key.tableName() + " failed for " + change.id(), e);
+            }
+        }
+    }
+
+    /**
+     * Stops polling and removes all listeners.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        feeds.clear();
+    }
+}
@@ -0,0 +1,61 @@
+package de.peachbiscuit174.peachlib.data.changes;
+
+import de.peachbiscuit174.peachlib.api.data.TableChange;
+import de.peachbiscuit174.peachlib.api.data.codec.Codec;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncCursor;
+import de.peachbiscuit174.peachlib.api.data.spi.Change;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Cursor deserializing the changes of an underlying cursor page by page, like
+ * {@link de.peachbiscuit174.peachlib.data.scan.DecodingCursor} does for documents.
+ *
+ * @param <T> The value type.
+ */
+@ApiStatus.Internal
+public class DecodingChangeCursor<T> implements AsyncCursor<TableChange<T>> {
+
+    private final AsyncCursor<Change> source;
+    private final Codec<T> codec;
+
+    // Below this page size the overhead of splitting the work outweighs the parallel speedup
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    public DecodingChangeCursor(AsyncCursor<Change> source, Codec<T> codec) {
+        this.source = source;
+        this.codec = codec;
+    }
+
+    @Override
+    public CompletionStage<List<TableChange<T>>> nextPage() {
+        return source.nextPage().thenApply(page -> {
+            if (page.size() < PARALLEL_THRESHOLD) {
+                return page.stream().map(change -> decode(codec, change)).toList();
+            }
+            return page.parallelStream().map(change -> decode(codec, change)).toList();
+        });
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+
+    /**
+     * @throws CompletionException If the value cannot be decoded.
+     */
+    public static <T> TableChange<T> decode(Codec<T> codec, Change change) {
+        if (change.isDeleted()) {
+            return new TableChange<>(change.id(), null, change.timestamp(), true);
+        }
+        try {
+            return new TableChange<>(change.id(), codec.decode(change.value()), change.timestamp(), false);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
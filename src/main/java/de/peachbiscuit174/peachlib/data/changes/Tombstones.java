@@ -0,0 +1,50 @@
+package de.peachbiscuit174.peachlib.data.changes;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bookkeeping of the deletion records the SQL backends keep for change feeds.
+ * <p>
+ * Deleted rows leave nothing an index on the timestamp could find, so every delete issued by the data worker
+ * also records the id and the time of the deletion in a shared table. Records older than
+ * {@link #RETENTION_MILLIS} are purged by the deleting server, at most once per interval and table; change feeds
+ * asking for an older time may therefore miss deletions.
+ * </p>
+ */
+@ApiStatus.Internal
+public class Tombstones {
+
+    /**
+     * The table holding the deletion records of all tables of a database.
+     */
+    public static final String TABLE = "peachlib_tombstones";
+
+    public static final long RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private static final long PURGE_INTERVAL_MILLIS = 60 * 60 * 1000L;
+
+    private final Map<String, Long> lastPurges = new ConcurrentHashMap<>();
+
+    /**
+     * @return Whether the caller should purge the expired records of the table now. Returns true at most once per
+     * purge interval and table.
+     */
+    public boolean claimPurge(String tableName) {
+        long now = System.currentTimeMillis();
+        Long previous = lastPurges.get(tableName);
+        if (previous != null && now - previous < PURGE_INTERVAL_MILLIS) return false;
+        return previous == null
+                ? lastPurges.putIfAbsent(tableName, now) == null
+                : lastPurges.replace(tableName, previous, now);
+    }
+
+    /**
+     * @return The time before which records are purged.
+     */
+    public static long expiry() {
+        return System.currentTimeMillis() - RETENTION_MILLIS;
+    }
+}
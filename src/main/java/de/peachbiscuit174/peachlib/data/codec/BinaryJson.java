@@ -0,0 +1,371 @@
+package de.peachbiscuit174.peachlib.data.codec;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding of JSON documents, used for tables with the BINARY storage format.
+ * <p>
+ * The JSON is converted token by token: integers become zig-zag varints, and every short string (object keys
+ * as well as values like material names) is stored once and afterwards referenced by its index, which removes
+ * the repeated field names of lists of objects. Encoded values larger than {@link #COMPRESSION_THRESHOLD}
+ * bytes are compressed with Deflate if that makes them smaller. Decoding produces equivalent JSON text.
+ * </p>
+ */
+@ApiStatus.Internal
+public final class BinaryJson {
+
+    private static final byte FORMAT_PLAIN = 1;
+    private static final byte FORMAT_DEFLATED = 2;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_NUMBER = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_STRING_REF = 6;
+    private static final int TAG_ARRAY = 7;
+    private static final int TAG_OBJECT = 8;
+    private static final int TAG_END = 9;
+
+    /**
+     * Encoded values above this size in bytes are compressed.
+     */
+    public static final int COMPRESSION_THRESHOLD = 512;
+    // Longer strings are unlikely to repeat and are not added to the string table
+    private static final int MAX_TABLE_STRING_LENGTH = 64;
+    // Deflate cannot expand data by more than about 1032:1, so a larger stored length is corrupted
+    private static final int MAX_INFLATE_RATIO = 1032;
+    private static final Pattern LONG_LITERAL = Pattern.compile("-?(0|[1-9][0-9]{0,17})");
+
+    private BinaryJson() {
+    }
+
+    /**
+     * @param json A JSON document.
+     * @return The binary representation.
+     * @throws IOException If the document is not valid JSON.
+     */
+    public static byte[] encode(String json) throws IOException {
+        ByteBuffer out = new ByteBuffer(Math.max(16, json.length() / 2));
+        out.write(FORMAT_PLAIN);
+
+        JsonReader reader = new JsonReader(new StringReader(json));
+        // Accept everything Gson may produce, e.g. NaN for special floating point values
+        reader.setStrictness(Strictness.LENIENT);
+        encodeValue(reader, out, new HashMap<>());
+
+        if (out.size() <= COMPRESSION_THRESHOLD) {
+            return out.toByteArray();
+        }
+
+        byte[] compressed = deflate(out.bytes, 1, out.size() - 1);
+        if (compressed.length + 6 >= out.size()) {
+            return out.toByteArray();
+        }
+        ByteBuffer result = new ByteBuffer(compressed.length + 6);
+        result.write(FORMAT_DEFLATED);
+        result.writeVarint(out.size() - 1);
+        result.write(compressed, 0, compressed.length);
+        return result.toByteArray();
+    }
+
+    /**
+     * @param data The binary representation created by {@link #encode(String)}.
+     * @return The JSON document.
+     * @throws IOException If the data is corrupted.
+     */
+    public static String decode(byte[] data) throws IOException {
+        if (data == null || data.length == 0) {
+            throw new IOException("Empty binary value");
+        }
+
+        Input in;
+        if (data[0] == FORMAT_PLAIN) {
+            in = new Input(data, 1);
+        } else if (data[0] == FORMAT_DEFLATED) {
+            Input header = new Input(data, 1);
+            int length = header.readVarint();
+            if (length > (long) (data.length - header.position) * MAX_INFLATE_RATIO) {
+                throw new IOException("Corrupted binary value: length " + length + " exceeds the compressed data");
+            }
+            in = new Input(inflate(data, header.position, length), 0);
+        } else {
+            throw new IOException("Unknown binary value format: " + data[0]);
+        }
+
+        StringWriter buffer = new StringWriter(data.length * 2);
+        JsonWriter writer = new JsonWriter(buffer);
+        writer.setStrictness(Strictness.LENIENT);
+        decodeValue(in, in.read(), writer, new ArrayList<>());
+        writer.flush();
+        return buffer.toString();
+    }
+
+    private static void encodeValue(JsonReader reader, ByteBuffer out, Map<String, Integer> strings) throws IOException {
+        switch (reader.peek()) {
+            case NULL -> {
+                reader.nextNull();
+                out.write(TAG_NULL);
+            }
+            case BOOLEAN -> out.write(reader.nextBoolean() ? TAG_TRUE : TAG_FALSE);
+            case NUMBER -> {
+                String literal = reader.nextString();
+                if (LONG_LITERAL.matcher(literal).matches() && !"-0".equals(literal)) {
+                    out.write(TAG_LONG);
+                    long value = Long.parseLong(literal);
+                    out.writeVarlong((value << 1) ^ (value >> 63));
+                } else {
+                    // Keep the exact literal (decimals, exponents, NaN), so decoding does not change the value
+                    out.write(TAG_NUMBER);
+                    out.writeString(literal);
+                }
+            }
+            case STRING -> encodeString(reader.nextString(), out, strings);
+            case BEGIN_ARRAY -> {
+                reader.beginArray();
+                out.write(TAG_ARRAY);
+                while (reader.hasNext()) {
+                    encodeValue(reader, out, strings);
+                }
+                reader.endArray();
+                out.write(TAG_END);
+            }
+            case BEGIN_OBJECT -> {
+                reader.beginObject();
+                out.write(TAG_OBJECT);
+                while (reader.hasNext()) {
+                    encodeString(reader.nextName(), out, strings);
+                    encodeValue(reader, out, strings);
+                }
+                reader.endObject();
+                out.write(TAG_END);
+            }
+            default -> throw new IOException("Unexpected JSON token: " + reader.peek());
+        }
+    }
+
+    private static void encodeString(String value, ByteBuffer out, Map<String, Integer> strings) {
+        Integer index = strings.get(value);
+        if (index != null) {
+            out.write(TAG_STRING_REF);
+            out.writeVarint(index);
+            return;
+        }
+        if (value.length() <= MAX_TABLE_STRING_LENGTH) {
+            strings.put(value, strings.size());
+        }
+        out.write(TAG_STRING);
+        out.writeString(value);
+    }
+
+    private static void decodeValue(Input in, int tag, JsonWriter writer, List<String> strings) throws IOException {
+        switch (tag) {
+            case TAG_NULL -> writer.nullValue();
+            case TAG_FALSE -> writer.value(false);
+            case TAG_TRUE -> writer.value(true);
+            case TAG_LONG -> {
+                long raw = in.readVarlong();
+                writer.value((raw >>> 1) ^ -(raw & 1));
+            }
+            case TAG_NUMBER -> writer.jsonValue(in.readString());
+            case TAG_STRING, TAG_STRING_REF -> writer.value(decodeString(in, tag, strings));
+            case TAG_ARRAY -> {
+                writer.beginArray();
+                int next;
+                while ((next = in.read()) != TAG_END) {
+                    decodeValue(in, next, writer, strings);
+                }
+                writer.endArray();
+            }
+            case TAG_OBJECT -> {
+                writer.beginObject();
+                int next;
+                while ((next = in.read()) != TAG_END) {
+                    writer.name(decodeString(in, next, strings));
+                    decodeValue(in, in.read(), writer, strings);
+                }
+                writer.endObject();
+            }
+            default -> throw new IOException("Corrupted binary value: unknown tag " + tag);
+        }
+    }
+
+    private static String decodeString(Input in, int tag, List<String> strings) throws IOException {
+        if (tag == TAG_STRING_REF) {
+            int index = in.readVarint();
+            if (index >= strings.size()) {
+                throw new IOException("Corrupted binary value: invalid string reference " + index);
+            }
+            return strings.get(index);
+        }
+        if (tag != TAG_STRING) {
+            throw new IOException("Corrupted binary value: expected a string, got tag " + tag);
+        }
+        String value = in.readString();
+        if (value.length() <= MAX_TABLE_STRING_LENGTH) {
+            strings.add(value);
+        }
+        return value;
+    }
+
+    private static byte[] deflate(byte[] data, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            ByteBuffer out = new ByteBuffer(Math.max(64, length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(chunk);
+                out.write(chunk, 0, written);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            byte[] result = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int count = inflater.inflate(result, read, length - read);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                read += count;
+            }
+            if (read != length) {
+                throw new IOException("Corrupted binary value: expected " + length + " bytes, inflated " + read);
+            }
+            // Reading the end of the stream verifies its checksum, which a truncated or altered value fails
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) != 0 || !inflater.finished())) {
+                throw new IOException("Corrupted binary value: incomplete compressed data");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted binary value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Growable byte array without the synchronization of {@link java.io.ByteArrayOutputStream}.
+     */
+    private static final class ByteBuffer {
+        private byte[] bytes;
+        private int size;
+
+        private ByteBuffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+
+        private void write(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        private void write(byte[] data, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(data, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void writeVarint(int value) {
+            writeVarlong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            write(utf8, 0, utf8.length);
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] data;
+        private int position;
+
+        private Input(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private int read() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("Corrupted binary value: unexpected end of data");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        private int readVarint() throws IOException {
+            long value = readVarlong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Corrupted binary value: length out of range");
+            }
+            return (int) value;
+        }
+
+        private long readVarlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Corrupted binary value: varint too long");
+        }
+
+        private String readString() throws IOException {
+            int length = readVarint();
+            if (length > data.length - position) {
+                throw new IOException("Corrupted binary value: string exceeds data");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
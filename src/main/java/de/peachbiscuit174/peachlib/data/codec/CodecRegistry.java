@@ -0,0 +1,40 @@
+package de.peachbiscuit174.peachlib.data.codec;
+
+import com.google.gson.Gson;
+import de.peachbiscuit174.peachlib.api.data.codec.GsonCodec;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Shared cache of the default JSON codecs, one per value class.
+ * <p>
+ * Gson caches the type adapters it creates, which reference their classes. Every codec therefore gets its own
+ * copy of the configured Gson instead of sharing it, and codecs are kept in a {@link ClassValue}: the codec of a
+ * plugin class is only reachable through that class and can be garbage collected together with the plugin.
+ * Objects serialized through the codec of another class (e.g. plugin objects inside a {@code Map}) are still
+ * cached by that codec.
+ * </p>
+ */
+@ApiStatus.Internal
+public class CodecRegistry {
+
+    private final Gson gson;
+    private final ClassValue<GsonCodec<?>> codecs = new ClassValue<>() {
+        @Override
+        protected GsonCodec<?> computeValue(Class<?> type) {
+            return new GsonCodec<>(gson.newBuilder().create(), type);
+        }
+    };
+
+    public CodecRegistry(Gson gson) {
+        this.gson = gson;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> GsonCodec<T> forClass(Class<T> type) {
+        return (GsonCodec<T>) codecs.get(type);
+    }
+
+    public Gson getGson() {
+        return gson;
+    }
+}
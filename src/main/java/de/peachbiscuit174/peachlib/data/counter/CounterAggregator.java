@@ -0,0 +1,158 @@
+package de.peachbiscuit174.peachlib.data.counter;
+
+import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.spi.CounterUpdate;
+import de.peachbiscuit174.peachlib.api.managers.DataManager;
+import de.peachbiscuit174.peachlib.data.DocumentKey;
+import de.peachbiscuit174.peachlib.data.Task;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sums counter increments in memory and writes them as one INCREMENT task per document and flush.
+ * <p>
+ * Every counter is backed by a {@link LongAdder}, so thousands of increments per second from many threads
+ * neither contend on a lock nor create a task each. A flush takes the sum of every counter with
+ * {@link LongAdder#sumThenReset()} (increments arriving concurrently are kept for the next flush) and
+ * enqueues the summed deltas of each document, which costs a single crash log entry and a single
+ * server-side update. Counters without increments since the last flush are removed.
+ * </p>
+ */
+@ApiStatus.Internal
+public class CounterAggregator {
+
+    private record CounterKey(DocumentKey document, String field) {}
+
+    private final DataManager dataManager;
+    private final long flushIntervalMillis;
+    private final Map<CounterKey, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService scheduler;
+    private boolean shutdown;
+
+    public CounterAggregator(DataManager dataManager, long flushIntervalMillis) {
+        this.dataManager = dataManager;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Adds a delta to a counter. The flush schedule is started with the first increment.
+     */
+    public void add(DocumentKey document, String field, long delta) {
+        if (scheduler == null) {
+            start();
+        }
+
+        CounterKey key = new CounterKey(document, field);
+        while (delta != 0) {
+            LongAdder adder = counters.computeIfAbsent(key, k -> new LongAdder());
+            adder.add(delta);
+            if (counters.get(key) == adder) return;
+
+            // The adder was removed by a concurrent flush: move whatever it did not collect to a new one
+            delta = adder.sumThenReset();
+        }
+    }
+
+    private synchronized void start() {
+        if (scheduler != null || shutdown) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "PL-CounterFlush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Enqueues the summed deltas of all counters.
+     *
+     * @return A future completing once every enqueued update was executed.
+     */
+    public CompletableFuture<Void> flush() {
+        Map<DocumentKey, Map<String, Long>> deltas = new HashMap<>();
+        for (Map.Entry<CounterKey, LongAdder> entry : counters.entrySet()) {
+            CounterKey key = entry.getKey();
+            LongAdder adder = entry.getValue();
+
+            long delta = adder.sumThenReset();
+            if (delta == 0) {
+                if (!counters.remove(key, adder)) continue;
+                // Collect increments that raced with the removal
+                delta = adder.sumThenReset();
+                if (delta == 0) continue;
+            }
+            deltas.computeIfAbsent(key.document(), k -> new HashMap<>()).put(key.field(), delta);
+        }
+
+        if (deltas.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long timestamp = dataManager.getTimeProvider().getCurrentTime();
+        List<CompletableFuture<Object>> futures = new ArrayList<>(deltas.size());
+        for (Map.Entry<DocumentKey, Map<String, Long>> entry : deltas.entrySet()) {
+            DocumentKey document = entry.getKey();
+            Map<String, Long> fields = entry.getValue();
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.whenComplete((result, error) -> {
+                if (error != null) {
+                    onFlushFailed(document, fields, error);
+                }
+            });
+            futures.add(future);
+
+            dataManager.evictFromCaches(document);
+            dataManager.enqueueTask(new Task(Task.TaskType.INCREMENT, document.connectionId(), document.tableName(), document.id(),
+                    new CounterUpdate(fields).toJson(), timestamp, future));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * The update was not applied (rejected by a full queue or failed in the backend): keep the deltas for the next flush.
+     */
+    private void onFlushFailed(DocumentKey document, Map<String, Long> fields, Throwable error) {
+        synchronized (this) {
+            if (shutdown) {
+                PeachLib.getPlugin().getLogger().warning("Lost counter update of " + document.tableName() + "/" + document.id()
+                        + " during shutdown: " + error.getMessage());
+                return;
+            }
+        }
+        PeachLib.getPlugin().getLogger().warning("Failed to flush counters of " + document.tableName() + "/" + document.id()
+                + ", retrying with the next flush: " + error.getMessage());
+        fields.forEach((field, delta) -> add(document, field, delta));
+    }
+
+    /**
+     * Stops the flush schedule and enqueues the remaining deltas. Has to be called before the workers are flushed.
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            shutdown = true;
+            current = scheduler;
+        }
+
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+}
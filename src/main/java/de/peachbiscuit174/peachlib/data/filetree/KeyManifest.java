@@ -0,0 +1,167 @@
+package de.peachbiscuit174.peachlib.data.filetree;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ids of all documents of a FileTree table, so enumerating them does not walk the shard directories.
+ * <p>
+ * The manifest is kept in memory and written to its file when the table is closed, together with a marker
+ * that the file is complete. Opening a table consumes the marker, so after a crash the file is not trusted
+ * and the ids are collected from the directories on first use instead. Modifications executed while they are
+ * collected are checked against the files afterwards, since the walk may or may not have seen them.
+ * Like the in-memory indexes, the manifest only sees the modifications of this server.
+ * </p>
+ */
+@ApiStatus.Internal
+public class KeyManifest {
+
+    @FunctionalInterface
+    public interface KeyWalk {
+        Set<String> collect() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface FileLookup {
+        boolean exists(String id);
+    }
+
+    private final Path file;
+    private final Path completeMarker;
+
+    // Null until loaded; afterwards updated with every write and delete
+    private volatile Set<String> keys;
+    // Set while the ids are collected: ids modified since, to be checked against the files afterwards
+    private Set<String> modifiedDuringWalk;
+
+    private KeyManifest(Path file) {
+        this.file = file;
+        this.completeMarker = file.resolveSibling(file.getFileName() + ".complete");
+    }
+
+    /**
+     * Opens the manifest of a table, loading the file if it was completed by the last {@link #close()}.
+     */
+    public static KeyManifest open(Path file) throws IOException {
+        KeyManifest manifest = new KeyManifest(file);
+        if (Files.exists(manifest.completeMarker) && Files.exists(file)) {
+            Set<String> loaded = ConcurrentHashMap.newKeySet();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    loaded.add(line);
+                }
+            }
+            manifest.keys = loaded;
+        }
+        // From now on the file falls behind until the table is closed
+        Files.deleteIfExists(manifest.completeMarker);
+        return manifest;
+    }
+
+    /**
+     * Returns all ids, collecting them with the walk if the manifest was not loaded.
+     * The returned set is live and must not be modified.
+     */
+    public Set<String> keys(KeyWalk walk, FileLookup lookup) throws IOException {
+        Set<String> current = keys;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (keys != null) return keys;
+            modifiedDuringWalk = new HashSet<>();
+        }
+
+        Set<String> collected;
+        try {
+            collected = ConcurrentHashMap.newKeySet();
+            collected.addAll(walk.collect());
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                modifiedDuringWalk = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (String id : modifiedDuringWalk) {
+                if (lookup.exists(id)) {
+                    collected.add(id);
+                } else {
+                    collected.remove(id);
+                }
+            }
+            modifiedDuringWalk = null;
+            keys = collected;
+            return collected;
+        }
+    }
+
+    /**
+     * Records that the file of an id was written.
+     */
+    public void onWrite(String id) {
+        Set<String> current = keys;
+        if (current != null) {
+            current.add(id);
+            return;
+        }
+        onModifiedWhileUnloaded(id, true);
+    }
+
+    /**
+     * Records that the file of an id was deleted.
+     */
+    public void onDelete(String id) {
+        Set<String> current = keys;
+        if (current != null) {
+            current.remove(id);
+            return;
+        }
+        onModifiedWhileUnloaded(id, false);
+    }
+
+    private synchronized void onModifiedWhileUnloaded(String id, boolean exists) {
+        if (keys != null) {
+            if (exists) {
+                keys.add(id);
+            } else {
+                keys.remove(id);
+            }
+        } else if (modifiedDuringWalk != null) {
+            modifiedDuringWalk.add(id);
+        }
+    }
+
+    /**
+     * Writes the ids to the file and marks it as complete. Nothing is written if the ids were never collected.
+     */
+    public synchronized void close() throws IOException {
+        Set<String> current = keys;
+        if (current == null) return;
+
+        List<String> lines = new ArrayList<>(current);
+        Path temp = Files.createTempFile(file.getParent(), ".tmp", ".keys");
+        try {
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        Files.writeString(completeMarker, Integer.toString(lines.size()));
+    }
+}
@@ -0,0 +1,259 @@
+package de.peachbiscuit174.peachlib.data.filetree;
+
+import de.peachbiscuit174.peachlib.PeachLib;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+/**
+ * The directory of a FileTree table, which spreads the document files over two levels of subdirectories:
+ * {@code <table>/<ab>/<cd>/<id>.json}, named after the first two bytes of a hash of the id. With 65,536 shard
+ * directories a table of a million documents keeps about 15 files per directory.
+ * <p>
+ * Tables written by older versions keep all files directly in the table directory. They are moved into their
+ * shards by a background thread while the table is in use; until it is done, every operation on an id holds
+ * the lock of the id and also looks for its flat file, which the migration moves under the same lock.
+ * The ids of the table are kept in a {@link KeyManifest}.
+ * </p>
+ */
+@ApiStatus.Internal
+public class ShardedTable {
+
+    /**
+     * An operation on the file of a document.
+     */
+    @FunctionalInterface
+    public interface FileOperation<T> {
+        /**
+         * @param file     The file of the document in its shard.
+         * @param flatFile The file in the flat layout if it still exists, otherwise null.
+         */
+        T apply(Path file, Path flatFile) throws Exception;
+    }
+
+    private static final String MANIFEST_FILE = ".keys";
+    private static final String EXTENSION = ".json";
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int LOCK_STRIPES = 256;
+
+    private final String name;
+    private final Path directory;
+    private final KeyManifest manifest;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    private volatile boolean migrating;
+    private Thread migration;
+
+    private ShardedTable(String name, Path directory, KeyManifest manifest) {
+        this.name = name;
+        this.directory = directory;
+        this.manifest = manifest;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Opens the directory of a table, which does not have to exist yet, and starts migrating flat files.
+     */
+    public static ShardedTable open(String name, Path directory) throws IOException {
+        ShardedTable table = new ShardedTable(name, directory, KeyManifest.open(directory.resolve(MANIFEST_FILE)));
+        if (table.hasFlatFiles()) {
+            table.startMigration();
+        }
+        return table;
+    }
+
+    /**
+     * @return The file of a document in its shard.
+     */
+    public Path fileOf(String id) {
+        int hash = mix(id.hashCode());
+        return directory.resolve(HEX.toHexDigits((byte) (hash >>> 24)))
+                .resolve(HEX.toHexDigits((byte) (hash >>> 16)))
+                .resolve(id + EXTENSION);
+    }
+
+    /**
+     * Spreads the bits of {@link String#hashCode()}, which is specified and therefore stable across versions
+     * (the finalizer of MurmurHash3).
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Runs an operation on the files of a document. While the table is migrated, the operation holds the lock
+     * of the id, so its flat file is not moved in the meantime.
+     */
+    public <T> T access(String id, FileOperation<T> operation) throws Exception {
+        if (!migrating) {
+            return operation.apply(fileOf(id), null);
+        }
+
+        ReentrantLock lock = lockOf(id);
+        lock.lock();
+        try {
+            Path flatFile = directory.resolve(id + EXTENSION);
+            return operation.apply(fileOf(id), Files.exists(flatFile) ? flatFile : null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockOf(String id) {
+        return locks[Math.floorMod(id.hashCode(), locks.length)];
+    }
+
+    /**
+     * Returns the ids of all documents, walking the directories if the manifest was not loaded.
+     * The returned set is live and must not be modified.
+     */
+    public Set<String> keys() throws IOException {
+        return manifest.keys(this::walk, id -> Files.exists(fileOf(id)) || Files.exists(directory.resolve(id + EXTENSION)));
+    }
+
+    public void onWrite(String id) {
+        manifest.onWrite(id);
+    }
+
+    public void onDelete(String id) {
+        manifest.onDelete(id);
+    }
+
+    private Set<String> walk() throws IOException {
+        Set<String> ids = new HashSet<>();
+        if (!Files.isDirectory(directory)) return ids;
+
+        // Flat files first: a file moved into its shard in the meantime is found there afterwards
+        collect(directory, ids);
+        try (DirectoryStream<Path> first = Files.newDirectoryStream(directory, ShardedTable::isShard)) {
+            for (Path shard : first) {
+                try (DirectoryStream<Path> second = Files.newDirectoryStream(shard, ShardedTable::isShard)) {
+                    for (Path subShard : second) {
+                        collect(subShard, ids);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static boolean isShard(Path path) {
+        return path.getFileName().toString().length() == 2 && Files.isDirectory(path);
+    }
+
+    private static void collect(Path dir, Set<String> ids) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                String id = idOf(file);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The id stored in a file, or null for temporary files and directories.
+     */
+    private static String idOf(Path file) {
+        String fileName = file.getFileName().toString();
+        if (fileName.startsWith(".") || !Files.isRegularFile(file)) return null;
+        return fileName.substring(0, fileName.length() - EXTENSION.length());
+    }
+
+    private boolean hasFlatFiles() throws IOException {
+        if (!Files.isDirectory(directory)) return false;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                if (idOf(file) != null) return true;
+            }
+        }
+        return false;
+    }
+
+    private void startMigration() {
+        migrating = true;
+        migration = Thread.ofPlatform().name("PL-FileTree-Migration").daemon().start(this::migrate);
+    }
+
+    private void migrate() {
+        PeachLib.getPlugin().getLogger().info("Moving the documents of table " + name + " into the sharded directory layout...");
+        int moved = 0;
+        try {
+            // Directory streams may miss entries, so the table is listed again until no flat file is left
+            do {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+                    for (Path flatFile : stream) {
+                        if (Thread.currentThread().isInterrupted()) return;
+                        String id = idOf(flatFile);
+                        if (id != null && moveToShard(id, flatFile)) {
+                            moved++;
+                        }
+                    }
+                }
+            } while (hasFlatFiles());
+        } catch (IOException e) {
+            PeachLib.getPlugin().getLogger().log(Level.WARNING, "Failed to move the documents of table " + name
+                    + " into the sharded directory layout, continuing on the next start.", e);
+            return;
+        }
+
+        migrating = false;
+        PeachLib.getPlugin().getLogger().info("Moved " + moved + " documents of table " + name + " into the sharded directory layout.");
+    }
+
+    private boolean moveToShard(String id, Path flatFile) throws IOException {
+        ReentrantLock lock = lockOf(id);
+        lock.lock();
+        try {
+            Path file = fileOf(id);
+            if (Files.exists(file)) {
+                // Written since the migration started, so the flat file is outdated
+                Files.deleteIfExists(flatFile);
+                return false;
+            }
+            Files.createDirectories(file.getParent());
+            Files.move(flatFile, file);
+            return true;
+        } catch (NoSuchFileException e) {
+            // Deleted since it was listed
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the migration and writes the manifest.
+     */
+    public void close() throws IOException {
+        Thread running = migration;
+        if (running != null) {
+            running.interrupt();
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (Files.isDirectory(directory)) {
+            manifest.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package de.peachbiscuit174.peachlib.data.index;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Normalizes indexed field values, so every backend compares them the same way, by the rule of
+ * {@link de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter#findBy}.
+ * <p>
+ * Only scalar values are indexed. The key is the JSON text of the value, so values only match values of the
+ * same type and numbers are compared as written (e.g. {@code 5} matches neither {@code "5"} nor {@code 5.0}).
+ * JSON null, objects and arrays have no key and never match. SQL backends compare more loosely and verify
+ * their candidates with {@link #extract}.
+ * </p>
+ */
+@ApiStatus.Internal
+public final class IndexKey {
+
+    private IndexKey() {}
+
+    /**
+     * @return The key of a JSON value, or null if the value is not a string, number or boolean.
+     */
+    public static String of(JsonElement value) {
+        if (value == null || !value.isJsonPrimitive()) return null;
+        return value.toString();
+    }
+
+    /**
+     * @return The text of a scalar JSON value as returned by MySQL's {@code JSON_UNQUOTE}: the content of a string,
+     * the JSON text of a number or boolean.
+     */
+    public static String unquoted(String jsonValue) {
+        return JsonParser.parseString(jsonValue).getAsString();
+    }
+
+    /**
+     * @return The key of a serialized JSON value, or null if the value is not a string, number or boolean.
+     */
+    public static String of(String jsonValue) {
+        return jsonValue == null ? null : of(JsonParser.parseString(jsonValue));
+    }
+
+    /**
+     * Extracts the key of a field from a stored document.
+     *
+     * @return The key, or null if the field does not exist, is not scalar or the document is not valid JSON.
+     */
+    public static String extract(String documentJson, String path) {
+        if (documentJson == null) return null;
+        try {
+            return of(DocumentPatch.find(JsonParser.parseString(documentJson), path));
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Derives a column or index name for a field path that fits the 64 character limit of MySQL.
+     * The checksum keeps paths apart that only differ in characters that are replaced.
+     */
+    public static String columnName(String path) {
+        String readable = path.replaceAll("[^A-Za-z0-9_]", "_");
+        if (readable.length() > 40) {
+            readable = readable.substring(0, 40);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(path.getBytes(StandardCharsets.UTF_8));
+        return "pl_idx_" + readable + "_" + Long.toHexString(checksum.getValue()).toLowerCase(Locale.ROOT);
+    }
+}
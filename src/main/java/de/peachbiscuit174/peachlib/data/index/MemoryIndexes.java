@@ -0,0 +1,161 @@
+package de.peachbiscuit174.peachlib.data.index;
+
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.data.Cursor;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory hash indexes of a storage backend without native index support (FileTree, YAML).
+ * <p>
+ * Indexes live only in memory: {@link #create} builds one from a full scan of the table, which plugins do
+ * by calling {@code Table.createIndex} after every start, and the adapter keeps it up to date on every
+ * applied write and delete.
+ * </p>
+ */
+@ApiStatus.Internal
+public class MemoryIndexes {
+
+    /**
+     * Hash index of one field: key to ids, and id to key to update documents that change their value.
+     */
+    private static final class FieldIndex {
+        private final String path;
+        private final Map<String, Set<String>> idsByKey = new HashMap<>();
+        private final Map<String, String> keyById = new HashMap<>();
+        // Ids written while the initial scan is running; the scan may have read an older version of them
+        private Set<String> modifiedDuringBuild = new HashSet<>();
+
+        private FieldIndex(String path) {
+            this.path = path;
+        }
+
+        private synchronized void put(String id, String documentJson) {
+            if (modifiedDuringBuild != null) {
+                modifiedDuringBuild.add(id);
+            }
+            index(id, documentJson);
+        }
+
+        private synchronized void putScanned(String id, String documentJson) {
+            if (!modifiedDuringBuild.contains(id)) {
+                index(id, documentJson);
+            }
+        }
+
+        private synchronized void remove(String id) {
+            if (modifiedDuringBuild != null) {
+                modifiedDuringBuild.add(id);
+            }
+            unindex(id);
+        }
+
+        private synchronized void finishBuild() {
+            modifiedDuringBuild = null;
+        }
+
+        private synchronized boolean isReady() {
+            return modifiedDuringBuild == null;
+        }
+
+        private void index(String id, String documentJson) {
+            unindex(id);
+            String key = IndexKey.extract(documentJson, path);
+            if (key == null) return;
+            idsByKey.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+            keyById.put(id, key);
+        }
+
+        private void unindex(String id) {
+            String key = keyById.remove(id);
+            if (key == null) return;
+            Set<String> ids = idsByKey.get(key);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                idsByKey.remove(key);
+            }
+        }
+
+        private synchronized Set<String> find(String key) {
+            Set<String> ids = idsByKey.get(key);
+            return ids != null ? Set.copyOf(ids) : Set.of();
+        }
+    }
+
+    // Table name to path to index
+    private final Map<String, Map<String, FieldIndex>> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the index of a field unless it exists already. The index is registered before the table is scanned,
+     * so writes executed concurrently on other lanes are not missed; it is used for lookups once the scan finished.
+     *
+     * @param documents Opens a cursor over all documents of the table.
+     */
+    public void create(String tableName, String path, CursorSource documents) throws Exception {
+        FieldIndex index = new FieldIndex(path);
+        FieldIndex existing = indexes.computeIfAbsent(tableName, k -> new ConcurrentHashMap<>()).putIfAbsent(path, index);
+        if (existing != null) return;
+
+        try (Cursor<Document> cursor = documents.open()) {
+            List<Document> page;
+            while (!(page = cursor.nextPage()).isEmpty()) {
+                for (Document document : page) {
+                    index.putScanned(document.id(), document.value());
+                }
+            }
+        } catch (Exception e) {
+            indexes.get(tableName).remove(path, index);
+            throw e;
+        }
+        index.finishBuild();
+    }
+
+    /**
+     * Opens the cursor of the initial scan.
+     */
+    @FunctionalInterface
+    public interface CursorSource {
+        Cursor<Document> open() throws Exception;
+    }
+
+    /**
+     * Updates all indexes of a table after a document was written.
+     */
+    public void onWrite(String tableName, String id, String jsonValue) {
+        Map<String, FieldIndex> tableIndexes = indexes.get(tableName);
+        if (tableIndexes == null) return;
+        for (FieldIndex index : tableIndexes.values()) {
+            index.put(id, jsonValue);
+        }
+    }
+
+    /**
+     * Updates all indexes of a table after a document was deleted.
+     */
+    public void onDelete(String tableName, String id) {
+        Map<String, FieldIndex> tableIndexes = indexes.get(tableName);
+        if (tableIndexes == null) return;
+        for (FieldIndex index : tableIndexes.values()) {
+            index.remove(id);
+        }
+    }
+
+    /**
+     * @return The ids of all documents whose field has the key, or null if the field is not indexed (yet).
+     */
+    public Set<String> find(String tableName, String path, String key) {
+        Map<String, FieldIndex> tableIndexes = indexes.get(tableName);
+        FieldIndex index = tableIndexes != null ? tableIndexes.get(path) : null;
+        return index != null && index.isReady() ? index.find(key) : null;
+    }
+
+    public void clear() {
+        indexes.clear();
+    }
+}
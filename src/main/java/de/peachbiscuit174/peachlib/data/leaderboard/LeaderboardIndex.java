@@ -0,0 +1,141 @@
+package de.peachbiscuit174.peachlib.data.leaderboard;
+
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.Score;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ranking of the documents of a table by a numeric field, kept in an {@link OrderStatisticTree}.
+ * <p>
+ * The index is seeded once from the backend and then updated by the data worker with every modification it
+ * executes, in the order of execution. While the seed is loaded, modifications win over the loaded values,
+ * and documents receiving increments (whose result depends on the value the seed has not loaded yet) are
+ * reported by {@link #finishSeed()} to be reloaded.
+ * </p>
+ */
+@ApiStatus.Internal
+public class LeaderboardIndex {
+
+    private final String field;
+    private final List<Object> fieldSegments;
+    private final OrderStatisticTree tree;
+    private final Map<String, Double> scores = new HashMap<>();
+
+    // Set while the seed is loaded: ids modified since, and ids whose score is unknown because of an increment
+    private Set<String> modifiedDuringSeed = new HashSet<>();
+    private Set<String> uncertain = new HashSet<>();
+
+    public LeaderboardIndex(String field, boolean descending) {
+        this.field = field;
+        this.fieldSegments = DocumentPatch.parsePath(field);
+        this.tree = new OrderStatisticTree(descending);
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Adds a score loaded by the seed, unless the document was modified since the seed started.
+     */
+    public synchronized void seed(String id, double score) {
+        if (modifiedDuringSeed.contains(id) || uncertain.contains(id)) return;
+        put(id, score);
+    }
+
+    /**
+     * @return The ids that have to be reloaded through the task queue.
+     */
+    public synchronized Set<String> finishSeed() {
+        Set<String> reload = uncertain;
+        modifiedDuringSeed = null;
+        uncertain = null;
+        return reload;
+    }
+
+    public synchronized boolean isSeeded() {
+        return modifiedDuringSeed == null;
+    }
+
+    /**
+     * Updates the score of a document after it was written or reloaded.
+     *
+     * @param documentJson The stored value, or null if the document does not exist.
+     */
+    public synchronized void onValue(String id, String documentJson) {
+        if (modifiedDuringSeed != null) {
+            modifiedDuringSeed.add(id);
+            uncertain.remove(id);
+        }
+
+        Score score = Score.of(id, documentJson, fieldSegments);
+        if (score != null) {
+            put(id, score.value());
+        } else {
+            remove(id);
+        }
+    }
+
+    /**
+     * Adds a delta to the score of a document, like the backend does for a missing or non-numeric field.
+     */
+    public synchronized void onIncrement(String id, long delta) {
+        if (modifiedDuringSeed != null && !modifiedDuringSeed.contains(id)) {
+            // The seed may or may not have loaded the value before the increment
+            uncertain.add(id);
+            remove(id);
+            return;
+        }
+
+        Double current = scores.get(id);
+        put(id, (current != null ? current : 0) + delta);
+    }
+
+    /**
+     * @return Whether a patch operation on the path may change the field.
+     */
+    public boolean isAffectedBy(String path) {
+        return field.equals(path) || field.startsWith(path + ".") || field.startsWith(path + "[");
+    }
+
+    public synchronized int size() {
+        return tree.size();
+    }
+
+    /**
+     * @return The 0-based position of a document, or -1 if it has no score.
+     */
+    public synchronized int indexOf(String id) {
+        Double score = scores.get(id);
+        return score != null ? tree.indexOf(score, id) : -1;
+    }
+
+    public synchronized Double getScore(String id) {
+        return scores.get(id);
+    }
+
+    public synchronized List<OrderStatisticTree.Entry> range(int from, int count) {
+        return tree.range(from, count);
+    }
+
+    private void put(String id, double score) {
+        Double previous = scores.put(id, score);
+        if (previous != null) {
+            tree.remove(previous, id);
+        }
+        tree.insert(score, id);
+    }
+
+    private void remove(String id) {
+        Double previous = scores.remove(id);
+        if (previous != null) {
+            tree.remove(previous, id);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package de.peachbiscuit174.peachlib.data.leaderboard;
+
+import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncCursor;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.CounterUpdate;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.Score;
+import de.peachbiscuit174.peachlib.api.managers.DataManager;
+import de.peachbiscuit174.peachlib.data.Task;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The leaderboards of all tables, updated by the data worker after every executed modification.
+ * <p>
+ * Deletes, successful compare-and-set and compute report the resulting document, increments of the ranked field
+ * are applied as deltas. Patches and increments that replace a parent object of the ranked field cannot be
+ * applied without the stored document, so the document is reloaded with a READ_DOCUMENT task, which is executed
+ * after every modification of the id queued before it. The same applies to writes: the backend skips a write
+ * whose timestamp is older than the stored one (e.g. written by another server in the meantime) without
+ * reporting it, so every write to a table with a leaderboard costs one additional read.
+ * </p>
+ * <p>
+ * A leaderboard is seeded by reading the ranked field of every document of the table, which takes time and
+ * memory linear in the size of the table once per opened leaderboard.
+ * </p>
+ */
+@ApiStatus.Internal
+public class Leaderboards {
+
+    private record BoardKey(String connectionId, String tableName, String field, boolean descending) {}
+
+    private record TableKey(String connectionId, String tableName) {}
+
+    private static final int SEED_PAGE_SIZE = 1000;
+
+    private final DataManager dataManager;
+    private final Map<BoardKey, CompletableFuture<LeaderboardIndex>> boards = new ConcurrentHashMap<>();
+    private final Map<TableKey, List<LeaderboardIndex>> boardsByTable = new ConcurrentHashMap<>();
+
+    public Leaderboards(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    /**
+     * Returns the leaderboard of a field, loading it from the backend on first use.
+     */
+    public CompletableFuture<LeaderboardIndex> open(String connectionId, String tableName, String field, boolean descending) {
+        BoardKey key = new BoardKey(connectionId, tableName, field, descending);
+        CompletableFuture<LeaderboardIndex> created = new CompletableFuture<>();
+        CompletableFuture<LeaderboardIndex> existing = boards.putIfAbsent(key, created);
+        if (existing != null) return existing;
+
+        // Registered before the seed is loaded, so no modification executed in the meantime is missed
+        LeaderboardIndex index = new LeaderboardIndex(field, descending);
+        TableKey table = new TableKey(connectionId, tableName);
+        boardsByTable.computeIfAbsent(table, k -> new CopyOnWriteArrayList<>()).add(index);
+
+        seed(connectionId, tableName, index).whenComplete((result, error) -> {
+            if (error != null) {
+                boardsByTable.get(table).remove(index);
+                boards.remove(key, created);
+                created.completeExceptionally(error);
+                return;
+            }
+            for (String id : index.finishSeed()) {
+                reload(connectionId, tableName, id, List.of(index));
+            }
+            created.complete(index);
+        });
+        return created;
+    }
+
+    private CompletableFuture<Void> seed(String connectionId, String tableName, LeaderboardIndex index) {
+        AsyncStorageAdapter adapter = dataManager.getAdapter(connectionId);
+        if (adapter == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Adapter not found for connection: " + connectionId));
+        }
+        return adapter.openScoreCursor(tableName, index.getField(), SEED_PAGE_SIZE).toCompletableFuture()
+                .thenCompose(cursor -> load(cursor, index).whenComplete((result, error) -> cursor.close()));
+    }
+
+    private CompletableFuture<Void> load(AsyncCursor<Score> cursor, LeaderboardIndex index) {
+        return cursor.nextPage().toCompletableFuture().thenCompose(page -> {
+            if (page.isEmpty()) return CompletableFuture.completedFuture(null);
+            for (Score score : page) {
+                index.seed(score.id(), score.value());
+            }
+            return load(cursor, index);
+        });
+    }
+
+    /**
+     * Updates the leaderboards of the table after a modification was executed.
+     *
+     * @param resultJson The stored value after the modification, if known (successful COMPARE_AND_SET, COMPUTE).
+     */
+    public void onModified(Task task, String resultJson) {
+        if (boardsByTable.isEmpty()) return;
+        List<LeaderboardIndex> indexes = boardsByTable.get(new TableKey(task.connectionId(), task.tableName()));
+        if (indexes == null || indexes.isEmpty()) return;
+
+        switch (task.type()) {
+            case COMPARE_AND_SET, COMPUTE -> {
+                for (LeaderboardIndex index : indexes) {
+                    index.onValue(task.id(), resultJson);
+                }
+            }
+            case WRITE -> reload(task.connectionId(), task.tableName(), task.id(), indexes);
+            case DELETE -> {
+                for (LeaderboardIndex index : indexes) {
+                    index.onValue(task.id(), null);
+                }
+            }
+            case INCREMENT -> {
+                Map<String, Long> deltas = CounterUpdate.fromJson(task.jsonValue()).deltas();
+                List<LeaderboardIndex> affected = new ArrayList<>();
+                for (LeaderboardIndex index : indexes) {
+                    Long delta = deltas.get(index.getField());
+                    if (delta != null) {
+                        index.onIncrement(task.id(), delta);
+                    } else if (deltas.keySet().stream().anyMatch(index::isAffectedBy)) {
+                        affected.add(index);
+                    }
+                }
+                reload(task.connectionId(), task.tableName(), task.id(), affected);
+            }
+            case PATCH -> {
+                List<DocumentPatch.Operation> operations = DocumentPatch.fromJson(task.jsonValue()).operations();
+                List<LeaderboardIndex> affected = new ArrayList<>();
+                for (LeaderboardIndex index : indexes) {
+                    if (operations.stream().anyMatch(operation -> index.isAffectedBy(operation.path()))) {
+                        affected.add(index);
+                    }
+                }
+                reload(task.connectionId(), task.tableName(), task.id(), affected);
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Reads a document through the task queue and updates the leaderboards with it. The callback is attached
+     * before the task is queued, so it runs on the lane thread before the next task of the id.
+     */
+    private void reload(String connectionId, String tableName, String id, List<LeaderboardIndex> indexes) {
+        if (indexes.isEmpty()) return;
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                PeachLib.getPlugin().getLogger().warning("Failed to reload " + tableName + "/" + id + " for its leaderboards: " + error.getMessage());
+                return;
+            }
+            String value = result != null ? ((Document) result).value() : null;
+            for (LeaderboardIndex index : indexes) {
+                index.onValue(id, value);
+            }
+        });
+        dataManager.enqueueTask(new Task(Task.TaskType.READ_DOCUMENT, connectionId, tableName, id, null, 0L, future));
+    }
+
+    public void clear() {
+        boards.clear();
+        boardsByTable.clear();
+    }
+}
@@ -0,0 +1,183 @@
+package de.peachbiscuit174.peachlib.data.leaderboard;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Treap of (score, id) pairs that knows the size of every subtree, so the position of an entry and the entry
+ * at a position are found in O(log n) expected time. Entries are sorted by score (descending if requested),
+ * equal scores by id. Not thread-safe.
+ */
+@ApiStatus.Internal
+public class OrderStatisticTree {
+
+    private static final class Node {
+        private final double score;
+        private final String id;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(double score, String id, int priority) {
+            this.score = score;
+            this.id = id;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * An entry at a position of the tree.
+     *
+     * @param index The 0-based position.
+     */
+    public record Entry(int index, String id, double score) {}
+
+    private final boolean descending;
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    public OrderStatisticTree(boolean descending) {
+        this.descending = descending;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Adds an entry. The pair must not be contained already.
+     */
+    public void insert(double score, String id) {
+        root = insert(root, new Node(score, id, random.nextInt()));
+    }
+
+    /**
+     * Removes an entry if it is contained.
+     */
+    public void remove(double score, String id) {
+        root = remove(root, score, id);
+    }
+
+    /**
+     * @return The 0-based position of a contained entry.
+     */
+    public int indexOf(double score, String id) {
+        int index = 0;
+        Node node = root;
+        while (node != null) {
+            int comparison = compare(score, id, node);
+            if (comparison == 0) {
+                return index + size(node.left);
+            }
+            if (comparison < 0) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        throw new IllegalStateException("Entry not contained: " + id);
+    }
+
+    /**
+     * @param from  The 0-based position of the first entry.
+     * @param count The maximum number of entries.
+     * @return The entries in order, fewer if the tree ends before.
+     */
+    public List<Entry> range(int from, int count) {
+        int to = (int) Math.min((long) from + count, size());
+        List<Entry> entries = new ArrayList<>(Math.max(0, to - from));
+        if (from >= to) return entries;
+        collect(root, 0, from, to, entries);
+        return entries;
+    }
+
+    /**
+     * In-order traversal that only descends into subtrees overlapping [from, to).
+     */
+    private void collect(Node node, int offset, int from, int to, List<Entry> entries) {
+        if (node == null) return;
+        int index = offset + size(node.left);
+        if (from < index) {
+            collect(node.left, offset, from, to, entries);
+        }
+        if (index >= from && index < to) {
+            entries.add(new Entry(index, node.id, node.score));
+        }
+        if (index + 1 < to) {
+            collect(node.right, index + 1, from, to, entries);
+        }
+    }
+
+    private Node insert(Node node, Node inserted) {
+        if (node == null) return inserted;
+        if (compare(inserted.score, inserted.id, node) < 0) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node remove(Node node, double score, String id) {
+        if (node == null) return null;
+        int comparison = compare(score, id, node);
+        if (comparison < 0) {
+            node.left = remove(node.left, score, id);
+        } else if (comparison > 0) {
+            node.right = remove(node.right, score, id);
+        } else {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+            // Rotate the node down until it has a missing child
+            if (node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = remove(node.right, score, id);
+            } else {
+                node = rotateLeft(node);
+                node.left = remove(node.left, score, id);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private int compare(double score, String id, Node node) {
+        int comparison = Double.compare(score, node.score);
+        if (descending) comparison = -comparison;
+        return comparison != 0 ? comparison : id.compareTo(node.id);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -1,6 +1,7 @@
 package de.peachbiscuit174.peachlib.data.logs;
 
 import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.DataPriority;
 import de.peachbiscuit174.peachlib.api.managers.DataManager;
 import de.peachbiscuit174.peachlib.data.Task;
 import org.jetbrains.annotations.ApiStatus;
@@ -12,11 +13,14 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Handles crash-safety by writing critical operations (WRITE, DELETE) to a temporary WAL (Write-Ahead-Log)
+ * Handles crash-safety by writing critical operations (WRITE, DELETE, PATCH, INCREMENT) to a temporary WAL (Write-Ahead-Log)
  * before they are processed by the worker. Allows recovery in case of a server crash.
  */
 @ApiStatus.Internal
@@ -56,14 +60,13 @@ public class QueueLogger {
      * @param task The queue task to log.
      */
     public synchronized void logTask(Task task) {
-        if (task.type() == Task.TaskType.READ || task.type() == Task.TaskType.GET_ALL_KEYS) {
+        // Only modifications have to survive a crash
+        if (!isLogged(task)) {
             return;
         }
 
         try {
-            // Strict UTF-8 enforcement to prevent malformed data across different operating systems
-            String valueSafe = task.jsonValue() != null ? Base64.getEncoder().encodeToString(task.jsonValue().getBytes(StandardCharsets.UTF_8)) : "NULL";
-            String line = task.type() + "," + task.connectionId() + "," + task.tableName() + "," + task.id() + "," + valueSafe + "," + task.timestamp() + System.lineSeparator();
+            String line = encode(task) + System.lineSeparator();
 
             if (writer != null) {
                 writer.write(line);
@@ -74,62 +77,125 @@ public class QueueLogger {
         }
     }
 
+    /**
+     * Only modifications that can be replayed without their caller have to survive a crash.
+     * COMPARE_AND_SET and COMPUTE depend on the state their caller observed and are not logged.
+     */
+    public static boolean isLogged(Task task) {
+        return switch (task.type()) {
+            case WRITE, DELETE, PATCH, INCREMENT -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Converts a WRITE/DELETE/PATCH/INCREMENT task into a single log line, including its priority.
+     * Uses Base64 for values to safely avoid delimiter issues with JSON strings.
+     */
+    public static String encode(Task task) {
+        // Strict UTF-8 enforcement to prevent malformed data across different operating systems
+        String valueSafe = task.jsonValue() != null ? Base64.getEncoder().encodeToString(task.jsonValue().getBytes(StandardCharsets.UTF_8)) : "NULL";
+        return task.type() + "," + task.connectionId() + "," + task.tableName() + "," + task.id() + "," + valueSafe + "," + task.timestamp()
+                + "," + task.priority();
+    }
+
+    /**
+     * Restores a task from a line created by {@link #encode(Task)}. Lines of older versions without a priority
+     * get the default priority of their type.
+     *
+     * @param line   The log line.
+     * @param future The future of the restored task, may be null.
+     * @return The task, or null if the line does not have the expected format.
+     */
+    public static Task decode(String line, CompletableFuture<Object> future) {
+        String[] parts = line.split(",");
+        if (parts.length != 6 && parts.length != 7) return null;
+
+        Task.TaskType type = Task.TaskType.valueOf(parts[0]);
+        String connId = parts[1];
+        String table = parts[2];
+        String id = parts[3];
+
+        // Enforce UTF-8 during decode
+        String json = "NULL".equals(parts[4]) ? null : new String(Base64.getDecoder().decode(parts[4]), StandardCharsets.UTF_8);
+        long timestamp = Long.parseLong(parts[5]);
+        DataPriority priority = parts.length == 7 ? DataPriority.valueOf(parts[6]) : null;
+
+        return new Task(type, connId, table, id, json, timestamp, future, null, priority);
+    }
+
     /**
      * Recovers data from a dirty crash log and feeds it back into the DataManager.
      * Should be called on Plugin Enable.
      */
-    public synchronized void recover(DataManager dataManager) {
+    public void recover(DataManager dataManager) {
+        // Enqueueing logs the tasks again, so they stay covered until they are executed. It happens outside
+        // the lock, since enqueueing can wait for queue capacity while the workers have to log tasks.
+        for (Task task : takeRecoveredTasks()) {
+            dataManager.enqueueTask(task);
+        }
+    }
+
+    private synchronized List<Task> takeRecoveredTasks() {
         try {
             if (writer != null) writer.close();
         } catch (IOException ignored) {}
 
-        processRecoveryFile(tempLogFile, dataManager);
-        processRecoveryFile(logFile, dataManager);
+        List<Task> recovered = new ArrayList<>();
+        boolean tempRead = readRecoveryFile(tempLogFile, recovered);
+        boolean logRead = readRecoveryFile(logFile, recovered);
+
+        // Deferred writes are logged when they are encoded, which can be after a newer modification of the same
+        // document was logged. Replaying by timestamp restores the submission order (the sort is stable).
+        recovered.sort(Comparator.comparingLong(Task::timestamp));
+
+        // Files that could not be read are kept for the next attempt
+        if (tempRead) clearRecoveryFile(tempLogFile);
+        if (logRead) clearRecoveryFile(logFile);
 
         initWriter();
+        return recovered;
     }
 
-    private void processRecoveryFile(File file, DataManager dataManager) {
-        if (!file.exists() || file.length() == 0) return;
+    private boolean readRecoveryFile(File file, List<Task> recovered) {
+        if (!file.exists() || file.length() == 0) return true;
 
         try {
             // Read with UTF-8
             List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
-            int recovered = 0;
+            int count = 0;
 
             for (String line : lines) {
                 try {
-                    String[] parts = line.split(",");
-                    if (parts.length == 6) {
-                        Task.TaskType type = Task.TaskType.valueOf(parts[0]);
-                        String connId = parts[1];
-                        String table = parts[2];
-                        String id = parts[3];
-
-                        // Enforce UTF-8 during decode
-                        String json = "NULL".equals(parts[4]) ? null : new String(Base64.getDecoder().decode(parts[4]), StandardCharsets.UTF_8);
-                        long timestamp = Long.parseLong(parts[5]);
-
-                        // Future is null here, which is intended, but Handled safely by updated DataWorker
-                        Task task = new Task(type, connId, table, id, json, timestamp, null);
-                        dataManager.enqueueTask(task);
-                        recovered++;
+                    // Future is null here, which is intended, but Handled safely by updated DataWorker
+                    Task task = decode(line, null);
+                    if (task != null) {
+                        recovered.add(task);
+                        count++;
                     }
                 } catch (Exception ex) {
                     PeachLib.getPlugin().getLogger().warning("Überspringe fehlerhafte Zeile im Crash-Log (" + file.getName() + "): " + line);
                 }
             }
 
-            if (recovered > 0) {
-                PeachLib.getPlugin().getLogger().info("Successfully recovered " + recovered + " DB operations from crash log: " + file.getName());
+            if (count > 0) {
+                PeachLib.getPlugin().getLogger().info("Successfully recovered " + count + " DB operations from crash log: " + file.getName());
             }
+            return true;
+        } catch (Exception e) {
+            PeachLib.getPlugin().getLogger().severe("Failed to read crash log from " + file.getName() + "!");
+            return false;
+        }
+    }
 
+    private void clearRecoveryFile(File file) {
+        if (!file.exists() || file.length() == 0) return;
+        try {
             // Clear file after successful recovery
             file.delete();
             file.createNewFile();
-
-        } catch (Exception e) {
-            PeachLib.getPlugin().getLogger().severe("Failed to read crash log from " + file.getName() + "!");
+        } catch (IOException e) {
+            PeachLib.getPlugin().getLogger().severe("Failed to clear crash log " + file.getName() + ": " + e.getMessage());
         }
     }
 
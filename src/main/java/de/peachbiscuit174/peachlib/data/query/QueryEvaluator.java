@@ -0,0 +1,289 @@
+package de.peachbiscuit174.peachlib.data.query;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncCursor;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentQuery;
+import de.peachbiscuit174.peachlib.data.Cursor;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Evaluates a {@link DocumentQuery} in memory, for backends without a query language (FileTree, YAML) and
+ * tables whose values the database cannot read (binary storage format).
+ * <p>
+ * The documents of a table scan are parsed and filtered page by page, larger pages in parallel on the common
+ * fork-join pool. Unordered queries stream their matches as they are found and stop the scan once the limit
+ * is reached. Ordered queries have to see every match before the first one can be returned; with a limit,
+ * only the best {@code offset + limit} matches are kept in a bounded heap instead of all of them.
+ * </p>
+ */
+@ApiStatus.Internal
+public class QueryEvaluator {
+
+    /**
+     * A matching document with its parsed order values.
+     */
+    private record Match(Document document, JsonElement[] orderValues) {}
+
+    // Below this page size the overhead of splitting the work outweighs the parallel speedup
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final DocumentQuery query;
+    private final List<List<Object>> filterPaths = new ArrayList<>();
+    private final List<JsonPrimitive> filterValues = new ArrayList<>();
+    private final List<List<Object>> orderPaths = new ArrayList<>();
+    private final Comparator<Match> order;
+
+    // Ordered queries: the best matches so far, worst first if bounded
+    private final PriorityQueue<Match> bounded;
+    private final List<Match> unbounded;
+    private final int capacity;
+
+    // Unordered queries: matches skipped and returned so far
+    private long skipped;
+    private long returned;
+
+    public QueryEvaluator(DocumentQuery query) {
+        this.query = query;
+        for (DocumentQuery.Filter filter : query.filters()) {
+            filterPaths.add(DocumentPatch.parsePath(filter.path()));
+            filterValues.add(filter.value());
+        }
+        for (DocumentQuery.Order order : query.orders()) {
+            orderPaths.add(DocumentPatch.parsePath(order.path()));
+        }
+        this.order = comparator(query.orders());
+
+        long wanted = query.hasLimit() ? query.offset() + query.limit() : Long.MAX_VALUE;
+        if (isOrdered() && wanted < Integer.MAX_VALUE) {
+            this.capacity = (int) wanted;
+            this.bounded = new PriorityQueue<>(Math.max(1, Math.min(capacity, 1024)), order.reversed());
+            this.unbounded = null;
+        } else {
+            this.capacity = Integer.MAX_VALUE;
+            this.bounded = null;
+            this.unbounded = isOrdered() ? new ArrayList<>() : null;
+        }
+    }
+
+    /**
+     * Opens the cursor of a query on an adapter. Queries the adapter cannot evaluate are evaluated in memory over
+     * a scan of the table, see {@link AsyncStorageAdapter#openQueryCursor}.
+     */
+    public static CompletionStage<AsyncCursor<Document>> open(AsyncStorageAdapter adapter, String tableName, DocumentQuery query, int pageSize) {
+        return adapter.openQueryCursor(tableName, query, pageSize).thenCompose(cursor -> cursor != null
+                ? CompletableFuture.completedFuture(cursor)
+                : adapter.openDocumentCursor(tableName, 500).thenApply(documents -> cursor(documents, query, pageSize)));
+    }
+
+    /**
+     * Opens a cursor returning the result of a query over the documents of a blocking cursor.
+     * The source cursor is closed together with the returned one.
+     */
+    public static Cursor<Document> cursor(Cursor<Document> source, DocumentQuery query, int pageSize) {
+        QueryEvaluator evaluator = new QueryEvaluator(query);
+        if (!evaluator.isOrdered()) {
+            // The page reaching the limit is never empty, so the scan stops right after it
+            Cursor<Document> matches = Cursor.mapPages(source, evaluator::accept);
+            return new Cursor<>() {
+                @Override
+                public List<Document> nextPage() throws Exception {
+                    return evaluator.isComplete() ? List.of() : matches.nextPage();
+                }
+
+                @Override
+                public void close() throws Exception {
+                    matches.close();
+                }
+            };
+        }
+
+        return new Cursor<>() {
+            private Cursor<Document> result;
+
+            @Override
+            public List<Document> nextPage() throws Exception {
+                if (result == null) {
+                    List<Document> page;
+                    while (!(page = source.nextPage()).isEmpty()) {
+                        evaluator.accept(page);
+                    }
+                    result = Cursor.ofList(evaluator.finish(), pageSize);
+                }
+                return result.nextPage();
+            }
+
+            @Override
+            public void close() throws Exception {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * Opens a cursor returning the result of a query over the documents of a non-blocking cursor.
+     * The source cursor is closed together with the returned one.
+     */
+    public static AsyncCursor<Document> cursor(AsyncCursor<Document> source, DocumentQuery query, int pageSize) {
+        QueryEvaluator evaluator = new QueryEvaluator(query);
+        if (!evaluator.isOrdered()) {
+            // The page reaching the limit is never empty, so the scan stops right after it
+            AsyncCursor<Document> matches = AsyncCursor.mapPages(source, evaluator::accept);
+            return new AsyncCursor<>() {
+                @Override
+                public CompletionStage<List<Document>> nextPage() {
+                    return evaluator.isComplete() ? CompletableFuture.completedFuture(List.of()) : matches.nextPage();
+                }
+
+                @Override
+                public void close() {
+                    matches.close();
+                }
+            };
+        }
+
+        return new AsyncCursor<>() {
+            private AsyncCursor<Document> result;
+
+            @Override
+            public CompletionStage<List<Document>> nextPage() {
+                if (result != null) return result.nextPage();
+                return collect().thenCompose(matches -> {
+                    result = AsyncCursor.ofList(matches, pageSize);
+                    return result.nextPage();
+                });
+            }
+
+            private CompletionStage<List<Document>> collect() {
+                return source.nextPage().thenCompose(page -> {
+                    if (page.isEmpty()) return CompletableFuture.completedFuture(evaluator.finish());
+                    evaluator.accept(page);
+                    return collect();
+                });
+            }
+
+            @Override
+            public void close() {
+                source.close();
+            }
+        };
+    }
+
+    public boolean isOrdered() {
+        return !query.orders().isEmpty();
+    }
+
+    /**
+     * @return Whether an unordered query returned as many documents as its limit allows.
+     */
+    public boolean isComplete() {
+        return !isOrdered() && query.hasLimit() && returned >= query.limit();
+    }
+
+    /**
+     * Filters a page of the scan.
+     *
+     * @return The matches to return right away (unordered queries), or an empty list.
+     */
+    public List<Document> accept(List<Document> page) {
+        List<Match> matches = page.size() < PARALLEL_THRESHOLD
+                ? page.stream().map(this::match).filter(Objects::nonNull).toList()
+                : page.parallelStream().map(this::match).filter(Objects::nonNull).toList();
+
+        if (isOrdered()) {
+            if (bounded != null) {
+                for (Match match : matches) {
+                    offer(match);
+                }
+            } else {
+                unbounded.addAll(matches);
+            }
+            return List.of();
+        }
+
+        List<Document> window = new ArrayList<>();
+        for (Match match : matches) {
+            if (skipped < query.offset()) {
+                skipped++;
+            } else if (!query.hasLimit() || returned < query.limit()) {
+                window.add(match.document());
+                returned++;
+            }
+        }
+        return window;
+    }
+
+    /**
+     * @return The result of an ordered query once every page was accepted.
+     */
+    public List<Document> finish() {
+        List<Match> sorted = new ArrayList<>(bounded != null ? bounded : unbounded);
+        sorted.sort(order);
+
+        int from = (int) Math.min(query.offset(), sorted.size());
+        int to = query.hasLimit() ? (int) Math.min(query.offset() + query.limit(), sorted.size()) : sorted.size();
+        List<Document> result = new ArrayList<>(to - from);
+        for (Match match : sorted.subList(from, to)) {
+            result.add(match.document());
+        }
+        return result;
+    }
+
+    private void offer(Match match) {
+        if (capacity == 0) return;
+        if (bounded.size() < capacity) {
+            bounded.add(match);
+        } else if (order.compare(match, bounded.peek()) < 0) {
+            bounded.poll();
+            bounded.add(match);
+        }
+    }
+
+    /**
+     * @return The document with its order values if it matches every filter, otherwise null.
+     */
+    private Match match(Document document) {
+        JsonElement root;
+        try {
+            root = JsonParser.parseString(document.value());
+        } catch (JsonParseException e) {
+            return null;
+        }
+
+        for (int i = 0; i < filterPaths.size(); i++) {
+            JsonElement field = DocumentPatch.find(root, filterPaths.get(i));
+            if (!DocumentQuery.test(field, query.filters().get(i).operator(), filterValues.get(i))) {
+                return null;
+            }
+        }
+
+        JsonElement[] orderValues = new JsonElement[orderPaths.size()];
+        for (int i = 0; i < orderValues.length; i++) {
+            orderValues[i] = DocumentPatch.find(root, orderPaths.get(i));
+        }
+        return new Match(document, orderValues);
+    }
+
+    private static Comparator<Match> comparator(List<DocumentQuery.Order> orders) {
+        Comparator<Match> comparator = (a, b) -> 0;
+        for (int i = 0; i < orders.size(); i++) {
+            int index = i;
+            Comparator<Match> byField = (a, b) -> DocumentQuery.compareValues(a.orderValues()[index], b.orderValues()[index]);
+            comparator = comparator.thenComparing(orders.get(i).descending() ? byField.reversed() : byField);
+        }
+        return comparator.thenComparing(match -> match.document().id());
+    }
+}
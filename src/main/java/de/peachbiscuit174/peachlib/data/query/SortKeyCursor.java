@@ -0,0 +1,119 @@
+package de.peachbiscuit174.peachlib.data.query;
+
+import de.peachbiscuit174.peachlib.data.Cursor;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cursor over the result of a sorted query, loaded page by page with keyset pagination: every page after the
+ * first continues after the sort key of the last entry, i.e. its order values followed by its id. Unlike
+ * {@code LIMIT ? OFFSET ?} pages, a page therefore only sorts the entries after the previous page instead of
+ * sorting and skipping all entries before it, and documents inserted or deleted between two pages do not shift
+ * the result. Like {@link de.peachbiscuit174.peachlib.data.KeysetCursor}, every page is a short, independent query,
+ * so no connection is held open between pages; a document whose order values are modified between two pages may
+ * still be skipped or returned twice.
+ *
+ * @param <T> The entry type.
+ */
+@ApiStatus.Internal
+public class SortKeyCursor<T> implements Cursor<T> {
+
+    /**
+     * Loads a slice of the query result.
+     */
+    @FunctionalInterface
+    public interface PageQuery<T> {
+        /**
+         * @param after  The sort key of the last entry of the previous page, or null for the first page.
+         * @param offset The number of entries to skip, only positive for the first page.
+         * @param limit  The maximum number of entries.
+         */
+        List<Keyed<T>> fetch(List<Object> after, long offset, int limit) throws Exception;
+    }
+
+    /**
+     * An entry together with the values it is sorted by, ending with its id.
+     */
+    public record Keyed<T>(T entry, List<Object> sortKey) {
+    }
+
+    private final PageQuery<T> query;
+    private final int pageSize;
+
+    private List<Object> after;
+    private long offset;
+    private long remaining;
+    private boolean exhausted;
+
+    /**
+     * @param offset The offset of the first entry.
+     * @param limit  The maximum number of entries of all pages, or a negative value for no limit.
+     */
+    public SortKeyCursor(PageQuery<T> query, long offset, long limit, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.query = query;
+        this.pageSize = pageSize;
+        this.offset = offset;
+        this.remaining = limit < 0 ? Long.MAX_VALUE : limit;
+    }
+
+    @Override
+    public List<T> nextPage() throws Exception {
+        if (exhausted || remaining == 0) return List.of();
+
+        int limit = (int) Math.min(pageSize, remaining);
+        List<Keyed<T>> page = query.fetch(after, offset, limit);
+        if (page.size() < limit) {
+            exhausted = true;
+        }
+        if (!page.isEmpty()) {
+            after = page.get(page.size() - 1).sortKey();
+            offset = 0;
+        }
+        remaining -= page.size();
+
+        List<T> entries = new ArrayList<>(page.size());
+        for (Keyed<T> keyed : page) {
+            entries.add(keyed.entry());
+        }
+        return entries;
+    }
+
+    /**
+     * Builds the SQL condition selecting the rows after a sort key:
+     * {@code (k0 > ?) OR (k0 = ? AND k1 > ?) OR ...}, with {@code <} for descending columns.
+     * Its parameters are returned by {@link #afterParameters(List)}.
+     *
+     * @param columns    The sort key columns, ending with the id.
+     * @param descending Whether each column is sorted in descending order.
+     */
+    public static String afterCondition(List<String> columns, List<Boolean> descending) {
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append('(');
+            for (int j = 0; j < i; j++) {
+                condition.append(columns.get(j)).append(" = ? AND ");
+            }
+            condition.append(columns.get(i)).append(descending.get(i) ? " < ?" : " > ?").append(')');
+        }
+        return condition.append(')').toString();
+    }
+
+    /**
+     * @return The parameters of {@link #afterCondition} for a sort key, in the order of its placeholders.
+     */
+    public static List<Object> afterParameters(List<Object> after) {
+        List<Object> parameters = new ArrayList<>();
+        for (int i = 0; i < after.size(); i++) {
+            parameters.addAll(after.subList(0, i + 1));
+        }
+        return parameters;
+    }
+}
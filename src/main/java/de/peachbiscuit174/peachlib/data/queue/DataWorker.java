@@ -1,87 +1,487 @@
 package de.peachbiscuit174.peachlib.data.queue;
 
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.CounterUpdate;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.DocumentPatch;
+import de.peachbiscuit174.peachlib.api.managers.BackpressurePolicy;
 import de.peachbiscuit174.peachlib.api.managers.DataManager;
-import de.peachbiscuit174.peachlib.data.StorageAdapter;
+import de.peachbiscuit174.peachlib.api.managers.QueueLimits;
+import de.peachbiscuit174.peachlib.data.DeferredValue;
+import de.peachbiscuit174.peachlib.data.DocumentKey;
+import de.peachbiscuit174.peachlib.data.DocumentUpdate;
 import de.peachbiscuit174.peachlib.data.Task;
 import de.peachbiscuit174.peachlib.data.logs.AuditLogger;
-import de.peachbiscuit174.peachlib.data.logs.QueueLogger;
 import org.jetbrains.annotations.ApiStatus;
 
-import java.util.Queue;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Worker responsible for processing database tasks asynchronously.
- * Guarantees execution order and utilizes batch processing to prevent CPU spikes.
+ * Worker responsible for processing the database tasks of a single storage connection asynchronously.
+ * Guarantees execution order per document and utilizes batch processing to prevent CPU spikes.
+ * Consecutive WRITE or DELETE tasks targeting the same table are handed to the adapter
+ * as one batch, so JDBC backends need a single transaction instead of one round trip per task.
+ * <p>
+ * Every connection owns its own worker with a configurable number of {@link ExecutionLane}s, so a slow
+ * or unreachable backend only delays its own tasks. Tasks are hashed by (tableName, id) onto a lane,
+ * which keeps read-after-write ordering for the same id while independent ids are executed in parallel
+ * across the connection pool. A READ_MANY is split by the lanes of its ids and each part only waits for the
+ * tasks queued before it for those ids. GET_ALL_KEYS and FIND_BY span a whole table: they act as a barrier
+ * and run once every lane has processed the tasks of that table queued before them. CREATE_INDEX does not
+ * need any order and is hashed onto a lane by its table.
+ * </p>
+ * <p>
+ * Within a lane, tasks are served by their {@link de.peachbiscuit174.peachlib.api.data.DataPriority},
+ * so interactive reads overtake queued bulk writes of other ids.
+ * </p>
+ * <p>
+ * The queue is bounded by {@link QueueLimits}. Once the number of queued tasks or the estimated size of
+ * their payloads exceeds the limits, new modifications are handled according to the configured
+ * {@link BackpressurePolicy}.
+ * </p>
  */
 @ApiStatus.Internal
-public class DataWorker implements Runnable {
+public class DataWorker {
+
+    /**
+     * Result of the admission check of a new task.
+     */
+    public enum Admission {
+        ACCEPTED,
+        SPILL,
+        REJECTED
+    }
 
     private final DataManager dataManager;
-    private final Queue<Task> taskQueue;
-    private final QueueLogger queueLogger;
+    private final String connectionId;
+    private final WriteCoalescer writeCoalescer;
     private final AuditLogger auditLogger;
-    private final AtomicBoolean isProcessing = new AtomicBoolean(false);
+    private final ExecutionLane[] lanes;
+    private final SpillQueue spillQueue;
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final Object capacityLock = new Object();
+
+    private volatile QueueLimits limits;
 
-    private static final int BATCH_SIZE = 100;
+    // Saturation from which isSaturated() advises plugins to shed non-critical writes
+    private static final double SATURATION_THRESHOLD = 0.8;
+    // Optimistic attempts of a COMPUTE task before it fails
+    private static final int MAX_COMPUTE_ATTEMPTS = 10;
 
-    public DataWorker(DataManager dataManager, Queue<Task> taskQueue, QueueLogger queueLogger, AuditLogger auditLogger) {
+    public DataWorker(DataManager dataManager, String connectionId, int laneCount, QueueLimits limits, File spillDirectory,
+                      WriteCoalescer writeCoalescer, AuditLogger auditLogger) {
         this.dataManager = dataManager;
-        this.taskQueue = taskQueue;
-        this.queueLogger = queueLogger;
+        this.connectionId = connectionId;
+        this.limits = limits;
+        this.writeCoalescer = writeCoalescer;
         this.auditLogger = auditLogger;
+        this.spillQueue = new SpillQueue(spillDirectory);
+
+        this.lanes = new ExecutionLane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ExecutionLane(this, "PL-DataWorker-" + connectionId + "-" + (i + 1));
+        }
+    }
+
+    /**
+     * Starts the threads of all execution lanes.
+     */
+    public void start() {
+        for (ExecutionLane lane : lanes) {
+            lane.start();
+        }
+    }
+
+    /**
+     * Decides whether a new task may enter the queue. Depending on the {@link BackpressurePolicy}
+     * this call blocks until capacity is available.
+     *
+     * @param task The new task.
+     * @return ACCEPTED if the task can be dispatched, SPILL if it has to be handed to {@link #spill(Task)},
+     * REJECTED if it must be failed.
+     */
+    public Admission admit(Task task) {
+        if (!spillQueue.isEmpty()) {
+            // Modifications queue up behind the spilled ones, other tasks only behind those of their documents
+            return isModification(task) || followsSpilledTask(task) ? Admission.SPILL : Admission.ACCEPTED;
+        }
+        if (!isModification(task) || hasCapacity(task)) return Admission.ACCEPTED;
+
+        QueueLimits current = limits;
+        switch (current.policy()) {
+            case SPILL_TO_DISK -> {
+                return Admission.SPILL;
+            }
+            case FAIL_FAST -> {
+                return Admission.REJECTED;
+            }
+            default -> {
+                long deadline = System.currentTimeMillis() + current.blockTimeoutMillis();
+                synchronized (capacityLock) {
+                    while (!hasCapacity(task)) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) return Admission.REJECTED;
+                        try {
+                            capacityLock.wait(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return Admission.REJECTED;
+                        }
+                    }
+                }
+                return Admission.ACCEPTED;
+            }
+        }
+    }
+
+    /**
+     * @return true if a task that is not a modification has to be ordered behind a spilled task.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean followsSpilledTask(Task task) {
+        return switch (task.type()) {
+            case READ, READ_DOCUMENT -> spillQueue.containsKey(DocumentKey.of(task));
+            case READ_MANY -> {
+                for (String id : (Collection<String>) task.payload()) {
+                    if (spillQueue.containsKey(new DocumentKey(task.connectionId(), task.tableName(), id))) yield true;
+                }
+                yield false;
+            }
+            case GET_ALL_KEYS, FIND_BY -> spillQueue.containsTable(task.tableName());
+            default -> false;
+        };
+    }
+
+    /**
+     * Appends a task to the on-disk overflow. It is dispatched once the backlog has shrunk.
+     */
+    public void spill(Task task) {
+        // A later write of the document must not be merged into one queued before this task
+        writeCoalescer.close(task);
+        spillQueue.add(task);
+        refillFromSpill();
     }
 
-    @Override
-    public void run() {
-        if (!isProcessing.compareAndSet(false, true)) {
+    /**
+     * Hands a task to the lane responsible for its key.
+     */
+    public void dispatch(Task task) {
+        if (task.type() == Task.TaskType.READ_MANY) {
+            dispatchReadMany(task);
             return;
         }
 
-        try {
-            int processed = 0;
-            while (processed < BATCH_SIZE && !taskQueue.isEmpty()) {
-                Task task = taskQueue.poll();
-                if (task == null) break;
+        pendingTasks.incrementAndGet();
+        pendingBytes.addAndGet(estimatePayloadBytes(task));
+
+        if (task.type() == Task.TaskType.GET_ALL_KEYS || task.type() == Task.TaskType.FIND_BY) {
+            AtomicInteger barrier = new AtomicInteger(lanes.length);
+            for (ExecutionLane lane : lanes) {
+                lane.submit(task, barrier);
+            }
+            return;
+        }
+
+        // CREATE_INDEX has no id and is placed by its table
+        lanes[laneIndex(task.tableName(), task.id())].submit(task, null);
+    }
+
+    /**
+     * Hands a task to its lane that was not registered with {@link WriteCoalescer#offer(Task)}, e.g. a spilled or
+     * recovered task. The open burst of its document is closed first, so no later write is merged into a task
+     * queued before it.
+     */
+    public void dispatchBypassingCoalescer(Task task) {
+        writeCoalescer.close(task);
+        dispatch(task);
+    }
+
+    /**
+     * Splits a READ_MANY into one read per lane holding some of its ids, so it is only ordered behind
+     * the tasks queued for those ids. The results of the parts are merged into the future of the task.
+     */
+    @SuppressWarnings("unchecked")
+    private void dispatchReadMany(Task task) {
+        Collection<String> ids = (Collection<String>) task.payload();
+        List<List<String>> idsByLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            idsByLane.add(new ArrayList<>());
+        }
+        for (String id : ids) {
+            idsByLane.get(laneIndex(task.tableName(), id)).add(id);
+        }
 
-                processSingleTask(task);
-                processed++;
+        List<Integer> targets = new ArrayList<>();
+        for (int i = 0; i < lanes.length; i++) {
+            if (!idsByLane.get(i).isEmpty()) {
+                targets.add(i);
             }
+        }
+
+        if (targets.size() <= 1) {
+            int lane = targets.isEmpty() ? 0 : targets.get(0);
+            pendingTasks.incrementAndGet();
+            lanes[lane].submitReadMany(task, ids);
+            return;
+        }
 
-            if (taskQueue.isEmpty()) {
-                queueLogger.clearLogAtomically();
+        List<CompletableFuture<Object>> parts = new ArrayList<>(targets.size());
+        for (int lane : targets) {
+            CompletableFuture<Object> part = new CompletableFuture<>();
+            parts.add(part);
+            List<String> laneIds = idsByLane.get(lane);
+            Task subTask = new Task(task.type(), task.connectionId(), task.tableName(), null, null, task.timestamp(), part, laneIds, task.priority());
+            pendingTasks.incrementAndGet();
+            lanes[lane].submitReadMany(subTask, laneIds);
+        }
+
+        CompletableFuture<Object> future = task.future();
+        if (future == null) return;
+        CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                return;
+            }
+            Map<String, String> values = new HashMap<>();
+            for (CompletableFuture<Object> part : parts) {
+                values.putAll((Map<String, String>) part.join());
             }
+            future.complete(values);
+        });
+    }
 
-        } finally {
-            isProcessing.set(false);
+    private int laneIndex(String tableName, String id) {
+        if (lanes.length == 1) return 0;
+        int hash = Objects.hash(tableName, id);
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, lanes.length);
+    }
+
+    public String getConnectionId() {
+        return connectionId;
+    }
+
+    public void setLimits(QueueLimits limits) {
+        this.limits = limits;
+        synchronized (capacityLock) {
+            capacityLock.notifyAll();
         }
+        refillFromSpill();
+    }
+
+    /**
+     * @return The amount of tasks of this connection that were queued (in memory or spilled) but not executed yet.
+     */
+    public int getQueueDepth() {
+        return pendingTasks.get() + spillQueue.size();
     }
 
     /**
-     * Drains the entire queue instantly. Called synchronously during server shutdown
-     * to prevent data loss.
+     * @return The number of execution lanes, each executing one task at a time.
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @return The estimated heap size of all queued JSON values in bytes.
+     */
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Returns how close the in-memory queue is to its limits.
+     *
+     * @return A value between 0.0 (empty) and 1.0 (full or spilling to disk).
+     */
+    public double getSaturation() {
+        if (!spillQueue.isEmpty()) return 1.0;
+        QueueLimits current = limits;
+        double byCount = (double) pendingTasks.get() / current.maxTasks();
+        double byBytes = (double) pendingBytes.get() / current.maxPayloadBytes();
+        return Math.min(1.0, Math.max(byCount, byBytes));
+    }
+
+    /**
+     * @return true if plugins should shed non-critical writes for this connection.
+     */
+    public boolean isSaturated() {
+        return getSaturation() >= SATURATION_THRESHOLD;
+    }
+
+    /**
+     * Stops all lanes and drains their queues (including spilled tasks) on the calling thread.
+     * Called during server shutdown to prevent data loss.
      */
     public void flushAll() {
-        while (!taskQueue.isEmpty()) {
-            Task task = taskQueue.poll();
-            if (task != null) {
-                processSingleTask(task);
+        for (ExecutionLane lane : lanes) {
+            lane.stop();
+        }
+
+        do {
+            Task spilled;
+            while ((spilled = spillQueue.poll()) != null) {
+                dispatchBypassingCoalescer(spilled);
+                spillQueue.release(spilled);
+            }
+            for (ExecutionLane lane : lanes) {
+                lane.flush();
+            }
+        } while (!spillQueue.isEmpty());
+
+        spillQueue.close();
+    }
+
+    /**
+     * Takes over a dequeued task: resolves coalesced writes and encodes deferred values.
+     * The crash log entry of a deferred WRITE is written here, after encoding.
+     *
+     * @return The task to execute, or null if its value could not be encoded (the future is failed).
+     */
+    Task claim(Task queued) {
+        Task claimed = writeCoalescer.claim(queued);
+        if (!DeferredValue.isDeferred(claimed)) return claimed;
+
+        try {
+            Task encoded = DeferredValue.materialize(claimed);
+            dataManager.getQueueLogger().logTask(encoded);
+            return encoded;
+        } catch (Exception e) {
+            if (claimed.future() != null) {
+                claimed.future().completeExceptionally(e);
+            } else {
+                e.printStackTrace();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Called by a lane once a queued task has been executed.
+     *
+     * @param queued The task instance that was dispatched.
+     */
+    void onTaskFinished(Task queued) {
+        pendingBytes.addAndGet(-estimatePayloadBytes(queued));
+        int remaining = pendingTasks.decrementAndGet();
+
+        synchronized (capacityLock) {
+            capacityLock.notifyAll();
+        }
+        refillFromSpill();
+
+        if (remaining == 0 && spillQueue.isEmpty()) {
+            dataManager.onWorkerIdle();
+        }
+    }
+
+    /**
+     * Feeds spilled tasks back into the lanes until the in-memory backlog reaches half of its limits.
+     */
+    private void refillFromSpill() {
+        if (spillQueue.isEmpty()) return;
+
+        synchronized (spillQueue) {
+            QueueLimits current = limits;
+            while (pendingTasks.get() < current.maxTasks() / 2
+                    && pendingBytes.get() < current.maxPayloadBytes() / 2) {
+                Task task = spillQueue.poll();
+                if (task == null) break;
+                dispatchBypassingCoalescer(task);
+                // Released after dispatching, so a read of the same document cannot overtake it
+                spillQueue.release(task);
             }
         }
-        queueLogger.clearLogAtomically();
     }
 
-    private void processSingleTask(Task task) {
+    private boolean hasCapacity(Task task) {
+        QueueLimits current = limits;
+        return pendingTasks.get() < current.maxTasks()
+                && pendingBytes.get() + estimatePayloadBytes(task) <= current.maxPayloadBytes();
+    }
+
+    private boolean isModification(Task task) {
+        return switch (task.type()) {
+            case WRITE, DELETE, PATCH, INCREMENT, COMPARE_AND_SET, COMPUTE -> true;
+            default -> false;
+        };
+    }
+
+    private long estimatePayloadBytes(Task task) {
+        // Java strings need up to two bytes per character
+        return task.jsonValue() != null ? 2L * task.jsonValue().length() : 0L;
+    }
+
+    void executeBatch(List<Task> batch) {
+        Task first = batch.get(0);
         try {
-            StorageAdapter adapter = dataManager.getAdapter(task.connectionId());
+            AsyncStorageAdapter adapter = dataManager.getAdapter(connectionId);
             if (adapter == null) {
-                throw new IllegalStateException("Adapter not found for connection: " + task.connectionId());
+                throw new IllegalStateException("Adapter not found for connection: " + connectionId);
+            }
+
+            if (first.type() == Task.TaskType.WRITE) {
+                List<Document> documents = new ArrayList<>(batch.size());
+                for (Task task : batch) {
+                    documents.add(new Document(task.id(), task.jsonValue(), task.timestamp()));
+                }
+                await(adapter.writeBatch(first.tableName(), documents));
+            } else {
+                List<String> ids = new ArrayList<>(batch.size());
+                // The batch is recorded as deleted at the time of its newest task
+                long timestamp = 0L;
+                for (Task task : batch) {
+                    ids.add(task.id());
+                    timestamp = Math.max(timestamp, task.timestamp());
+                }
+                await(adapter.deleteBatch(first.tableName(), ids, timestamp));
+            }
+        } catch (Exception e) {
+            // The batch was rolled back: retry every task on its own so a single
+            // broken document cannot fail the futures of its neighbours.
+            for (Task task : batch) {
+                executeSingle(task);
+            }
+            return;
+        }
+
+        for (Task task : batch) {
+            onModified(task, null);
+            if (task.future() != null) task.future().complete(null);
+            try {
+                auditLogger.logOperation(task.connectionId(), task.tableName(), task.type().name(), task.id(), task.jsonValue());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    void executeSingle(Task task) {
+        try {
+            AsyncStorageAdapter adapter = dataManager.getAdapter(connectionId);
+            if (adapter == null) {
+                throw new IllegalStateException("Adapter not found for connection: " + connectionId);
             }
 
             switch (task.type()) {
                 case WRITE -> {
-                    adapter.write(task.tableName(), task.id(), task.jsonValue(), task.timestamp());
+                    await(adapter.write(task.tableName(), task.id(), task.jsonValue(), task.timestamp()));
+                    onModified(task, null);
                     if (task.future() != null) task.future().complete(null);
                     try {
                         auditLogger.logOperation(task.connectionId(), task.tableName(), "WRITE", task.id(), task.jsonValue());
@@ -90,7 +490,8 @@ public class DataWorker implements Runnable {
                     }
                 }
                 case DELETE -> {
-                    adapter.delete(task.tableName(), task.id());
+                    await(adapter.delete(task.tableName(), task.id(), task.timestamp()));
+                    onModified(task, null);
                     if (task.future() != null) task.future().complete(null);
                     try {
                         auditLogger.logOperation(task.connectionId(), task.tableName(), "DELETE", task.id(), null);
@@ -98,14 +499,65 @@ public class DataWorker implements Runnable {
                         e.printStackTrace();
                     }
                 }
+                case PATCH -> {
+                    await(adapter.patch(task.tableName(), task.id(), DocumentPatch.fromJson(task.jsonValue()), task.timestamp()));
+                    onModified(task, null);
+                    if (task.future() != null) task.future().complete(null);
+                    try {
+                        auditLogger.logOperation(task.connectionId(), task.tableName(), "PATCH", task.id(), task.jsonValue());
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+                case INCREMENT -> {
+                    await(adapter.increment(task.tableName(), task.id(), CounterUpdate.fromJson(task.jsonValue()), task.timestamp()));
+                    onModified(task, null);
+                    if (task.future() != null) task.future().complete(null);
+                    logOperation(task, task.jsonValue());
+                }
                 case READ -> {
-                    String json = adapter.read(task.tableName(), task.id());
+                    String json = await(adapter.read(task.tableName(), task.id()));
                     if (task.future() != null) task.future().complete(json);
                 }
+                case READ_MANY -> {
+                    @SuppressWarnings("unchecked")
+                    Collection<String> ids = (Collection<String>) task.payload();
+                    Map<String, String> values = await(adapter.readMany(task.tableName(), ids));
+                    if (task.future() != null) task.future().complete(values);
+                }
                 case GET_ALL_KEYS -> {
-                    Set<String> keys = adapter.getAllPrimaryKeys(task.tableName());
+                    Set<String> keys = await(adapter.getAllPrimaryKeys(task.tableName()));
                     if (task.future() != null) task.future().complete(keys);
                 }
+                case READ_DOCUMENT -> {
+                    Document document = await(adapter.readDocument(task.tableName(), task.id()));
+                    if (task.future() != null) task.future().complete(document);
+                }
+                case COMPARE_AND_SET -> {
+                    long expected = (Long) task.payload();
+                    // The version has to change, even if the clock of this server is behind the one that wrote it
+                    long timestamp = Math.max(task.timestamp(), expected + 1);
+                    boolean written = await(adapter.compareAndSet(task.tableName(), task.id(), expected, task.jsonValue(), timestamp));
+                    if (written) {
+                        onModified(task, task.jsonValue());
+                    }
+                    if (task.future() != null) task.future().complete(written);
+                    if (written) {
+                        logOperation(task, task.jsonValue());
+                    }
+                }
+                case COMPUTE -> {
+                    String value = compute(adapter, task);
+                    if (task.future() != null) task.future().complete(value);
+                }
+                case CREATE_INDEX -> {
+                    await(adapter.createIndex(task.tableName(), (String) task.payload()));
+                    if (task.future() != null) task.future().complete(null);
+                }
+                case FIND_BY -> {
+                    Map<String, String> values = await(adapter.findBy(task.tableName(), (String) task.payload(), task.jsonValue()));
+                    if (task.future() != null) task.future().complete(values);
+                }
             }
         } catch (Exception e) {
             if (task.future() != null) {
@@ -115,4 +567,71 @@ public class DataWorker implements Runnable {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Applies the update function of a COMPUTE task with optimistic locking: the document is read together with its
+     * timestamp and only written if the timestamp did not change in the meantime. On a conflict the function is
+     * applied again to the newer document. Only a written update is reported as a modification.
+     *
+     * @return The JSON value of the document after the update, or null if it does not exist.
+     * @throws ConcurrentModificationException If every attempt lost against a concurrent modification.
+     */
+    private String compute(AsyncStorageAdapter adapter, Task task) throws Exception {
+        DocumentUpdate update = (DocumentUpdate) task.payload();
+
+        for (int attempt = 0; attempt < MAX_COMPUTE_ATTEMPTS; attempt++) {
+            Document current = await(adapter.readDocument(task.tableName(), task.id()));
+            String currentValue = current != null ? current.value() : null;
+            String updated = update.apply(currentValue);
+            if (updated == null) return currentValue;
+
+            long expected = current != null ? current.timestamp() : -1L;
+            long timestamp = Math.max(dataManager.getTimeProvider().getCurrentTime(), expected + 1);
+            if (await(adapter.compareAndSet(task.tableName(), task.id(), expected, updated, timestamp))) {
+                onModified(task, updated);
+                logOperation(task, updated);
+                return updated;
+            }
+        }
+
+        throw new ConcurrentModificationException("Document " + task.tableName() + "/" + task.id()
+                + " was modified concurrently during " + MAX_COMPUTE_ATTEMPTS + " attempts.");
+    }
+
+    /**
+     * Reports an executed modification to the leaderboards and change feeds, before its future completes.
+     */
+    private void onModified(Task task, String resultJson) {
+        try {
+            dataManager.getLeaderboards().onModified(task, resultJson);
+            dataManager.getChangeFeeds().onModified(task);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void logOperation(Task task, String jsonValue) {
+        try {
+            auditLogger.logOperation(task.connectionId(), task.tableName(), task.type().name(), task.id(), jsonValue);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Waits for an adapter operation. Lanes execute one operation at a time, which keeps the per-key
+     * order; asynchronous adapters still overlap the operations of all lanes of a connection.
+     *
+     * @throws Exception The failure of the operation, unwrapped from its CompletionException.
+     */
+    @ApiStatus.Internal
+    public static <T> T await(CompletionStage<T> stage) throws Exception {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof Exception exception) throw exception;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package de.peachbiscuit174.peachlib.data.queue;
+
+import de.peachbiscuit174.peachlib.api.data.DataPriority;
+import de.peachbiscuit174.peachlib.data.DocumentKey;
+import de.peachbiscuit174.peachlib.data.Task;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single execution lane of a storage connection.
+ * <p>
+ * Every lane owns one queue per {@link DataPriority} and a dedicated thread that parks while there is
+ * nothing to do. Higher classes are served first; the head of a lower class is served ahead of them once
+ * it has waited longer than its starvation limit. The {@link DataWorker} hashes each keyed task onto one lane,
+ * so all operations for the same id are executed in order, while independent ids are processed in parallel
+ * on other lanes.
+ * </p>
+ * <p>
+ * To keep the per-key order across classes, a task for an id that still has queued tasks in this lane
+ * joins the queue of those tasks instead of the queue of its own class. A READ_MANY of several ids waits
+ * until the tasks queued before it for any of its ids are executed, and then joins the queue of its class.
+ * </p>
+ */
+@ApiStatus.Internal
+public class ExecutionLane implements Runnable {
+
+    /**
+     * A queued keyed task with its position in submission order.
+     */
+    private record Entry(Task task, long sequence, long enqueuedAt) {}
+
+    /**
+     * A task spanning a whole table (e.g. GET_ALL_KEYS) that is placed into every lane of the connection together
+     * with a shared counter. A lane arrives at the barrier once it has executed every task of the table submitted
+     * before it; the last lane to arrive executes the task.
+     */
+    private record BarrierEntry(Task task, AtomicInteger remaining, long sequence) {}
+
+    /**
+     * A READ_MANY waiting for the sequences of the tasks queued before it for its ids.
+     */
+    private record WaitingRead(Task task, long sequence, long enqueuedAt, List<Long> dependencies) {}
+
+    /**
+     * Queued tasks of a single key and the queue they are placed into.
+     */
+    private static final class KeyState {
+        private final int queueIndex;
+        private int queued;
+        private long lastSequence;
+
+        private KeyState(int queueIndex) {
+            this.queueIndex = queueIndex;
+        }
+    }
+
+    private final DataWorker dataWorker;
+    private final String name;
+    private final Object lock = new Object();
+    private final List<ArrayDeque<Entry>> queues = new ArrayList<>();
+    private final Map<DocumentKey, KeyState> keyStates = new HashMap<>();
+    // Sequences of the queued and running keyed tasks per table
+    private final Map<String, TreeSet<Long>> unfinishedSequences = new HashMap<>();
+    private final List<BarrierEntry> barriers = new ArrayList<>();
+    private final List<WaitingRead> waitingReads = new ArrayList<>();
+    private final AtomicBoolean isProcessing = new AtomicBoolean(false);
+
+    private long nextSequence;
+    private int queuedEntries;
+
+    private volatile boolean running = false;
+    private Thread laneThread;
+
+    private static final int BATCH_SIZE = 100;
+    private static final long SHUTDOWN_JOIN_MILLIS = 10_000L;
+    // Pause between the attempts of flush() to take over from a busy lane thread
+    private static final long FLUSH_WAIT_NANOS = 1_000_000L;
+
+    // Maximum waiting time before a lower class is served ahead of the higher ones (indexed by DataPriority)
+    private static final long[] STARVATION_LIMIT_NANOS = {
+            0L,
+            200_000_000L,
+            1_000_000_000L
+    };
+
+    ExecutionLane(DataWorker dataWorker, String name) {
+        this.dataWorker = dataWorker;
+        this.name = name;
+        for (int i = 0; i < DataPriority.values().length; i++) {
+            queues.add(new ArrayDeque<>());
+        }
+    }
+
+    synchronized void start() {
+        if (running) return;
+        running = true;
+        laneThread = new Thread(this, name);
+        laneThread.setDaemon(true);
+        laneThread.start();
+    }
+
+    /**
+     * Adds a task and wakes up the lane thread.
+     * Signals that arrive while the lane is busy are not lost: the permit is consumed by the next park.
+     *
+     * @param task    The task to execute.
+     * @param barrier The counter shared by all lanes for tasks spanning a table, otherwise null.
+     */
+    void submit(Task task, AtomicInteger barrier) {
+        synchronized (lock) {
+            long sequence = nextSequence++;
+            if (barrier != null) {
+                barriers.add(new BarrierEntry(task, barrier, sequence));
+            } else {
+                DocumentKey key = DocumentKey.of(task);
+                KeyState state = keyStates.computeIfAbsent(key, k -> new KeyState(task.priority().ordinal()));
+                state.queued++;
+                state.lastSequence = sequence;
+                queues.get(state.queueIndex).add(new Entry(task, sequence, System.nanoTime()));
+                unfinishedOf(task.tableName()).add(sequence);
+                queuedEntries++;
+            }
+        }
+
+        wakeUp();
+    }
+
+    /**
+     * Adds a READ_MANY of ids hashed onto this lane. It is only ordered behind the tasks queued for these ids.
+     */
+    void submitReadMany(Task task, Collection<String> ids) {
+        synchronized (lock) {
+            long sequence = nextSequence++;
+            List<Long> dependencies = new ArrayList<>();
+            for (String id : ids) {
+                KeyState state = keyStates.get(new DocumentKey(task.connectionId(), task.tableName(), id));
+                if (state != null) {
+                    dependencies.add(state.lastSequence);
+                }
+            }
+
+            unfinishedOf(task.tableName()).add(sequence);
+            if (dependencies.isEmpty()) {
+                queues.get(task.priority().ordinal()).add(new Entry(task, sequence, System.nanoTime()));
+                queuedEntries++;
+            } else {
+                waitingReads.add(new WaitingRead(task, sequence, System.nanoTime(), dependencies));
+            }
+        }
+
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        Thread thread = laneThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private TreeSet<Long> unfinishedOf(String tableName) {
+        return unfinishedSequences.computeIfAbsent(tableName, k -> new TreeSet<>());
+    }
+
+    int size() {
+        synchronized (lock) {
+            return queuedEntries + waitingReads.size() + barriers.size();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            drain();
+
+            // Re-check after parking: park() may return spuriously or because of a stale permit
+            while (running && !hasWork()) {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    private void drain() {
+        if (!isProcessing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            drainRemaining();
+        } finally {
+            isProcessing.set(false);
+        }
+    }
+
+    /**
+     * Stops the lane thread. Remaining entries have to be processed with {@link #flush()}.
+     */
+    void stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = laneThread;
+            laneThread = null;
+        }
+
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                // Let the lane finish the batch it is currently executing
+                thread.join(SHUTDOWN_JOIN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Processes all remaining entries on the calling thread. If the lane thread is still executing a batch
+     * (e.g. because it outlived the timeout of {@link #stop()}), this waits until it is done, so two threads
+     * never execute tasks of the same key at the same time.
+     */
+    void flush() {
+        while (!isProcessing.compareAndSet(false, true)) {
+            LockSupport.parkNanos(FLUSH_WAIT_NANOS);
+        }
+
+        try {
+            drainRemaining();
+        } finally {
+            isProcessing.set(false);
+        }
+    }
+
+    private void drainRemaining() {
+        while (true) {
+            boolean progressed = false;
+
+            for (BarrierEntry barrier : takeReachedBarriers()) {
+                progressed = true;
+                // Only the last lane to arrive executes the task; the others continue with their queue
+                if (barrier.remaining().decrementAndGet() == 0) {
+                    dataWorker.executeSingle(barrier.task());
+                    dataWorker.onTaskFinished(barrier.task());
+                }
+            }
+
+            List<Entry> entries = pollNext();
+            if (!entries.isEmpty()) {
+                progressed = true;
+                process(entries);
+            }
+
+            if (!progressed) return;
+        }
+    }
+
+    private boolean hasWork() {
+        synchronized (lock) {
+            if (queuedEntries > 0) return true;
+            for (BarrierEntry barrier : barriers) {
+                if (isReached(barrier)) return true;
+            }
+            return false;
+        }
+    }
+
+    private boolean isReached(BarrierEntry barrier) {
+        TreeSet<Long> unfinished = unfinishedSequences.get(barrier.task().tableName());
+        return unfinished == null || unfinished.isEmpty() || unfinished.first() > barrier.sequence();
+    }
+
+    private List<BarrierEntry> takeReachedBarriers() {
+        synchronized (lock) {
+            if (barriers.isEmpty()) return List.of();
+            List<BarrierEntry> reached = new ArrayList<>();
+            Iterator<BarrierEntry> iterator = barriers.iterator();
+            while (iterator.hasNext()) {
+                BarrierEntry barrier = iterator.next();
+                if (isReached(barrier)) {
+                    reached.add(barrier);
+                    iterator.remove();
+                }
+            }
+            return reached;
+        }
+    }
+
+    /**
+     * Moves the waiting READ_MANY tasks whose dependencies were executed into the queue of their class.
+     */
+    private void releaseWaitingReads() {
+        if (waitingReads.isEmpty()) return;
+
+        Iterator<WaitingRead> iterator = waitingReads.iterator();
+        while (iterator.hasNext()) {
+            WaitingRead read = iterator.next();
+            TreeSet<Long> unfinished = unfinishedSequences.get(read.task().tableName());
+            boolean ready = true;
+            for (long dependency : read.dependencies()) {
+                if (unfinished != null && unfinished.contains(dependency)) {
+                    ready = false;
+                    break;
+                }
+            }
+            if (ready) {
+                iterator.remove();
+                queues.get(read.task().priority().ordinal()).add(new Entry(read.task(), read.sequence(), read.enqueuedAt()));
+                queuedEntries++;
+            }
+        }
+    }
+
+    /**
+     * Takes the next entry from the queue that has to be served, together with all directly following
+     * entries of the same queue it can be batched with.
+     */
+    private List<Entry> pollNext() {
+        synchronized (lock) {
+            ArrayDeque<Entry> queue = selectQueue();
+            if (queue == null) return List.of();
+
+            List<Entry> entries = new ArrayList<>();
+            Entry first = queue.poll();
+            entries.add(first);
+            if (isBatchable(first.task())) {
+                while (entries.size() < BATCH_SIZE) {
+                    Entry next = queue.peek();
+                    if (next == null || !canJoinBatch(first.task(), next.task())) break;
+                    entries.add(queue.poll());
+                }
+            }
+
+            for (Entry entry : entries) {
+                DocumentKey key = DocumentKey.of(entry.task());
+                KeyState state = keyStates.get(key);
+                if (state != null && --state.queued == 0) {
+                    keyStates.remove(key);
+                }
+            }
+            queuedEntries -= entries.size();
+            return entries;
+        }
+    }
+
+    /**
+     * Picks the highest non-empty class, unless the head of a lower class exceeded its starvation limit.
+     */
+    private ArrayDeque<Entry> selectQueue() {
+        long now = System.nanoTime();
+        for (int i = queues.size() - 1; i > 0; i--) {
+            Entry head = queues.get(i).peek();
+            if (head != null && now - head.enqueuedAt() >= STARVATION_LIMIT_NANOS[i]) {
+                return queues.get(i);
+            }
+        }
+        for (ArrayDeque<Entry> queue : queues) {
+            if (!queue.isEmpty()) return queue;
+        }
+        return null;
+    }
+
+    private void process(List<Entry> entries) {
+        try {
+            List<Task> batch = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                Task claimed = dataWorker.claim(entry.task());
+                if (claimed != null) {
+                    batch.add(claimed);
+                }
+            }
+
+            if (batch.size() == 1) {
+                dataWorker.executeSingle(batch.get(0));
+            } else if (!batch.isEmpty()) {
+                dataWorker.executeBatch(batch);
+            }
+        } finally {
+            synchronized (lock) {
+                for (Entry entry : entries) {
+                    TreeSet<Long> unfinished = unfinishedSequences.get(entry.task().tableName());
+                    unfinished.remove(entry.sequence());
+                    if (unfinished.isEmpty()) {
+                        unfinishedSequences.remove(entry.task().tableName());
+                    }
+                }
+                releaseWaitingReads();
+            }
+            for (Entry entry : entries) {
+                dataWorker.onTaskFinished(entry.task());
+            }
+        }
+    }
+
+    private boolean isBatchable(Task task) {
+        return task.type() == Task.TaskType.WRITE || task.type() == Task.TaskType.DELETE;
+    }
+
+    private boolean canJoinBatch(Task first, Task next) {
+        return next.type() == first.type()
+                && Objects.equals(next.tableName(), first.tableName());
+    }
+}
@@ -0,0 +1,100 @@
+package de.peachbiscuit174.peachlib.data.queue;
+
+import de.peachbiscuit174.peachlib.data.DocumentKey;
+import de.peachbiscuit174.peachlib.data.Task;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of all modifications that were queued but not persisted yet.
+ * <p>
+ * READ tasks for a document with a pending modification are answered from this overlay instead of
+ * waiting behind the modification in the queue. Entries are removed as soon as the modification has
+ * been executed (successfully or not), so subsequent reads are served by the backend again.
+ * Modifications spilled to disk or waiting to be encoded by the worker only leave a marker without value:
+ * reads of such a document have to queue up behind the modification. The same applies to a pending PATCH,
+ * INCREMENT, COMPARE_AND_SET or COMPUTE, whose result depends on the stored document.
+ * </p>
+ */
+@ApiStatus.Internal
+public class PendingWriteOverlay {
+
+    /**
+     * Result of an overlay lookup.
+     *
+     * @param jsonValue The pending JSON value, or null if the pending modification is a DELETE.
+     */
+    public record Hit(String jsonValue) {}
+
+    private record Pending(Task task, boolean valueKnown) {}
+
+    private final Map<DocumentKey, Pending> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a WRITE/DELETE task right before it is queued.
+     * Tasks without a future (e.g. recovered from the crash log) are not tracked, reads are
+     * ordered behind them in the queue anyway.
+     */
+    public void track(Task task) {
+        register(task, task.type() == Task.TaskType.WRITE || task.type() == Task.TaskType.DELETE);
+    }
+
+    /**
+     * Registers a WRITE/DELETE task whose payload was spilled to disk.
+     */
+    public void trackSpilled(Task task) {
+        register(task, false);
+    }
+
+    /**
+     * Registers a WRITE task whose value is only encoded by the worker.
+     */
+    public void trackDeferred(Task task) {
+        register(task, false);
+    }
+
+    private void register(Task task, boolean valueKnown) {
+        if (task.id() == null || task.future() == null) return;
+        if (!isModification(task)) return;
+
+        DocumentKey key = DocumentKey.of(task);
+        Pending entry = new Pending(valueKnown ? task : null, valueKnown);
+        // The spill marker does not keep the task itself, otherwise its payload would stay on the heap
+        Pending current = pending.merge(key, entry, (existing, incoming) ->
+                existing.valueKnown() && incoming.valueKnown() && incoming.task().timestamp() < existing.task().timestamp()
+                        ? existing
+                        : incoming);
+
+        if (current == entry) {
+            task.future().whenComplete((result, error) -> pending.remove(key, entry));
+        }
+    }
+
+    /**
+     * Looks up a pending modification of a document.
+     *
+     * @return The hit, or null if no modification with a known value is pending.
+     */
+    public Hit lookup(DocumentKey key) {
+        Pending entry = pending.get(key);
+        if (entry == null || !entry.valueKnown()) return null;
+        Task task = entry.task();
+        return new Hit(task.type() == Task.TaskType.WRITE ? task.jsonValue() : null);
+    }
+
+    private static boolean isModification(Task task) {
+        return switch (task.type()) {
+            case WRITE, DELETE, PATCH, INCREMENT, COMPARE_AND_SET, COMPUTE -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return The number of documents with a pending modification.
+     */
+    public int size() {
+        return pending.size();
+    }
+}
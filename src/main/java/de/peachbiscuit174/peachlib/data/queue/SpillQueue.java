@@ -0,0 +1,214 @@
+package de.peachbiscuit174.peachlib.data.queue;
+
+import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.data.DocumentKey;
+import de.peachbiscuit174.peachlib.data.Task;
+import de.peachbiscuit174.peachlib.data.logs.QueueLogger;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * FIFO overflow of a connection queue that keeps the payload of spilled modifications on disk.
+ * <p>
+ * Modifications that are written to the crash log (see {@link QueueLogger#isLogged(Task)}) are appended to
+ * segment files and only their futures stay in memory.
+ * Other tasks (e.g. READs) are small and stay in memory, but keep their position in the sequence,
+ * so the original order is restored when the tasks are fed back into the execution lanes.
+ * The queue counts its tasks per document and table until they are {@linkplain #release(Task) released}
+ * after dispatching, so reads only have to be spilled behind modifications of the same documents.
+ * Spill files are not needed for crash recovery (the queue log already contains every modification)
+ * and are removed on startup.
+ * </p>
+ */
+@ApiStatus.Internal
+public class SpillQueue {
+
+    /**
+     * A position in the spill sequence.
+     *
+     * @param inMemory The task itself, or null if its payload is the next record on disk.
+     * @param future   The future of the spilled task (only used for records on disk).
+     * @param key      The document of the task.
+     */
+    private record Slot(Task inMemory, CompletableFuture<Object> future, DocumentKey key) {}
+
+    private static final int SEGMENT_RECORDS = 5_000;
+
+    private final File directory;
+    private final Deque<Slot> slots = new ArrayDeque<>();
+    private final Deque<File> closedSegments = new ArrayDeque<>();
+    private final Deque<String> loadedRecords = new ArrayDeque<>();
+    private final Map<DocumentKey, Integer> spilledKeys = new HashMap<>();
+    private final Map<String, Integer> spilledTables = new HashMap<>();
+
+    private File activeSegment;
+    private BufferedWriter writer;
+    private int activeRecords;
+    private long segmentCounter;
+
+    public SpillQueue(File directory) {
+        this.directory = directory;
+        File[] stale = directory.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Appends a task to the end of the spill sequence.
+     */
+    public synchronized void add(Task task) {
+        DocumentKey key = DocumentKey.of(task);
+        spilledKeys.merge(key, 1, Integer::sum);
+        spilledTables.merge(task.tableName(), 1, Integer::sum);
+
+        if (QueueLogger.isLogged(task)) {
+            try {
+                appendRecord(QueueLogger.encode(task));
+                slots.add(new Slot(null, task.future(), key));
+                return;
+            } catch (IOException e) {
+                // Keeping the task in memory is better than losing it or breaking the order
+                PeachLib.getPlugin().getLogger().warning("Failed to spill data task to disk: " + e.getMessage());
+            }
+        }
+        slots.add(new Slot(task, null, key));
+    }
+
+    /**
+     * Removes the oldest task of the spill sequence. It is still counted by {@link #containsKey(DocumentKey)}
+     * and {@link #containsTable(String)} until it is released.
+     *
+     * @return The task, or null if nothing is spilled.
+     */
+    public synchronized Task poll() {
+        Slot slot = slots.poll();
+        if (slot == null) return null;
+        if (slot.inMemory() != null) return slot.inMemory();
+
+        try {
+            if (loadedRecords.isEmpty()) {
+                loadNextSegment();
+            }
+            Task task = QueueLogger.decode(loadedRecords.poll(), slot.future());
+            if (task == null) {
+                throw new IOException("Malformed spill record");
+            }
+            return task;
+        } catch (Exception e) {
+            release(slot.key());
+            IllegalStateException error = new IllegalStateException("Failed to read spilled data task", e);
+            if (slot.future() != null) {
+                slot.future().completeExceptionally(error);
+            } else {
+                PeachLib.getPlugin().getLogger().severe(error.getMessage() + ": " + e.getMessage());
+            }
+            return poll();
+        }
+    }
+
+    /**
+     * Stops counting a polled task once it was dispatched to the execution lanes.
+     */
+    public synchronized void release(Task task) {
+        release(DocumentKey.of(task));
+    }
+
+    private void release(DocumentKey key) {
+        spilledKeys.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        spilledTables.computeIfPresent(key.tableName(), (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * @return true if a task of the document is spilled or was polled but not released yet.
+     */
+    public synchronized boolean containsKey(DocumentKey key) {
+        return spilledKeys.containsKey(key);
+    }
+
+    /**
+     * @return true if a task of the table is spilled or was polled but not released yet.
+     */
+    public synchronized boolean containsTable(String tableName) {
+        return spilledTables.containsKey(tableName);
+    }
+
+    public synchronized boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * Closes the writer and deletes all spill files.
+     */
+    public synchronized void close() {
+        try {
+            if (writer != null) writer.close();
+        } catch (IOException ignored) {}
+        writer = null;
+        spilledKeys.clear();
+        spilledTables.clear();
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private void appendRecord(String record) throws IOException {
+        if (writer == null) {
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            activeSegment = new File(directory, "segment-" + (segmentCounter++) + ".log");
+            writer = new BufferedWriter(new FileWriter(activeSegment, StandardCharsets.UTF_8));
+            activeRecords = 0;
+        }
+
+        writer.write(record);
+        writer.newLine();
+        activeRecords++;
+
+        if (activeRecords >= SEGMENT_RECORDS) {
+            closeActiveSegment();
+        }
+    }
+
+    private void closeActiveSegment() throws IOException {
+        if (writer == null) return;
+        writer.close();
+        writer = null;
+        closedSegments.add(activeSegment);
+        activeSegment = null;
+    }
+
+    private void loadNextSegment() throws IOException {
+        if (closedSegments.isEmpty()) {
+            closeActiveSegment();
+        }
+        File segment = closedSegments.poll();
+        if (segment == null) {
+            throw new IOException("No spill segment left");
+        }
+        loadedRecords.addAll(Files.readAllLines(segment.toPath(), StandardCharsets.UTF_8));
+        Files.deleteIfExists(segment.toPath());
+    }
+}
@@ -0,0 +1,142 @@
+package de.peachbiscuit174.peachlib.data.queue;
+
+import de.peachbiscuit174.peachlib.data.DocumentKey;
+import de.peachbiscuit174.peachlib.data.Task;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merges pending WRITE/DELETE tasks for the same (connectionId, tableName, id) while they wait in the queue.
+ * <p>
+ * The first task of a burst keeps its queue position, later tasks of the same type only replace its payload
+ * if their timestamp is newer. When the worker claims the queued task, it receives the newest payload and a
+ * future that completes the futures of every merged task. Any other keyed task (e.g. a READ or an operation
+ * of a different type) closes the burst, so read-after-write ordering is preserved.
+ * </p>
+ */
+@ApiStatus.Internal
+public class WriteCoalescer {
+
+    private static final class Pending {
+        private final DocumentKey key;
+        private Task latest;
+        private final List<CompletableFuture<Object>> futures = new ArrayList<>(2);
+
+        private Pending(DocumentKey key, Task first) {
+            this.key = key;
+            this.latest = first;
+            this.futures.add(first.future());
+        }
+    }
+
+    // Bursts that still accept new tasks
+    private final Map<DocumentKey, Pending> openBursts = new HashMap<>();
+    // Every burst whose first task still sits in the queue, looked up by that exact task instance
+    private final Map<Task, Pending> queuedBursts = new IdentityHashMap<>();
+
+    private final AtomicLong submittedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+
+    /**
+     * Registers a task before it is added to the queue.
+     *
+     * @param task The new task.
+     * @return true if the task has to be queued, false if it was merged into an already queued task.
+     */
+    public synchronized boolean offer(Task task) {
+        if (task.id() == null) {
+            return true;
+        }
+
+        DocumentKey key = DocumentKey.of(task);
+        if (!isCoalescable(task)) {
+            openBursts.remove(key);
+            return true;
+        }
+
+        submittedWrites.incrementAndGet();
+        Pending pending = openBursts.get(key);
+        if (pending != null && pending.latest.type() == task.type()) {
+            if (task.timestamp() >= pending.latest.timestamp()) {
+                pending.latest = task;
+            }
+            pending.futures.add(task.future());
+            coalescedWrites.incrementAndGet();
+            return false;
+        }
+
+        pending = new Pending(key, task);
+        openBursts.put(key, pending);
+        queuedBursts.put(task, pending);
+        return true;
+    }
+
+    /**
+     * Closes the open burst of the task's key. Has to be called for every task of a key that reaches the queue
+     * without {@link #offer(Task)} (e.g. a spilled task), so later tasks are not merged into a task queued before it.
+     *
+     * @param task The task bypassing {@link #offer(Task)}.
+     */
+    public synchronized void close(Task task) {
+        if (task.id() != null) {
+            openBursts.remove(DocumentKey.of(task));
+        }
+    }
+
+    /**
+     * Called by the worker right after a task was polled from the queue.
+     *
+     * @param queued The task instance that was polled.
+     * @return The task to execute, carrying the newest payload of its burst.
+     */
+    public Task claim(Task queued) {
+        Pending pending;
+        synchronized (this) {
+            pending = queuedBursts.remove(queued);
+            if (pending == null) {
+                return queued;
+            }
+            openBursts.remove(pending.key, pending);
+        }
+
+        if (pending.futures.size() == 1) {
+            return pending.latest;
+        }
+
+        List<CompletableFuture<Object>> futures = pending.futures;
+        CompletableFuture<Object> combined = new CompletableFuture<>();
+        combined.whenComplete((result, error) -> {
+            for (CompletableFuture<Object> future : futures) {
+                if (future == null) continue;
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(result);
+                }
+            }
+        });
+
+        Task latest = pending.latest;
+        return new Task(latest.type(), latest.connectionId(), latest.tableName(), latest.id(),
+                latest.jsonValue(), latest.timestamp(), combined, latest.payload(), latest.priority());
+    }
+
+    private boolean isCoalescable(Task task) {
+        return task.type() == Task.TaskType.WRITE || task.type() == Task.TaskType.DELETE;
+    }
+
+    public long getSubmittedWrites() {
+        return submittedWrites.get();
+    }
+
+    public long getCoalescedWrites() {
+        return coalescedWrites.get();
+    }
+}
@@ -0,0 +1,56 @@
+package de.peachbiscuit174.peachlib.data.scan;
+
+import de.peachbiscuit174.peachlib.api.data.TableEntry;
+import de.peachbiscuit174.peachlib.api.data.codec.Codec;
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncCursor;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Cursor deserializing the documents of an underlying cursor page by page.
+ * Larger pages are deserialized in parallel on the common fork-join pool.
+ *
+ * @param <T> The value type.
+ */
+@ApiStatus.Internal
+public class DecodingCursor<T> implements AsyncCursor<TableEntry<T>> {
+
+    private final AsyncCursor<Document> source;
+    private final Codec<T> codec;
+
+    // Below this page size the overhead of splitting the work outweighs the parallel speedup
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    public DecodingCursor(AsyncCursor<Document> source, Codec<T> codec) {
+        this.source = source;
+        this.codec = codec;
+    }
+
+    @Override
+    public CompletionStage<List<TableEntry<T>>> nextPage() {
+        return source.nextPage().thenApply(page -> {
+            if (page.size() < PARALLEL_THRESHOLD) {
+                return page.stream().map(this::decode).toList();
+            }
+            // Parallel streams keep the encounter order for toList()
+            return page.parallelStream().map(this::decode).toList();
+        });
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+
+    private TableEntry<T> decode(Document document) {
+        try {
+            return new TableEntry<>(document.id(), codec.decode(document.value()), document.timestamp());
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package de.peachbiscuit174.peachlib.data.scan;
+
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncCursor;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * {@link Flow.Publisher} emitting the entries of an {@link AsyncCursor}.
+ * <p>
+ * Pages are only requested while the subscriber has outstanding demand, and at most one page is
+ * buffered at a time, so a slow subscriber never causes the whole table to be loaded into memory.
+ * Every subscription opens its own cursor. Signals are delivered on the thread that completed the
+ * page, usually a storage thread, so subscribers should hand heavy work off to their own executor.
+ * </p>
+ *
+ * @param <T> The entry type.
+ */
+@ApiStatus.Internal
+public class PagedPublisher<T> implements Flow.Publisher<T> {
+
+    private final Supplier<CompletionStage<AsyncCursor<T>>> cursorFactory;
+
+    public PagedPublisher(Supplier<CompletionStage<AsyncCursor<T>>> cursorFactory) {
+        this.cursorFactory = cursorFactory;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        PageSubscription<T> subscription = new PageSubscription<>(subscriber, cursorFactory);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private static final class PageSubscription<T> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Supplier<CompletionStage<AsyncCursor<T>>> cursorFactory;
+        private final Queue<T> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean cursorClosed = new AtomicBoolean(false);
+
+        private volatile AsyncCursor<T> cursor;
+        private volatile boolean fetching;
+        private volatile boolean exhausted;
+        private volatile boolean cancelled;
+        private volatile boolean terminated;
+        private volatile Throwable error;
+        private volatile Throwable invalidRequest;
+
+        private PageSubscription(Flow.Subscriber<? super T> subscriber, Supplier<CompletionStage<AsyncCursor<T>>> cursorFactory) {
+            this.subscriber = subscriber;
+            this.cursorFactory = cursorFactory;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested demand must be positive (rule 3.9), got " + n);
+            } else {
+                requested.getAndUpdate(current -> {
+                    long sum = current + n;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        /**
+         * Serializes all signals to the subscriber. Whoever increments the counter from zero runs the loop,
+         * concurrent callers only mark that another pass is required.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) return;
+
+            int missed = 1;
+            do {
+                drainOnce();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainOnce() {
+            if (terminated) return;
+            if (cancelled) {
+                terminate();
+                return;
+            }
+            if (invalidRequest != null) {
+                terminate();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+
+            T item;
+            while (requested.get() > 0 && (item = buffer.poll()) != null) {
+                try {
+                    subscriber.onNext(item);
+                } catch (Throwable t) {
+                    // A throwing subscriber violates rule 2.13: treat it as cancelled
+                    cancelled = true;
+                    terminate();
+                    return;
+                }
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+                if (cancelled) {
+                    terminate();
+                    return;
+                }
+            }
+
+            if (!buffer.isEmpty()) return;
+
+            if (error != null) {
+                terminate();
+                subscriber.onError(error);
+            } else if (exhausted) {
+                terminate();
+                subscriber.onComplete();
+            } else if (requested.get() > 0 && !fetching) {
+                fetch();
+            }
+        }
+
+        private void fetch() {
+            fetching = true;
+            AsyncCursor<T> current = cursor;
+            if (current == null) {
+                openCursor();
+                return;
+            }
+
+            CompletionStage<List<T>> page;
+            try {
+                page = current.nextPage();
+            } catch (Throwable t) {
+                onPage(null, t);
+                return;
+            }
+            page.whenComplete(this::onPage);
+        }
+
+        private void openCursor() {
+            CompletionStage<AsyncCursor<T>> opening;
+            try {
+                opening = cursorFactory.get();
+            } catch (Throwable t) {
+                onPage(null, t);
+                return;
+            }
+            opening.whenComplete((opened, failure) -> {
+                if (failure != null) {
+                    onPage(null, failure);
+                    return;
+                }
+                cursor = opened;
+                if (terminated) {
+                    closeCursor();
+                }
+                fetching = false;
+                drain();
+            });
+        }
+
+        private void onPage(List<T> page, Throwable failure) {
+            if (failure != null) {
+                error = failure;
+            } else if (page == null || page.isEmpty()) {
+                exhausted = true;
+            } else {
+                buffer.addAll(page);
+            }
+            fetching = false;
+            drain();
+        }
+
+        private void terminate() {
+            terminated = true;
+            buffer.clear();
+            closeCursor();
+        }
+
+        private void closeCursor() {
+            AsyncCursor<T> current = cursor;
+            if (current != null && cursorClosed.compareAndSet(false, true)) {
+                current.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CounterUpdateTest {
+
+    private static void assertJson(String expected, String actual) {
+        assertEquals(JsonParser.parseString(expected), JsonParser.parseString(actual));
+    }
+
+    @Test
+    void addsDeltasToNumericFields() {
+        CounterUpdate update = new CounterUpdate(Map.of("kills", 2L, "stats.deaths", -1L));
+        assertJson("{\"kills\":7,\"stats\":{\"deaths\":2},\"name\":\"Alex\"}",
+                update.applyTo("{\"kills\":5,\"stats\":{\"deaths\":3},\"name\":\"Alex\"}"));
+    }
+
+    @Test
+    void countsMissingAndNonNumericFieldsAsZero() {
+        CounterUpdate update = new CounterUpdate(Map.of("a", 3L, "b", 4L, "c", 5L));
+        assertJson("{\"a\":3,\"b\":4,\"c\":5}", update.applyTo("{\"b\":\"text\",\"c\":{\"x\":1}}"));
+        assertJson("{\"a\":3,\"b\":4,\"c\":5}", update.applyTo(null));
+    }
+
+    @Test
+    void truncatesDecimalsTowardZero() {
+        CounterUpdate update = new CounterUpdate(Map.of("a", 1L, "b", 1L, "c", 1L));
+        assertJson("{\"a\":2,\"b\":0,\"c\":101}", update.applyTo("{\"a\":1.9,\"b\":-1.9,\"c\":1e2}"));
+    }
+
+    @Test
+    void countsStringsAndBooleansAsZero() {
+        CounterUpdate update = new CounterUpdate(Map.of("a", 1L, "b", 1L));
+        assertJson("{\"a\":1,\"b\":1}", update.applyTo("{\"a\":\"7\",\"b\":true}"));
+    }
+
+    @Test
+    void ignoresFieldsWhoseParentIsMissing() {
+        CounterUpdate update = new CounterUpdate(Map.of("stats.kills", 1L, "coins", 10L));
+        assertJson("{\"coins\":10}", update.applyTo("{}"));
+        assertJson("{\"inv\":[{\"amount\":3}]}", new CounterUpdate(Map.of("inv[0].amount", 2L)).applyTo("{\"inv\":[{\"amount\":1}]}"));
+    }
+
+    @Test
+    void repeatedUpdatesAccumulate() {
+        CounterUpdate update = new CounterUpdate(Map.of("n", 1L));
+        String value = null;
+        for (int i = 0; i < 100; i++) {
+            value = update.applyTo(value);
+        }
+        assertJson("{\"n\":100}", value);
+    }
+
+    @Test
+    void survivesSerialization() {
+        CounterUpdate update = new CounterUpdate(Map.of("a", Long.MAX_VALUE, "b.c", Long.MIN_VALUE, "d[1]", 0L));
+        assertEquals(update, CounterUpdate.fromJson(update.toJson()));
+    }
+
+    @Test
+    void rejectsInvalidPaths() {
+        assertThrows(IllegalArgumentException.class, () -> new CounterUpdate(Map.of("a b", 1L)));
+        assertThrows(IllegalArgumentException.class, () -> new CounterUpdate(Map.of("", 1L)));
+    }
+}
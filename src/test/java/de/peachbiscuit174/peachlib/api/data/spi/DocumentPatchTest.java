@@ -0,0 +1,86 @@
+package de.peachbiscuit174.peachlib.api.data.spi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DocumentPatchTest {
+
+    private static DocumentPatch set(String path, String jsonValue) {
+        return new DocumentPatch(List.of(new DocumentPatch.Operation(path, jsonValue)));
+    }
+
+    private static DocumentPatch remove(String path) {
+        return set(path, null);
+    }
+
+    @Test
+    void setsAndReplacesFields() {
+        assertEquals("{\"a\":1,\"b\":\"x\"}", set("b", "\"x\"").applyTo("{\"a\":1}"));
+        assertEquals("{\"a\":{\"b\":[1,2]}}", set("a", "{\"b\":[1,2]}").applyTo("{\"a\":5}"));
+        assertEquals("{\"stats\":{\"kills\":3}}", set("stats.kills", "3").applyTo("{\"stats\":{\"kills\":2}}"));
+    }
+
+    @Test
+    void ignoresFieldsWhoseParentIsMissing() {
+        // Like JSON_SET('{"a":1}', '$.b.c', 2)
+        assertEquals("{\"a\":1}", set("b.c", "2").applyTo("{\"a\":1}"));
+        assertEquals("{\"a\":1}", set("b[0]", "2").applyTo("{\"a\":1}"));
+        assertEquals("{\"a\":[]}", set("a[0].b", "2").applyTo("{\"a\":[]}"));
+    }
+
+    @Test
+    void ignoresFieldsOfScalarParents() {
+        assertEquals("{\"a\":1}", set("a.b", "2").applyTo("{\"a\":1}"));
+        assertEquals("{\"a\":{}}", set("a[0]", "2").applyTo("{\"a\":{}}"));
+    }
+
+    @Test
+    void appendsIndexesPastTheEnd() {
+        // Like JSON_SET('{"a":[1,2]}', '$.a[5]', 3)
+        assertEquals("{\"a\":[1,2,3]}", set("a[5]", "3").applyTo("{\"a\":[1,2]}"));
+        assertEquals("{\"a\":[1,3]}", set("a[1]", "3").applyTo("{\"a\":[1,2]}"));
+        assertEquals("{\"a\":[[0,9]]}", set("a[0][7]", "9").applyTo("{\"a\":[[0]]}"));
+        assertEquals("{\"inv\":[{\"amount\":5}]}", set("inv[0].amount", "5").applyTo("{\"inv\":[{\"amount\":1}]}"));
+    }
+
+    @Test
+    void removesFieldsAndIgnoresMissingOnes() {
+        assertEquals("{\"a\":1}", remove("b").applyTo("{\"a\":1,\"b\":2}"));
+        assertEquals("{\"a\":[1,3]}", remove("a[1]").applyTo("{\"a\":[1,2,3]}"));
+        assertEquals("{\"a\":[1]}", remove("a[4]").applyTo("{\"a\":[1]}"));
+        assertEquals("{\"a\":1}", remove("x.y").applyTo("{\"a\":1}"));
+    }
+
+    @Test
+    void appliesOperationsInOrderToAnEmptyObjectForMissingDocuments() {
+        DocumentPatch patch = new DocumentPatch(List.of(
+                new DocumentPatch.Operation("stats", "{}"),
+                new DocumentPatch.Operation("stats.kills", "1"),
+                new DocumentPatch.Operation("stats", null),
+                new DocumentPatch.Operation("name", "\"Alex\"")));
+        assertEquals("{\"name\":\"Alex\"}", patch.applyTo(null));
+    }
+
+    @Test
+    void translatesAndValidatesPaths() {
+        assertEquals(List.of("inventory", 2, "amount"), DocumentPatch.parsePath("inventory[2].amount"));
+        assertEquals("$.\"inventory\"[2].\"amount\"", DocumentPatch.jsonPath("inventory[2].amount"));
+        assertThrows(IllegalArgumentException.class, () -> DocumentPatch.parsePath(""));
+        assertThrows(IllegalArgumentException.class, () -> DocumentPatch.parsePath("a..b"));
+        assertThrows(IllegalArgumentException.class, () -> set("a'); DROP TABLE x; --", "1"));
+    }
+
+    @Test
+    void survivesSerialization() {
+        DocumentPatch patch = new DocumentPatch(List.of(
+                new DocumentPatch.Operation("a.b", "{\"c\":[1,\"x\"]}"),
+                new DocumentPatch.Operation("d", null)));
+        DocumentPatch restored = DocumentPatch.fromJson(patch.toJson());
+        assertEquals(patch, restored);
+        assertEquals(patch.applyTo("{\"a\":{},\"d\":1}"), restored.applyTo("{\"a\":{},\"d\":1}"));
+    }
+}
@@ -0,0 +1,145 @@
+package de.peachbiscuit174.peachlib.api.managers;
+
+import de.peachbiscuit174.peachlib.PeachLib;
+import de.peachbiscuit174.peachlib.api.data.Leaderboard;
+import de.peachbiscuit174.peachlib.api.data.Table;
+import de.peachbiscuit174.peachlib.data.Task;
+import de.peachbiscuit174.peachlib.data.logs.QueueLogger;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataManagerTest {
+
+    private static final Credentials CREDENTIALS = new Credentials("localhost", 0, "test", "", "", false);
+    private static final String CONNECTION = "memory";
+
+    @TempDir
+    Path directory;
+
+    record Score(int score) {}
+
+    private final MemoryStorageAdapter adapter = new MemoryStorageAdapter();
+    private DataManager dataManager;
+
+    @BeforeAll
+    static void installPlugin() throws ReflectiveOperationException {
+        // The data layer logs through the plugin instance, which is only set in onEnable
+        Logger logger = Logger.getLogger("PeachLib");
+        Plugin plugin = (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[]{Plugin.class},
+                (proxy, method, args) -> "getLogger".equals(method.getName()) ? logger : null);
+        Field field = PeachLib.class.getDeclaredField("plugin");
+        field.setAccessible(true);
+        field.set(null, plugin);
+    }
+
+    private void register(QueueLimits limits) throws Exception {
+        dataManager = newDataManager();
+        dataManager.setQueueLimits(CONNECTION, limits);
+        dataManager.registerStorage(CONNECTION, MemoryStorageAdapter.TYPE, CREDENTIALS, 1);
+    }
+
+    private DataManager newDataManager() {
+        DataManager manager = new DataManager(directory.toFile());
+        manager.registerStorageProvider(adapter.provider());
+        return manager;
+    }
+
+    private static QueueLimits spillingLimits(int maxTasks) {
+        return new QueueLimits(maxTasks, 1024 * 1024, BackpressurePolicy.SPILL_TO_DISK, 0);
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (dataManager != null) {
+            dataManager.shutdown();
+        }
+    }
+
+    @Test
+    void laterWritesDoNotOvertakeASpilledDelete() throws Exception {
+        register(spillingLimits(2));
+        Table gate = dataManager.getTable(CONNECTION, "gate");
+        Table table = dataManager.getTable(CONNECTION, "players");
+
+        CountDownLatch release = adapter.hold("busy");
+        CompletableFuture<Void> busy = gate.set("busy", 0);
+        assertTrue(adapter.awaitHeldWrite());
+
+        CompletableFuture<Void> first = table.set("alex", 1);
+        // The queue is full, so the delete is spilled behind the queued first write
+        CompletableFuture<Void> delete = table.delete("alex");
+        assertEquals(1.0, dataManager.getSaturation(CONNECTION));
+
+        // Raising the limits feeds the delete back into the lane while the first write is still queued
+        dataManager.setQueueLimits(CONNECTION, spillingLimits(100));
+        assertTrue(dataManager.getSaturation(CONNECTION) < 1.0);
+        CompletableFuture<Void> second = table.set("alex", 2);
+
+        release.countDown();
+        CompletableFuture.allOf(busy, first, delete, second).get(5, TimeUnit.SECONDS);
+        assertEquals("2", adapter.value("players", "alex"));
+        assertEquals(2, table.get("alex", Integer.class).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void keepsRecoveredTasksLoggedUntilTheirConnectionIsRegistered() throws Exception {
+        Task crashed = new Task(Task.TaskType.WRITE, CONNECTION, "players", "alex", "1", 1, null);
+        Path logs = Files.createDirectories(directory.resolve("QueueLogs"));
+        Files.writeString(logs.resolve("queue_cache.tmp"), QueueLogger.encode(crashed) + System.lineSeparator());
+
+        // The connection of the recovered write is not registered, so it waits while another connection works
+        dataManager = newDataManager();
+        dataManager.recoverCrashLogs();
+        dataManager.registerStorage("other", MemoryStorageAdapter.TYPE, CREDENTIALS, 1);
+        Table other = dataManager.getTable("other", "scores");
+        for (int i = 0; i < 2; i++) {
+            other.set("top", i).get(5, TimeUnit.SECONDS);
+            dataManager.onWorkerIdle();
+        }
+        assertEquals(1, dataManager.getQueueDepth(CONNECTION));
+        dataManager.shutdown();
+        assertNull(adapter.value("players", "alex"));
+
+        // The next start recovers the write again and executes it once its connection is registered
+        dataManager = newDataManager();
+        dataManager.recoverCrashLogs();
+        dataManager.registerStorage(CONNECTION, MemoryStorageAdapter.TYPE, CREDENTIALS, 1);
+        dataManager.registerStorage("other", MemoryStorageAdapter.TYPE, CREDENTIALS, 1);
+        dataManager.shutdown();
+        dataManager = null;
+        assertEquals("1", adapter.value("players", "alex"));
+    }
+
+    @Test
+    void computeWithoutAnUpdateIsNotReportedAsModification() throws Exception {
+        register(QueueLimits.defaults());
+        Table table = dataManager.getTable(CONNECTION, "players");
+        table.set("alex", new Score(5)).get(5, TimeUnit.SECONDS);
+        Leaderboard leaderboard = table.leaderboard("score").get(5, TimeUnit.SECONDS);
+        assertEquals(5.0, leaderboard.getScore("alex"));
+
+        // Another server changes the document, this server's leaderboard only learns about it from a reload
+        adapter.write("players", "alex", "{\"score\":9}", System.currentTimeMillis() + 1);
+        Score result = table.compute("alex", Score.class, current -> null).get(5, TimeUnit.SECONDS);
+
+        assertEquals(new Score(9), result);
+        assertEquals("{\"score\":9}", adapter.value("players", "alex"));
+        assertEquals(5.0, leaderboard.getScore("alex"));
+    }
+}
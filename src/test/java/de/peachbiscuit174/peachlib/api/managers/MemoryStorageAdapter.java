@@ -0,0 +1,162 @@
+package de.peachbiscuit174.peachlib.api.managers;
+
+import de.peachbiscuit174.peachlib.api.data.spi.AsyncStorageAdapter;
+import de.peachbiscuit174.peachlib.api.data.spi.Document;
+import de.peachbiscuit174.peachlib.api.data.spi.StorageProvider;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory backend for tests of the data queue. Writes of a held id block the lane until they are released.
+ */
+final class MemoryStorageAdapter implements AsyncStorageAdapter {
+
+    static final String TYPE = "MEMORY";
+
+    private final Map<String, Map<String, Document>> tables = new ConcurrentHashMap<>();
+    private final Map<String, CountDownLatch> holds = new ConcurrentHashMap<>();
+    private final Semaphore heldWrites = new Semaphore(0);
+
+    StorageProvider provider() {
+        return new StorageProvider() {
+            @Override
+            public String getType() {
+                return TYPE;
+            }
+
+            @Override
+            public AsyncStorageAdapter createAdapter(File dataFolder) {
+                return MemoryStorageAdapter.this;
+            }
+        };
+    }
+
+    /**
+     * Makes the next writes of the id wait until the returned latch is counted down.
+     */
+    CountDownLatch hold(String id) {
+        CountDownLatch release = new CountDownLatch(1);
+        holds.put(id, release);
+        return release;
+    }
+
+    /**
+     * @return true once a write waits for a hold.
+     */
+    boolean awaitHeldWrite() throws InterruptedException {
+        return heldWrites.tryAcquire(5, TimeUnit.SECONDS);
+    }
+
+    String value(String tableName, String id) {
+        Document document = table(tableName).get(id);
+        return document != null ? document.value() : null;
+    }
+
+    private Map<String, Document> table(String tableName) {
+        return tables.computeIfAbsent(tableName, k -> new ConcurrentHashMap<>());
+    }
+
+    private void awaitRelease(String id) {
+        CountDownLatch release = holds.get(id);
+        if (release == null) return;
+        heldWrites.release();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> connect(Credentials credentials) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> createTableIfNotExists(String tableName) {
+        table(tableName);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> write(String tableName, String id, String jsonValue, long timestamp) {
+        awaitRelease(id);
+        table(tableName).put(id, new Document(id, jsonValue, timestamp));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> writeBatch(String tableName, List<Document> documents) {
+        for (Document document : documents) {
+            write(tableName, document.id(), document.value(), document.timestamp());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> delete(String tableName, String id) {
+        table(tableName).remove(id);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> deleteBatch(String tableName, List<String> ids) {
+        for (String id : ids) {
+            table(tableName).remove(id);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<String> read(String tableName, String id) {
+        return CompletableFuture.completedFuture(value(tableName, id));
+    }
+
+    @Override
+    public CompletionStage<Document> readDocument(String tableName, String id) {
+        return CompletableFuture.completedFuture(table(tableName).get(id));
+    }
+
+    @Override
+    public synchronized CompletionStage<Boolean> compareAndSet(String tableName, String id, long expectedTimestamp, String jsonValue, long timestamp) {
+        Document current = table(tableName).get(id);
+        if (current != null ? current.timestamp() != expectedTimestamp : expectedTimestamp >= 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+        table(tableName).put(id, new Document(id, jsonValue, timestamp));
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletionStage<Map<String, String>> readMany(String tableName, Collection<String> ids) {
+        Map<String, String> values = new HashMap<>();
+        for (String id : ids) {
+            String value = value(tableName, id);
+            if (value != null) {
+                values.put(id, value);
+            }
+        }
+        return CompletableFuture.completedFuture(values);
+    }
+
+    @Override
+    public CompletionStage<Set<String>> getAllPrimaryKeys(String tableName) {
+        return CompletableFuture.completedFuture(Set.copyOf(table(tableName).keySet()));
+    }
+
+    @Override
+    public CompletionStage<Void> disconnect() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
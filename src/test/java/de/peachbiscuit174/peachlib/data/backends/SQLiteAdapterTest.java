@@ -0,0 +1,58 @@
+package de.peachbiscuit174.peachlib.data.backends;
+
+import com.google.gson.JsonParser;
+import de.peachbiscuit174.peachlib.api.data.spi.CounterUpdate;
+import de.peachbiscuit174.peachlib.api.managers.Credentials;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SQLiteAdapterTest {
+
+    @TempDir
+    Path directory;
+
+    private SQLiteAdapter adapter;
+
+    @BeforeEach
+    void connect() throws Exception {
+        adapter = new SQLiteAdapter(directory.toFile());
+        adapter.connect(new Credentials("localhost", 0, "test", "", "", false));
+        adapter.createTableIfNotExists("counters");
+    }
+
+    @AfterEach
+    void disconnect() throws Exception {
+        adapter.disconnect();
+    }
+
+    @Test
+    void incrementsLikeCounterUpdate() throws Exception {
+        CounterUpdate update = new CounterUpdate(Map.of("n", 2L, "stats.kills", -1L));
+        List<String> documents = List.of(
+                "{\"n\":5,\"stats\":{\"kills\":3}}",
+                "{\"n\":1.9,\"stats\":{\"kills\":-1.9}}",
+                "{\"n\":1e2,\"stats\":{}}",
+                "{\"n\":\"7\",\"stats\":{\"kills\":true}}",
+                "{\"n\":null,\"stats\":{\"kills\":[1]}}",
+                "{\"stats\":1}");
+
+        for (int i = 0; i < documents.size(); i++) {
+            String id = "doc" + i;
+            adapter.write("counters", id, documents.get(i), 1);
+            adapter.increment("counters", id, update, 2);
+            assertEquals(JsonParser.parseString(update.applyTo(documents.get(i))),
+                    JsonParser.parseString(adapter.read("counters", id)), documents.get(i));
+        }
+
+        adapter.increment("counters", "missing", update, 2);
+        assertEquals(JsonParser.parseString(update.applyTo(null)), JsonParser.parseString(adapter.read("counters", "missing")));
+    }
+}
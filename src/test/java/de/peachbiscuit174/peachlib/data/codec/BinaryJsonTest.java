@@ -0,0 +1,116 @@
+package de.peachbiscuit174.peachlib.data.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryJsonTest {
+
+    private static final List<String> DOCUMENTS = List.of(
+            "{}",
+            "[]",
+            "null",
+            "{\"name\":\"Steve\",\"level\":42,\"online\":true,\"guild\":null}",
+            "{\"balance\":-17,\"ratio\":0.25,\"big\":12345678901234567890,\"exp\":1.5E10,\"zero\":-0}",
+            "{\"min\":-999999999999999999,\"max\":999999999999999999,\"long\":9223372036854775807}",
+            "{\"text\":\"quote \\\" backslash \\\\ newline \\n umlaut ä emoji 🍑\"}",
+            "{\"items\":[{\"type\":\"DIAMOND\",\"amount\":3},{\"type\":\"DIAMOND\",\"amount\":5},{\"type\":\"STONE\",\"amount\":64}]}",
+            "{\"nested\":{\"a\":{\"b\":{\"c\":[1,[2,[3,{}]],\"a\",\"b\",\"c\"]}}}}"
+    );
+
+    @Test
+    void roundTripKeepsTheJsonText() throws IOException {
+        for (String json : DOCUMENTS) {
+            assertEquals(json, BinaryJson.decode(BinaryJson.encode(json)));
+        }
+    }
+
+    @Test
+    void compressesLargeValues() throws IOException {
+        String json = largeDocument();
+        byte[] encoded = BinaryJson.encode(json);
+
+        assertTrue(encoded.length < json.getBytes(StandardCharsets.UTF_8).length / 4, "encoded " + encoded.length + " bytes");
+        assertEquals(json, BinaryJson.decode(encoded));
+    }
+
+    @Test
+    void rejectsEmptyAndUnknownValues() {
+        assertThrows(IOException.class, () -> BinaryJson.decode(null));
+        assertThrows(IOException.class, () -> BinaryJson.decode(new byte[0]));
+        assertThrows(IOException.class, () -> BinaryJson.decode(new byte[]{7, 0}));
+        assertThrows(IOException.class, () -> BinaryJson.encode("{\"a\":"));
+    }
+
+    @Test
+    void rejectsTruncatedValues() throws IOException {
+        for (String json : List.of(DOCUMENTS.get(3), DOCUMENTS.get(7), largeDocument())) {
+            byte[] encoded = BinaryJson.encode(json);
+            for (int length = 0; length < encoded.length; length++) {
+                byte[] truncated = Arrays.copyOf(encoded, length);
+                assertThrows(IOException.class, () -> BinaryJson.decode(truncated), "truncated to " + length + " bytes");
+            }
+        }
+    }
+
+    @Test
+    void rejectsLengthsTheCompressedDataCannotHold() throws IOException {
+        byte[] encoded = BinaryJson.encode(largeDocument());
+        int start = 1;
+        while ((encoded[start] & 0x80) != 0) {
+            start++;
+        }
+        // Integer.MAX_VALUE as the uncompressed length, which must fail before a buffer of that size is allocated
+        byte[] header = {2, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        byte[] altered = Arrays.copyOf(header, header.length + encoded.length - start - 1);
+        System.arraycopy(encoded, start + 1, altered, header.length, encoded.length - start - 1);
+        IOException exception = assertThrows(IOException.class, () -> BinaryJson.decode(altered));
+        assertTrue(exception.getMessage().contains("exceeds the compressed data"), exception.getMessage());
+    }
+
+    @Test
+    void neverDecodesAlteredCompressedValuesToOtherDocuments() throws IOException {
+        String json = largeDocument();
+        byte[] encoded = BinaryJson.encode(json);
+        for (int i = 1; i < encoded.length; i++) {
+            byte[] altered = encoded.clone();
+            altered[i] ^= 0x10;
+            try {
+                // Flipping unused padding bits of the last Deflate block leaves the value intact
+                assertEquals(json, BinaryJson.decode(altered), "altered byte " + i);
+            } catch (IOException expected) {
+                // Detected by the Deflate format or its checksum
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidTagsAndReferences() {
+        // Format byte, then an unknown tag
+        assertThrows(IOException.class, () -> BinaryJson.decode(new byte[]{1, 42}));
+        // An object whose key refers to a string that was never stored
+        assertThrows(IOException.class, () -> BinaryJson.decode(new byte[]{1, 8, 6, 3, 0, 9}));
+        // A string whose length exceeds the data
+        assertThrows(IOException.class, () -> BinaryJson.decode(new byte[]{1, 5, 100, 'a'}));
+        // A compressed value whose payload is not Deflate data
+        assertThrows(IOException.class, () -> BinaryJson.decode(new byte[]{2, 10, 1, 2, 3, 4}));
+    }
+
+    private static String largeDocument() {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < 200; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"type\":\"DIAMOND_SWORD\",\"amount\":1,\"slot\":").append(i).append(",\"enchanted\":true}");
+        }
+        return json.append("]}").toString();
+    }
+}
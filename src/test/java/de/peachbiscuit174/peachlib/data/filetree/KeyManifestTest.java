@@ -0,0 +1,113 @@
+package de.peachbiscuit174.peachlib.data.filetree;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeyManifestTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger walks = new AtomicInteger();
+    // The ids that exist on disk, as seen by the walk and the lookup
+    private final Set<String> files = new HashSet<>();
+
+    private Set<String> keys(KeyManifest manifest) throws IOException {
+        return manifest.keys(() -> {
+            walks.incrementAndGet();
+            return new HashSet<>(files);
+        }, files::contains);
+    }
+
+    private Path file() {
+        return directory.resolve(".keys");
+    }
+
+    @Test
+    void loadsTheFileAfterACleanClose() throws IOException {
+        files.addAll(Set.of("a", "b"));
+        KeyManifest manifest = KeyManifest.open(file());
+        assertEquals(Set.of("a", "b"), keys(manifest));
+        manifest.onWrite("c");
+        manifest.onDelete("a");
+        manifest.close();
+
+        files.clear();
+        assertEquals(Set.of("b", "c"), keys(KeyManifest.open(file())));
+        assertEquals(1, walks.get());
+    }
+
+    @Test
+    void walksAgainAfterACrash() throws IOException {
+        files.addAll(Set.of("a", "b"));
+        KeyManifest manifest = KeyManifest.open(file());
+        keys(manifest);
+        manifest.close();
+
+        // Opened again, modified and never closed: the file on disk is outdated
+        manifest = KeyManifest.open(file());
+        keys(manifest);
+        manifest.onWrite("c");
+        files.add("c");
+
+        assertEquals(Set.of("a", "b", "c"), keys(KeyManifest.open(file())));
+        assertEquals(2, walks.get());
+    }
+
+    @Test
+    void doesNotTrustAFileWithoutMarker() throws IOException {
+        Files.writeString(file(), "stale\n");
+        files.add("a");
+        assertEquals(Set.of("a"), keys(KeyManifest.open(file())));
+    }
+
+    @Test
+    void checksModificationsDuringTheWalkAgainstTheFiles() throws IOException {
+        KeyManifest manifest = KeyManifest.open(file());
+        files.addAll(Set.of("a", "b"));
+
+        Set<String> keys = manifest.keys(() -> {
+            // The walk has seen a and b, then b is deleted and c is written before it returns
+            Set<String> seen = new HashSet<>(files);
+            files.remove("b");
+            manifest.onDelete("b");
+            files.add("c");
+            manifest.onWrite("c");
+            return seen;
+        }, files::contains);
+
+        assertEquals(Set.of("a", "c"), keys);
+    }
+
+    @Test
+    void retriesAFailedWalk() throws IOException {
+        KeyManifest manifest = KeyManifest.open(file());
+        assertThrows(IOException.class, () -> manifest.keys(() -> {
+            throw new IOException("disk gone");
+        }, id -> false));
+
+        files.add("a");
+        assertEquals(Set.of("a"), keys(manifest));
+    }
+
+    @Test
+    void closeWithoutCollectedKeysWritesNothing() throws IOException {
+        KeyManifest manifest = KeyManifest.open(file());
+        manifest.onWrite("a");
+        manifest.close();
+
+        files.add("b");
+        assertEquals(Set.of("b"), keys(KeyManifest.open(file())));
+        assertEquals(1, walks.get());
+    }
+}
@@ -0,0 +1,112 @@
+package de.peachbiscuit174.peachlib.data.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderStatisticTreeTest {
+
+    private record Pair(double score, String id) {}
+
+    private static List<String> ids(List<OrderStatisticTree.Entry> entries) {
+        return entries.stream().map(OrderStatisticTree.Entry::id).toList();
+    }
+
+    @Test
+    void sortsByScoreAndEqualScoresById() {
+        OrderStatisticTree ascending = new OrderStatisticTree(false);
+        OrderStatisticTree descending = new OrderStatisticTree(true);
+        for (OrderStatisticTree tree : List.of(ascending, descending)) {
+            tree.insert(5, "c");
+            tree.insert(1, "x");
+            tree.insert(5, "a");
+            tree.insert(-2.5, "b");
+        }
+
+        assertEquals(List.of("b", "x", "a", "c"), ids(ascending.range(0, 10)));
+        assertEquals(List.of("a", "c", "x", "b"), ids(descending.range(0, 10)));
+        assertEquals(0, descending.indexOf(5, "a"));
+        assertEquals(3, descending.indexOf(-2.5, "b"));
+    }
+
+    @Test
+    void rangeReturnsPositionsAndStopsAtTheEnd() {
+        OrderStatisticTree tree = new OrderStatisticTree(true);
+        for (int i = 0; i < 10; i++) {
+            tree.insert(i, "p" + i);
+        }
+
+        List<OrderStatisticTree.Entry> page = tree.range(3, 2);
+        assertEquals(List.of(new OrderStatisticTree.Entry(3, "p6", 6), new OrderStatisticTree.Entry(4, "p5", 5)), page);
+        assertEquals(List.of("p1", "p0"), ids(tree.range(8, Integer.MAX_VALUE)));
+        assertTrue(tree.range(10, 5).isEmpty());
+        assertTrue(tree.range(0, 0).isEmpty());
+    }
+
+    @Test
+    void removeIgnoresMissingEntries() {
+        OrderStatisticTree tree = new OrderStatisticTree(false);
+        tree.insert(1, "a");
+        tree.remove(2, "a");
+        tree.remove(1, "b");
+        assertEquals(1, tree.size());
+
+        tree.remove(1, "a");
+        assertEquals(0, tree.size());
+        assertThrows(IllegalStateException.class, () -> tree.indexOf(1, "a"));
+    }
+
+    @Test
+    void rankAndSelectMatchASortedReference() {
+        Random random = new Random(174);
+        for (boolean descending : new boolean[]{false, true}) {
+            Comparator<Pair> order = Comparator.comparingDouble(Pair::score);
+            if (descending) {
+                order = order.reversed();
+            }
+            TreeSet<Pair> reference = new TreeSet<>(order.thenComparing(Pair::id));
+            OrderStatisticTree tree = new OrderStatisticTree(descending);
+
+            for (int step = 0; step < 5_000; step++) {
+                // Few distinct scores, so many entries tie and are ordered by id
+                Pair pair = new Pair(random.nextInt(50), "id" + random.nextInt(500));
+                if (reference.contains(pair)) {
+                    reference.remove(pair);
+                    tree.remove(pair.score(), pair.id());
+                } else {
+                    reference.add(pair);
+                    tree.insert(pair.score(), pair.id());
+                }
+
+                if (step % 250 == 0) {
+                    assertMatches(reference, tree, random);
+                }
+            }
+            assertMatches(reference, tree, random);
+        }
+    }
+
+    private static void assertMatches(TreeSet<Pair> reference, OrderStatisticTree tree, Random random) {
+        List<Pair> sorted = new ArrayList<>(reference);
+        assertEquals(sorted.size(), tree.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(i, tree.indexOf(sorted.get(i).score(), sorted.get(i).id()));
+        }
+
+        int from = random.nextInt(sorted.size() + 1);
+        int count = random.nextInt(20);
+        List<OrderStatisticTree.Entry> expected = new ArrayList<>();
+        for (int i = from; i < Math.min(sorted.size(), from + count); i++) {
+            expected.add(new OrderStatisticTree.Entry(i, sorted.get(i).id(), sorted.get(i).score()));
+        }
+        assertEquals(expected, tree.range(from, count));
+    }
+}
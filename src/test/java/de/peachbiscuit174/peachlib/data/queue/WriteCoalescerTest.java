@@ -0,0 +1,146 @@
+package de.peachbiscuit174.peachlib.data.queue;
+
+import de.peachbiscuit174.peachlib.data.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteCoalescerTest {
+
+    private final WriteCoalescer coalescer = new WriteCoalescer();
+
+    private static Task task(Task.TaskType type, String id, String jsonValue, long timestamp) {
+        return new Task(type, "c", "t", id, jsonValue, timestamp, new CompletableFuture<>());
+    }
+
+    @Test
+    void mergesABurstIntoTheFirstQueuedTask() {
+        Task first = task(Task.TaskType.WRITE, "a", "1", 1);
+        Task second = task(Task.TaskType.WRITE, "a", "2", 2);
+        Task third = task(Task.TaskType.WRITE, "a", "3", 3);
+
+        assertTrue(coalescer.offer(first));
+        assertFalse(coalescer.offer(second));
+        assertFalse(coalescer.offer(third));
+
+        Task claimed = coalescer.claim(first);
+        assertEquals("3", claimed.jsonValue());
+        assertEquals(3, claimed.timestamp());
+
+        claimed.future().complete(null);
+        assertTrue(first.future().isDone());
+        assertTrue(second.future().isDone());
+        assertTrue(third.future().isDone());
+        assertEquals(3, coalescer.getSubmittedWrites());
+        assertEquals(2, coalescer.getCoalescedWrites());
+    }
+
+    @Test
+    void olderTasksDoNotReplaceTheNewestPayload() {
+        Task first = task(Task.TaskType.WRITE, "a", "new", 5);
+        Task late = task(Task.TaskType.WRITE, "a", "old", 4);
+
+        assertTrue(coalescer.offer(first));
+        assertFalse(coalescer.offer(late));
+
+        Task claimed = coalescer.claim(first);
+        assertEquals("new", claimed.jsonValue());
+        claimed.future().complete(null);
+        assertTrue(late.future().isDone());
+    }
+
+    @Test
+    void otherTasksOfTheKeyCloseTheBurst() {
+        Task write = task(Task.TaskType.WRITE, "a", "1", 1);
+        assertTrue(coalescer.offer(write));
+        // The read has to see the first write, so the next write must not be merged into it
+        assertTrue(coalescer.offer(task(Task.TaskType.READ, "a", null, 2)));
+        Task after = task(Task.TaskType.WRITE, "a", "2", 3);
+        assertTrue(coalescer.offer(after));
+
+        assertEquals("1", coalescer.claim(write).jsonValue());
+        assertEquals("2", coalescer.claim(after).jsonValue());
+    }
+
+    @Test
+    void writesAndDeletesDoNotMerge() {
+        Task write = task(Task.TaskType.WRITE, "a", "1", 1);
+        Task delete = task(Task.TaskType.DELETE, "a", null, 2);
+        Task deleteAgain = task(Task.TaskType.DELETE, "a", null, 3);
+
+        assertTrue(coalescer.offer(write));
+        assertTrue(coalescer.offer(delete));
+        assertFalse(coalescer.offer(deleteAgain));
+
+        assertSame(write, coalescer.claim(write));
+        Task claimed = coalescer.claim(delete);
+        assertEquals(Task.TaskType.DELETE, claimed.type());
+        assertEquals(3, claimed.timestamp());
+    }
+
+    @Test
+    void claimingClosesTheBurst() {
+        Task first = task(Task.TaskType.WRITE, "a", "1", 1);
+        assertTrue(coalescer.offer(first));
+        Task claimed = coalescer.claim(first);
+        assertSame(first, claimed);
+
+        // The claimed write may already be executing, so a new write starts a new burst
+        Task next = task(Task.TaskType.WRITE, "a", "2", 2);
+        assertTrue(coalescer.offer(next));
+        assertSame(next, coalescer.claim(next));
+    }
+
+    @Test
+    void tasksQueuedWithoutOfferCloseTheBurst() {
+        Task first = task(Task.TaskType.WRITE, "a", "1", 1);
+        assertTrue(coalescer.offer(first));
+
+        // E.g. a DELETE that was spilled to disk and is queued behind the first write
+        coalescer.close(task(Task.TaskType.DELETE, "a", null, 2));
+        Task next = task(Task.TaskType.WRITE, "a", "3", 3);
+        assertTrue(coalescer.offer(next));
+
+        assertEquals("1", coalescer.claim(first).jsonValue());
+        assertSame(next, coalescer.claim(next));
+    }
+
+    @Test
+    void keysAreCoalescedIndependently() {
+        Task a = task(Task.TaskType.WRITE, "a", "1", 1);
+        Task b = task(Task.TaskType.WRITE, "b", "1", 1);
+        assertTrue(coalescer.offer(a));
+        assertTrue(coalescer.offer(b));
+        assertFalse(coalescer.offer(task(Task.TaskType.WRITE, "b", "2", 2)));
+
+        assertEquals("1", coalescer.claim(a).jsonValue());
+        assertEquals("2", coalescer.claim(b).jsonValue());
+    }
+
+    @Test
+    void failuresCompleteEveryMergedTask() {
+        Task first = task(Task.TaskType.WRITE, "a", "1", 1);
+        Task second = task(Task.TaskType.WRITE, "a", "2", 2);
+        coalescer.offer(first);
+        coalescer.offer(second);
+
+        coalescer.claim(first).future().completeExceptionally(new IllegalStateException("backend down"));
+        assertThrows(CompletionException.class, () -> first.future().join());
+        assertThrows(CompletionException.class, () -> second.future().join());
+    }
+
+    @Test
+    void passesTasksWithoutIdThrough() {
+        Task keys = task(Task.TaskType.GET_ALL_KEYS, null, null, 1);
+        assertTrue(coalescer.offer(keys));
+        assertSame(keys, coalescer.claim(keys));
+        assertEquals(0, coalescer.getSubmittedWrites());
+    }
+}